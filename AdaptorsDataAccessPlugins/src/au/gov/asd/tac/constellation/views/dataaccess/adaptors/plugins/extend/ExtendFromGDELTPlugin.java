@@ -15,6 +15,9 @@
  */
 package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.extend;
 
+import au.gov.asd.tac.constellation.graph.Graph;
+import au.gov.asd.tac.constellation.graph.GraphReadMethods;
+import au.gov.asd.tac.constellation.graph.manager.GraphManager;
 import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
 import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
 import au.gov.asd.tac.constellation.graph.processing.RecordStore;
@@ -27,25 +30,36 @@ import au.gov.asd.tac.constellation.plugins.PluginNotificationLevel;
 import au.gov.asd.tac.constellation.plugins.PluginType;
 import au.gov.asd.tac.constellation.plugins.parameters.PluginParameter;
 import au.gov.asd.tac.constellation.plugins.parameters.PluginParameters;
+import au.gov.asd.tac.constellation.plugins.parameters.types.BooleanParameterType;
+import au.gov.asd.tac.constellation.plugins.parameters.types.BooleanParameterType.BooleanParameterValue;
 import au.gov.asd.tac.constellation.plugins.parameters.types.IntegerParameterType;
 import au.gov.asd.tac.constellation.plugins.parameters.types.IntegerParameterType.IntegerParameterValue;
 import au.gov.asd.tac.constellation.plugins.parameters.types.MultiChoiceParameterType;
 import au.gov.asd.tac.constellation.plugins.parameters.types.MultiChoiceParameterType.MultiChoiceParameterValue;
+import au.gov.asd.tac.constellation.plugins.parameters.types.StringParameterType;
+import au.gov.asd.tac.constellation.plugins.parameters.types.StringParameterValue;
 import au.gov.asd.tac.constellation.views.dataaccess.CoreGlobalParameters;
-import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTDateTime;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTArchiveCache;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTCooccurrenceCache;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTCooccurrenceGraph;
 import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTExtendingUtilities;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTProgress;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRangeUtilities;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRecordStream;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTResultLimit;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRowFilter;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTSeeds;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRelationshipPlan;
 import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRelationshipTypes;
 import au.gov.asd.tac.constellation.views.dataaccess.plugins.DataAccessPlugin;
 import au.gov.asd.tac.constellation.views.dataaccess.plugins.DataAccessPluginCoreType;
 import au.gov.asd.tac.constellation.views.dataaccess.templates.RecordStoreQueryPlugin;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openide.util.NbBundle.Messages;
 import org.openide.util.lookup.ServiceProvider;
@@ -64,10 +78,19 @@ import org.openide.util.lookup.ServiceProviders;
 public class ExtendFromGDELTPlugin extends RecordStoreQueryPlugin implements DataAccessPlugin {
 
     private static final Logger LOGGER = Logger.getLogger(ExtendFromGDELTPlugin.class.getName());
-    
+
     // plugin parameters
     public static final String CHOICE_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "choice");
     public static final String LIMIT_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "limit");
+    public static final String REGION_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "region");
+    public static final String THEMES_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "themes");
+    public static final String COUNTRIES_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "countries");
+    public static final String TONE_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "tone");
+    public static final String DOMAINS_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "domains");
+    public static final String STREAM_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "stream");
+    public static final String GRAPH_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "graph");
+    public static final String DEPTH_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "depth");
+    public static final String FAN_OUT_PARAMETER_ID = PluginParameter.buildId(ExtendFromGDELTPlugin.class, "fanout");
 
     @Override
     public String getType() {
@@ -105,20 +128,104 @@ public class ExtendFromGDELTPlugin extends RecordStoreQueryPlugin implements Dat
         limit.setIntegerValue(20000);
         params.addParameter(limit);
 
+        final PluginParameter<IntegerParameterValue> depth = IntegerParameterType.build(DEPTH_PARAMETER_ID);
+        depth.setName("Hops");
+        depth.setDescription("The number of hops to extend from the selected nodes. More than one hop reads each day once, then walks out from the selected nodes in memory and adds one relationship for each distinct pair of entities with a count of its mentions");
+        IntegerParameterType.setMinimum(depth, 1);
+        IntegerParameterType.setMaximum(depth, 5);
+        depth.setIntegerValue(1);
+        params.addParameter(depth);
+
+        final PluginParameter<IntegerParameterValue> fanOut = IntegerParameterType.build(FAN_OUT_PARAMETER_ID);
+        fanOut.setName("Fan-Out");
+        fanOut.setDescription("When extending more than one hop, the most relationships followed from each entity at each hop, most mentioned first");
+        IntegerParameterType.setMinimum(fanOut, 1);
+        IntegerParameterType.setMaximum(fanOut, 10000);
+        fanOut.setIntegerValue(25);
+        params.addParameter(fanOut);
+
+        final PluginParameter<StringParameterValue> region = StringParameterType.build(REGION_PARAMETER_ID);
+        region.setName("Region");
+        region.setDescription("Only extend through the articles that mention a location inside this region, and only add those locations. A bounding box is written as minLat,minLon,maxLat,maxLon and a polygon as lat,lon;lat,lon;lat,lon. Leave empty to extend through everywhere");
+        params.addParameter(region);
+
+        final PluginParameter<StringParameterValue> themes = StringParameterType.build(THEMES_PARAMETER_ID);
+        themes.setName("Theme Prefixes");
+        themes.setDescription("Only extend the themes that start with one of these comma separated prefixes, such as ECON_,TAX_, from the articles that mention one. Leave empty for every theme");
+        params.addParameter(themes);
+
+        final PluginParameter<StringParameterValue> countries = StringParameterType.build(COUNTRIES_PARAMETER_ID);
+        countries.setName("Countries");
+        countries.setDescription("Only extend the locations in one of these comma separated FIPS country codes, such as AS,NZ, from the articles that mention one. Leave empty for every country");
+        params.addParameter(countries);
+
+        final PluginParameter<StringParameterValue> tone = StringParameterType.build(TONE_PARAMETER_ID);
+        tone.setName("Tone Range");
+        tone.setDescription("Only extend from the articles with an average tone in this range, written as min,max, such as -100,-5. Either side may be left empty. Leave empty for every tone");
+        params.addParameter(tone);
+
+        final PluginParameter<StringParameterValue> domains = StringParameterType.build(DOMAINS_PARAMETER_ID);
+        domains.setName("Source Domains");
+        domains.setDescription("Only extend the sources from these comma separated domains and their subdomains, such as bbc.co.uk, and never the sources from domains starting with -, such as -example.com. Leave empty for every source");
+        params.addParameter(domains);
+
+        final PluginParameter<BooleanParameterValue> stream = BooleanParameterType.build(STREAM_PARAMETER_ID);
+        stream.setName("Stream Results");
+        stream.setDescription("Add the results to the graph in batches of 10,000 as they are read, rather than all at once when the extend is complete. Only applies when extending a single hop");
+        stream.setBooleanValue(false);
+        params.addParameter(stream);
+
+        // streamed results are added to the graph the extend was run against, which is only known once it is run
+        final PluginParameter<StringParameterValue> graph = StringParameterType.build(GRAPH_PARAMETER_ID);
+        graph.setName("Graph");
+        graph.setDescription("The id of the graph the results are streamed to, which is set when the extend is run");
+        graph.setVisible(false);
+        params.addParameter(graph);
+
         return params;
     }
 
+    @Override
+    protected void read(final GraphReadMethods rg, final PluginInteraction interaction, final PluginParameters parameters) throws InterruptedException, PluginException {
+        super.read(rg, interaction, parameters);
+        // streamed results are added to the graph the extend was run against, which is only known here
+        parameters.setStringValue(GRAPH_PARAMETER_ID, rg.getId());
+    }
+
     @Override
     protected RecordStore query(final RecordStore query, final PluginInteraction interaction, final PluginParameters parameters) throws InterruptedException, PluginException {
 
         interaction.setProgress(0, 0, "Hopping...", true);
         // Initialize variables
         final MultiChoiceParameterValue choices = parameters.getMultiChoiceValue(CHOICE_PARAMETER_ID);
-        final List<String> options = choices.getChoices();
+        final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(choices.getChoices());
         final int limit = parameters.getIntegerValue(LIMIT_PARAMETER_ID);
+        final int depth = parameters.getIntegerValue(DEPTH_PARAMETER_ID);
+        // the walk of more than one hop only knows its results once every day has been counted
+        final boolean streamed = parameters.getBooleanValue(STREAM_PARAMETER_ID) && depth == 1;
+        final int fanOut = parameters.getIntegerValue(FAN_OUT_PARAMETER_ID);
+
+        final GDELTRowFilter filter;
+        try {
+            filter = new GDELTRowFilter.Builder()
+                    .setRegion(parameters.getStringValue(REGION_PARAMETER_ID))
+                    .setThemePrefixes(parameters.getStringValue(THEMES_PARAMETER_ID))
+                    .setCountries(parameters.getStringValue(COUNTRIES_PARAMETER_ID))
+                    .setToneRange(parameters.getStringValue(TONE_PARAMETER_ID))
+                    .setSourceDomains(parameters.getStringValue(DOMAINS_PARAMETER_ID))
+                    .build();
+        } catch (final IllegalArgumentException ex) {
+            throw new PluginException(PluginNotificationLevel.ERROR, ex.getLocalizedMessage());
+        }
 
         final ZonedDateTime[] startEnd = CoreGlobalParameters.DATETIME_RANGE_PARAMETER.getDateTimeRangeValue().getZonedStartEnd();
+        final ZonedDateTime start = startEnd[0];
         final ZonedDateTime end = startEnd[1];
+        try {
+            GDELTRangeUtilities.checkRange(start, end);
+        } catch (final IllegalArgumentException ex) {
+            throw new PluginException(PluginNotificationLevel.ERROR, ex.getLocalizedMessage());
+        }
 
         final List<String> labels = query.getAll(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.LABEL);
         
@@ -126,16 +233,34 @@ public class ExtendFromGDELTPlugin extends RecordStoreQueryPlugin implements Dat
             interaction.setProgress(0, 0, "Skipped as no nodes were selected", true);
         } else if (end != null) {
             try {
-                final GDELTDateTime gdt = new GDELTDateTime(end);
-                RecordStore results = GDELTExtendingUtilities.hopRelationships(gdt, options, limit, labels);
-                
-                LocalDate date = LocalDate.parse(gdt.getDay(), DateTimeFormatter.ISO_DATE);
-                while (results == null) {
-                    date = date.minusDays(1);
-                    final ZonedDateTime dateTime = date.atStartOfDay(ZoneId.systemDefault());
-                    final GDELTDateTime newGdt = new GDELTDateTime(dateTime);
-                    results = GDELTExtendingUtilities.hopRelationships(newGdt, options, limit, labels);
+                final GDELTProgress progress = new GDELTProgress("Hopping", (current, total, message) -> interaction.setProgress(current, total, message, true));
+                final GDELTSeeds seeds = GDELTSeeds.fromLabels(labels);
+                final GDELTResultLimit resultLimit = new GDELTResultLimit(limit);
+                if (streamed) {
+                    final String graphId = parameters.getStringValue(GRAPH_PARAMETER_ID);
+                    final Graph graph = graphId == null ? null : GraphManager.getDefault().getAllGraphs().get(graphId);
+                    if (graph == null) {
+                        throw new PluginException(PluginNotificationLevel.ERROR, "The graph the extend was run against is no longer open");
+                    }
+                    final GDELTRecordStream batches = GDELTRecordStream.toGraph(graph, "Extend From GDELT", GDELTRecordStream.DEFAULT_BATCH_SIZE,
+                            stream -> GDELTRangeUtilities.queryRangeInOrder(start, end, gdt -> GDELTExtendingUtilities.hopRelationships(gdt, plan, filter, resultLimit, seeds, stream), progress));
+
+                    LOGGER.log(Level.INFO, "{0}", progress);
+                    LOGGER.log(Level.INFO, "{0}", GDELTArchiveCache.getInstance());
+
+                    interaction.setProgress(1, 0, "Completed successfully - added " + batches.getRecordCount() + " entities in " + batches.getBatchCount() + " batches.", true);
+                    return new GraphRecordStore();
                 }
+
+                final RecordStore results;
+                if (depth > 1) {
+                    results = expand(start, end, plan, filter, resultLimit, seeds, depth, fanOut, progress);
+                } else {
+                    results = GDELTRangeUtilities.retrieveRange(start, end, resultLimit, (gdt, dayLimit) -> GDELTExtendingUtilities.hopRelationships(gdt, plan, filter, dayLimit, seeds), progress);
+                }
+
+                LOGGER.log(Level.INFO, "{0}", progress);
+                LOGGER.log(Level.INFO, "{0}", GDELTArchiveCache.getInstance());
                 
                 interaction.setProgress(1, 0, "Completed successfully - added " + results.size() + " entities.", true);
                 return results;
@@ -148,4 +273,21 @@ public class ExtendFromGDELTPlugin extends RecordStoreQueryPlugin implements Dat
 
         return new GraphRecordStore();
     }
+
+    /**
+     * Get the co-occurrence graph of every day of the range, reading only the
+     * days not already held by the graph cache, then walk them together from
+     * the seeds to the requested number of hops, adding a relationship for
+     * each day of each pair followed.
+     */
+    private static RecordStore expand(final ZonedDateTime start, final ZonedDateTime end, final GDELTRelationshipPlan plan, final GDELTRowFilter filter,
+            final GDELTResultLimit resultLimit, final GDELTSeeds seeds, final int depth, final int fanOut, final GDELTProgress progress) throws IOException, InterruptedException {
+        final List<GDELTCooccurrenceGraph> days = GDELTRangeUtilities.queryRange(start, end, gdt -> GDELTCooccurrenceCache.getInstance().get(gdt, plan, filter), progress);
+        if (days.isEmpty()) {
+            return new GraphRecordStore();
+        }
+        LOGGER.log(Level.INFO, "{0}", GDELTCooccurrenceCache.getInstance());
+        LOGGER.log(Level.INFO, "Extending {0} hops through the co-mentions of {1} days", new Object[]{depth, days.size()});
+        return GDELTCooccurrenceGraph.expand(days, seeds, depth, fanOut, resultLimit);
+    }
 }
@@ -15,6 +15,9 @@
  */
 package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.importing;
 
+import au.gov.asd.tac.constellation.graph.Graph;
+import au.gov.asd.tac.constellation.graph.GraphReadMethods;
+import au.gov.asd.tac.constellation.graph.manager.GraphManager;
 import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
 import au.gov.asd.tac.constellation.graph.processing.RecordStore;
 import au.gov.asd.tac.constellation.plugins.Plugin;
@@ -25,25 +28,40 @@ import au.gov.asd.tac.constellation.plugins.PluginNotificationLevel;
 import au.gov.asd.tac.constellation.plugins.PluginType;
 import au.gov.asd.tac.constellation.plugins.parameters.PluginParameter;
 import au.gov.asd.tac.constellation.plugins.parameters.PluginParameters;
+import au.gov.asd.tac.constellation.plugins.parameters.types.BooleanParameterType;
+import au.gov.asd.tac.constellation.plugins.parameters.types.BooleanParameterType.BooleanParameterValue;
 import au.gov.asd.tac.constellation.plugins.parameters.types.IntegerParameterType;
 import au.gov.asd.tac.constellation.plugins.parameters.types.IntegerParameterType.IntegerParameterValue;
 import au.gov.asd.tac.constellation.plugins.parameters.types.MultiChoiceParameterType;
 import au.gov.asd.tac.constellation.plugins.parameters.types.MultiChoiceParameterType.MultiChoiceParameterValue;
+import au.gov.asd.tac.constellation.plugins.parameters.types.SingleChoiceParameterType;
+import au.gov.asd.tac.constellation.plugins.parameters.types.SingleChoiceParameterType.SingleChoiceParameterValue;
+import au.gov.asd.tac.constellation.plugins.parameters.types.StringParameterType;
+import au.gov.asd.tac.constellation.plugins.parameters.types.StringParameterValue;
 import au.gov.asd.tac.constellation.views.dataaccess.CoreGlobalParameters;
-import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTDateTime;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTArchiveCache;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTEntityAggregator;
 import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTEntityTypes;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTFeed;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTImportMode;
 import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTImportingUtilities;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTProgress;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRangeUtilities;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRecordStream;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRecordSample;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTResultLimit;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTRowFilter;
+import au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities.GDELTTopEntities;
 import au.gov.asd.tac.constellation.views.dataaccess.plugins.DataAccessPlugin;
 import au.gov.asd.tac.constellation.views.dataaccess.plugins.DataAccessPluginCoreType;
 import au.gov.asd.tac.constellation.views.dataaccess.templates.RecordStoreQueryPlugin;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openide.util.NbBundle.Messages;
 import org.openide.util.lookup.ServiceProvider;
@@ -76,6 +94,16 @@ public class ImportEntitiesFromGDELTPlugin extends RecordStoreQueryPlugin implem
 
     public static final String CHOICE_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "choice");
     public static final String LIMIT_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "limit");
+    public static final String MODE_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "mode");
+    public static final String FEED_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "feed");
+    public static final String SEED_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "seed");
+    public static final String REGION_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "region");
+    public static final String THEMES_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "themes");
+    public static final String COUNTRIES_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "countries");
+    public static final String TONE_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "tone");
+    public static final String DOMAINS_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "domains");
+    public static final String STREAM_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "stream");
+    public static final String GRAPH_PARAMETER_ID = PluginParameter.buildId(ImportEntitiesFromGDELTPlugin.class, "graph");
 
     @Override
     public PluginParameters createParameters() {
@@ -98,6 +126,65 @@ public class ImportEntitiesFromGDELTPlugin extends RecordStoreQueryPlugin implem
         limit.setIntegerValue(20000);
         params.addParameter(limit);
 
+        final PluginParameter<SingleChoiceParameterValue> mode = SingleChoiceParameterType.build(MODE_PARAMETER_ID);
+        mode.setName("Import Mode");
+        mode.setDescription("Import every mention in the order received, one entity per distinct entity with a count of its mentions, the most mentioned entities of each type, or a random sample of every mention");
+        SingleChoiceParameterType.setOptions(mode, GDELTImportMode.getValues(GDELTImportMode.FIRST, GDELTImportMode.AGGREGATED, GDELTImportMode.TOP, GDELTImportMode.SAMPLED));
+        SingleChoiceParameterType.setChoice(mode, GDELTImportMode.FIRST.toString());
+        params.addParameter(mode);
+
+        final PluginParameter<SingleChoiceParameterValue> feed = SingleChoiceParameterType.build(FEED_PARAMETER_ID);
+        feed.setName("Feed");
+        feed.setDescription("Import from the daily archives over the date range, or from the 15 minute updates published since the last import");
+        SingleChoiceParameterType.setOptions(feed, GDELTFeed.getValues());
+        SingleChoiceParameterType.setChoice(feed, GDELTFeed.DAILY.toString());
+        params.addParameter(feed);
+
+        final PluginParameter<IntegerParameterValue> seed = IntegerParameterType.build(SEED_PARAMETER_ID);
+        seed.setName("Sample Seed");
+        seed.setDescription("The seed of the Random Sample import mode, so that the same sample can be imported again. Use 0 for a different sample each time");
+        IntegerParameterType.setMinimum(seed, 0);
+        seed.setIntegerValue(0);
+        params.addParameter(seed);
+
+        final PluginParameter<StringParameterValue> region = StringParameterType.build(REGION_PARAMETER_ID);
+        region.setName("Region");
+        region.setDescription("Only import from the articles that mention a location inside this region, and only import those locations. A bounding box is written as minLat,minLon,maxLat,maxLon and a polygon as lat,lon;lat,lon;lat,lon. Leave empty to import from everywhere");
+        params.addParameter(region);
+
+        final PluginParameter<StringParameterValue> themes = StringParameterType.build(THEMES_PARAMETER_ID);
+        themes.setName("Theme Prefixes");
+        themes.setDescription("Only import the themes that start with one of these comma separated prefixes, such as ECON_,TAX_, from the articles that mention one. Leave empty for every theme");
+        params.addParameter(themes);
+
+        final PluginParameter<StringParameterValue> countries = StringParameterType.build(COUNTRIES_PARAMETER_ID);
+        countries.setName("Countries");
+        countries.setDescription("Only import the locations in one of these comma separated FIPS country codes, such as AS,NZ, from the articles that mention one. Leave empty for every country");
+        params.addParameter(countries);
+
+        final PluginParameter<StringParameterValue> tone = StringParameterType.build(TONE_PARAMETER_ID);
+        tone.setName("Tone Range");
+        tone.setDescription("Only import from the articles with an average tone in this range, written as min,max, such as -100,-5. Either side may be left empty. Leave empty for every tone");
+        params.addParameter(tone);
+
+        final PluginParameter<StringParameterValue> domains = StringParameterType.build(DOMAINS_PARAMETER_ID);
+        domains.setName("Source Domains");
+        domains.setDescription("Only import the sources from these comma separated domains and their subdomains, such as bbc.co.uk, and never the sources from domains starting with -, such as -example.com. Leave empty for every source");
+        params.addParameter(domains);
+
+        final PluginParameter<BooleanParameterValue> stream = BooleanParameterType.build(STREAM_PARAMETER_ID);
+        stream.setName("Stream Results");
+        stream.setDescription("Add the results to the graph in batches of 10,000 as they are read, rather than all at once when the import is complete. Only applies to the First Mentions import mode");
+        stream.setBooleanValue(false);
+        params.addParameter(stream);
+
+        // streamed results are added to the graph the import was run against, which is only known once it is run
+        final PluginParameter<StringParameterValue> graph = StringParameterType.build(GRAPH_PARAMETER_ID);
+        graph.setName("Graph");
+        graph.setDescription("The id of the graph the results are streamed to, which is set when the import is run");
+        graph.setVisible(false);
+        params.addParameter(graph);
+
         return params;
 
     }
@@ -107,30 +194,93 @@ public class ImportEntitiesFromGDELTPlugin extends RecordStoreQueryPlugin implem
         return "Import Entities from GDELT";
     }
 
+    @Override
+    protected void read(final GraphReadMethods rg, final PluginInteraction interaction, final PluginParameters parameters) throws InterruptedException, PluginException {
+        super.read(rg, interaction, parameters);
+        // streamed results are added to the graph the import was run against, which is only known here
+        parameters.setStringValue(GRAPH_PARAMETER_ID, rg.getId());
+    }
+
     @Override
     protected RecordStore query(final RecordStore query, final PluginInteraction interaction, final PluginParameters parameters) throws InterruptedException, PluginException {
 
         interaction.setProgress(0, 0, "Importing...", true);
         // Initialize variables
         final MultiChoiceParameterValue choices = parameters.getMultiChoiceValue(CHOICE_PARAMETER_ID);
-        final List<String> options = choices.getChoices();
+        final EnumSet<GDELTEntityTypes> types = GDELTEntityTypes.fromValues(choices.getChoices());
         final int limit = parameters.getIntegerValue(LIMIT_PARAMETER_ID);
+        final GDELTImportMode mode = GDELTImportMode.fromLabel(parameters.getStringValue(MODE_PARAMETER_ID));
+        final GDELTFeed feed = GDELTFeed.fromLabel(parameters.getStringValue(FEED_PARAMETER_ID));
+        final int seed = parameters.getIntegerValue(SEED_PARAMETER_ID);
+        // only the results of the First Mentions mode are known before the whole range has been read
+        final boolean streamed = parameters.getBooleanValue(STREAM_PARAMETER_ID) && mode == GDELTImportMode.FIRST;
+
+        final GDELTRowFilter filter;
+        try {
+            filter = new GDELTRowFilter.Builder()
+                    .setRegion(parameters.getStringValue(REGION_PARAMETER_ID))
+                    .setThemePrefixes(parameters.getStringValue(THEMES_PARAMETER_ID))
+                    .setCountries(parameters.getStringValue(COUNTRIES_PARAMETER_ID))
+                    .setToneRange(parameters.getStringValue(TONE_PARAMETER_ID))
+                    .setSourceDomains(parameters.getStringValue(DOMAINS_PARAMETER_ID))
+                    .build();
+        } catch (final IllegalArgumentException ex) {
+            throw new PluginException(PluginNotificationLevel.ERROR, ex.getLocalizedMessage());
+        }
 
         final ZonedDateTime[] startEnd = CoreGlobalParameters.DATETIME_RANGE_PARAMETER.getDateTimeRangeValue().getZonedStartEnd();
+        final ZonedDateTime start = startEnd[0];
         final ZonedDateTime end = startEnd[1];
+        if (feed == GDELTFeed.DAILY) {
+            try {
+                GDELTRangeUtilities.checkRange(start, end);
+            } catch (final IllegalArgumentException ex) {
+                throw new PluginException(PluginNotificationLevel.ERROR, ex.getLocalizedMessage());
+            }
+        }
         
         if (end != null) {
             try {
-                final GDELTDateTime gdt = new GDELTDateTime(end);
-                RecordStore results = GDELTImportingUtilities.retrieveEntities(gdt, options, limit);
-                
-                LocalDate date = LocalDate.parse(gdt.getDay(), DateTimeFormatter.ISO_DATE);
-                while (results == null) {
-                    date = date.minusDays(1);
-                    final ZonedDateTime dateTime = date.atStartOfDay(ZoneId.systemDefault());
-                    final GDELTDateTime newGdt = new GDELTDateTime(dateTime);
-                    results = GDELTImportingUtilities.retrieveEntities(newGdt, options, limit);
+                final GDELTProgress progress = new GDELTProgress("Importing", (current, total, message) -> interaction.setProgress(current, total, message, true));
+                if (streamed) {
+                    final String graphId = parameters.getStringValue(GRAPH_PARAMETER_ID);
+                    final Graph graph = graphId == null ? null : GraphManager.getDefault().getAllGraphs().get(graphId);
+                    if (graph == null) {
+                        throw new PluginException(PluginNotificationLevel.ERROR, "The graph the import was run against is no longer open");
+                    }
+                    final GDELTResultLimit resultLimit = new GDELTResultLimit(limit);
+                    final GDELTRecordStream batches = GDELTRecordStream.toGraph(graph, "Import Entities From GDELT", GDELTRecordStream.DEFAULT_BATCH_SIZE,
+                            stream -> GDELTRangeUtilities.queryFeedInOrder(feed, getClass().getSimpleName(), start, end, gdt -> GDELTImportingUtilities.streamEntities(gdt, types, filter, resultLimit, stream), progress));
+
+                    LOGGER.log(Level.INFO, "{0}", progress);
+                    LOGGER.log(Level.INFO, "{0}", GDELTArchiveCache.getInstance());
+
+                    interaction.setProgress(1, 0, "Completed successfully - added " + batches.getRecordCount() + " entities in " + batches.getBatchCount() + " batches.", true);
+                    return new GraphRecordStore();
                 }
+
+                final RecordStore results;
+                if (mode == GDELTImportMode.AGGREGATED) {
+                    // each day is counted on its own and the days are merged in date order, so the same entities are kept under the limit each time
+                    final List<GDELTEntityAggregator> days = GDELTRangeUtilities.queryFeed(feed, getClass().getSimpleName(), start, end,
+                            gdt -> GDELTImportingUtilities.retrieveAggregatedEntities(gdt, types, filter, new GDELTEntityAggregator(Integer.MAX_VALUE)), progress);
+                    results = GDELTEntityAggregator.merge(limit, days).toRecordStore();
+                } else if (mode == GDELTImportMode.TOP) {
+                    final GDELTTopEntities top = new GDELTTopEntities(types, limit);
+                    // the summary depends on the order the counts are merged in, so the days are read one at a time in date order
+                    GDELTRangeUtilities.queryFeedInOrder(feed, getClass().getSimpleName(), start, end, gdt -> GDELTImportingUtilities.retrieveTopEntities(gdt, types, filter, top), progress);
+                    results = top.toRecordStore();
+                } else if (mode == GDELTImportMode.SAMPLED) {
+                    final GDELTRecordSample sample = new GDELTRecordSample(limit, seed);
+                    GDELTRangeUtilities.queryFeed(feed, getClass().getSimpleName(), start, end, gdt -> GDELTImportingUtilities.retrieveSampledEntities(gdt, types, filter, sample), progress);
+                    results = sample.toRecordStore();
+                } else {
+                    final GDELTResultLimit resultLimit = new GDELTResultLimit(limit);
+                    results = GDELTRangeUtilities.retrieveFeed(feed, getClass().getSimpleName(), start, end, resultLimit, (gdt, dayLimit) -> GDELTImportingUtilities.retrieveEntities(gdt, types, filter, dayLimit), progress);
+                }
+
+                LOGGER.log(Level.INFO, "{0}", progress);
+                LOGGER.log(Level.INFO, "{0}", GDELTArchiveCache.getInstance());
                 interaction.setProgress(1, 0, "Completed successfully - added " + results.size() + " entities.", true);
                 return results;
                 
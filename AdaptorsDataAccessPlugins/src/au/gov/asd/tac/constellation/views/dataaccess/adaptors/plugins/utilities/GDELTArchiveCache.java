@@ -0,0 +1,363 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A size bounded on-disk cache of downloaded GDELT archives.
+ * <p>
+ * Archives are keyed by {@link GDELTDateTime#getFile()}, or by
+ * {@link GDELTDateTime#getEventsFile()} for the Events export of a day, and
+ * evicted in least recently used order once the total size of the cache
+ * exceeds its byte budget. Downloads are saved to a partial file while they
+ * are read and renamed into place once complete, so a partially downloaded
+ * archive is never served from the cache. A partial file left by an
+ * interrupted download is resumed by the next download of the same archive,
+ * and is removed once it is more than a day old.
+ * <p>
+ * The cache directory and byte budget can be set with the
+ * {@value #CACHE_DIRECTORY_PROPERTY} and {@value #CACHE_SIZE_PROPERTY} system
+ * properties. A budget of zero disables caching.
+ * <p>
+ * Files derived from an archive, such as the {@link GDELTSnapshot} of the day,
+ * its {@link GDELTBlockArchive} or its {@link GDELTArchiveIndex}, live in the {@value #INDEX_DIRECTORY} sub
+ * directory under names that start with the key of the archive. They count
+ * towards the budget of the archive they were derived from, and are removed
+ * along with the archive when it is evicted. Derived files in a format that
+ * is no longer read are removed when the cache is loaded.
+ *
+ * @author canis_majoris
+ */
+public class GDELTArchiveCache {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTArchiveCache.class.getName());
+
+    public static final String CACHE_DIRECTORY_PROPERTY = "constellation.gdelt.cache.directory";
+    public static final String CACHE_SIZE_PROPERTY = "constellation.gdelt.cache.size";
+
+    private static final long DEFAULT_CACHE_SIZE = 2L * 1024 * 1024 * 1024;
+    private static final String DEFAULT_CACHE_DIRECTORY = System.getProperty("user.home") + File.separator + ".CONSTELLATION" + File.separator + "GDELT";
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    private static final String PART_EXTENSION = ".part";
+    private static final String INDEX_DIRECTORY = "index";
+    private static final long PART_LIFETIME = 24L * 60 * 60 * 1000;
+    private static final List<String> DERIVED_EXTENSIONS = List.of(GDELTSnapshot.SNAPSHOT_EXTENSION, GDELTBlockArchive.BLOCKS_EXTENSION, GDELTBlockArchive.INDEX_EXTENSION, GDELTArchiveIndex.INDEX_EXTENSION);
+
+    private static GDELTArchiveCache instance = null;
+
+    private final File directory;
+    private long maximumSize;
+    private long currentSize = 0;
+
+    // access ordered so iteration starts at the least recently used archive
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    // archives being downloaded, which other readers stream directly rather than share the partial file
+    private final Set<String> downloading = new HashSet<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    public static synchronized GDELTArchiveCache getInstance() {
+        if (instance == null) {
+            final String directory = System.getProperty(CACHE_DIRECTORY_PROPERTY, DEFAULT_CACHE_DIRECTORY);
+            long size = DEFAULT_CACHE_SIZE;
+            try {
+                size = Long.parseLong(System.getProperty(CACHE_SIZE_PROPERTY, Long.toString(DEFAULT_CACHE_SIZE)));
+            } catch (final NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid GDELT cache size, using the default of {0} bytes", DEFAULT_CACHE_SIZE);
+            }
+            instance = new GDELTArchiveCache(new File(directory), size);
+        }
+        return instance;
+    }
+
+    public GDELTArchiveCache(final File directory, final long maximumSize) {
+        this.directory = directory;
+        this.maximumSize = Math.max(0, maximumSize);
+        load();
+    }
+
+    /**
+     * Open the archive for the given date. An archive that is not already in
+     * the cache is saved into the cache as the returned stream is read.
+     *
+     * @param gdt the date of the archive to open.
+     * @return a stream over the zipped archive.
+     * @throws IOException if the archive could not be downloaded or read.
+     */
+    public InputStream open(final GDELTDateTime gdt) throws IOException {
+        return open(gdt.getFile(), gdt.getUrl());
+    }
+
+    /**
+     * Open an archive published alongside the GDELT Knowledge Graph, such as
+     * the Events export of a day, which is cached the same way.
+     *
+     * @param key the name the archive is cached under.
+     * @param url the URL of the archive.
+     * @return a stream over the zipped archive.
+     * @throws IOException if the archive could not be downloaded or read.
+     */
+    public InputStream open(final String key, final String url) throws IOException {
+        final File archive = getArchive(key);
+
+        synchronized (this) {
+            if (entries.get(key) != null && archive.isFile()) {
+                hits.incrementAndGet();
+                bytesSaved.addAndGet(archive.length());
+                if (!archive.setLastModified(System.currentTimeMillis())) {
+                    LOGGER.log(Level.FINE, "Unable to update the access time of {0}", archive);
+                }
+                GDELTProgress.getCurrentDay().setArchiveLength(archive.length());
+                return GDELTProgress.getCurrentDay().track(new FileInputStream(archive));
+            }
+        }
+
+        misses.incrementAndGet();
+        synchronized (this) {
+            if (maximumSize == 0 || !directory.isDirectory() || !downloading.add(key)) {
+                return GDELTProgress.getCurrentDay().track(GDELTFetcher.getInstance().open(url));
+            }
+        }
+
+        final InputStream in;
+        try {
+            in = GDELTFetcher.getInstance().download(url, new File(directory, key + ARCHIVE_EXTENSION + PART_EXTENSION), part -> store(key, part));
+        } catch (final IOException ex) {
+            release(key);
+            throw ex;
+        }
+        return GDELTProgress.getCurrentDay().track(new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    release(key);
+                }
+            }
+        });
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the directory for files derived from cached archives.
+     *
+     * @return the directory, or null if caching is disabled.
+     */
+    public synchronized File getIndexDirectory() {
+        if (maximumSize == 0 || !directory.isDirectory()) {
+            return null;
+        }
+        final File indexDirectory = new File(directory, INDEX_DIRECTORY);
+        return indexDirectory.isDirectory() || indexDirectory.mkdirs() ? indexDirectory : null;
+    }
+
+    /**
+     * Count the files derived from an archive towards the budget, such as once
+     * a snapshot of the day has been written, and evict other archives if the
+     * cache is now over budget.
+     *
+     * @param key the key of the archive the files were derived from.
+     */
+    public synchronized void updateDerivedSize(final String key) {
+        final File archive = getArchive(key);
+        final long size = (archive.isFile() ? archive.length() : 0) + getDerivedSize(key);
+        final Long previous = entries.put(key, size);
+        currentSize += size - (previous == null ? 0 : previous);
+        evict(key);
+    }
+
+    public synchronized void setMaximumSize(final long maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        evict(null);
+    }
+
+    public synchronized long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized long getCurrentSize() {
+        return currentSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GDELT archive cache: %d hits, %d misses, %d bytes saved, %d of %d bytes used",
+                getHits(), getMisses(), getBytesSaved(), getCurrentSize(), getMaximumSize());
+    }
+
+    private File getArchive(final String key) {
+        return new File(directory, key + ARCHIVE_EXTENSION);
+    }
+
+    private File[] getDerivedFiles(final String key) {
+        final File[] files = new File(directory, INDEX_DIRECTORY).listFiles((dir, name) -> isDerived(name, key));
+        return files == null ? new File[0] : files;
+    }
+
+    private long getDerivedSize(final String key) {
+        long size = 0;
+        for (final File file : getDerivedFiles(key)) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    private static boolean isDerived(final String name, final String key) {
+        return name.startsWith(key) && (name.length() == key.length() || name.charAt(key.length()) == '.');
+    }
+
+    /**
+     * Move a completed download into place and add it to the cache.
+     */
+    private void store(final String key, final File part) throws IOException {
+        final File archive = getArchive(key);
+        try {
+            Files.move(part.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(part.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        updateDerivedSize(key);
+    }
+
+    private synchronized void release(final String key) {
+        downloading.remove(key);
+    }
+
+    /**
+     * Remove least recently used archives until the cache is within its
+     * budget. The archive that has just been added is never removed so that it
+     * can still be read even when it is larger than the whole budget.
+     *
+     * @param keep the key of an archive to retain, or null.
+     */
+    private void evict(final String keep) {
+        final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (currentSize > maximumSize && iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            final File archive = getArchive(entry.getKey());
+            if (archive.delete() || !archive.exists()) {
+                currentSize -= entry.getValue();
+                iterator.remove();
+                GDELTSnapshot.delete(new File(directory, INDEX_DIRECTORY), entry.getKey());
+                GDELTBlockArchive.delete(new File(directory, INDEX_DIRECTORY), entry.getKey());
+                GDELTArchiveIndex.delete(new File(directory, INDEX_DIRECTORY), entry.getKey());
+                for (final File file : getDerivedFiles(entry.getKey())) {
+                    if (!file.delete()) {
+                        LOGGER.log(Level.FINE, "Unable to remove {0}", file);
+                    }
+                }
+            } else {
+                LOGGER.log(Level.WARNING, "Unable to evict {0} from the GDELT archive cache", archive);
+            }
+        }
+    }
+
+    private void load() {
+        if (maximumSize == 0 || !directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        // restore the access order from the file timestamps, oldest first
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        final long now = System.currentTimeMillis();
+        final Map<String, Long> sizes = new LinkedHashMap<>();
+        for (final File file : files) {
+            final String name = file.getName();
+            if (name.endsWith(PART_EXTENSION)) {
+                // recent downloads are kept to be resumed
+                if (now - file.lastModified() > PART_LIFETIME && !file.delete()) {
+                    LOGGER.log(Level.FINE, "Unable to remove incomplete download {0}", file);
+                }
+            } else if (name.endsWith(ARCHIVE_EXTENSION)) {
+                sizes.put(name.substring(0, name.length() - ARCHIVE_EXTENSION.length()), file.length());
+            }
+        }
+
+        // add the derived files to the archive they came from, and remove those left by evicted archives or earlier formats
+        final File[] derived = new File(directory, INDEX_DIRECTORY).listFiles();
+        for (final File file : derived == null ? new File[0] : derived) {
+            final String name = file.getName();
+            final String key = getKey(name, sizes);
+            if (key != null && DERIVED_EXTENSIONS.contains(name.substring(key.length()))) {
+                sizes.merge(key, file.length(), Long::sum);
+            } else if ((key != null && !name.endsWith(PART_EXTENSION) || now - file.lastModified() > PART_LIFETIME) && !file.delete()) {
+                LOGGER.log(Level.FINE, "Unable to remove {0}", file);
+            }
+        }
+
+        for (final Map.Entry<String, Long> size : sizes.entrySet()) {
+            entries.put(size.getKey(), size.getValue());
+            currentSize += size.getValue();
+        }
+        evict(null);
+    }
+
+    // the key of the archive a derived file came from, which is the name up to one of its dots
+    private static String getKey(final String name, final Map<String, Long> keys) {
+        for (int end = name.length(); end > 0; end = name.lastIndexOf('.', end - 1)) {
+            if (keys.containsKey(name.substring(0, end))) {
+                return name.substring(0, end);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An inverted index from the people, organisations and locations mentioned in
+ * a day of the GDELT Knowledge Graph to the numbers of the rows that mention
+ * them, as returned by {@link GDELTRow#getOrdinal()}.
+ * <p>
+ * The index of a day is built the first time a query reads every row of the
+ * day, from whichever {@link GDELTRowSource} it reads, by recording the
+ * entities of each row as the query's own parsers visit it. It is written to
+ * the {@link GDELTArchiveCache} index directory and removed along with the
+ * archive. Row numbers are the same in the archive, the {@link GDELTSnapshot}
+ * and the {@link GDELTBlockArchive} of a day, so once the day has a local copy
+ * extends seek to the rows listed for their seeds rather than reading every
+ * row. Locations are indexed by their full name, which is how they are
+ * identified. Loaded indices are held softly in memory so that repeated
+ * extends over the same days do not reload them.
+ *
+ * @author canis_majoris
+ */
+public class GDELTArchiveIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTArchiveIndex.class.getName());
+
+    private static final int MAGIC = 0x47444958;
+    private static final int VERSION = 2;
+    static final String INDEX_EXTENSION = ".rows.idx";
+    private static final String PART_EXTENSION = ".part";
+
+    // the entities whose rows are indexed, which are the usual seeds of an extend
+    private static final GDELTEntityTypes[] TYPES = {
+        GDELTEntityTypes.Person,
+        GDELTEntityTypes.Organisation,
+        GDELTEntityTypes.Location
+    };
+
+    private static final Map<File, SoftReference<GDELTArchiveIndex>> LOADED = new HashMap<>();
+
+    private final int rowCount;
+    private final Map<GDELTEntityTypes, Map<String, int[]>> postings;
+
+    private GDELTArchiveIndex(final int rowCount, final Map<GDELTEntityTypes, Map<String, int[]>> postings) {
+        this.rowCount = rowCount;
+        this.postings = postings;
+    }
+
+    /**
+     * Check whether days are indexed, which requires the archive cache to be
+     * enabled and days to have a local copy that can be read one row at a
+     * time.
+     *
+     * @return true if days are indexed.
+     */
+    public static boolean isEnabled() {
+        return GDELTArchiveCache.getInstance().getIndexDirectory() != null
+                && (GDELTSnapshot.isEnabled() || GDELTBlockArchive.isEnabled());
+    }
+
+    /**
+     * Get the index of a day if it has been built.
+     *
+     * @param directory the directory holding the local copies of the day.
+     * @param key the file name of the day.
+     * @return the index, or null if the day has not been indexed or its index
+     * could not be read, in which case it is removed so that it can be built
+     * again.
+     */
+    public static GDELTArchiveIndex open(final File directory, final String key) {
+        final File file = new File(directory, key + INDEX_EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        synchronized (LOADED) {
+            final SoftReference<GDELTArchiveIndex> reference = LOADED.get(file);
+            final GDELTArchiveIndex loaded = reference == null ? null : reference.get();
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+
+        final GDELTArchiveIndex loaded;
+        try {
+            loaded = load(file);
+        } catch (final IOException ex) {
+            LOGGER.log(Level.WARNING, "Removing unreadable GDELT index " + file, ex);
+            delete(directory, key);
+            GDELTArchiveCache.getInstance().updateDerivedSize(key);
+            return null;
+        }
+        synchronized (LOADED) {
+            LOADED.put(file, new SoftReference<>(loaded));
+        }
+        return loaded;
+    }
+
+    /**
+     * Index a day while it is read, if it has not been indexed yet. The index
+     * is written once a parse of the returned source has visited every row of
+     * the day.
+     *
+     * @param gdt the day being read.
+     * @param source the rows of the day.
+     * @return a source that indexes the rows as they are parsed, or the source
+     * itself if indexing is disabled or the day is already indexed.
+     */
+    public static GDELTRowSource index(final GDELTDateTime gdt, final GDELTRowSource source) {
+        if (!isEnabled()) {
+            return source;
+        }
+        final GDELTArchiveCache cache = GDELTArchiveCache.getInstance();
+        final File directory = cache.getIndexDirectory();
+        final String key = gdt.getFile();
+        return new File(directory, key + INDEX_EXTENSION).isFile() ? source : new IndexingSource(directory, key, source, cache);
+    }
+
+    /**
+     * Index the rows of a day into a directory outside the archive cache as
+     * they are parsed.
+     *
+     * @param directory the directory to write the index to.
+     * @param key the file name of the day.
+     * @param source the rows of the day.
+     * @return a source that indexes the rows as they are parsed.
+     */
+    static GDELTRowSource index(final File directory, final String key, final GDELTRowSource source) {
+        return new IndexingSource(directory, key, source, null);
+    }
+
+    /**
+     * Remove the index of a day, such as when its archive is evicted from the
+     * cache.
+     *
+     * @param directory the index directory.
+     * @param key the file name of the day.
+     */
+    static void delete(final File directory, final String key) {
+        final File file = new File(directory, key + INDEX_EXTENSION);
+        synchronized (LOADED) {
+            LOADED.remove(file);
+        }
+        if (file.exists() && !file.delete()) {
+            LOGGER.log(Level.FINE, "Unable to remove {0}", file);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * List the rows that mention any of the seeds.
+     *
+     * @param seeds the seeds to find.
+     * @return the numbers of the matching rows in increasing order, or null if
+     * the seeds include a type that is not indexed, in which case every row
+     * has to be read instead.
+     */
+    public int[] find(final GDELTSeeds seeds) {
+        final Map<String, GDELTEntityTypes> types = new HashMap<>();
+        for (final GDELTEntityTypes type : TYPES) {
+            types.put(type.getVertexType().getName(), type);
+        }
+        if (!types.keySet().containsAll(seeds.getTypes())) {
+            return null;
+        }
+
+        final BitSet matches = new BitSet(rowCount);
+        for (final String typeName : seeds.getTypes()) {
+            final Map<String, int[]> rows = postings.get(types.get(typeName));
+            for (final String identifier : seeds.getIdentifiers(typeName)) {
+                for (final int row : rows.getOrDefault(identifier, new int[0])) {
+                    matches.set(row);
+                }
+            }
+        }
+        return matches.stream().toArray();
+    }
+
+    void save(final File file) throws IOException {
+        final Path part = Files.createTempFile(file.getParentFile().toPath(), file.getName(), PART_EXTENSION);
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(part.toFile())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(rowCount);
+                out.writeInt(TYPES.length);
+                for (final GDELTEntityTypes type : TYPES) {
+                    out.writeInt(type.ordinal());
+                }
+                for (final GDELTEntityTypes type : TYPES) {
+                    writePostings(out, postings.get(type));
+                }
+            }
+            move(part, file.toPath());
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    static GDELTArchiveIndex load(final File file) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a GDELT index " + file);
+            }
+            final int rowCount = in.readInt();
+            final int[] types = new int[in.readInt()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = in.readInt();
+            }
+            if (!Arrays.equals(types, Arrays.stream(TYPES).mapToInt(GDELTEntityTypes::ordinal).toArray())) {
+                throw new IOException("GDELT index has different entities " + file);
+            }
+            final Map<GDELTEntityTypes, Map<String, int[]>> postings = new EnumMap<>(GDELTEntityTypes.class);
+            for (final GDELTEntityTypes type : TYPES) {
+                postings.put(type, readPostings(in, rowCount));
+            }
+            return new GDELTArchiveIndex(rowCount, postings);
+        }
+    }
+
+    private static void writePostings(final DataOutputStream out, final Map<String, int[]> postings) throws IOException {
+        out.writeInt(postings.size());
+        for (final Map.Entry<String, int[]> entry : postings.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (final int row : entry.getValue()) {
+                out.writeInt(row);
+            }
+        }
+    }
+
+    private static Map<String, int[]> readPostings(final DataInputStream in, final int rowCount) throws IOException {
+        final int size = in.readInt();
+        final Map<String, int[]> postings = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            final String identifier = in.readUTF();
+            final int[] rows = new int[in.readInt()];
+            for (int j = 0; j < rows.length; j++) {
+                rows[j] = in.readInt();
+                if (rows[j] < 0 || rows[j] >= rowCount) {
+                    throw new IOException("GDELT index is corrupt");
+                }
+            }
+            postings.put(identifier, rows);
+        }
+        return postings;
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Collects the entities of rows visited in row order into an index.
+     */
+    static class Builder {
+
+        private final Map<GDELTEntityTypes, Map<String, Postings>> postings = new EnumMap<>(GDELTEntityTypes.class);
+        private int rowCount = 0;
+
+        Builder() {
+            for (final GDELTEntityTypes type : TYPES) {
+                postings.put(type, new HashMap<>());
+            }
+        }
+
+        /**
+         * Record the entities of the current row.
+         *
+         * @param row a cursor positioned at the row.
+         */
+        void add(final GDELTRow row) {
+            final int ordinal = (int) row.getOrdinal();
+            for (final GDELTEntityTypes type : TYPES) {
+                final Map<String, Postings> rows = postings.get(type);
+                for (int i = 0; i < row.count(type.getField()); i++) {
+                    rows.computeIfAbsent(type.getIdentifier(row, i), identifier -> new Postings()).add(ordinal);
+                }
+            }
+            rowCount = Math.max(rowCount, ordinal + 1);
+        }
+
+        /**
+         * Add the rows recorded by the builder of a later chunk.
+         *
+         * @param chunk the builder of the chunk.
+         */
+        void append(final Builder chunk) {
+            for (final GDELTEntityTypes type : TYPES) {
+                final Map<String, Postings> rows = postings.get(type);
+                for (final Map.Entry<String, Postings> entry : chunk.postings.get(type).entrySet()) {
+                    final Postings existing = rows.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (existing != null) {
+                        existing.append(entry.getValue());
+                    }
+                }
+            }
+            rowCount = Math.max(rowCount, chunk.rowCount);
+        }
+
+        GDELTArchiveIndex build() {
+            final Map<GDELTEntityTypes, Map<String, int[]>> arrays = new EnumMap<>(GDELTEntityTypes.class);
+            for (final GDELTEntityTypes type : TYPES) {
+                final Map<String, int[]> rows = new HashMap<>(postings.get(type).size() * 2);
+                for (final Map.Entry<String, Postings> entry : postings.get(type).entrySet()) {
+                    rows.put(entry.getKey(), Arrays.copyOf(entry.getValue().rows, entry.getValue().size));
+                }
+                arrays.put(type, rows);
+            }
+            return new GDELTArchiveIndex(rowCount, arrays);
+        }
+    }
+
+    /**
+     * The rows mentioning one identifier, in increasing order.
+     */
+    private static class Postings {
+
+        private int[] rows = new int[2];
+        private int size = 0;
+
+        private void add(final int row) {
+            // an identifier mentioned twice in a row is only recorded once
+            if (size > 0 && rows[size - 1] == row) {
+                return;
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        private void append(final Postings later) {
+            if (size + later.size > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(size + later.size, size * 2));
+            }
+            System.arraycopy(later.rows, 0, rows, size, later.size);
+            size += later.size;
+        }
+    }
+
+    /**
+     * A source that indexes the rows of a day as its parsers visit them, and
+     * writes the index once a parse has visited every row.
+     */
+    private static class IndexingSource implements GDELTRowSource {
+
+        private final File directory;
+        private final String key;
+        private final GDELTRowSource source;
+        // the cache the index counts towards, or null if it is written elsewhere
+        private final GDELTArchiveCache cache;
+        private boolean saved = false;
+
+        IndexingSource(final File directory, final String key, final GDELTRowSource source, final GDELTArchiveCache cache) {
+            this.directory = directory;
+            this.key = key;
+            this.source = source;
+            this.cache = cache;
+        }
+
+        @Override
+        public <T> boolean parse(final BooleanSupplier finished, final GDELTParsingPipeline.ChunkParser<T> parser, final GDELTParsingPipeline.ChunkMerger<T> merger) throws IOException {
+            final Builder builder = new Builder();
+            final boolean[] visitedAll = {true};
+            final boolean complete = source.parse(finished, rows -> {
+                final IndexingRows indexing = new IndexingRows(rows);
+                return new Indexed<>(parser.parse(indexing), indexing);
+            }, indexed -> {
+                builder.append(indexed.rows.builder);
+                // a chunk whose parser stopped early leaves rows out of the index
+                visitedAll[0] &= indexed.rows.exhausted;
+                merger.merge(indexed.result);
+            });
+            if (complete && visitedAll[0] && !saved) {
+                saved = true;
+                save(builder.build());
+            }
+            return complete;
+        }
+
+        @Override
+        public GDELTRow find(final GDELTSeeds seeds) throws IOException {
+            return source.find(seeds);
+        }
+
+        private void save(final GDELTArchiveIndex index) throws InterruptedIOException {
+            final File file = new File(directory, key + INDEX_EXTENSION);
+            try {
+                index.save(file);
+            } catch (final InterruptedIOException ex) {
+                throw ex;
+            } catch (final IOException ex) {
+                // the rows have already been read, so the query goes on without the index
+                LOGGER.log(Level.WARNING, "Unable to write the GDELT index " + file, ex);
+                return;
+            }
+            synchronized (LOADED) {
+                LOADED.put(file, new SoftReference<>(index));
+            }
+            if (cache != null) {
+                cache.updateDerivedSize(key);
+            }
+        }
+    }
+
+    /**
+     * The result of parsing a chunk, with the rows the chunk indexed.
+     *
+     * @param <T> the type of result produced for each chunk.
+     */
+    private static class Indexed<T> {
+
+        private final T result;
+        private final IndexingRows rows;
+
+        Indexed(final T result, final IndexingRows rows) {
+            this.result = result;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * A cursor that records the entities of each row it moves to.
+     */
+    private static class IndexingRows implements GDELTRow {
+
+        private final GDELTRow rows;
+        private final Builder builder = new Builder();
+        private boolean exhausted = false;
+
+        IndexingRows(final GDELTRow rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!rows.next()) {
+                exhausted = true;
+                return false;
+            }
+            builder.add(rows);
+            return true;
+        }
+
+        @Override
+        public long getOrdinal() {
+            return rows.getOrdinal();
+        }
+
+        @Override
+        public int getRowsRead() {
+            return rows.getRowsRead();
+        }
+
+        @Override
+        public int count(final int field) {
+            return rows.count(field);
+        }
+
+        @Override
+        public String get(final int field) {
+            return rows.get(field);
+        }
+
+        @Override
+        public String get(final int field, final int index) {
+            return rows.get(field, index);
+        }
+
+        @Override
+        public String get(final int field, final int index, final int part) {
+            return rows.get(field, index, part);
+        }
+
+        @Override
+        public boolean startsWith(final int field, final int index, final String prefix) {
+            return rows.startsWith(field, index, prefix);
+        }
+
+        @Override
+        public double getDouble(final int field) {
+            return rows.getDouble(field);
+        }
+
+        @Override
+        public double getDouble(final int field, final int index, final int part) {
+            return rows.getDouble(field, index, part);
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+}
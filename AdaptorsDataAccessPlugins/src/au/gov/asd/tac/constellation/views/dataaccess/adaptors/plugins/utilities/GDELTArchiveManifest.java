@@ -0,0 +1,205 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The days that have a GDELT Knowledge Graph archive, read from the md5sums
+ * manifest published alongside the daily archives.
+ * <p>
+ * The manifest is downloaded once and kept in memory as a sorted array of
+ * dates, so that the days of a range that have archives, or the latest day
+ * with an archive, can be found without probing the server for each day. It
+ * is revalidated with the server once it is older than its time to live, which
+ * can be set in seconds with the {@value #TTL_PROPERTY} system property, and is
+ * only downloaded again if it has changed.
+ *
+ * @author canis_majoris
+ */
+public class GDELTArchiveManifest {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTArchiveManifest.class.getName());
+
+    public static final String TTL_PROPERTY = "constellation.gdelt.manifest.ttl";
+
+    // daily archives are published once a day, so an hour old manifest is at most an hour late
+    private static final long DEFAULT_TTL = 60L * 60;
+    private static final String MANIFEST = "gkg/md5sums";
+    private static final String SUFFIX = ".gkg.csv.zip";
+    private static final int DATE_LENGTH = 8;
+
+    private static GDELTArchiveManifest instance = null;
+
+    private final long timeToLive;
+    private final GDELTFetcher.Validators validators = new GDELTFetcher.Validators();
+    private int[] dates = null;
+    private long loaded = 0;
+
+    public static synchronized GDELTArchiveManifest getInstance() {
+        if (instance == null) {
+            long ttl = DEFAULT_TTL;
+            try {
+                ttl = Long.parseLong(System.getProperty(TTL_PROPERTY, Long.toString(DEFAULT_TTL)));
+            } catch (final NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid GDELT manifest time to live, using the default of {0} seconds", DEFAULT_TTL);
+            }
+            instance = new GDELTArchiveManifest(ttl * 1000);
+        }
+        return instance;
+    }
+
+    /**
+     * Create a manifest that is downloaded when first used.
+     *
+     * @param timeToLive the time in milliseconds before the manifest is
+     * downloaded again.
+     */
+    public GDELTArchiveManifest(final long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Get the days from the start to the end of a range that have an archive.
+     *
+     * @param start the start of the range, or null for only the end day.
+     * @param end the end of the range.
+     * @return the days with an archive, in order, or null if the manifest
+     * could not be read.
+     */
+    public List<GDELTDateTime> getDays(final ZonedDateTime start, final ZonedDateTime end) {
+        final int[] available = getDates();
+        if (available == null) {
+            return null;
+        }
+        final List<GDELTDateTime> days = new ArrayList<>();
+        for (final GDELTDateTime day : GDELTDateTime.getDays(start, end)) {
+            if (Arrays.binarySearch(available, Integer.parseInt(day.getDate())) >= 0) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Get the latest day with an archive on or before a time.
+     *
+     * @param dateTime the time.
+     * @return the latest day, or null if there is none or the manifest could
+     * not be read.
+     */
+    public GDELTDateTime getLatest(final ZonedDateTime dateTime) {
+        final int[] available = getDates();
+        if (available == null) {
+            return null;
+        }
+        final LocalDate date = dateTime.toLocalDate();
+        final int index = Arrays.binarySearch(available, date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth());
+        final int latest = index >= 0 ? index : -index - 2;
+        if (latest < 0) {
+            return null;
+        }
+        final int found = available[latest];
+        return new GDELTDateTime(LocalDate.of(found / 10000, found / 100 % 100, found % 100).atStartOfDay(dateTime.getZone()));
+    }
+
+    /**
+     * Discard the manifest so that it is downloaded again when next used.
+     */
+    public synchronized void invalidate() {
+        dates = null;
+        loaded = 0;
+        validators.clear();
+    }
+
+    private synchronized int[] getDates() {
+        final long now = System.currentTimeMillis();
+        if (loaded == 0 || now - loaded > timeToLive) {
+            try {
+                final int[] read = read();
+                if (read != null) {
+                    dates = read;
+                }
+            } catch (final IOException ex) {
+                // keep any earlier manifest, and wait for the time to live before trying again
+                LOGGER.log(Level.WARNING, "Unable to read the GDELT manifest: {0}", ex.getLocalizedMessage());
+            }
+            loaded = now;
+        }
+        return dates;
+    }
+
+    /**
+     * Read the manifest, or return null if it has not changed since it was
+     * last read.
+     */
+    private int[] read() throws IOException {
+        final String url = GDELTDateTime.getBaseUrl() + MANIFEST;
+        if (dates == null) {
+            // nothing to revalidate
+            validators.clear();
+        }
+        final byte[] content = GDELTFetcher.getInstance().fetch(url, validators);
+        if (content == null) {
+            return null;
+        }
+        int[] read = new int[4096];
+        int count = 0;
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // each line is the md5 and name of one archive
+                final String trimmed = line.trim();
+                if (!trimmed.endsWith(SUFFIX)) {
+                    continue;
+                }
+                final String[] parts = trimmed.split("\\s+");
+                final String name = parts[parts.length - 1];
+                if (name.length() != DATE_LENGTH + SUFFIX.length()) {
+                    continue;
+                }
+                final int date;
+                try {
+                    date = Integer.parseInt(name.substring(0, DATE_LENGTH));
+                } catch (final NumberFormatException ex) {
+                    // not a daily archive
+                    continue;
+                }
+                if (count == read.length) {
+                    read = Arrays.copyOf(read, count * 2);
+                }
+                read[count++] = date;
+            }
+        }
+        if (count == 0) {
+            throw new IOException("No archives listed in " + url);
+        }
+        final int[] sorted = Arrays.copyOf(read, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,753 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A local copy of a day of the GDELT Knowledge Graph, re-encoded from its
+ * archive into small independently compressed blocks so that it can be
+ * inflated on several threads at once.
+ * <p>
+ * The daily archive holds a single deflate stream, which can only be inflated
+ * from the start on one thread. Once a query has read every row of a day from
+ * its archive while snapshots are turned off, or when the day is too large for
+ * a {@link GDELTSnapshot}, {@link GDELTLocalCopies} re-encodes it in the
+ * background. The CSV is cut into blocks of at most {@value #BLOCK_SIZE} bytes that end on a row boundary wherever a row is
+ * short enough, and each block is written as its own gzip member in the
+ * BGZF layout, so the file can still be read by any gzip reader. The offset
+ * and length of every block, and the number of rows before it, is written to
+ * an index alongside it, and both
+ * files are kept in the {@link GDELTArchiveCache} index directory and removed
+ * along with the archive. {@link GDELTParsingPipeline} then reads runs of
+ * blocks on its workers, each inflating and parsing its own run, and extends
+ * inflate only the blocks holding the rows listed for their seeds by the
+ * {@link GDELTArchiveIndex} of the day.
+ * <p>
+ * Block archives can be turned off with the {@value #BLOCKS_PROPERTY} system
+ * property. A day that has a snapshot is read from its snapshot instead.
+ *
+ * @author canis_majoris
+ */
+public class GDELTBlockArchive implements GDELTRowSource {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTBlockArchive.class.getName());
+
+    public static final String BLOCKS_PROPERTY = "constellation.gdelt.blocks";
+
+    private static final int MAGIC = 0x47444247;
+    private static final int VERSION = 2;
+    static final String BLOCKS_EXTENSION = ".blocks";
+    static final String INDEX_EXTENSION = ".blocks.idx";
+    private static final String PART_EXTENSION = ".part";
+
+    // the most bytes held by a block, as in BGZF, so every member stays under 64 KiB compressed
+    private static final int BLOCK_SIZE = 0xFF00;
+    private static final int MAXIMUM_MEMBER_SIZE = 0x10000;
+    private static final int HEADER_SIZE = 18;
+    private static final int TRAILER_SIZE = 8;
+    // the empty member that ends a BGZF file
+    private static final byte[] EOF_MEMBER = {
+        0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00, 0x42, 0x43, 0x02, 0x00,
+        0x1b, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    // the blocks compressed by each task while the archive is re-encoded
+    private static final int BLOCKS_PER_TASK = 64;
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_PENDING_TASKS = WORKERS * 2;
+
+    private static final byte NEWLINE = '\n';
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        final Thread thread = new Thread(runnable, "GDELT Block Compressor " + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, THREAD_FACTORY);
+
+    private static final Map<String, SoftReference<GDELTBlockArchive>> LOADED = new HashMap<>();
+
+    private final File data;
+    private final String key;
+    private final GDELTRowLayout layout;
+    // the offset of each member in the file, and of each block in the CSV, with the ends of the last
+    private final long[] memberStarts;
+    private final long[] blockStarts;
+    // the number of new lines before each block, counting the header row
+    private final long[] rowStarts;
+    // blocks whose last byte ends a row
+    private final BitSet rowEnds;
+
+    private GDELTBlockArchive(final File data, final GDELTRowLayout layout, final long[] memberStarts, final long[] blockStarts, final long[] rowStarts, final BitSet rowEnds) {
+        this.data = data;
+        this.key = data.getName().substring(0, data.getName().length() - BLOCKS_EXTENSION.length());
+        this.layout = layout;
+        this.memberStarts = memberStarts;
+        this.blockStarts = blockStarts;
+        this.rowStarts = rowStarts;
+        this.rowEnds = rowEnds;
+    }
+
+    /**
+     * Check whether days are read from block archives, which requires the
+     * archive cache to be enabled.
+     *
+     * @return true if days are read from block archives.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(BLOCKS_PROPERTY, Boolean.TRUE.toString()))
+                && GDELTArchiveCache.getInstance().getIndexDirectory() != null;
+    }
+
+    /**
+     * Get the block archive of a day if it has been built.
+     *
+     * @param gdt the day to read.
+     * @return the block archive, or null if the archive cache is disabled or
+     * the day has no block archive yet.
+     * @throws IOException if the block archive could not be read, in which
+     * case it is removed so that it can be built again.
+     */
+    public static GDELTBlockArchive open(final GDELTDateTime gdt) throws IOException {
+        final File directory = GDELTArchiveCache.getInstance().getIndexDirectory();
+        if (directory == null) {
+            return null;
+        }
+
+        final String key = gdt.getFile();
+        final File data = new File(directory, key + BLOCKS_EXTENSION);
+        final File index = new File(directory, key + INDEX_EXTENSION);
+        if (!data.isFile() || !index.isFile()) {
+            return null;
+        }
+
+        synchronized (LOADED) {
+            final SoftReference<GDELTBlockArchive> reference = LOADED.get(key);
+            final GDELTBlockArchive loaded = reference == null ? null : reference.get();
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+
+        final GDELTBlockArchive loaded;
+        try {
+            loaded = load(data, index, GDELTRowLayout.forFile(key));
+        } catch (final IOException ex) {
+            delete(directory, key);
+            GDELTArchiveCache.getInstance().updateDerivedSize(key);
+            throw ex;
+        }
+        synchronized (LOADED) {
+            LOADED.put(key, new SoftReference<>(loaded));
+        }
+        return loaded;
+    }
+
+    /**
+     * Re-encode the archive of a day into a block archive, replacing any block
+     * archive it already has.
+     *
+     * @param gdt the day to build.
+     * @return true if the block archive was built, or false if the archive
+     * cache is disabled or there is no archive for the day.
+     * @throws IOException if the archive could not be read or the block
+     * archive could not be written.
+     */
+    static boolean build(final GDELTDateTime gdt) throws IOException {
+        final File directory = GDELTArchiveCache.getInstance().getIndexDirectory();
+        if (directory == null) {
+            return false;
+        }
+
+        final String key = gdt.getFile();
+        final File data = new File(directory, key + BLOCKS_EXTENSION);
+        final File index = new File(directory, key + INDEX_EXTENSION);
+        if (GDELTImportingUtilities.retrieveArchive(gdt, (ze, in) -> build(in, data, index, GDELTRowLayout.forEntry(ze))) == null) {
+            return false;
+        }
+        synchronized (LOADED) {
+            LOADED.remove(key);
+        }
+        GDELTArchiveCache.getInstance().updateDerivedSize(key);
+        return true;
+    }
+
+    /**
+     * Remove the block archive of a day, such as when its archive is evicted
+     * from the cache.
+     *
+     * @param directory the index directory.
+     * @param key the file name of the day.
+     */
+    static void delete(final File directory, final String key) {
+        synchronized (LOADED) {
+            LOADED.remove(key);
+        }
+        for (final File file : new File[]{new File(directory, key + BLOCKS_EXTENSION), new File(directory, key + INDEX_EXTENSION)}) {
+            if (file.exists() && !file.delete()) {
+                LOGGER.log(Level.FINE, "Unable to remove {0}", file);
+            }
+        }
+    }
+
+    public GDELTRowLayout getLayout() {
+        return layout;
+    }
+
+    public int getBlockCount() {
+        return blockStarts.length - 1;
+    }
+
+    /**
+     * Get the length of the CSV held by the blocks.
+     *
+     * @return the length in bytes once inflated.
+     */
+    public long getLength() {
+        return blockStarts[getBlockCount()];
+    }
+
+    /**
+     * Get the length of the blocks as stored.
+     *
+     * @return the length of the compressed blocks in bytes.
+     */
+    public long getCompressedLength() {
+        return memberStarts[getBlockCount()];
+    }
+
+    /**
+     * Get the offset of a block within the CSV.
+     *
+     * @param block the block.
+     * @return the offset of the first byte of the block once inflated.
+     */
+    public long getOffset(final int block) {
+        return blockStarts[block];
+    }
+
+    /**
+     * Get the number of the first row that starts in a block, which is the
+     * row read first from a run of blocks starting at that block.
+     *
+     * @param block the block.
+     * @return the number of the row within its day, as returned by
+     * {@link GDELTRow#getOrdinal()}.
+     */
+    public long getOrdinal(final int block) {
+        return Math.max(0, rowStarts[block] - (layout.hasHeader() ? 1 : 0));
+    }
+
+    /**
+     * Get the offset of a block within the file.
+     *
+     * @param block the block.
+     * @return the offset of the gzip member holding the block.
+     */
+    public long getCompressedOffset(final int block) {
+        return memberStarts[block];
+    }
+
+    /**
+     * Find the end of a run of blocks holding at least the given number of
+     * bytes and ending on a row boundary.
+     *
+     * @param first the first block of the run.
+     * @param size the least number of bytes to hold.
+     * @return the block after the last block of the run.
+     */
+    public int getRunEnd(final int first, final int size) {
+        int end = first + 1;
+        while (end < getBlockCount() && (blockStarts[end] - blockStarts[first] < size || !rowEnds.get(end - 1))) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Read and inflate a run of blocks. Runs can be read on several threads at
+     * once.
+     *
+     * @param first the first block of the run.
+     * @param end the block after the last block of the run.
+     * @return the inflated bytes of the blocks.
+     * @throws IOException if the blocks could not be read or are corrupt.
+     */
+    public byte[] inflate(final int first, final int end) throws IOException {
+        final byte[] members = new byte[(int) (memberStarts[end] - memberStarts[first])];
+        try (final FileChannel channel = FileChannel.open(data.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer target = ByteBuffer.wrap(members);
+            long position = memberStarts[first];
+            while (target.hasRemaining()) {
+                final int read = channel.read(target, position);
+                if (read < 0) {
+                    throw new EOFException("GDELT block archive is truncated " + data);
+                }
+                position += read;
+            }
+        }
+
+        final byte[] inflated = new byte[(int) (blockStarts[end] - blockStarts[first])];
+        final Inflater inflater = new Inflater(true);
+        final CRC32 crc = new CRC32();
+        try {
+            for (int block = first; block < end; block++) {
+                final int member = (int) (memberStarts[block] - memberStarts[first]);
+                final int memberEnd = (int) (memberStarts[block + 1] - memberStarts[first]);
+                final int start = (int) (blockStarts[block] - blockStarts[first]);
+                final int length = (int) (blockStarts[block + 1] - blockStarts[block]);
+                inflater.reset();
+                inflater.setInput(members, member + HEADER_SIZE, memberEnd - member - HEADER_SIZE - TRAILER_SIZE);
+                int inflatedLength = 0;
+                while (inflatedLength < length && !inflater.finished()) {
+                    final int count = inflater.inflate(inflated, start + inflatedLength, length - inflatedLength);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflatedLength += count;
+                }
+                crc.reset();
+                crc.update(inflated, start, inflatedLength);
+                if (inflatedLength != length || readInt(members, memberEnd - TRAILER_SIZE) != (int) crc.getValue()) {
+                    throw new IOException("GDELT block archive is corrupt " + data);
+                }
+            }
+        } catch (final DataFormatException ex) {
+            throw new IOException("GDELT block archive is corrupt " + data, ex);
+        } finally {
+            inflater.end();
+        }
+        return inflated;
+    }
+
+    /**
+     * Read and parse a run of blocks that starts on a row boundary, skipping
+     * the header row of the CSV.
+     *
+     * @param first the first block of the run.
+     * @param end the block after the last block of the run.
+     * @return a scanner over the rows that start in the run.
+     * @throws IOException if the blocks could not be read or are corrupt.
+     */
+    public GDELTRowScanner getRows(final int first, final int end) throws IOException {
+        final byte[] run = inflate(first, end);
+        int start = 0;
+        if (first == 0 && layout.hasHeader()) {
+            while (start < run.length && run[start++] != NEWLINE) {
+                // skip the header row
+            }
+        }
+        return new GDELTRowScanner(run, start, run.length, layout, getOrdinal(first));
+    }
+
+    /**
+     * Read a chosen set of rows, only inflating the blocks that hold them.
+     *
+     * @param rows the numbers of the rows to read, in increasing order.
+     * @return a cursor over the rows.
+     */
+    public GDELTRow getRows(final int[] rows) {
+        return new SelectedRows(rows);
+    }
+
+    @Override
+    public <T> boolean parse(final BooleanSupplier finished, final GDELTParsingPipeline.ChunkParser<T> parser, final GDELTParsingPipeline.ChunkMerger<T> merger) throws IOException {
+        return GDELTParsingPipeline.parse(this, finished, parser, merger);
+    }
+
+    /**
+     * Read the rows listed for the seeds by the {@link GDELTArchiveIndex} of
+     * the day, inflating only the blocks that hold them.
+     *
+     * @param seeds the seeds to find.
+     * @return a cursor over the matching rows, in row order, or null if the
+     * day has not been indexed or the seeds include a type that is not
+     * indexed.
+     */
+    @Override
+    public GDELTRow find(final GDELTSeeds seeds) {
+        final GDELTArchiveIndex index = GDELTArchiveIndex.open(data.getParentFile(), key);
+        final int[] rows = index == null ? null : index.find(seeds);
+        return rows == null ? null : getRows(rows);
+    }
+
+    static GDELTBlockArchive build(final InputStream in, final File data, final File index, final GDELTRowLayout layout) throws IOException {
+        long[] memberStarts = new long[1 << 12];
+        long[] blockStarts = new long[1 << 12];
+        long[] rowStarts = new long[1 << 12];
+        final BitSet rowEnds = new BitSet();
+        int blocks = 0;
+        int written = 0;
+
+        final Path part = Files.createTempFile(data.getParentFile().toPath(), data.getName(), PART_EXTENSION);
+        final Deque<Future<byte[][]>> pending = new ArrayDeque<>();
+        try {
+            try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(part.toFile()), MAXIMUM_MEMBER_SIZE * 4)) {
+                final byte[] buffer = new byte[BLOCK_SIZE * BLOCKS_PER_TASK];
+                int length = 0;
+                long position = 0;
+                long rows = 0;
+                long memberPosition = 0;
+                boolean eof = false;
+                while (!eof || length > 0) {
+                    GDELTProgress.checkInterrupted();
+                    while (!eof && length < buffer.length) {
+                        final int read = in.read(buffer, length, buffer.length - length);
+                        if (read < 0) {
+                            eof = true;
+                        } else {
+                            length += read;
+                        }
+                    }
+
+                    // cut whole blocks from the buffer, each ending after its last newline if it has one
+                    final int[] cuts = new int[BLOCKS_PER_TASK + 1];
+                    int cutCount = 0;
+                    while (cutCount < BLOCKS_PER_TASK && (length - cuts[cutCount] >= BLOCK_SIZE || eof && cuts[cutCount] < length)) {
+                        final int start = cuts[cutCount];
+                        int end = Math.min(length, start + BLOCK_SIZE);
+                        if (end - start == BLOCK_SIZE) {
+                            final int newline = lastIndexOf(buffer, start, end);
+                            if (newline >= 0) {
+                                end = newline + 1;
+                            }
+                        }
+                        if (blocks + 1 >= blockStarts.length) {
+                            memberStarts = Arrays.copyOf(memberStarts, memberStarts.length * 2);
+                            blockStarts = Arrays.copyOf(blockStarts, blockStarts.length * 2);
+                            rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+                        }
+                        blockStarts[blocks] = position + start;
+                        rowStarts[blocks] = rows;
+                        rows += count(buffer, start, end);
+                        rowEnds.set(blocks, buffer[end - 1] == NEWLINE || eof && end == length);
+                        blocks++;
+                        cuts[++cutCount] = end;
+                    }
+
+                    final int taken = cuts[cutCount];
+                    if (cutCount > 0) {
+                        final byte[] task = Arrays.copyOf(buffer, taken);
+                        final int taskCuts = cutCount;
+                        pending.add(EXECUTOR.submit(() -> compress(task, cuts, taskCuts)));
+                    }
+                    System.arraycopy(buffer, taken, buffer, 0, length - taken);
+                    length -= taken;
+                    position += taken;
+
+                    // the members are written in block order as their tasks complete
+                    while (!pending.isEmpty() && (pending.size() >= MAX_PENDING_TASKS || eof)) {
+                        for (final byte[] member : getResult(pending.poll())) {
+                            memberStarts[written++] = memberPosition;
+                            out.write(member);
+                            memberPosition += member.length;
+                        }
+                    }
+                }
+
+                blockStarts[blocks] = position;
+                rowStarts[blocks] = rows;
+                memberStarts[blocks] = memberPosition;
+                out.write(EOF_MEMBER);
+            }
+            move(part, data.toPath());
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+            Files.deleteIfExists(part);
+        }
+
+        final GDELTBlockArchive built = new GDELTBlockArchive(data, layout, Arrays.copyOf(memberStarts, blocks + 1), Arrays.copyOf(blockStarts, blocks + 1), Arrays.copyOf(rowStarts, blocks + 1), rowEnds);
+        built.save(index);
+        return built;
+    }
+
+    /**
+     * Compress the blocks of one task into BGZF members.
+     */
+    private static byte[][] compress(final byte[] buffer, final int[] cuts, final int count) {
+        final byte[][] members = new byte[count][];
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final CRC32 crc = new CRC32();
+        final byte[] output = new byte[MAXIMUM_MEMBER_SIZE];
+        try {
+            for (int i = 0; i < count; i++) {
+                final int start = cuts[i];
+                final int length = cuts[i + 1] - start;
+                deflater.reset();
+                deflater.setInput(buffer, start, length);
+                deflater.finish();
+                int size = HEADER_SIZE;
+                while (!deflater.finished()) {
+                    size += deflater.deflate(output, size, output.length - TRAILER_SIZE - size);
+                }
+                crc.reset();
+                crc.update(buffer, start, length);
+
+                writeHeader(output, size + TRAILER_SIZE);
+                writeInt(output, size, (int) crc.getValue());
+                writeInt(output, size + Integer.BYTES, length);
+                members[i] = Arrays.copyOf(output, size + TRAILER_SIZE);
+            }
+        } finally {
+            deflater.end();
+        }
+        return members;
+    }
+
+    // the gzip header of a BGZF member, whose extra field holds the size of the member
+    private static void writeHeader(final byte[] member, final int size) {
+        final byte[] header = {0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00, 0x42, 0x43, 0x02, 0x00};
+        System.arraycopy(header, 0, member, 0, header.length);
+        member[16] = (byte) (size - 1);
+        member[17] = (byte) ((size - 1) >>> 8);
+    }
+
+    private void save(final File index) throws IOException {
+        final Path part = Files.createTempFile(index.getParentFile().toPath(), index.getName(), PART_EXTENSION);
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(part.toFile())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(data.length());
+                out.writeInt(getBlockCount());
+                for (int block = 0; block <= getBlockCount(); block++) {
+                    out.writeLong(memberStarts[block]);
+                    out.writeLong(blockStarts[block]);
+                    out.writeLong(rowStarts[block]);
+                    out.writeBoolean(rowEnds.get(block));
+                }
+            }
+            move(part, index.toPath());
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    static GDELTBlockArchive load(final File data, final File index, final GDELTRowLayout layout) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != data.length()) {
+                throw new IOException("GDELT block index does not match " + data);
+            }
+            final int blocks = in.readInt();
+            final long[] memberStarts = new long[blocks + 1];
+            final long[] blockStarts = new long[blocks + 1];
+            final long[] rowStarts = new long[blocks + 1];
+            final BitSet rowEnds = new BitSet(blocks);
+            for (int block = 0; block <= blocks; block++) {
+                memberStarts[block] = in.readLong();
+                blockStarts[block] = in.readLong();
+                rowStarts[block] = in.readLong();
+                rowEnds.set(block, in.readBoolean());
+            }
+            return new GDELTBlockArchive(data, layout, memberStarts, blockStarts, rowStarts, rowEnds);
+        }
+    }
+
+    private static byte[][] getResult(final Future<byte[][]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("GDELT block compression was interrupted");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static int count(final byte[] buffer, final int from, final int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == NEWLINE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int lastIndexOf(final byte[] buffer, final int from, final int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer[i] == NEWLINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int readInt(final byte[] buffer, final int offset) {
+        return buffer[offset] & 0xFF | (buffer[offset + 1] & 0xFF) << 8 | (buffer[offset + 2] & 0xFF) << 16 | (buffer[offset + 3] & 0xFF) << 24;
+    }
+
+    private static void writeInt(final byte[] buffer, final int offset, final int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A cursor over a chosen set of rows, which inflates the smallest run of
+     * blocks ending on a row boundary that holds each row, and skips the runs
+     * that hold none.
+     */
+    private class SelectedRows implements GDELTRow {
+
+        private final int[] selected;
+        private int next = 0;
+        private GDELTRowScanner scanner = null;
+        // the block after the run held by the scanner, and the first row after it
+        private int runEnd = 0;
+        private long runLimit = 0;
+
+        SelectedRows(final int[] selected) {
+            this.selected = selected;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (next >= selected.length) {
+                return false;
+            }
+            final long ordinal = selected[next++];
+            if (scanner == null || ordinal >= runLimit) {
+                seek(ordinal);
+            }
+            do {
+                if (!scanner.next()) {
+                    throw new EOFException("GDELT index is out of date with " + data);
+                }
+            } while (scanner.getOrdinal() < ordinal);
+            return true;
+        }
+
+        private void seek(final long ordinal) throws IOException {
+            int first = runEnd;
+            while (first < getBlockCount()) {
+                final int end = getRunEnd(first, 1);
+                final long limit = end < getBlockCount() ? GDELTBlockArchive.this.getOrdinal(end) : Long.MAX_VALUE;
+                if (ordinal < limit) {
+                    scanner = getRows(first, end);
+                    runEnd = end;
+                    runLimit = limit;
+                    return;
+                }
+                first = end;
+            }
+            throw new EOFException("GDELT index is out of date with " + data);
+        }
+
+        @Override
+        public long getOrdinal() {
+            return next == 0 ? (selected.length == 0 ? 0 : selected[0]) : selected[next - 1];
+        }
+
+        @Override
+        public int getRowsRead() {
+            return next;
+        }
+
+        @Override
+        public int count(final int field) {
+            return scanner.count(field);
+        }
+
+        @Override
+        public String get(final int field) {
+            return scanner.get(field);
+        }
+
+        @Override
+        public String get(final int field, final int index) {
+            return scanner.get(field, index);
+        }
+
+        @Override
+        public String get(final int field, final int index, final int part) {
+            return scanner.get(field, index, part);
+        }
+
+        @Override
+        public boolean startsWith(final int field, final int index, final String prefix) {
+            return scanner.startsWith(field, index, prefix);
+        }
+
+        @Override
+        public double getDouble(final int field) {
+            return scanner.getDouble(field);
+        }
+
+        @Override
+        public double getDouble(final int field, final int index, final int part) {
+            return scanner.getDouble(field, index, part);
+        }
+
+        @Override
+        public void close() {
+            // each run is held in memory
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A memory bounded cache of the {@link GDELTCooccurrenceGraph} of each day,
+ * kept for the rest of the session so that extending again from the same day
+ * walks the graph in memory rather than reading the day again.
+ * <p>
+ * A graph is built the first time a day is extended with a set of
+ * relationship types, frozen, and keyed by the day and those types. Graphs
+ * are evicted in least recently used order once their estimated total size
+ * exceeds the memory budget, which can be set with the
+ * {@value #CACHE_SIZE_PROPERTY} system property and defaults to a quarter of
+ * the maximum heap. A budget of zero disables caching. Graphs of rows chosen
+ * by a filter are built for each query and never cached.
+ *
+ * @author canis_majoris
+ */
+public class GDELTCooccurrenceCache {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTCooccurrenceCache.class.getName());
+
+    public static final String CACHE_SIZE_PROPERTY = "constellation.gdelt.graph.cache.size";
+
+    private static final long DEFAULT_CACHE_SIZE = Runtime.getRuntime().maxMemory() / 4;
+
+    private static GDELTCooccurrenceCache instance = null;
+
+    private long maximumSize;
+    private long currentSize = 0;
+
+    // access ordered so iteration starts at the least recently used graph
+    private final LinkedHashMap<Key, GDELTCooccurrenceGraph> graphs = new LinkedHashMap<>(16, 0.75F, true);
+    private final Map<Key, Long> sizes = new LinkedHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static synchronized GDELTCooccurrenceCache getInstance() {
+        if (instance == null) {
+            long size = DEFAULT_CACHE_SIZE;
+            try {
+                size = Long.parseLong(System.getProperty(CACHE_SIZE_PROPERTY, Long.toString(DEFAULT_CACHE_SIZE)));
+            } catch (final NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid GDELT graph cache size, using the default of {0} bytes", DEFAULT_CACHE_SIZE);
+            }
+            instance = new GDELTCooccurrenceCache(size);
+        }
+        return instance;
+    }
+
+    public GDELTCooccurrenceCache(final long maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+    }
+
+    /**
+     * Get the co-occurrence graph of a day, building it from the day the
+     * first time it is asked for.
+     *
+     * @param gdt the day.
+     * @param plan the relationship types the graph holds.
+     * @param filter the filter applied to the rows of the day.
+     * @return the frozen graph, or null if there is no archive for the day.
+     * @throws IOException if the day could not be read.
+     */
+    public GDELTCooccurrenceGraph get(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter) throws IOException {
+        if (!filter.isEmpty()) {
+            return build(gdt, plan, filter);
+        }
+
+        final Key key = new Key(gdt.getFile(), Set.copyOf(plan.getTypes()));
+        synchronized (this) {
+            final GDELTCooccurrenceGraph graph = graphs.get(key);
+            if (graph != null) {
+                hits.incrementAndGet();
+                return graph;
+            }
+        }
+
+        misses.incrementAndGet();
+        final GDELTCooccurrenceGraph graph = build(gdt, plan, filter);
+        if (graph != null) {
+            store(key, graph);
+        }
+        return graph;
+    }
+
+    public synchronized void setMaximumSize(final long maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        evict();
+    }
+
+    public synchronized long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized long getCurrentSize() {
+        return currentSize;
+    }
+
+    public synchronized int size() {
+        return graphs.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Discard every graph in the cache.
+     */
+    public synchronized void clear() {
+        graphs.clear();
+        sizes.clear();
+        currentSize = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GDELT graph cache: %d hits, %d misses, %d graphs, %d of %d bytes used",
+                getHits(), getMisses(), size(), getCurrentSize(), getMaximumSize());
+    }
+
+    private static GDELTCooccurrenceGraph build(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter) throws IOException {
+        final GDELTCooccurrenceGraph graph = GDELTExtendingUtilities.retrieveCooccurrence(gdt, plan, filter, new GDELTCooccurrenceGraph());
+        if (graph != null) {
+            graph.freeze();
+        }
+        return graph;
+    }
+
+    private synchronized void store(final Key key, final GDELTCooccurrenceGraph graph) {
+        final long size = graph.getMemoryUsage();
+        // a graph larger than the whole budget would only evict everything else
+        if (size > maximumSize || graphs.containsKey(key)) {
+            return;
+        }
+        graphs.put(key, graph);
+        sizes.put(key, size);
+        currentSize += size;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<Key, GDELTCooccurrenceGraph>> iterator = graphs.entrySet().iterator();
+        while (currentSize > maximumSize && iterator.hasNext()) {
+            final Key key = iterator.next().getKey();
+            iterator.remove();
+            currentSize -= sizes.remove(key);
+            LOGGER.log(Level.FINE, "Evicted the GDELT graph of {0} from the cache", key.file());
+        }
+    }
+
+    private record Key(String file, Set<GDELTRelationshipTypes> types) {
+
+    }
+}
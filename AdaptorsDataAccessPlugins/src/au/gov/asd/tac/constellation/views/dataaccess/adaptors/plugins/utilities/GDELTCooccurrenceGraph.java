@@ -0,0 +1,621 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The co-mentions of GDELT entities over one or more days, held compactly so
+ * that the neighbourhood of the selected nodes can be expanded several hops
+ * in memory after a single pass over the rows.
+ * <p>
+ * Each distinct entity is given an int id, and each distinct pair of entities
+ * of a chosen relationship type is held once with the number of times it was
+ * mentioned, the first and last day it was seen and the tone of the articles
+ * that mentioned it. Pairs of entities of the same type are held once
+ * whichever order they were mentioned in. The pairs are kept in primitive
+ * arrays behind an open addressing table rather than as objects, so a day of
+ * co-mentions fits in a few tens of megabytes.
+ * <p>
+ * Once every day has been added, {@link #expand} sorts the pairs of each
+ * entity by their number of mentions into compressed sparse rows, and walks
+ * breadth first from the seeds, following at most the fan-out strongest pairs
+ * not yet followed from each entity at each hop. A graph that will be expanded
+ * many times, such as one held by {@link GDELTCooccurrenceCache}, can be
+ * {@link #freeze frozen}, which builds the rows and trims the graph to the
+ * arrays an expansion reads.
+ * <p>
+ * The graphs of several days can be walked together with
+ * {@link #expand(List, GDELTSeeds, int, int, GDELTResultLimit)}, which follows
+ * the strongest pairs over all of the days but adds a relationship for each
+ * day of each pair, so that every relationship keeps the datetime of its day.
+ *
+ * @author canis_majoris
+ */
+public class GDELTCooccurrenceGraph {
+
+    /**
+     * The hop at which a relationship was reached from the seeds, starting
+     * from 1.
+     */
+    public static final String HOP_ATTRIBUTE = "Hop";
+
+    private static final GDELTEntityTypes[] ENTITY_TYPES = GDELTEntityTypes.values();
+    private static final GDELTRelationshipTypes[] RELATIONSHIP_TYPES = GDELTRelationshipTypes.values();
+    private static final int LOCATION_COUNTRY = 2;
+
+    // a pair is keyed by its relationship type and the ids of its first and second entity
+    private static final int ID_BITS = 30;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // an estimate of the bytes held by each entity and its dictionary entry, beyond its identifier
+    private static final long ENTITY_BYTES = 96;
+    // the bytes held by each pair, including its two entries in the sorted pairs
+    private static final long PAIR_BYTES = Long.BYTES + 4L * Integer.BYTES + 3L * Double.BYTES + 2L * Integer.BYTES;
+
+    // entities
+    private final Map<GDELTEntityTypes, Map<String, Integer>> entityIds = new EnumMap<>(GDELTEntityTypes.class);
+    private final ArrayList<String> identifiers = new ArrayList<>();
+    private final ArrayList<String> countries = new ArrayList<>();
+    private byte[] entityTypes = new byte[INITIAL_CAPACITY];
+
+    // the datetimes of the days seen, which are few
+    private final Map<String, Integer> datetimeIds = new HashMap<>();
+    private final List<String> datetimes = new ArrayList<>();
+
+    // pairs, where slots holds the index of each pair plus one, or 0 if the slot is empty, and is null once frozen
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private int pairCount = 0;
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int[] firstSeen = new int[INITIAL_CAPACITY];
+    private int[] lastSeen = new int[INITIAL_CAPACITY];
+    private int[] toneCounts = new int[INITIAL_CAPACITY];
+    private double[] meanTones = new double[INITIAL_CAPACITY];
+    private double[] minimumTones = new double[INITIAL_CAPACITY];
+    private double[] maximumTones = new double[INITIAL_CAPACITY];
+
+    // the pairs of each entity, strongest first, built when first expanded
+    private int[] offsets = null;
+    private int[] adjacent = null;
+
+    public GDELTCooccurrenceGraph() {
+        for (final GDELTEntityTypes type : ENTITY_TYPES) {
+            entityIds.put(type, new HashMap<>());
+        }
+    }
+
+    /**
+     * Count every chosen co-mention in the current row.
+     *
+     * @param plan the relationship types to count.
+     * @param dt the datetime of the row.
+     * @param row the row.
+     */
+    public void addRow(final GDELTRelationshipPlan plan, final String dt, final GDELTRow row) {
+        final int datetime = getDatetimeId(dt);
+        final double tone = row.getDouble(GDELTRowScanner.TONE);
+        final int[][] rowIds = new int[ENTITY_TYPES.length][];
+        for (final GDELTRelationshipTypes type : plan.getTypes()) {
+            final int[] first = getRowIds(rowIds, type.getFirst(), row);
+            final int[] second = getRowIds(rowIds, type.getSecond(), row);
+            final boolean sameType = type.getFirst() == type.getSecond();
+            for (int i = 0; i < first.length; i++) {
+                for (int j = sameType ? i + 1 : 0; j < second.length; j++) {
+                    if (sameType && first[i] == second[j]) {
+                        continue;
+                    }
+                    add(type, first[i], second[j], 1, datetime, datetime, Double.isNaN(tone) ? 0 : 1, tone, tone, tone);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the co-mentions of another graph to this one, such as those of
+     * another chunk or day.
+     *
+     * @param other the graph to merge.
+     */
+    public synchronized void merge(final GDELTCooccurrenceGraph other) {
+        mergePairs(other);
+    }
+
+    /**
+     * Add the co-mentions of another graph to this one.
+     *
+     * @param other the graph to merge.
+     * @return the index in this graph of each pair of the other graph.
+     */
+    private int[] mergePairs(final GDELTCooccurrenceGraph other) {
+        final int[] pairMap = new int[other.pairCount];
+        final int[] entityMap = new int[other.identifiers.size()];
+        for (int id = 0; id < entityMap.length; id++) {
+            entityMap[id] = getEntityId(ENTITY_TYPES[other.entityTypes[id]], other.identifiers.get(id), other.countries.get(id));
+        }
+        final int[] datetimeMap = new int[other.datetimes.size()];
+        for (int id = 0; id < datetimeMap.length; id++) {
+            datetimeMap[id] = getDatetimeId(other.datetimes.get(id));
+        }
+        for (int pair = 0; pair < other.pairCount; pair++) {
+            final long key = other.keys[pair];
+            pairMap[pair] = add(RELATIONSHIP_TYPES[getType(key)], entityMap[getFirst(key)], entityMap[getSecond(key)], other.counts[pair],
+                    datetimeMap[other.firstSeen[pair]], datetimeMap[other.lastSeen[pair]],
+                    other.toneCounts[pair], other.meanTones[pair], other.minimumTones[pair], other.maximumTones[pair]);
+        }
+        return pairMap;
+    }
+
+    /**
+     * Merge a list of graphs, such as the graphs of each day of a range.
+     *
+     * @param graphs the graphs to merge.
+     * @return the only graph if there is one, and otherwise a new graph
+     * holding every co-mention of the graphs.
+     */
+    public static GDELTCooccurrenceGraph merge(final List<GDELTCooccurrenceGraph> graphs) {
+        if (graphs.size() == 1) {
+            return graphs.get(0);
+        }
+        final GDELTCooccurrenceGraph merged = new GDELTCooccurrenceGraph();
+        for (final GDELTCooccurrenceGraph graph : graphs) {
+            merged.merge(graph);
+        }
+        return merged;
+    }
+
+    /**
+     * Build the sorted pairs of each entity and release everything only needed
+     * to add co-mentions, after which no more co-mentions can be added.
+     */
+    public synchronized void freeze() {
+        if (slots == null) {
+            return;
+        }
+        buildAdjacency();
+        slots = null;
+        keys = Arrays.copyOf(keys, pairCount);
+        counts = Arrays.copyOf(counts, pairCount);
+        firstSeen = Arrays.copyOf(firstSeen, pairCount);
+        lastSeen = Arrays.copyOf(lastSeen, pairCount);
+        toneCounts = Arrays.copyOf(toneCounts, pairCount);
+        meanTones = Arrays.copyOf(meanTones, pairCount);
+        minimumTones = Arrays.copyOf(minimumTones, pairCount);
+        maximumTones = Arrays.copyOf(maximumTones, pairCount);
+        entityTypes = Arrays.copyOf(entityTypes, identifiers.size());
+        identifiers.trimToSize();
+        countries.trimToSize();
+    }
+
+    public synchronized boolean isFrozen() {
+        return slots == null;
+    }
+
+    /**
+     * Estimate the memory held by the graph.
+     *
+     * @return the estimated size of the graph in bytes.
+     */
+    public synchronized long getMemoryUsage() {
+        long bytes = (long) pairCount * PAIR_BYTES + (long) identifiers.size() * ENTITY_BYTES;
+        for (final String identifier : identifiers) {
+            bytes += identifier.length();
+        }
+        return slots == null ? bytes : bytes + (long) slots.length * Integer.BYTES;
+    }
+
+    public synchronized int getEntityCount() {
+        return identifiers.size();
+    }
+
+    public synchronized int size() {
+        return pairCount;
+    }
+
+    /**
+     * Walk breadth first from the seeds, adding a weighted relationship for
+     * every pair followed.
+     * <p>
+     * At each hop, the pairs of each entity reached at the previous hop are
+     * followed strongest first, skipping those already followed, until the
+     * fan-out has been followed from that entity. The entities newly reached
+     * are expanded at the next hop.
+     *
+     * @param seeds the entities to start from.
+     * @param depth the number of hops to walk.
+     * @param fanOut the most pairs followed from each entity at each hop.
+     * @param limit the limit on the number of relationships added.
+     * @return one record for each pair followed, carrying its count, time
+     * span, tone statistics and the hop it was followed at.
+     */
+    public synchronized RecordStore expand(final GDELTSeeds seeds, final int depth, final int fanOut, final GDELTResultLimit limit) {
+        final RecordStore results = new GraphRecordStore();
+        final Walk walk = walk(seeds, depth, fanOut, limit.getRemaining());
+        for (int i = 0; i < walk.size && limit.tryAcquire(); i++) {
+            emit(results, walk.pairs[i], walk.hops[i], false);
+        }
+        return results;
+    }
+
+    /**
+     * Walk the co-mentions of several days together, as {@link #expand} does
+     * for a single graph, and add a relationship for each day that mentioned
+     * each pair followed.
+     * <p>
+     * The pairs are chosen from the co-mentions of every day merged, so the
+     * strongest pairs over the whole range are followed, but each relationship
+     * carries the datetime, count and tone of a single day so that the
+     * relationships can be laid out on a timeline.
+     *
+     * @param days the graphs of each day, in date order.
+     * @param seeds the entities to start from.
+     * @param depth the number of hops to walk.
+     * @param fanOut the most pairs followed from each entity at each hop.
+     * @param limit the limit on the number of relationships added.
+     * @return one record for each day of each pair followed, with the pairs in
+     * the order they were followed and the days of each pair in date order.
+     */
+    public static RecordStore expand(final List<GDELTCooccurrenceGraph> days, final GDELTSeeds seeds, final int depth, final int fanOut, final GDELTResultLimit limit) {
+        if (days.size() == 1) {
+            return days.get(0).expand(seeds, depth, fanOut, limit);
+        }
+
+        final GDELTCooccurrenceGraph merged = new GDELTCooccurrenceGraph();
+        final int[][] pairMaps = new int[days.size()][];
+        for (int day = 0; day < pairMaps.length; day++) {
+            pairMaps[day] = merged.mergePairs(days.get(day));
+        }
+        // each pair followed yields at least one relationship, so no more are needed than the limit allows
+        final Walk walk = merged.walk(seeds, depth, fanOut, limit.getRemaining());
+
+        // group the pairs of every day under the step of the walk that followed them
+        final int[] steps = new int[merged.pairCount];
+        Arrays.fill(steps, -1);
+        for (int i = 0; i < walk.size; i++) {
+            steps[walk.pairs[i]] = i;
+        }
+        final int[] offsets = new int[walk.size + 1];
+        for (final int[] pairMap : pairMaps) {
+            for (final int pair : pairMap) {
+                if (steps[pair] >= 0) {
+                    offsets[steps[pair] + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < walk.size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        final int[] dayIndices = new int[offsets[walk.size]];
+        final int[] dayPairs = new int[offsets[walk.size]];
+        final int[] filled = Arrays.copyOf(offsets, walk.size);
+        for (int day = 0; day < pairMaps.length; day++) {
+            for (int pair = 0; pair < pairMaps[day].length; pair++) {
+                final int step = steps[pairMaps[day][pair]];
+                if (step >= 0) {
+                    dayIndices[filled[step]] = day;
+                    dayPairs[filled[step]++] = pair;
+                }
+            }
+        }
+
+        final RecordStore results = new GraphRecordStore();
+        for (int i = 0; i < walk.size; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                if (!limit.tryAcquire()) {
+                    return results;
+                }
+                final GDELTCooccurrenceGraph day = days.get(dayIndices[k]);
+                synchronized (day) {
+                    // pairs of the same type are ordered by entity id, which differs from day to day
+                    final boolean swap = !day.identifiers.get(getFirst(day.keys[dayPairs[k]])).equals(merged.identifiers.get(getFirst(merged.keys[walk.pairs[i]])));
+                    day.emit(results, dayPairs[k], walk.hops[i], swap);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Walk breadth first from the seeds, following at most the fan-out pairs
+     * not yet followed from each entity reached.
+     *
+     * @return the pairs followed, in the order they were followed, with the
+     * hop each was followed at.
+     */
+    private Walk walk(final GDELTSeeds seeds, final int depth, final int fanOut, final int maximumPairs) {
+        buildAdjacency();
+        final Walk walk = new Walk();
+        final BitSet reached = new BitSet(identifiers.size());
+        final BitSet followed = new BitSet(pairCount);
+
+        int[] frontier = new int[seeds.size()];
+        int frontierSize = 0;
+        for (final GDELTEntityTypes type : ENTITY_TYPES) {
+            final Map<String, Integer> ids = entityIds.get(type);
+            for (final String identifier : seeds.getIdentifiers(type.getVertexType().getName())) {
+                final Integer id = ids.get(identifier);
+                if (id != null && !reached.get(id)) {
+                    reached.set(id);
+                    frontier[frontierSize++] = id;
+                }
+            }
+        }
+
+        for (int hop = 1; hop <= depth && frontierSize > 0; hop++) {
+            int[] next = new int[Math.max(16, frontierSize)];
+            int nextSize = 0;
+            for (int f = 0; f < frontierSize; f++) {
+                final int entity = frontier[f];
+                int taken = 0;
+                for (int k = offsets[entity]; k < offsets[entity + 1] && taken < fanOut; k++) {
+                    final int pair = adjacent[k];
+                    if (followed.get(pair)) {
+                        continue;
+                    }
+                    if (walk.size == maximumPairs) {
+                        return walk;
+                    }
+                    followed.set(pair);
+                    taken++;
+                    walk.add(pair, hop);
+
+                    final long key = keys[pair];
+                    final int other = getFirst(key) == entity ? getSecond(key) : getFirst(key);
+                    if (!reached.get(other)) {
+                        reached.set(other);
+                        if (nextSize == next.length) {
+                            next = Arrays.copyOf(next, nextSize * 2);
+                        }
+                        next[nextSize++] = other;
+                    }
+                }
+            }
+            frontier = next;
+            frontierSize = nextSize;
+        }
+        return walk;
+    }
+
+    private int[] getRowIds(final int[][] rowIds, final GDELTEntityTypes type, final GDELTRow row) {
+        int[] ids = rowIds[type.ordinal()];
+        if (ids == null) {
+            final int count = row.count(type.getField());
+            ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                final String country = type == GDELTEntityTypes.Location ? row.get(type.getField(), i, LOCATION_COUNTRY) : null;
+                ids[i] = getEntityId(type, type.getIdentifier(row, i), country);
+            }
+            rowIds[type.ordinal()] = ids;
+        }
+        return ids;
+    }
+
+    private int getEntityId(final GDELTEntityTypes type, final String identifier, final String country) {
+        final Map<String, Integer> ids = entityIds.get(type);
+        final Integer existing = ids.get(identifier);
+        if (existing != null) {
+            return existing;
+        }
+        final int id = identifiers.size();
+        ids.put(identifier, id);
+        identifiers.add(identifier);
+        countries.add(country);
+        if (id == entityTypes.length) {
+            entityTypes = Arrays.copyOf(entityTypes, id * 2);
+        }
+        entityTypes[id] = (byte) type.ordinal();
+        return id;
+    }
+
+    private int getDatetimeId(final String dt) {
+        return datetimeIds.computeIfAbsent(dt, d -> {
+            datetimes.add(d);
+            return datetimes.size() - 1;
+        });
+    }
+
+    private int add(final GDELTRelationshipTypes type, final int first, final int second, final int count, final int firstSeenId, final int lastSeenId,
+            final int toneCount, final double meanTone, final double minimumTone, final double maximumTone) {
+        if (slots == null) {
+            throw new IllegalStateException("Co-mentions cannot be added to a frozen GDELT co-occurrence graph");
+        }
+        // pairs of the same type are held once whichever order they were mentioned in
+        final boolean swap = type.getFirst() == type.getSecond() && first > second;
+        final long key = (long) type.ordinal() << (2 * ID_BITS) | (long) (swap ? second : first) << ID_BITS | (swap ? first : second);
+
+        final int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0) {
+            final int pair = slots[slot] - 1;
+            if (keys[pair] == key) {
+                counts[pair] += count;
+                if (datetimes.get(firstSeenId).compareTo(datetimes.get(firstSeen[pair])) < 0) {
+                    firstSeen[pair] = firstSeenId;
+                }
+                if (datetimes.get(lastSeenId).compareTo(datetimes.get(lastSeen[pair])) > 0) {
+                    lastSeen[pair] = lastSeenId;
+                }
+                if (toneCount > 0) {
+                    final int total = toneCounts[pair] + toneCount;
+                    meanTones[pair] += (meanTone - meanTones[pair]) * toneCount / total;
+                    toneCounts[pair] = total;
+                    minimumTones[pair] = Math.min(minimumTones[pair], minimumTone);
+                    maximumTones[pair] = Math.max(maximumTones[pair], maximumTone);
+                }
+                return pair;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (pairCount == keys.length) {
+            growPairs();
+        }
+        final int pair = pairCount++;
+        keys[pair] = key;
+        counts[pair] = count;
+        firstSeen[pair] = firstSeenId;
+        lastSeen[pair] = lastSeenId;
+        toneCounts[pair] = toneCount;
+        meanTones[pair] = toneCount > 0 ? meanTone : 0;
+        minimumTones[pair] = toneCount > 0 ? minimumTone : Double.POSITIVE_INFINITY;
+        maximumTones[pair] = toneCount > 0 ? maximumTone : Double.NEGATIVE_INFINITY;
+        slots[slot] = pair + 1;
+        offsets = null;
+
+        // keep the table at most half full so probes stay short
+        if (pairCount * 2 > slots.length) {
+            rehash();
+        }
+        return pair;
+    }
+
+    private void growPairs() {
+        final int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        firstSeen = Arrays.copyOf(firstSeen, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        toneCounts = Arrays.copyOf(toneCounts, capacity);
+        meanTones = Arrays.copyOf(meanTones, capacity);
+        minimumTones = Arrays.copyOf(minimumTones, capacity);
+        maximumTones = Arrays.copyOf(maximumTones, capacity);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        final int mask = slots.length - 1;
+        for (int pair = 0; pair < pairCount; pair++) {
+            int slot = hash(keys[pair]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = pair + 1;
+        }
+    }
+
+    /**
+     * Build the pairs of each entity, ordered by their number of mentions and
+     * then by the order they were first seen.
+     */
+    private void buildAdjacency() {
+        if (offsets != null) {
+            return;
+        }
+        final int entityCount = identifiers.size();
+        offsets = new int[entityCount + 1];
+        for (int pair = 0; pair < pairCount; pair++) {
+            offsets[getFirst(keys[pair]) + 1]++;
+            offsets[getSecond(keys[pair]) + 1]++;
+        }
+        for (int entity = 0; entity < entityCount; entity++) {
+            offsets[entity + 1] += offsets[entity];
+        }
+
+        // sort on the count, strongest first, then the pair index, packed into one long
+        final long[] ordered = new long[offsets[entityCount]];
+        final int[] filled = Arrays.copyOf(offsets, entityCount);
+        for (int pair = 0; pair < pairCount; pair++) {
+            final long entry = (long) (Integer.MAX_VALUE - counts[pair]) << Integer.SIZE | pair;
+            ordered[filled[getFirst(keys[pair])]++] = entry;
+            ordered[filled[getSecond(keys[pair])]++] = entry;
+        }
+        adjacent = new int[ordered.length];
+        for (int entity = 0; entity < entityCount; entity++) {
+            Arrays.sort(ordered, offsets[entity], offsets[entity + 1]);
+        }
+        for (int k = 0; k < ordered.length; k++) {
+            adjacent[k] = (int) ordered[k];
+        }
+    }
+
+    private void emit(final RecordStore results, final int pair, final int hop, final boolean swap) {
+        final long key = keys[pair];
+        final GDELTRelationshipTypes type = RELATIONSHIP_TYPES[getType(key)];
+        final boolean reversed = type.isReversed() != swap;
+        final int source = reversed ? getSecond(key) : getFirst(key);
+        final int destination = reversed ? getFirst(key) : getSecond(key);
+
+        results.add();
+        results.set(GDELTRelationshipPlan.SOURCE_IDENTIFIER, identifiers.get(source));
+        results.set(GDELTRelationshipPlan.SOURCE_TYPE, type.getSource().getVertexType());
+        if (countries.get(source) != null) {
+            results.set(GDELTRelationshipPlan.SOURCE_COUNTRY, countries.get(source));
+        }
+        results.set(GDELTRelationshipPlan.DESTINATION_IDENTIFIER, identifiers.get(destination));
+        results.set(GDELTRelationshipPlan.DESTINATION_TYPE, type.getDestination().getVertexType());
+        if (countries.get(destination) != null) {
+            results.set(GDELTRelationshipPlan.DESTINATION_COUNTRY, countries.get(destination));
+        }
+
+        results.set(GDELTRelationshipPlan.TRANSACTION_TYPE, type.getTransactionType());
+        results.set(GDELTRelationshipPlan.TRANSACTION_DATETIME, datetimes.get(firstSeen[pair]));
+        results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTEntityAggregator.MENTIONS_ATTRIBUTE, Integer.toString(counts[pair]));
+        results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.FIRST_SEEN_ATTRIBUTE, datetimes.get(firstSeen[pair]));
+        results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.LAST_SEEN_ATTRIBUTE, datetimes.get(lastSeen[pair]));
+        if (toneCounts[pair] > 0) {
+            results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.TONE_ATTRIBUTE, Double.toString(meanTones[pair]));
+            results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.MINIMUM_TONE_ATTRIBUTE, Double.toString(minimumTones[pair]));
+            results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.MAXIMUM_TONE_ATTRIBUTE, Double.toString(maximumTones[pair]));
+        }
+        results.set(GraphRecordStoreUtilities.TRANSACTION + HOP_ATTRIBUTE, Integer.toString(hop));
+    }
+
+    /**
+     * The pairs followed by a walk and the hop each was followed at.
+     */
+    private static class Walk {
+
+        private int[] pairs = new int[16];
+        private int[] hops = new int[16];
+        private int size = 0;
+
+        private void add(final int pair, final int hop) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+                hops = Arrays.copyOf(hops, size * 2);
+            }
+            pairs[size] = pair;
+            hops[size++] = hop;
+        }
+    }
+
+    private static int hash(final long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static int getType(final long key) {
+        return (int) (key >>> (2 * ID_BITS));
+    }
+
+    private static int getFirst(final long key) {
+        return (int) (key >>> ID_BITS & ID_MASK);
+    }
+
+    private static int getSecond(final long key) {
+        return (int) (key & ID_MASK);
+    }
+}
@@ -15,18 +15,33 @@
  */
 package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This utility class assists formatting the GDELT timestamps for querying
+ * <p>
+ * A GDELTDateTime is either a day of the daily archives, or a 15 minute slice
+ * of the update feed created with {@link #forUpdate}. The GDELT server can be
+ * changed with the {@value #URL_PROPERTY} system property, such as to test
+ * against a local stand-in.
  *
  * @author canis_majoris
  */
 public class GDELTDateTime {
 
-    private static final String HEADER = "http://data.gdeltproject.org/gkg/";
+    public static final String URL_PROPERTY = "constellation.gdelt.url";
+
+    private static final String DEFAULT_URL = "http://data.gdeltproject.org/";
+    private static final String HEADER = "gkg/";
+    private static final String UPDATE_HEADER = "gdeltv2/";
     private static final String FOOTER = ".gkg.csv";
     private static final String ZIPPER = ".zip";
+    private static final String EVENTS_HEADER = "events/";
+    private static final String EVENTS_FOOTER = ".export.CSV";
 
     private final int y;
     private final int m;
@@ -37,6 +52,9 @@ public class GDELTDateTime {
     private final String dt;
     private final String url;
     private final String file;
+    private final String eventsUrl;
+    private final String eventsFile;
+    private final GDELTRowLayout layout;
 
     public GDELTDateTime(final ZonedDateTime dateTime) {
         this.y = dateTime.getYear();
@@ -46,8 +64,49 @@ public class GDELTDateTime {
         this.day = String.format("%04d-%02d-%02d", y, m, d);
         this.date = String.format("%04d%02d%02d", y, m, d);
         this.dt = String.format("%04d-%02d-%02d 00:00:00.000Z", y, m, d);
-        this.url = HEADER + date + FOOTER + ZIPPER;
+        this.url = getBaseUrl() + HEADER + date + FOOTER + ZIPPER;
+        this.file = date + FOOTER;
+        this.eventsUrl = getBaseUrl() + EVENTS_HEADER + date + EVENTS_FOOTER + ZIPPER;
+        this.eventsFile = date + EVENTS_FOOTER;
+        this.layout = GDELTRowLayout.DAILY;
+    }
+
+    private GDELTDateTime(final ZonedDateTime slice, final int h, final int min) {
+        this.y = slice.getYear();
+        this.m = slice.getMonthValue();
+        this.d = slice.getDayOfMonth();
+
+        this.day = String.format("%04d-%02d-%02d", y, m, d);
+        this.date = String.format("%04d%02d%02d%02d%02d00", y, m, d, h, min);
+        this.dt = String.format("%04d-%02d-%02d %02d:%02d:00.000Z", y, m, d, h, min);
+        this.url = getBaseUrl() + UPDATE_HEADER + date + FOOTER + ZIPPER;
         this.file = date + FOOTER;
+        // the update rows have no CAMEO event ids to join to an Events export
+        this.eventsUrl = null;
+        this.eventsFile = null;
+        this.layout = GDELTRowLayout.UPDATE;
+    }
+
+    /**
+     * Get the 15 minute slice of the update feed that contains a time.
+     *
+     * @param dateTime a time within the slice.
+     * @return the slice, starting on a 15 minute boundary in UTC.
+     */
+    public static GDELTDateTime forUpdate(final ZonedDateTime dateTime) {
+        final ZonedDateTime utc = dateTime.withZoneSameInstant(ZoneOffset.UTC);
+        return new GDELTDateTime(utc, utc.getHour(), utc.getMinute() - utc.getMinute() % 15);
+    }
+
+    /**
+     * Get the base URL of the GDELT server, ending with a slash.
+     *
+     * @return the value of the {@value #URL_PROPERTY} system property, or the
+     * public GDELT server if it is not set.
+     */
+    public static String getBaseUrl() {
+        final String base = System.getProperty(URL_PROPERTY, DEFAULT_URL);
+        return base.endsWith("/") ? base : base + "/";
     }
 
     public String getDay() {
@@ -69,4 +128,52 @@ public class GDELTDateTime {
     public String getFile() {
         return file;
     }
+
+    /**
+     * Get the URL of the GDELT Events export of the day, which holds the
+     * events referenced by the CAMEO event ids of its rows.
+     *
+     * @return the URL, or null for a slice of the update feed.
+     */
+    public String getEventsUrl() {
+        return eventsUrl;
+    }
+
+    /**
+     * Get the name of the GDELT Events export of the day, which is also the
+     * name of the CSV inside it.
+     *
+     * @return the name, or null for a slice of the update feed.
+     */
+    public String getEventsFile() {
+        return eventsFile;
+    }
+
+    public GDELTRowLayout getLayout() {
+        return layout;
+    }
+
+    public boolean isUpdate() {
+        return layout == GDELTRowLayout.UPDATE;
+    }
+
+    /**
+     * Get the GDELT dates for every day from the start to the end of a range,
+     * inclusive. If the start is missing or after the end, only the end day is
+     * returned.
+     *
+     * @param start the start of the range.
+     * @param end the end of the range.
+     * @return the days in the range, in order.
+     */
+    public static List<GDELTDateTime> getDays(final ZonedDateTime start, final ZonedDateTime end) {
+        final List<GDELTDateTime> days = new ArrayList<>();
+        final LocalDate last = end.toLocalDate();
+        LocalDate date = start == null || start.isAfter(end) ? last : start.withZoneSameInstant(end.getZone()).toLocalDate();
+        while (!date.isAfter(last)) {
+            days.add(new GDELTDateTime(date.atStartOfDay(end.getZone())));
+            date = date.plusDays(1);
+        }
+        return days;
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Folds repeated mentions of the same GDELT entity into a single count.
+ * <p>
+ * Entities are kept in the order they are first seen. Once the maximum number
+ * of distinct entities has been reached, mentions of new entities are ignored
+ * but mentions of entities already held are still counted.
+ * <p>
+ * Which entities are kept under the maximum depends on the order in which
+ * they are first seen, so the days of a range are each counted by their own
+ * aggregator without a maximum and merged in date order by
+ * {@link #merge(int, List)}, which keeps the same entities however the days
+ * are scheduled.
+ *
+ * @author canis_majoris
+ */
+public class GDELTEntityAggregator {
+
+    public static final String MENTIONS_ATTRIBUTE = "Mentions";
+
+    private final int maximumEntities;
+    private final Map<EntityKey, Mentions> entities = new LinkedHashMap<>();
+
+    public GDELTEntityAggregator(final int maximumEntities) {
+        this.maximumEntities = maximumEntities;
+    }
+
+    /**
+     * Count a mention of an entity.
+     *
+     * @param type the type of the entity.
+     * @param identifier the identifier of the entity.
+     * @return true if this is the first mention of the entity, in which case
+     * any extra attributes should be set with {@link #setLocation}.
+     */
+    public boolean add(final GDELTEntityTypes type, final String identifier) {
+        final EntityKey key = new EntityKey(type, identifier);
+        final Mentions mentions = entities.get(key);
+        if (mentions != null) {
+            mentions.count++;
+            return false;
+        } else if (entities.size() < maximumEntities) {
+            entities.put(key, new Mentions(1));
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public void setLocation(final String identifier, final String country, final String latitude, final String longitude) {
+        final Mentions mentions = entities.get(new EntityKey(GDELTEntityTypes.Location, identifier));
+        if (mentions != null) {
+            mentions.country = country;
+            mentions.latitude = latitude;
+            mentions.longitude = longitude;
+        }
+    }
+
+    /**
+     * Add the counts of another aggregator to this one, keeping the order in
+     * which the other aggregator first saw its entities.
+     *
+     * @param other the aggregator to merge.
+     */
+    public synchronized void merge(final GDELTEntityAggregator other) {
+        for (final Map.Entry<EntityKey, Mentions> entry : other.entities.entrySet()) {
+            final Mentions mentions = entities.get(entry.getKey());
+            if (mentions != null) {
+                mentions.count += entry.getValue().count;
+            } else if (entities.size() < maximumEntities) {
+                entities.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Merge the aggregators of the days of a range, in date order, into one
+     * holding at most a maximum number of distinct entities. The entities
+     * first seen on earlier days are kept before those of later days, as if
+     * the days had been read one at a time.
+     *
+     * @param maximumEntities the maximum number of distinct entities to keep.
+     * @param days the aggregators of each day, in date order, each without a
+     * maximum of its own.
+     * @return the merged aggregator.
+     */
+    public static GDELTEntityAggregator merge(final int maximumEntities, final List<GDELTEntityAggregator> days) {
+        final GDELTEntityAggregator merged = new GDELTEntityAggregator(maximumEntities);
+        for (final GDELTEntityAggregator day : days) {
+            merged.merge(day);
+        }
+        return merged;
+    }
+
+    public synchronized int size() {
+        return entities.size();
+    }
+
+    /**
+     * Visit each distinct entity and its mentions, in the order they were
+     * first seen.
+     *
+     * @param visitor the visitor to call for each entity.
+     */
+    synchronized void forEach(final BiConsumer<EntityKey, Mentions> visitor) {
+        entities.forEach(visitor);
+    }
+
+    /**
+     * Build one record for each distinct entity, carrying the number of times
+     * it was mentioned.
+     *
+     * @return the aggregated records.
+     */
+    public synchronized RecordStore toRecordStore() {
+        final RecordStore results = new GraphRecordStore();
+        for (final Map.Entry<EntityKey, Mentions> entry : entities.entrySet()) {
+            final EntityKey key = entry.getKey();
+            final Mentions mentions = entry.getValue();
+
+            results.add();
+            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, key.identifier());
+            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, key.type().getVertexType());
+            results.set(GraphRecordStoreUtilities.SOURCE + MENTIONS_ATTRIBUTE, Integer.toString(mentions.count));
+            if (key.type() == GDELTEntityTypes.Location) {
+                results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.COUNTRY, mentions.country);
+                results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LATITUDE, mentions.latitude);
+                results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LONGITUDE, mentions.longitude);
+            }
+        }
+        return results;
+    }
+
+    record EntityKey(GDELTEntityTypes type, String identifier) {
+
+    }
+
+    static class Mentions {
+
+        private int count;
+        private String country = null;
+        private String latitude = null;
+        private String longitude = null;
+
+        Mentions(final int count) {
+            this.count = count;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        String getCountry() {
+            return country;
+        }
+
+        String getLatitude() {
+            return latitude;
+        }
+
+        String getLongitude() {
+            return longitude;
+        }
+    }
+}
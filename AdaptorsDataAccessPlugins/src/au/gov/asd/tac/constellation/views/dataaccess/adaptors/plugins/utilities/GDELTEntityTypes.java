@@ -15,7 +15,10 @@
  */
 package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
 
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.type.SchemaVertexType;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 
 /**
@@ -24,12 +27,63 @@ import java.util.List;
  * @author canis-majoris-42
  */
 public enum GDELTEntityTypes {
-    Person,
-    Organisation,
-    Theme,
-    Location,
-    Source,
-    URL;
+    Person(GDELTRowScanner.PERSONS, AnalyticConcept.VertexType.PERSON),
+    Organisation(GDELTRowScanner.ORGANISATIONS, AnalyticConcept.VertexType.ORGANISATION),
+    Theme(GDELTRowScanner.THEMES, AnalyticConcept.VertexType.WORD),
+    Location(GDELTRowScanner.LOCATIONS, AnalyticConcept.VertexType.LOCATION),
+    Source(GDELTRowScanner.SOURCES, AnalyticConcept.VertexType.DOCUMENT),
+    URL(GDELTRowScanner.SOURCE_URLS, AnalyticConcept.VertexType.URL);
+
+    private final int field;
+    private final SchemaVertexType vertexType;
+
+    private GDELTEntityTypes(final int field, final SchemaVertexType vertexType) {
+        this.field = field;
+        this.vertexType = vertexType;
+    }
+
+    /**
+     * Get the field of a GDELT row holding entities of this type.
+     *
+     * @return a {@link GDELTRowScanner} field index.
+     */
+    public int getField() {
+        return field;
+    }
+
+    public SchemaVertexType getVertexType() {
+        return vertexType;
+    }
+
+    /**
+     * Get the identifier of one entity of this type from the current row.
+     * Locations are identified by their full name, which is the second part
+     * of the location.
+     *
+     * @param scanner the scanner positioned at the row.
+     * @param index the index of the entity within its field.
+     * @return the identifier of the entity.
+     */
+    public String getIdentifier(final GDELTRow scanner, final int index) {
+        return this == Location ? scanner.get(field, index, 1) : scanner.get(field, index);
+    }
+
+    /**
+     * Convert the chosen entity options into a set of types, ignoring any
+     * that are not recognised.
+     *
+     * @param options the names of the chosen entity types.
+     * @return the chosen types.
+     */
+    public static EnumSet<GDELTEntityTypes> fromValues(final List<String> options) {
+        final EnumSet<GDELTEntityTypes> types = EnumSet.noneOf(GDELTEntityTypes.class);
+        for (final GDELTEntityTypes type : values()) {
+            if (options.contains(type.name())) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
 
     public static List<String> getValues() {
         return Arrays.asList(
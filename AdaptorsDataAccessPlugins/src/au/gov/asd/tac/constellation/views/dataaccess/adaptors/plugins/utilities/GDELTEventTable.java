@@ -0,0 +1,390 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * The events of a day of the GDELT Events export that are referenced by the
+ * CAMEO event ids of the GDELT Knowledge Graph rows being imported.
+ * <p>
+ * The ids referenced by the imported relationships are collected first, into
+ * an open addressing table of primitive longs. The export is then streamed
+ * once, and only the rows whose id is in the table are split into columns and
+ * kept, so the table holds at most one event for each id referenced however
+ * large the export is. The actors, event code, Goldstein scale and action
+ * location of each event are kept in columns indexed by the order the ids
+ * were referenced.
+ * <p>
+ * {@link #join} then adds an Event node for each event found, linked to each
+ * entity of a relationship that referenced it.
+ *
+ * @author canis_majoris
+ */
+public class GDELTEventTable {
+
+    public static final String ACTOR1_ATTRIBUTE = "Actor1 Name";
+    public static final String ACTOR2_ATTRIBUTE = "Actor2 Name";
+    public static final String EVENT_CODE_ATTRIBUTE = "Event Code";
+    public static final String GOLDSTEIN_SCALE_ATTRIBUTE = "Goldstein Scale";
+    public static final String ACTION_LOCATION_ATTRIBUTE = "Action Location";
+
+    // the columns of the Events export
+    public static final int GLOBAL_EVENT_ID = 0;
+    public static final int ACTOR1_NAME = 6;
+    public static final int ACTOR2_NAME = 16;
+    public static final int EVENT_CODE = 26;
+    public static final int GOLDSTEIN_SCALE = 30;
+    public static final int ACTION_GEO_FULL_NAME = 50;
+    public static final int ACTION_GEO_COUNTRY_CODE = 51;
+    public static final int ACTION_GEO_LATITUDE = 53;
+    public static final int ACTION_GEO_LONGITUDE = 54;
+
+    // the columns kept for each event, in the order they appear in a row
+    private static final int[] COLUMNS = {ACTOR1_NAME, ACTOR2_NAME, EVENT_CODE, GOLDSTEIN_SCALE,
+        ACTION_GEO_FULL_NAME, ACTION_GEO_COUNTRY_CODE, ACTION_GEO_LATITUDE, ACTION_GEO_LONGITUDE};
+    private static final String[] DESTINATION_ATTRIBUTES = {
+        GraphRecordStoreUtilities.DESTINATION + ACTOR1_ATTRIBUTE,
+        GraphRecordStoreUtilities.DESTINATION + ACTOR2_ATTRIBUTE,
+        GraphRecordStoreUtilities.DESTINATION + EVENT_CODE_ATTRIBUTE,
+        GraphRecordStoreUtilities.DESTINATION + GOLDSTEIN_SCALE_ATTRIBUTE,
+        GraphRecordStoreUtilities.DESTINATION + ACTION_LOCATION_ATTRIBUTE,
+        GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.COUNTRY,
+        GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.LATITUDE,
+        GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.LONGITUDE};
+    private static final int LAST_COLUMN = COLUMNS[COLUMNS.length - 1];
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    // slots holds the index of each event plus one, or 0 if the slot is empty
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // the columns of each event, filled by load
+    private String[][] values = null;
+    private final BitSet loaded = new BitSet();
+
+    /**
+     * Reference the events in a CAMEO event ids field, which holds comma or
+     * semi-colon separated ids.
+     *
+     * @param field the field, which may be null or empty.
+     */
+    public void reference(final String field) {
+        if (values != null) {
+            throw new IllegalStateException("Events cannot be referenced once the GDELT Events export has been loaded");
+        }
+        forEachId(field, this::add);
+    }
+
+    /**
+     * Get the number of distinct events referenced.
+     *
+     * @return the number of events.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of referenced events found in the export.
+     *
+     * @return the number of events loaded.
+     */
+    public int getLoaded() {
+        return loaded.cardinality();
+    }
+
+    /**
+     * Stream the CSV of an Events export and keep the columns of each
+     * referenced event. Every other row is skipped once its id has been read.
+     *
+     * @param in the CSV of the export, which has no header row.
+     * @throws IOException if the export could not be read.
+     */
+    public void load(final InputStream in) throws IOException {
+        values = new String[COLUMNS.length][size];
+        final int[] starts = new int[COLUMNS.length];
+        final int[] ends = new int[COLUMNS.length];
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        int searched = 0;
+        boolean eof = false;
+        while (true) {
+            int newline = searched;
+            while (newline < end && buffer[newline] != NEWLINE) {
+                newline++;
+            }
+            if (newline < end) {
+                readRow(buffer, start, newline, starts, ends);
+                start = newline + 1;
+                searched = start;
+                continue;
+            }
+            if (eof) {
+                if (start < end) {
+                    readRow(buffer, start, end, starts, ends);
+                }
+                return;
+            }
+
+            // keep the partial row and read more behind it, growing the buffer for a row longer than it
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            } else if (end == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            searched = end;
+            final int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                eof = true;
+            } else {
+                end += read;
+            }
+        }
+    }
+
+    /**
+     * Find a referenced event that was found in the export.
+     *
+     * @param id the global event id.
+     * @return the index of the event, or -1 if it was not referenced or not
+     * found.
+     */
+    public int find(final long id) {
+        return find(id, true);
+    }
+
+    /**
+     * Get one column of an event.
+     *
+     * @param event the index of the event, from {@link #find}.
+     * @param column a column of the export, such as {@link #EVENT_CODE}.
+     * @return the value, which is empty if the event has none.
+     * @throws IllegalArgumentException if the column is not kept.
+     */
+    public String get(final int event, final int column) {
+        final int index = Arrays.binarySearch(COLUMNS, column);
+        if (index < 0) {
+            throw new IllegalArgumentException("Column " + column + " of the GDELT Events export is not kept");
+        }
+        return values[index][event];
+    }
+
+    /**
+     * Link the entities of each relationship to the events it references.
+     * Each event found is added once as an Event node with its columns, and
+     * each entity is linked to each of its events once, with the datetime of
+     * the first relationship that linked them.
+     *
+     * @param relationships the relationships that referenced the events.
+     * @return the links from entities to events.
+     */
+    public RecordStore join(final RecordStore relationships) {
+        final RecordStore results = new GraphRecordStore();
+        final BitSet described = new BitSet(size);
+        final Set<String> linked = new HashSet<>();
+        relationships.reset();
+        while (relationships.next()) {
+            final String datetime = relationships.get(GDELTRelationshipPlan.TRANSACTION_DATETIME);
+            forEachId(relationships.get(GDELTRelationshipPlan.TRANSACTION_SOURCE), id -> {
+                final int event = find(id);
+                if (event >= 0) {
+                    link(results, relationships, GraphRecordStoreUtilities.SOURCE, event, datetime, described, linked);
+                    link(results, relationships, GraphRecordStoreUtilities.DESTINATION, event, datetime, described, linked);
+                }
+            });
+        }
+        return results;
+    }
+
+    private void link(final RecordStore results, final RecordStore relationships, final String end, final int event, final String datetime, final BitSet described, final Set<String> linked) {
+        final String identifier = relationships.get(end + VisualConcept.VertexAttribute.IDENTIFIER);
+        final String type = relationships.get(end + AnalyticConcept.VertexAttribute.TYPE);
+        if (identifier == null || !linked.add(type + TAB + identifier + TAB + event)) {
+            return;
+        }
+
+        results.add();
+        results.set(GDELTRelationshipPlan.SOURCE_IDENTIFIER, identifier);
+        results.set(GDELTRelationshipPlan.SOURCE_TYPE, type);
+        results.set(GDELTRelationshipPlan.DESTINATION_IDENTIFIER, Long.toString(ids[event]));
+        results.set(GDELTRelationshipPlan.DESTINATION_TYPE, AnalyticConcept.VertexType.EVENT);
+        // the columns of an event are only written with its first link
+        if (!described.get(event)) {
+            described.set(event);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (!values[c][event].isEmpty()) {
+                    results.set(DESTINATION_ATTRIBUTES[c], values[c][event]);
+                }
+            }
+        }
+        results.set(GDELTRelationshipPlan.TRANSACTION_TYPE, AnalyticConcept.TransactionType.CORRELATION);
+        results.set(GDELTRelationshipPlan.TRANSACTION_DATETIME, datetime);
+        results.set(GDELTRelationshipPlan.TRANSACTION_SOURCE, Long.toString(ids[event]));
+    }
+
+    private void readRow(final byte[] buffer, final int start, final int end, final int[] starts, final int[] ends) {
+        // the id is read first so that unreferenced rows are never split
+        long id = 0;
+        int position = start;
+        while (position < end && buffer[position] >= '0' && buffer[position] <= '9') {
+            id = id * 10 + buffer[position] - '0';
+            position++;
+        }
+        if (position == start || position == end || buffer[position] != TAB) {
+            return;
+        }
+        final int event = find(id, false);
+        if (event < 0 || loaded.get(event)) {
+            return;
+        }
+
+        int column = GLOBAL_EVENT_ID + 1;
+        int kept = 0;
+        int columnStart = ++position;
+        while (column <= LAST_COLUMN && position <= end) {
+            if (position == end || buffer[position] == TAB) {
+                if (column == COLUMNS[kept]) {
+                    starts[kept] = columnStart;
+                    ends[kept] = position > columnStart && buffer[position - 1] == CARRIAGE_RETURN ? position - 1 : position;
+                    kept++;
+                }
+                column++;
+                columnStart = position + 1;
+            }
+            position++;
+        }
+        // a short row is missing columns the export always has
+        if (kept < COLUMNS.length) {
+            return;
+        }
+        for (int c = 0; c < COLUMNS.length; c++) {
+            values[c][event] = new String(buffer, starts[c], ends[c] - starts[c], StandardCharsets.UTF_8);
+        }
+        loaded.set(event);
+    }
+
+    private void add(final long id) {
+        if (find(id, false) >= 0) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size] = id;
+        final int mask = slots.length - 1;
+        int slot = hash(id) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = ++size;
+
+        // keep the table at most half full so probes stay short
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Find a referenced event, whether or not it has been found in the
+     * export.
+     */
+    private int find(final long id, final boolean loadedOnly) {
+        final int mask = slots.length - 1;
+        int slot = hash(id) & mask;
+        while (slots[slot] != 0) {
+            final int event = slots[slot] - 1;
+            if (ids[event] == id) {
+                return !loadedOnly || loaded.get(event) ? event : -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        final int mask = slots.length - 1;
+        for (int event = 0; event < size; event++) {
+            int slot = hash(ids[event]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = event + 1;
+        }
+    }
+
+    /**
+     * Parse each id in a CAMEO event ids field without creating a String for
+     * it. Values that are not a whole positive number are skipped.
+     */
+    private static void forEachId(final String field, final LongConsumer action) {
+        if (field == null) {
+            return;
+        }
+        long id = 0;
+        boolean valid = false;
+        for (int i = 0; i <= field.length(); i++) {
+            final char c = i < field.length() ? field.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                id = id * 10 + c - '0';
+                valid = valid || id > 0;
+            } else if (c == ',' || c == ';') {
+                if (valid) {
+                    action.accept(id);
+                }
+                id = 0;
+                valid = false;
+            } else if (c != ' ') {
+                // skip the rest of a value that is not a number
+                while (i + 1 < field.length() && field.charAt(i + 1) != ',' && field.charAt(i + 1) != ';') {
+                    i++;
+                }
+                id = 0;
+                valid = false;
+            }
+        }
+    }
+
+    private static int hash(final long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
@@ -16,22 +16,8 @@
 package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
 
 import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
-import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
 import au.gov.asd.tac.constellation.graph.processing.RecordStore;
-import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
-import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
-import au.gov.asd.tac.constellation.graph.schema.analytic.concept.TemporalConcept;
-import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URI;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * This class contains utilities functions for extending from GDELT CSVs.
@@ -40,492 +26,95 @@ import java.util.zip.ZipInputStream;
  */
 public class GDELTExtendingUtilities {
 
-    private static final Logger LOGGER = Logger.getLogger(GDELTExtendingUtilities.class.getName());
+    /**
+     * Hop from the seeds through the rows of a day, reading only the rows
+     * that mention the seeds when the copy of the day can look them up.
+     *
+     * @param gdt the day to read.
+     * @param plan the relationships to hop along.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param limit the limit on the records kept, shared by every day.
+     * @param seeds the selected nodes to hop from.
+     * @return the relationships found, or null if there is no archive for the
+     * day.
+     * @throws IOException if the archive could not be read.
+     */
+    public static RecordStore hopRelationships(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTResultLimit limit, final GDELTSeeds seeds) throws IOException {
+        return GDELTImportingUtilities.retrieve(gdt, source -> readRelationshipsToHop(limit, gdt.getDt(), plan, filter, source, seeds));
+    }
 
-    public static RecordStore hopRelationships(final GDELTDateTime gdt, final List<String> options, final int limit, final List<String> labels) throws IOException {
+    /**
+     * Hop from the seeds through the rows of a day, adding the relationships
+     * found to a stream, which adds them to the graph in batches as they are
+     * parsed.
+     *
+     * @param gdt the day to read.
+     * @param plan the relationships to hop along.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param limit the limit on the records kept, shared by every day.
+     * @param seeds the selected nodes to hop from.
+     * @param stream the stream to add the relationships to.
+     * @return the stream, or null if there is no archive for the day.
+     * @throws IOException if the archive could not be read.
+     */
+    public static GDELTRecordStream hopRelationships(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTResultLimit limit, final GDELTSeeds seeds, final GDELTRecordStream stream) throws IOException {
+        return GDELTImportingUtilities.retrieve(gdt, source -> {
+            try (final GDELTRow rows = source.find(seeds)) {
+                if (rows != null) {
+                    // the rows mentioning the seeds are few enough to add at once
+                    stream.add(parseRelationshipsToHop(limit, gdt.getDt(), plan, seeds, filter.apply(rows)));
+                    return stream;
+                }
+            }
+            GDELTParsingPipeline.parse(source, limit, rows -> parseRelationshipsToHop(new GDELTResultLimit(limit.getRemaining()), gdt.getDt(), plan, seeds, filter.apply(rows)), stream);
+            return stream;
+        });
+    }
 
-        RecordStore results = null;
-        try (final ZipInputStream zis = new ZipInputStream(URI.create(gdt.getUrl()).toURL().openStream())) {
+    /**
+     * Count the co-mentions of a day into a co-occurrence graph in a single
+     * pass over its rows, so that the graph can then be expanded several hops
+     * from the seeds without reading the day again.
+     *
+     * @param gdt the day to read.
+     * @param plan the relationships to count.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param graph the graph to count into, shared by every day.
+     * @return the graph, or null if there is no archive for the day.
+     * @throws IOException if the archive could not be read.
+     */
+    public static GDELTCooccurrenceGraph retrieveCooccurrence(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTCooccurrenceGraph graph) throws IOException {
+        return GDELTImportingUtilities.retrieve(gdt, source -> {
+            source.parse(() -> false, rows -> parseCooccurrence(gdt.getDt(), plan, filter.apply(rows)), graph::merge);
+            return graph;
+        });
+    }
 
-            final ZipEntry ze = zis.getNextEntry();
-            if (ze.getName().equals(gdt.getFile())) {
-                results = readRelationshipsToHop(limit, gdt.getDt(), options, ze, zis, labels);
+    public static RecordStore readRelationshipsToHop(final GDELTResultLimit limit, final String dt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTRowSource source, final GDELTSeeds seeds) throws IOException {
+        try (final GDELTRow rows = source.find(seeds)) {
+            if (rows != null) {
+                return parseRelationshipsToHop(limit, dt, plan, seeds, filter.apply(rows));
             }
-
-        } catch (final FileNotFoundException ex) {
-            final String errorMsg = "File not found " + ex.getLocalizedMessage();
-            LOGGER.log(Level.WARNING, errorMsg);
         }
-
-        return results;
+        return GDELTParsingPipeline.parse(source, limit, rows -> parseRelationshipsToHop(new GDELTResultLimit(limit.getRemaining()), dt, plan, seeds, filter.apply(rows)));
     }
 
-    public static RecordStore readRelationshipsToHop(final int limit, final String dt, final List<String> options, final ZipEntry ze, final ZipInputStream zis, final List<String> labels) throws IOException {
+    private static RecordStore parseRelationshipsToHop(final GDELTResultLimit limit, final String dt, final GDELTRelationshipPlan plan, final GDELTSeeds seeds, final GDELTRow scanner) throws IOException {
         final RecordStore results = new GraphRecordStore();
-        int total = 0;
-        try (final BufferedReader br = new BufferedReader(new InputStreamReader(zis))) {
-            String line = br.readLine();
-            while ((line = br.readLine()) != null) {
-                if (total >= limit) {
-                    break;
-                }
-
-                final String[] fields = line.split("\t");
-                // transaction attributes
-
-                final String[] persons = fields[5].split(";");
-                final String[] organisations = fields[6].split(";");
-                final String[] themes = fields[3].split(";");
-                final String[] locations = fields[4].split(";");
-                final String[] sources = fields[9].split(";");
-                final String[] sourceURLs = fields[10].split(";");
-
-                final String tone = fields[7]; // 6 semi-colon delimited
-                final String cameoEventIds = fields[8]; // semi-colon delimited
-
-                for (final String label : labels) {
-                    final String identifier = label.split("<")[0];
-                    final String type = label.split("<")[1].split(">")[0];
-
-                    if (line.contains(identifier)) {
-                        if (type.equals("Person")) {
-                            for (int i = 0; i < persons.length; i++) {
-                                if (!persons[i].equals(identifier)) {
-                                    continue;
-                                }
-                                if (total >= limit) {
-                                    break;
-                                }
-                                if (options.contains("Person_Person")) {
-                                    for (int j = 0; j < persons.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[i];
-                                        final String two = persons[j];
-                                        if (two.equals(identifier)) {
-                                            continue;
-                                        }
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.RELATIONSHIP);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Person_Organisation")) {
-                                    for (int j = 0; j < organisations.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[i];
-                                        final String two = organisations[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.CORRELATION);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                                if (options.contains("Person_Theme")) {
-                                    for (int j = 0; j < themes.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[i];
-                                        final String two = themes[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.BEHAVIOUR);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Person_Location")) {
-                                    for (int j = 0; j < locations.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[i];
-                                        final String[] locationInfo = locations[j].split("#");
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, locationInfo[1]);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.LOCATION);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.COUNTRY, locationInfo[2]);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.LOCATION);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Person_Source")) {
-                                    for (int j = 0; j < sources.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[i];
-                                        final String two = sources[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Person_URL")) {
-                                    for (int j = 0; j < sourceURLs.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[i];
-                                        final String two = sourceURLs[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                            }
-                        } else if (type.equals("Organisation")) {
-                            for (int i = 0; i < organisations.length; i++) {
-                                if (!organisations[i].equals(identifier)) {
-                                    continue;
-                                }
-                                if (total >= limit) {
-                                    break;
-                                }
-                                if (options.contains("Organisation_Organisation")) {
-                                    for (int j = 0; j < organisations.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[i];
-                                        final String two = organisations[j];
-
-                                        if (two.equals(identifier)) {
-                                            continue;
-                                        }
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.RELATIONSHIP);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Organisation_Theme")) {
-                                    for (int j = 0; j < themes.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[i];
-                                        final String two = themes[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.BEHAVIOUR);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Organisation_Source")) {
-                                    for (int j = 0; j < sources.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[i];
-                                        final String two = sources[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Organisation_URL")) {
-                                    for (int j = 0; j < sourceURLs.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[i];
-                                        final String two = sourceURLs[j];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                            }
-                        } else if (type.equals("Word")) {
-                            for (int i = 0; i < themes.length; i++) {
-                                if (!themes[i].equals(identifier)) {
-                                    continue;
-                                }
-                                if (total >= limit) {
-                                    break;
-                                }
-
-                                if (options.contains("Person_Theme")) {
-                                    for (int j = 0; j < persons.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[j];
-                                        final String two = themes[i];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.BEHAVIOUR);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-
-                                if (options.contains("Organisation_Theme")) {
-                                    for (int j = 0; j < organisations.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[j];
-                                        final String two = themes[i];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.BEHAVIOUR);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                            }
-                        } else if (type.equals("Document")) {
-                            for (int i = 0; i < sources.length; i++) {
-                                if (!sources[i].equals(identifier)) {
-                                    continue;
-                                }
-                                if (total >= limit) {
-                                    break;
-                                }
-
-                                if (options.contains("Person_Source")) {
-                                    for (int j = 0; j < persons.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[j];
-                                        final String two = sources[i];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                                if (options.contains("Organisation_Source")) {
-                                    for (int j = 0; j < organisations.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[j];
-                                        final String two = sources[i];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                            }
-                        } else if (type.equals("URL")) {
-                            for (int i = 0; i < sourceURLs.length; i++) {
-                                if (!sourceURLs[i].equals(identifier)) {
-                                    continue;
-                                }
-                                if (total >= limit) {
-                                    break;
-                                }
-
-                                if (options.contains("Person_URL")) {
-                                    for (int j = 0; j < persons.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[j];
-                                        final String two = sourceURLs[i];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                                if (options.contains("Organisation_URL")) {
-                                    for (int j = 0; j < organisations.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = organisations[j];
-                                        final String two = sourceURLs[i];
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                            }
-                        } else if (type.equals("Location")) {
-                            for (int i = 0; i < locations.length; i++) {
-                                if (!locations[i].split("#")[1].equals(identifier)) {
-                                    continue;
-                                }
-                                if (total >= limit) {
-                                    break;
-                                }
-
-                                if (options.contains("Person_Location")) {
-                                    for (int j = 0; j < persons.length; j++) {
-                                        total++;
-                                        if (total >= limit) {
-                                            break;
-                                        }
-                                        final String one = persons[j];
-                                        final String[] locationInfo = locations[i].split("#");
-
-                                        results.add();
-                                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, locationInfo[1]);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.LOCATION);
-                                        results.set(GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.COUNTRY, locationInfo[2]);
-
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.LOCATION);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                                        results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                                    }
-                                }
-                            }
-                        }
-
-                    }
-                }
+        while (scanner.next()) {
+            if (limit.isReached()) {
+                break;
             }
+            plan.extendRow(results, limit, dt, seeds, scanner);
         }
         return results;
     }
+
+    private static GDELTCooccurrenceGraph parseCooccurrence(final String dt, final GDELTRelationshipPlan plan, final GDELTRow scanner) throws IOException {
+        final GDELTCooccurrenceGraph graph = new GDELTCooccurrenceGraph();
+        while (scanner.next()) {
+            graph.addRow(plan, dt, scanner);
+        }
+        return graph;
+    }
 }
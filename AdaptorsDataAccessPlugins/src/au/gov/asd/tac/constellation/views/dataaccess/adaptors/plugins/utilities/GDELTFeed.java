@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A list of the GDELT feeds that can be imported from
+ *
+ * @author canis_majoris
+ */
+public enum GDELTFeed {
+    DAILY("Daily Archives"),
+    UPDATES("15 Minute Updates");
+
+    private final String label;
+
+    private GDELTFeed(final String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static GDELTFeed fromLabel(final String label) {
+        return Arrays.stream(GDELTFeed.values())
+                .filter(feed -> feed.label.equals(label))
+                .findFirst()
+                .orElse(DAILY);
+    }
+
+    public static List<String> getValues() {
+        return Arrays.asList(
+                Arrays.stream(GDELTFeed.values()) // create stream of enums
+                        .map(e -> e.toString()) // convert enum stream to String stream
+                        .toArray(String[]::new)
+        );
+    }
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches files from the GDELT server over a single shared
+ * {@link HttpClient}, so that connections are reused between requests.
+ * <p>
+ * Archives are downloaded into a partial file while they are being read, so
+ * that they can be parsed and saved in a single pass. If the connection drops
+ * part way through, the download is resumed with a range request from the end
+ * of the partial file, and a partial file left by an earlier attempt is
+ * resumed in the same way. A partial file is only taken to be complete when
+ * the server reports a file of the same length, and is otherwise discarded
+ * and the file fetched again. Small listings, such as the archive manifest,
+ * are fetched conditionally so that an unchanged listing is not downloaded
+ * again.
+ * <p>
+ * At most {@value #DEFAULT_DOWNLOADS} archives are downloaded at once, however
+ * many days are being read, so that a long range does not open a connection
+ * for every day. A download waits for a free slot before it connects, and
+ * frees it once the whole file has been saved or the stream is closed. The
+ * number can be set with the {@value #DOWNLOADS_PROPERTY} system property.
+ * <p>
+ * The time to wait for a connection, for the response headers and for each
+ * read of a response body can be set in seconds with the
+ * {@value #TIMEOUT_PROPERTY} system property. The request timeout of the
+ * {@link HttpClient} only covers the response headers, so a watchdog aborts
+ * the connection of a body that sends nothing for that long. A download whose
+ * body stalls is resumed like one whose connection dropped, and fails once it
+ * has stalled or dropped {@value #MAX_ATTEMPTS} times in a row.
+ *
+ * @author canis_majoris
+ */
+public class GDELTFetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTFetcher.class.getName());
+
+    public static final String TIMEOUT_PROPERTY = "constellation.gdelt.timeout";
+    public static final String DOWNLOADS_PROPERTY = "constellation.gdelt.downloads";
+
+    private static final long DEFAULT_TIMEOUT = 60;
+    private static final int DEFAULT_DOWNLOADS = 4;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1000;
+
+    // the most that is read to finish a download the reader closed early, such as the zip directory
+    private static final long MAX_DRAIN = 1024L * 1024;
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_GONE = 410;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    // aborts a response body that has stalled, which the request timeout does not cover
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "GDELT Download Watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        WATCHDOG.setRemoveOnCancelPolicy(true);
+    }
+
+    private static GDELTFetcher instance = null;
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final Semaphore downloads;
+
+    public static synchronized GDELTFetcher getInstance() {
+        if (instance == null) {
+            long timeout = DEFAULT_TIMEOUT;
+            try {
+                timeout = Long.parseLong(System.getProperty(TIMEOUT_PROPERTY, Long.toString(DEFAULT_TIMEOUT)));
+            } catch (final NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid GDELT timeout, using the default of {0} seconds", DEFAULT_TIMEOUT);
+            }
+            int downloads = DEFAULT_DOWNLOADS;
+            try {
+                downloads = Integer.parseInt(System.getProperty(DOWNLOADS_PROPERTY, Integer.toString(DEFAULT_DOWNLOADS)));
+            } catch (final NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "Invalid GDELT download count, using the default of {0}", DEFAULT_DOWNLOADS);
+            }
+            instance = new GDELTFetcher(Duration.ofSeconds(timeout), downloads);
+        }
+        return instance;
+    }
+
+    public GDELTFetcher(final Duration timeout) {
+        this(timeout, DEFAULT_DOWNLOADS);
+    }
+
+    public GDELTFetcher(final Duration timeout, final int maxDownloads) {
+        this.timeout = timeout;
+        this.downloads = new Semaphore(Math.max(1, maxDownloads), true);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Called once a download has been saved in full.
+     */
+    @FunctionalInterface
+    public interface DownloadListener {
+
+        /**
+         * Take ownership of a completed download.
+         *
+         * @param part the partial file, which now holds the whole file.
+         * @throws IOException if the download could not be stored.
+         */
+        void downloaded(final File part) throws IOException;
+    }
+
+    /**
+     * The validators of a file that has already been fetched, used to ask the
+     * server for the file only if it has changed.
+     */
+    public static class Validators {
+
+        private String etag = null;
+        private String lastModified = null;
+
+        public void clear() {
+            etag = null;
+            lastModified = null;
+        }
+    }
+
+    /**
+     * Open a stream over a remote file without saving it.
+     *
+     * @param url the file to open.
+     * @return a stream over the file.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if the file could not be opened.
+     */
+    public InputStream open(final String url) throws IOException {
+        acquireDownload();
+        try {
+            final HttpResponse<InputStream> response = send(request(url).build(), HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() != HTTP_OK) {
+                response.body().close();
+                throw failure(url, response.statusCode());
+            }
+            response.headers().firstValueAsLong("Content-Length").ifPresent(GDELTProgress.getCurrentDay()::setArchiveLength);
+            return new FilterInputStream(new WatchedStream(url, response.body())) {
+                private boolean released = false;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!released) {
+                            released = true;
+                            downloads.release();
+                        }
+                    }
+                }
+            };
+        } catch (final IOException | RuntimeException ex) {
+            downloads.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Fetch a remote file unless it has not changed since it was last fetched.
+     *
+     * @param url the file to fetch.
+     * @param validators the validators of the previous fetch, which are
+     * updated when the file is fetched.
+     * @return the content of the file, or null if it has not changed.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if the file could not be fetched.
+     */
+    public byte[] fetch(final String url, final Validators validators) throws IOException {
+        final HttpRequest.Builder request = request(url);
+        if (validators.etag != null) {
+            request.header("If-None-Match", validators.etag);
+        }
+        if (validators.lastModified != null) {
+            request.header("If-Modified-Since", validators.lastModified);
+        }
+        final HttpResponse<byte[]> response = send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == HTTP_NOT_MODIFIED) {
+            return null;
+        } else if (response.statusCode() != HTTP_OK) {
+            throw failure(url, response.statusCode());
+        }
+        validators.etag = response.headers().firstValue("ETag").orElse(null);
+        validators.lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        return response.body();
+    }
+
+    /**
+     * Open a stream over a remote file that is saved into a partial file as it
+     * is read. Any content already in the partial file is read from disk and
+     * the rest is requested from the server.
+     *
+     * @param url the file to download.
+     * @param part the partial file.
+     * @param listener called once the whole file has been saved.
+     * @return a stream over the whole file.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if the file could not be opened.
+     */
+    public InputStream download(final String url, final File part, final DownloadListener listener) throws IOException {
+        acquireDownload();
+        final SavingStream stream;
+        try {
+            stream = new SavingStream(url, part, listener);
+        } catch (final IOException | RuntimeException ex) {
+            downloads.release();
+            throw ex;
+        }
+        try {
+            stream.connect();
+        } catch (final IOException ex) {
+            stream.close();
+            throw ex;
+        }
+        return stream;
+    }
+
+    /**
+     * Get the number of downloads that can start without waiting.
+     *
+     * @return the number of free download slots.
+     */
+    int getAvailableDownloads() {
+        return downloads.availablePermits();
+    }
+
+    private void acquireDownload() throws InterruptedIOException {
+        try {
+            downloads.acquire();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("GDELT download was interrupted while waiting for a free connection");
+        }
+    }
+
+    private HttpRequest.Builder request(final String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET();
+    }
+
+    private <T> HttpResponse<T> send(final HttpRequest request, final HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("GDELT request was interrupted");
+        }
+    }
+
+    /**
+     * Get the length of the whole file from a Content-Range header, which is
+     * the number after its slash.
+     *
+     * @param contentRange the header, which may be null.
+     * @return the length, or -1 if the header does not give it.
+     */
+    static long getTotalLength(final String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        final int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || !contentRange.trim().startsWith("bytes")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (final NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static IOException failure(final String url, final int status) {
+        if (status == HTTP_NOT_FOUND || status == HTTP_GONE) {
+            return new FileNotFoundException(url);
+        }
+        return new IOException("GDELT request for " + url + " failed with status code: " + status);
+    }
+
+    /**
+     * Reads a response body, aborting the connection if a read waits longer
+     * than the timeout for the server to send more of it.
+     */
+    private class WatchedStream extends FilterInputStream {
+
+        private final String url;
+
+        WatchedStream(final String url, final InputStream body) {
+            super(body);
+            this.url = url;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] one = new byte[1];
+            final int read = read(one, 0, 1);
+            return read < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+            final Watch watch = new Watch();
+            final ScheduledFuture<?> abort = WATCHDOG.schedule(watch, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            final int read;
+            try {
+                read = in.read(buffer, offset, count);
+            } catch (final IOException ex) {
+                throw watch.expired ? stalled() : ex;
+            } finally {
+                abort.cancel(false);
+            }
+            // closing the body ends it, which must not be mistaken for the end of the file
+            if (watch.expired) {
+                throw stalled();
+            }
+            return read;
+        }
+
+        private IOException stalled() {
+            return new IOException("GDELT download of " + url + " stalled for " + timeout.toSeconds() + " seconds");
+        }
+
+        private class Watch implements Runnable {
+
+            private volatile boolean expired = false;
+
+            @Override
+            public void run() {
+                expired = true;
+                try {
+                    in.close();
+                } catch (final IOException ex) {
+                    LOGGER.log(Level.FINE, "Unable to abort stalled GDELT download", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a file from a partial file and then the server, appending what is
+     * read from the server to the partial file.
+     */
+    private class SavingStream extends InputStream {
+
+        private final String url;
+        private final File part;
+        private final DownloadListener listener;
+
+        private InputStream saved = null;
+        private long savedRemaining;
+        private InputStream remote = null;
+        private OutputStream out = null;
+        private long written;
+        private long returned = 0;
+        private long length = -1;
+        private boolean complete = false;
+        private boolean closed = false;
+        private boolean released = false;
+
+        SavingStream(final String url, final File part, final DownloadListener listener) throws IOException {
+            this.url = url;
+            this.part = part;
+            this.listener = listener;
+            this.written = part.isFile() ? part.length() : 0;
+            this.savedRemaining = written;
+            if (written > 0) {
+                saved = new FileInputStream(part);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] one = new byte[1];
+            final int read = read(one, 0, 1);
+            return read < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (savedRemaining > 0) {
+                final int read = saved.read(buffer, offset, (int) Math.min(count, savedRemaining));
+                if (read > 0) {
+                    savedRemaining -= read;
+                    returned += read;
+                    return read;
+                }
+                savedRemaining = 0;
+            }
+            if (complete) {
+                return -1;
+            }
+
+            int failures = 0;
+            while (true) {
+                try {
+                    if (remote == null) {
+                        connect();
+                        if (complete) {
+                            return -1;
+                        }
+                    }
+                    final int read = remote.read(buffer, offset, count);
+                    if (read < 0) {
+                        if (length >= 0 && written < length) {
+                            throw new IOException("GDELT download of " + url + " ended early");
+                        }
+                        finish();
+                        return -1;
+                    }
+                    out.write(buffer, offset, read);
+                    written += read;
+                    returned += read;
+                    return read;
+                } catch (final InterruptedIOException | FileNotFoundException ex) {
+                    throw ex;
+                } catch (final IOException ex) {
+                    if (++failures >= MAX_ATTEMPTS) {
+                        throw ex;
+                    }
+                    LOGGER.log(Level.INFO, "Resuming GDELT download of {0} from byte {1}: {2}", new Object[]{url, written, ex.getLocalizedMessage()});
+                    closeRemote();
+                    pause(failures);
+                }
+            }
+        }
+
+        /**
+         * Request the rest of the file from the end of the partial file.
+         */
+        void connect() throws IOException {
+            final HttpRequest.Builder request = request(url);
+            if (written > 0) {
+                request.header("Range", "bytes=" + written + "-");
+            }
+            final HttpResponse<InputStream> response = send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            final int status = response.statusCode();
+            if (status == HTTP_RANGE_NOT_SATISFIABLE && written > 0) {
+                response.body().close();
+                // the partial file only holds the whole file if the server says the file is that long
+                final long total = getTotalLength(response.headers().firstValue("Content-Range").orElse(null));
+                if (total == written) {
+                    GDELTProgress.getCurrentDay().setArchiveLength(written);
+                    finish();
+                    return;
+                }
+                LOGGER.log(Level.INFO, "Discarding partial GDELT download of {0}, which holds {1} bytes of {2}", new Object[]{url, written, total});
+                discard();
+                connect();
+                return;
+            } else if (status != HTTP_OK && status != HTTP_PARTIAL_CONTENT) {
+                response.body().close();
+                throw failure(url, status);
+            }
+
+            remote = new WatchedStream(url, response.body());
+            final long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (status == HTTP_PARTIAL_CONTENT) {
+                length = contentLength < 0 ? -1 : written + contentLength;
+            } else {
+                length = contentLength;
+                // the server ignored the range, so skip what has already been saved
+                remote.skipNBytes(written);
+            }
+            if (length >= 0) {
+                GDELTProgress.getCurrentDay().setArchiveLength(length);
+            }
+            if (out == null) {
+                out = new FileOutputStream(part, true);
+            }
+        }
+
+        /**
+         * Throw away the partial file so the whole file is requested again.
+         * The file can only be fetched again before any of it has been read.
+         */
+        private void discard() throws IOException {
+            if (returned > 0) {
+                throw new IOException("GDELT file " + url + " changed while it was being downloaded");
+            }
+            if (saved != null) {
+                saved.close();
+                saved = null;
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            Files.deleteIfExists(part.toPath());
+            written = 0;
+            savedRemaining = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                // finish a download that has little left, such as the directory at the end of a zip
+                if (!complete && remote != null && length >= 0 && length - written <= MAX_DRAIN) {
+                    final byte[] buffer = new byte[8192];
+                    while (!complete && read(buffer, 0, buffer.length) >= 0) {
+                        // saved by read
+                    }
+                }
+            } catch (final IOException ex) {
+                LOGGER.log(Level.FINE, "Leaving GDELT download of {0} to resume later", url);
+            } finally {
+                closed = true;
+                closeRemote();
+                release();
+                if (saved != null) {
+                    saved.close();
+                }
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+
+        private void finish() throws IOException {
+            complete = true;
+            closeRemote();
+            // nothing more is read from the server
+            release();
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            listener.downloaded(part);
+        }
+
+        private void release() {
+            if (!released) {
+                released = true;
+                downloads.release();
+            }
+        }
+
+        private void closeRemote() {
+            if (remote != null) {
+                try {
+                    remote.close();
+                } catch (final IOException ex) {
+                    LOGGER.log(Level.FINE, "Unable to close GDELT connection", ex);
+                }
+                remote = null;
+            }
+        }
+
+        private void pause(final int failures) throws InterruptedIOException {
+            try {
+                Thread.sleep(RETRY_DELAY * failures);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("GDELT download was interrupted");
+            }
+        }
+    }
+}
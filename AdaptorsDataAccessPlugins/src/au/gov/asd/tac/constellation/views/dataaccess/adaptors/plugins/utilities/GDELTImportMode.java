@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A list of the ways results can be chosen when importing from GDELT
+ *
+ * @author canis_majoris
+ */
+public enum GDELTImportMode {
+    FIRST("First Mentions"),
+    AGGREGATED("Aggregated Mentions"),
+    TOP("Top Mentioned"),
+    SAMPLED("Random Sample");
+
+    private final String label;
+
+    private GDELTImportMode(final String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    public static GDELTImportMode fromLabel(final String label) {
+        return Arrays.stream(GDELTImportMode.values())
+                .filter(mode -> mode.label.equals(label))
+                .findFirst()
+                .orElse(FIRST);
+    }
+
+    public static List<String> getValues(final GDELTImportMode... modes) {
+        return Arrays.asList(
+                Arrays.stream(modes) // create stream of the given modes
+                        .map(e -> e.toString()) // convert enum stream to String stream
+                        .toArray(String[]::new)
+        );
+    }
+}
@@ -20,14 +20,19 @@ import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
 import au.gov.asd.tac.constellation.graph.processing.RecordStore;
 import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
 import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
-import au.gov.asd.tac.constellation.graph.schema.analytic.concept.TemporalConcept;
 import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -43,32 +48,88 @@ public class GDELTImportingUtilities {
 
     private static final Logger LOGGER = Logger.getLogger(GDELTImportingUtilities.class.getName());
 
-    public static RecordStore retrieveEntities(final GDELTDateTime gdt, final List<String> options, final int limit) throws IOException {
+    // the length of the yyyy-MM-dd day at the start of a datetime
+    private static final int DAY_LENGTH = 10;
 
-        RecordStore results = null;
-        try (final ZipInputStream zis = new ZipInputStream(URI.create(gdt.getUrl()).toURL().openStream())) {
-            
-            final ZipEntry ze = zis.getNextEntry();
-            if (ze.getName().equals(gdt.getFile())) {
-                results = readEntities(limit, gdt.getDt(), options, ze, zis);
-            }
+    /**
+     * Reads the CSV inside a GDELT archive.
+     *
+     * @param <T> the type of result read from the archive.
+     */
+    @FunctionalInterface
+    public interface ArchiveReader<T> {
 
-        } catch (final FileNotFoundException ex) {
-            final String errorMsg = "File not found " + ex.getLocalizedMessage();
-            LOGGER.log(Level.WARNING, errorMsg);
+        T read(final ZipEntry ze, final InputStream in) throws IOException;
+    }
+
+    /**
+     * Reads the rows of a day, from whichever copy of the day they come from.
+     *
+     * @param <T> the type of result read from the rows.
+     */
+    @FunctionalInterface
+    public interface SourceReader<T> {
+
+        T read(final GDELTRowSource source) throws IOException;
+    }
+
+    /**
+     * Read the rows of a day from its local copy, as opened by
+     * {@link GDELTLocalCopies#open}, or from the CSV inside its archive if it
+     * has no copy or its copy could not be opened. A day read from its archive
+     * has its copy built in the background once the reader has parsed every
+     * row. A day that has not been indexed yet has its
+     * {@link GDELTArchiveIndex} written by the first reader to parse every row
+     * of it, whichever copy it reads.
+     *
+     * @param <T> the type of result read from the day.
+     * @param gdt the day to read.
+     * @param reader the reader to run over the rows.
+     * @return the result of the reader, or null if there is no archive for the
+     * day.
+     * @throws IOException if the day could not be read.
+     */
+    public static <T> T retrieve(final GDELTDateTime gdt, final SourceReader<T> reader) throws IOException {
+        GDELTRowSource copy = null;
+        try {
+            copy = GDELTLocalCopies.open(gdt);
+        } catch (final InterruptedIOException ex) {
+            throw ex;
+        } catch (final IOException ex) {
+            LOGGER.log(Level.WARNING, "Reading " + gdt.getFile() + " from its archive as its local copy could not be read", ex);
+        }
+        if (copy != null) {
+            return reader.read(GDELTArchiveIndex.index(gdt, copy));
         }
 
-        return results;
+        return retrieveArchive(gdt, (ze, in) -> {
+            final GDELTParsingPipeline.CsvSource source = new GDELTParsingPipeline.CsvSource(in, GDELTRowLayout.forEntry(ze));
+            final T results = reader.read(GDELTArchiveIndex.index(gdt, source));
+            if (source.isComplete()) {
+                GDELTLocalCopies.build(gdt);
+            }
+            return results;
+        });
     }
 
-    public static RecordStore retrieveRelationships(final GDELTDateTime gdt, final List<String> options, final int limit) throws IOException {
+    /**
+     * Open the archive for a day and read the CSV inside it.
+     *
+     * @param <T> the type of result read from the archive.
+     * @param gdt the day to read.
+     * @param reader the reader to run over the CSV.
+     * @return the result of the reader, or null if there is no archive for the
+     * day.
+     * @throws IOException if the archive could not be read.
+     */
+    public static <T> T retrieveArchive(final GDELTDateTime gdt, final ArchiveReader<T> reader) throws IOException {
+
+        T results = null;
+        try (final ZipInputStream zis = new ZipInputStream(GDELTArchiveCache.getInstance().open(gdt))) {
 
-        RecordStore results = null;
-        try (final ZipInputStream zis = new ZipInputStream(URI.create(gdt.getUrl()).toURL().openStream())) {
-            
             final ZipEntry ze = zis.getNextEntry();
             if (ze.getName().equals(gdt.getFile())) {
-                results = readRelationships(limit, gdt.getDt(), options, ze, zis);
+                results = reader.read(ze, zis);
             }
 
         } catch (final FileNotFoundException ex) {
@@ -79,371 +140,312 @@ public class GDELTImportingUtilities {
         return results;
     }
 
-    public static RecordStore readEntities(final int limit, final String dt, final List<String> options, final ZipEntry ze, final ZipInputStream zis) throws IOException {
-        final RecordStore results = new GraphRecordStore();
-        int total = 0;
-        try (final BufferedReader br = new BufferedReader(new InputStreamReader(zis))) {
-            String line = br.readLine();
-            while ((line = br.readLine()) != null) {
-                if (total >= limit) {
-                    break;
-                }
-                final String[] fields = line.split("\t");
-                // transaction attributes
-
-                final String[] persons = fields[5].split(";");
-                final String[] organisations = fields[6].split(";");
-                final String[] themes = fields[3].split(";");
-                final String[] locations = fields[4].split(";");
-                final String[] sources = fields[9].split(";");
-                final String[] sourceURLs = fields[10].split(";");
-
-                final String tone = fields[7]; // 6 semi-colon delimited
-                final String cameoEventIds = fields[8]; // semi-colon delimited
-
-                if (options.contains("Person")) {
-                    for (int j = 0; j < persons.length; j++) {
-                        total++;
-                        if (total >= limit) {
-                            break;
-                        }
-                        final String one = persons[j];
-
-                        results.add();
-                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                    }
-                }
+    public static RecordStore retrieveEntities(final GDELTDateTime gdt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTResultLimit limit) throws IOException {
+        return retrieve(gdt, source -> readEntities(limit, gdt.getDt(), types, filter, source));
+    }
 
-                if (options.contains("Organisation")) {
-                    for (int j = 0; j < organisations.length; j++) {
-                        total++;
-                        if (total >= limit) {
-                            break;
-                        }
-                        final String one = organisations[j];
-
-                        results.add();
-                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-                    }
-                }
-                if (options.contains("Theme")) {
-                    for (int j = 0; j < themes.length; j++) {
-                        total++;
-                        if (total >= limit) {
-                            break;
-                        }
-                        final String one = themes[j];
-
-                        results.add();
-                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-                    }
-                }
+    /**
+     * Read the entities of a day into a stream, which adds them to the graph
+     * in batches as they are parsed.
+     *
+     * @param gdt the day to read.
+     * @param types the chosen entity types.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param limit the limit on the entities kept, shared by every day.
+     * @param stream the stream to add the entities to.
+     * @return the stream, or null if there is no archive for the day.
+     * @throws IOException if the archive could not be read.
+     */
+    public static GDELTRecordStream streamEntities(final GDELTDateTime gdt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTResultLimit limit, final GDELTRecordStream stream) throws IOException {
+        return retrieve(gdt, source -> {
+            GDELTParsingPipeline.parse(source, limit, rows -> parseEntities(new GDELTResultLimit(limit.getRemaining()), gdt.getDt(), types, filter.apply(rows)), stream);
+            return stream;
+        });
+    }
 
-                if (options.contains("Location")) {
-                    for (int j = 0; j < locations.length; j++) {
-                        total++;
-                        if (total >= limit) {
-                            break;
-                        }
-                        final String[] locationInfo = locations[j].split("#");
-
-                        results.add();
-                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, locationInfo[1]);
-                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.LOCATION);
-                        results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.COUNTRY, locationInfo[2]);
-                        results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LATITUDE, locationInfo[4]);
-                        results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LONGITUDE, locationInfo[5]);
-                    }
-                }
+    public static GDELTEntityAggregator retrieveAggregatedEntities(final GDELTDateTime gdt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTEntityAggregator aggregator) throws IOException {
+        return retrieve(gdt, source -> readAggregatedEntities(aggregator, types, filter, source));
+    }
 
-                if (options.contains("Source")) {
-                    for (int j = 0; j < sources.length; j++) {
-                        total++;
-                        if (total >= limit) {
-                            break;
-                        }
-                        final String one = sources[j];
-
-                        results.add();
-                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                    }
-                }
+    public static GDELTTopEntities retrieveTopEntities(final GDELTDateTime gdt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTTopEntities top) throws IOException {
+        return retrieve(gdt, source -> readTopEntities(top, types, filter, source));
+    }
+
+    public static GDELTRecordSample retrieveSampledEntities(final GDELTDateTime gdt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTRecordSample sample) throws IOException {
+        return retrieve(gdt, source -> readSampledEntities(sample, gdt.getDt(), types, filter, source));
+    }
+
+    public static RecordStore retrieveRelationships(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTResultLimit limit) throws IOException {
+        return retrieve(gdt, source -> readRelationships(limit, gdt.getDt(), plan, filter, source));
+    }
+
+    /**
+     * Read the relationships of a day into a stream, which adds them to the
+     * graph in batches as they are parsed.
+     *
+     * @param gdt the day to read.
+     * @param plan the relationships to read.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param limit the limit on the records kept, shared by every day.
+     * @param stream the stream to add the relationships to.
+     * @return the stream, or null if there is no archive for the day.
+     * @throws IOException if the archive could not be read.
+     */
+    public static GDELTRecordStream streamRelationships(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTResultLimit limit, final GDELTRecordStream stream) throws IOException {
+        return retrieve(gdt, source -> {
+            GDELTParsingPipeline.parse(source, limit, rows -> parseRelationships(new GDELTResultLimit(limit.getRemaining()), gdt.getDt(), plan, filter.apply(rows)), stream);
+            return stream;
+        });
+    }
+
+    /**
+     * Join the relationships read from a day to the events of its GDELT
+     * Events export, adding an Event node for each CAMEO event they reference
+     * that is in the export, linked to the entities of each relationship that
+     * referenced it. Only the referenced events are kept while the export is
+     * streamed, and the links are not counted against the limit on the
+     * relationships.
+     *
+     * @param gdt the day the relationships were read from.
+     * @param relationships the relationships, which may be null.
+     * @return the relationships followed by the links to their events, or
+     * null if there were no relationships.
+     * @throws IOException if the export could not be read.
+     */
+    public static RecordStore joinEvents(final GDELTDateTime gdt, final RecordStore relationships) throws IOException {
+        final RecordStore links = linkEvents(gdt, relationships);
+        if (links != null) {
+            relationships.add(links);
+        }
+        return relationships;
+    }
 
-                if (options.contains("URL")) {
-                    for (int j = 0; j < sourceURLs.length; j++) {
-                        total++;
-                        if (total >= limit) {
-                            break;
-                        }
-                        final String one = sourceURLs[j];
-
-                        results.add();
-                        results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                        results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
+    /**
+     * Join the relationships read from the days of a range to the events of
+     * the GDELT Events export of each day, as by
+     * {@link #joinEvents(GDELTDateTime, RecordStore)}. The relationships are
+     * grouped by the day of their datetime, so they can be joined once they
+     * have been cut to the limit of the whole range, and the exports of the
+     * days are read in parallel.
+     *
+     * @param relationships the relationships of every day.
+     * @param progress the progress to count the exports read against.
+     * @return the relationships followed by the links to their events.
+     * @throws IOException if an export could not be read.
+     * @throws InterruptedException if the join was cancelled.
+     */
+    public static RecordStore joinEvents(final RecordStore relationships, final GDELTProgress progress) throws IOException, InterruptedException {
+        final Map<String, RecordStore> days = new LinkedHashMap<>();
+        relationships.reset();
+        while (relationships.next()) {
+            final String datetime = relationships.get(GDELTRelationshipPlan.TRANSACTION_DATETIME);
+            if (datetime != null && datetime.length() >= DAY_LENGTH) {
+                final RecordStore day = days.computeIfAbsent(datetime.substring(0, DAY_LENGTH), key -> new GraphRecordStore());
+                day.add();
+                for (final String key : relationships.keys()) {
+                    final String value = relationships.get(key);
+                    if (value != null) {
+                        day.set(key, value);
                     }
                 }
             }
         }
-        return results;
+
+        final List<GDELTDateTime> dates = new ArrayList<>();
+        for (final String day : days.keySet()) {
+            dates.add(new GDELTDateTime(LocalDate.parse(day, DateTimeFormatter.ISO_DATE).atStartOfDay(ZoneOffset.UTC)));
+        }
+        for (final RecordStore links : GDELTRangeUtilities.queryDays(dates, gdt -> linkEvents(gdt, days.get(gdt.getDay())), progress)) {
+            relationships.add(links);
+        }
+        return relationships;
     }
 
-    public static RecordStore readRelationships(final int limit, final String dt, final List<String> options, final ZipEntry ze, final ZipInputStream zis) throws IOException {
-        final RecordStore results = new GraphRecordStore();
-        int total = 0;
-        try (final BufferedReader br = new BufferedReader(new InputStreamReader(zis))) {
-            String line = br.readLine();
-            while ((line = br.readLine()) != null) {
-                if (total >= limit) {
-                    break;
-                }
-                final String[] fields = line.split("\t");
-                // transaction attributes
-
-                final String[] persons = fields[5].split(";");
-                final String[] organisations = fields[6].split(";");
-                final String[] themes = fields[3].split(";");
-                final String[] locations = fields[4].split(";");
-                final String[] sources = fields[9].split(";");
-                final String[] sourceURLs = fields[10].split(";");
-
-                final String tone = fields[7]; // 6 semi-colon delimited
-                final String cameoEventIds = fields[8]; // semi-colon delimited
-
-                for (int i = 0; i < persons.length; i++) {
-                    if (total >= limit) {
-                        break;
-                    }
-                    if (options.contains("Person_Person")) {
-                        for (int j = i + 1; j < persons.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = persons[i];
-                            final String two = persons[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.RELATIONSHIP);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+    // the links from the relationships of a day to the events they reference, or null if there are none
+    private static RecordStore linkEvents(final GDELTDateTime gdt, final RecordStore relationships) throws IOException {
+        if (relationships == null || gdt.getEventsFile() == null) {
+            return null;
+        }
 
-                    if (options.contains("Person_Organisation")) {
-                        for (int j = 0; j < organisations.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = persons[i];
-                            final String two = organisations[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.CORRELATION);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
-                    if (options.contains("Person_Theme")) {
-                        for (int j = 0; j < themes.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = persons[i];
-                            final String two = themes[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.BEHAVIOUR);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+        final GDELTEventTable events = new GDELTEventTable();
+        relationships.reset();
+        while (relationships.next()) {
+            events.reference(relationships.get(GDELTRelationshipPlan.TRANSACTION_SOURCE));
+        }
+        if (events.size() == 0) {
+            return null;
+        }
 
-                    if (options.contains("Person_Location")) {
-                        for (int j = 0; j < locations.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = persons[i];
-                            final String[] locationInfo = locations[j].split("#");
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, locationInfo[1]);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.LOCATION);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.COUNTRY, locationInfo[2]);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.LOCATION);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+        try (final ZipInputStream zis = new ZipInputStream(GDELTArchiveCache.getInstance().open(gdt.getEventsFile(), gdt.getEventsUrl()))) {
+            final ZipEntry ze = zis.getNextEntry();
+            if (ze == null || !ze.getName().equals(gdt.getEventsFile())) {
+                LOGGER.log(Level.WARNING, "The GDELT Events export for {0} does not hold {1}", new Object[]{gdt.getDay(), gdt.getEventsFile()});
+                return null;
+            }
+            events.load(zis);
+        } catch (final FileNotFoundException ex) {
+            // a day can be published without its export, which leaves its relationships as they were
+            LOGGER.log(Level.WARNING, "There is no GDELT Events export for {0}", gdt.getDay());
+            return null;
+        }
 
-                    if (options.contains("Person_Source")) {
-                        for (int j = 0; j < sources.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = persons[i];
-                            final String two = sources[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+        LOGGER.log(Level.FINE, "Found {0} of the {1} GDELT events referenced on {2}", new Object[]{events.getLoaded(), events.size(), gdt.getDay()});
+        return events.join(relationships);
+    }
 
-                    if (options.contains("Person_URL")) {
-                        for (int j = 0; j < sourceURLs.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = persons[i];
-                            final String two = sourceURLs[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.PERSON);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+    public static GDELTRecordSample retrieveSampledRelationships(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTRecordSample sample) throws IOException {
+        return retrieve(gdt, source -> readSampledRelationships(sample, gdt.getDt(), plan, filter, source));
+    }
+
+    public static GDELTRelationshipAggregator retrieveAggregatedRelationships(final GDELTDateTime gdt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTRelationshipAggregator aggregator) throws IOException {
+        return retrieve(gdt, source -> readAggregatedRelationships(aggregator, gdt.getDt(), plan, filter, source));
+    }
+
+    public static RecordStore readEntities(final GDELTResultLimit limit, final String dt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        return GDELTParsingPipeline.parse(source, limit, rows -> parseEntities(new GDELTResultLimit(limit.getRemaining()), dt, types, filter.apply(rows)));
+    }
+
+    private static RecordStore parseEntities(final GDELTResultLimit limit, final String dt, final Set<GDELTEntityTypes> types, final GDELTRow scanner) throws IOException {
+        final RecordStore results = new GraphRecordStore();
+        while (scanner.next()) {
+            if (limit.isReached()) {
+                break;
+            }
+            importEntities(results, limit, types, scanner);
+        }
+        return results;
+    }
+
+    private static void importEntities(final RecordStore results, final GDELTResultLimit limit, final Set<GDELTEntityTypes> types, final GDELTRow scanner) {
+        for (final GDELTEntityTypes type : types) {
+            final int field = type.getField();
+            for (int j = 0; j < scanner.count(field); j++) {
+                if (!limit.tryAcquire()) {
+                    return;
                 }
 
-                for (int i = 0; i < organisations.length; i++) {
-                    if (total >= limit) {
-                        break;
-                    }
-                    if (options.contains("Organisation_Organisation")) {
-                        for (int j = i + 1; j < organisations.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = organisations[i];
-                            final String two = organisations[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.RELATIONSHIP);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+                results.add();
+                results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, type.getIdentifier(scanner, j));
+                results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, type.getVertexType());
+                if (type == GDELTEntityTypes.Location) {
+                    results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.COUNTRY, scanner.get(field, j, 2));
+                    results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LATITUDE, scanner.get(field, j, 4));
+                    results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LONGITUDE, scanner.get(field, j, 5));
+                }
+            }
+        }
+    }
 
-                    if (options.contains("Organisation_Theme")) {
-                        for (int j = 0; j < themes.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = organisations[i];
-                            final String two = themes[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.WORD);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.BEHAVIOUR);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+    private static int countEntities(final Set<GDELTEntityTypes> types, final GDELTRow scanner) {
+        int count = 0;
+        for (final GDELTEntityTypes type : types) {
+            count += scanner.count(type.getField());
+        }
+        return count;
+    }
 
-                    if (options.contains("Organisation_Source")) {
-                        for (int j = 0; j < sources.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = organisations[i];
-                            final String two = sources[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.DOCUMENT);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
-                    }
+    /**
+     * Parse every entity of each chunk and keep a uniformly random sample of
+     * them.
+     *
+     * @param sample the sample to merge into.
+     * @param dt the datetime of the archive.
+     * @param types the chosen entity types.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param source the rows of the day.
+     * @return the sample.
+     * @throws IOException if the rows could not be read.
+     */
+    public static GDELTRecordSample readSampledEntities(final GDELTRecordSample sample, final String dt, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        source.parse(() -> false, rows -> {
+            final GDELTResultLimit unlimited = new GDELTResultLimit(Integer.MAX_VALUE);
+            return sample.sampleRows(dt, filter.apply(rows), scanner -> countEntities(types, scanner), (results, scanner) -> importEntities(results, unlimited, types, scanner));
+        }, sample::merge);
+        return sample;
+    }
 
-                    if (options.contains("Organisation_URL")) {
-                        for (int j = 0; j < sourceURLs.length; j++) {
-                            total++;
-                            if (total >= limit) {
-                                break;
-                            }
-                            final String one = organisations[i];
-                            final String two = sourceURLs[j];
-
-                            results.add();
-                            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, two);
-                            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.URL);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, one);
-                            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, AnalyticConcept.VertexType.ORGANISATION);
-
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, AnalyticConcept.TransactionType.REFERENCED);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, dt);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE, cameoEventIds);
-                            results.set(GraphRecordStoreUtilities.TRANSACTION + "Tone", tone);
-                        }
+    public static GDELTEntityAggregator readAggregatedEntities(final GDELTEntityAggregator aggregator, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        source.parse(() -> false, rows -> aggregateEntities(types, filter.apply(rows)), aggregator::merge);
+        return aggregator;
+    }
+
+    /**
+     * Count the entities of each chunk exactly and merge the counts into the
+     * fixed size summary of the most mentioned entities.
+     *
+     * @param top the summary to merge into.
+     * @param types the chosen entity types.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param source the rows of the day.
+     * @return the summary.
+     * @throws IOException if the rows could not be read.
+     */
+    public static GDELTTopEntities readTopEntities(final GDELTTopEntities top, final Set<GDELTEntityTypes> types, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        source.parse(() -> false, rows -> aggregateEntities(types, filter.apply(rows)), top::merge);
+        return top;
+    }
+
+    private static GDELTEntityAggregator aggregateEntities(final Set<GDELTEntityTypes> types, final GDELTRow scanner) throws IOException {
+        final GDELTEntityAggregator aggregator = new GDELTEntityAggregator(Integer.MAX_VALUE);
+        while (scanner.next()) {
+            for (final GDELTEntityTypes type : types) {
+                final int field = type.getField();
+                for (int j = 0; j < scanner.count(field); j++) {
+                    final String identifier = type.getIdentifier(scanner, j);
+                    if (aggregator.add(type, identifier) && type == GDELTEntityTypes.Location) {
+                        aggregator.setLocation(identifier, scanner.get(field, j, 2), scanner.get(field, j, 4), scanner.get(field, j, 5));
                     }
                 }
             }
         }
+        return aggregator;
+    }
+
+    public static RecordStore readRelationships(final GDELTResultLimit limit, final String dt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        return GDELTParsingPipeline.parse(source, limit, rows -> parseRelationships(new GDELTResultLimit(limit.getRemaining()), dt, plan, filter.apply(rows)));
+    }
+
+    private static RecordStore parseRelationships(final GDELTResultLimit limit, final String dt, final GDELTRelationshipPlan plan, final GDELTRow scanner) throws IOException {
+        final RecordStore results = new GraphRecordStore();
+        while (scanner.next()) {
+            if (limit.isReached()) {
+                break;
+            }
+            plan.importRow(results, limit, dt, scanner);
+        }
         return results;
     }
+
+    /**
+     * Parse every relationship of each chunk and keep a uniformly random
+     * sample of them.
+     *
+     * @param sample the sample to merge into.
+     * @param dt the datetime of the archive.
+     * @param plan the relationships to parse.
+     * @param filter the filter applied to the rows as they are scanned.
+     * @param source the rows of the day.
+     * @return the sample.
+     * @throws IOException if the rows could not be read.
+     */
+    public static GDELTRecordSample readSampledRelationships(final GDELTRecordSample sample, final String dt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        source.parse(() -> false, rows -> {
+            final GDELTResultLimit unlimited = new GDELTResultLimit(Integer.MAX_VALUE);
+            return sample.sampleRows(dt, filter.apply(rows), plan::countRow, (results, scanner) -> plan.importRow(results, unlimited, dt, scanner));
+        }, sample::merge);
+        return sample;
+    }
+
+    public static GDELTRelationshipAggregator readAggregatedRelationships(final GDELTRelationshipAggregator aggregator, final String dt, final GDELTRelationshipPlan plan, final GDELTRowFilter filter, final GDELTRowSource source) throws IOException {
+        source.parse(() -> false, rows -> aggregateRelationships(dt, plan, filter.apply(rows)), aggregator::merge);
+        return aggregator;
+    }
+
+    private static GDELTRelationshipAggregator aggregateRelationships(final String dt, final GDELTRelationshipPlan plan, final GDELTRow scanner) throws IOException {
+        final GDELTRelationshipAggregator aggregator = new GDELTRelationshipAggregator(Integer.MAX_VALUE);
+        while (scanner.next()) {
+            plan.aggregateRow(aggregator, dt, scanner);
+        }
+        return aggregator;
+    }
 }
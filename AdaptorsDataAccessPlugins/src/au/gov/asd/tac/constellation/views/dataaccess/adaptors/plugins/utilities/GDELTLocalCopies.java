@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens and builds the local copies of GDELT days kept alongside their
+ * archives in the {@link GDELTArchiveCache}.
+ * <p>
+ * A day is read from its {@link GDELTSnapshot} if it has one, then from its
+ * {@link GDELTBlockArchive}, and otherwise from the CSV inside its archive.
+ * Once a query has read every row of a day from its archive, the snapshot of
+ * the day is built on a single background thread, or its block archive when
+ * snapshots are turned off or the snapshot could not be built. Queries that
+ * stop early, such as an import that reaches its limit, build nothing, so a
+ * small import never pays for reading the whole day. A day is only built by
+ * one task at a time, and a day whose copies could not be built is not tried
+ * again. The {@link GDELTArchiveIndex} of a day is not built here, but written
+ * by the first query to read every row of the day, so that extends can seek
+ * to their rows in whichever copy is built.
+ *
+ * @author canis_majoris
+ */
+public class GDELTLocalCopies {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTLocalCopies.class.getName());
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "GDELT Local Copy Builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the days being built, and the days that could not be built
+    private static final Set<String> BUILDING = new HashSet<>();
+    private static final Set<String> FAILED = new HashSet<>();
+
+    private GDELTLocalCopies() {
+    }
+
+    /**
+     * Open the local copy of a day, preferring its snapshot.
+     *
+     * @param gdt the day to read.
+     * @return the copy, or null if the day has no copy yet.
+     * @throws IOException if the copy could not be read, in which case it is
+     * removed so that it can be built again.
+     */
+    public static GDELTRowSource open(final GDELTDateTime gdt) throws IOException {
+        if (GDELTSnapshot.isEnabled()) {
+            final GDELTSnapshot snapshot = GDELTSnapshot.open(gdt);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+        return GDELTBlockArchive.isEnabled() ? GDELTBlockArchive.open(gdt) : null;
+    }
+
+    /**
+     * Build the local copy of a day in the background, after a query has read
+     * every row of the day from its archive.
+     *
+     * @param gdt the day to build.
+     */
+    public static void build(final GDELTDateTime gdt) {
+        final boolean snapshots = GDELTSnapshot.isEnabled();
+        final boolean blocks = GDELTBlockArchive.isEnabled();
+        if (!snapshots && !blocks) {
+            return;
+        }
+
+        final String key = gdt.getFile();
+        synchronized (BUILDING) {
+            if (FAILED.contains(key) || !BUILDING.add(key)) {
+                return;
+            }
+        }
+        EXECUTOR.execute(() -> {
+            boolean built = false;
+            try {
+                built = isBuilt(gdt) || snapshots && build(gdt, "snapshot", GDELTSnapshot::build) || blocks && build(gdt, "block archive", GDELTBlockArchive::build);
+            } finally {
+                synchronized (BUILDING) {
+                    BUILDING.remove(key);
+                    if (!built) {
+                        FAILED.add(key);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for the copies already scheduled to be built.
+     *
+     * @throws InterruptedException if the wait was interrupted.
+     * @throws ExecutionException if the wait could not be scheduled.
+     */
+    static void awaitBuilt() throws InterruptedException, ExecutionException {
+        EXECUTOR.submit(() -> {
+        }).get();
+    }
+
+    // another query may have built the day while this one was reading it
+    private static boolean isBuilt(final GDELTDateTime gdt) {
+        try {
+            return open(gdt) != null;
+        } catch (final IOException ex) {
+            return false;
+        }
+    }
+
+    private static boolean build(final GDELTDateTime gdt, final String copy, final Builder builder) {
+        try {
+            return builder.build(gdt);
+        } catch (final IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Unable to build the GDELT " + copy + " of " + gdt.getFile(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * Builds one kind of local copy of a day from its archive.
+     */
+    @FunctionalInterface
+    private interface Builder {
+
+        boolean build(final GDELTDateTime gdt) throws IOException;
+    }
+}
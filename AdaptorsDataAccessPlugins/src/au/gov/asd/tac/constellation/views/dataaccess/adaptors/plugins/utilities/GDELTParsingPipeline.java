@@ -0,0 +1,501 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parses a GDELT Knowledge Graph CSV on several threads at once.
+ * <p>
+ * The calling thread inflates the archive and cuts it into line aligned
+ * chunks, which are parsed into their own RecordStore by a pool of workers
+ * shared by every pipeline. The chunk results are merged back in file order,
+ * so the records kept when the limit is reached are the same as if the file
+ * had been parsed on a single thread.
+ * <p>
+ * Every {@link GDELTRowSource} is parsed the same way. A {@link GDELTSnapshot}
+ * of a day is cut into chunks of a fixed number of rows, and a
+ * {@link GDELTBlockArchive} into runs of blocks, each inflated by the worker
+ * that parses it rather than by the calling thread.
+ * <p>
+ * The bytes and rows parsed are counted towards the {@link GDELTProgress} of
+ * the day being read, and parsing stops before the next chunk once the
+ * calling thread is interrupted.
+ *
+ * @author canis_majoris
+ */
+public class GDELTParsingPipeline {
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_PENDING_CHUNKS = WORKERS * 2;
+    private static final int SNAPSHOT_CHUNK_ROWS = 1 << 14;
+
+    private static final byte NEWLINE = '\n';
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        final Thread thread = new Thread(runnable, "GDELT Parser " + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, THREAD_FACTORY);
+
+    private GDELTParsingPipeline() {
+    }
+
+    /**
+     * Parses the rows of one chunk.
+     *
+     * @param <T> the type of result produced for each chunk.
+     */
+    @FunctionalInterface
+    public interface ChunkParser<T> {
+
+        /**
+         * Parse every row of a chunk.
+         *
+         * @param scanner a scanner over the rows of the chunk.
+         * @return the result of parsing the chunk.
+         * @throws IOException if the chunk could not be parsed.
+         */
+        T parse(final GDELTRow scanner) throws IOException;
+    }
+
+    /**
+     * Supplies each chunk in turn, or null once there are no more chunks.
+     */
+    @FunctionalInterface
+    private interface ChunkSource {
+
+        Chunk next() throws IOException;
+    }
+
+    /**
+     * Loads the rows of a chunk on the worker that parses it.
+     */
+    @FunctionalInterface
+    private interface Chunk {
+
+        GDELTRow load() throws IOException;
+    }
+
+    /**
+     * Combines the result of each chunk, in file order, into the overall
+     * result.
+     *
+     * @param <T> the type of result produced for each chunk.
+     */
+    @FunctionalInterface
+    public interface ChunkMerger<T> {
+
+        void merge(final T chunkResult) throws IOException;
+    }
+
+    /**
+     * Parse a daily CSV into records, skipping its header row.
+     *
+     * @param in the inflated CSV.
+     * @param limit the limit on the records kept, which may be shared with
+     * other pipelines.
+     * @param parser the parser to run over each chunk.
+     * @return the records parsed from the CSV, in file order.
+     * @throws IOException if the CSV could not be read or parsed.
+     */
+    public static RecordStore parse(final InputStream in, final GDELTResultLimit limit, final ChunkParser<RecordStore> parser) throws IOException {
+        return parse(in, GDELTRowLayout.DAILY, limit, parser);
+    }
+
+    /**
+     * Parse a CSV of the given layout into records.
+     *
+     * @param in the inflated CSV.
+     * @param layout the layout of the CSV.
+     * @param limit the limit on the records kept, which may be shared with
+     * other pipelines.
+     * @param parser the parser to run over each chunk.
+     * @return the records parsed from the CSV, in file order.
+     * @throws IOException if the CSV could not be read or parsed.
+     */
+    public static RecordStore parse(final InputStream in, final GDELTRowLayout layout, final GDELTResultLimit limit, final ChunkParser<RecordStore> parser) throws IOException {
+        return parse(new CsvSource(in, layout), limit, parser);
+    }
+
+    /**
+     * Parse a CSV of the given layout into records, adding the records of
+     * each chunk to a stream as soon as the chunk is merged.
+     *
+     * @param in the inflated CSV.
+     * @param layout the layout of the CSV.
+     * @param limit the limit on the records kept, which may be shared with
+     * other pipelines.
+     * @param parser the parser to run over each chunk.
+     * @param stream the stream to add the records to, in file order.
+     * @throws IOException if the CSV could not be read or parsed.
+     */
+    public static void parse(final InputStream in, final GDELTRowLayout layout, final GDELTResultLimit limit, final ChunkParser<RecordStore> parser, final GDELTRecordStream stream) throws IOException {
+        parse(new CsvSource(in, layout), limit, parser, stream);
+    }
+
+    /**
+     * Parse a daily CSV, skipping its header row.
+     *
+     * @param <T> the type of result produced for each chunk.
+     * @param in the inflated CSV.
+     * @param finished checked before each chunk is read, so that reading can
+     * stop early once enough results have been merged.
+     * @param parser the parser to run over each chunk.
+     * @param merger called with the result of each chunk, in file order, on
+     * the calling thread.
+     * @throws IOException if the CSV could not be read or parsed.
+     */
+    public static <T> void parse(final InputStream in, final BooleanSupplier finished, final ChunkParser<T> parser, final ChunkMerger<T> merger) throws IOException {
+        parse(in, GDELTRowLayout.DAILY, finished, parser, merger);
+    }
+
+    /**
+     * Parse a CSV of the given layout.
+     *
+     * @param <T> the type of result produced for each chunk.
+     * @param in the inflated CSV.
+     * @param layout the layout of the CSV.
+     * @param finished checked before each chunk is read, so that reading can
+     * stop early once enough results have been merged.
+     * @param parser the parser to run over each chunk.
+     * @param merger called with the result of each chunk, in file order, on
+     * the calling thread.
+     * @throws IOException if the CSV could not be read or parsed.
+     */
+    public static <T> void parse(final InputStream in, final GDELTRowLayout layout, final BooleanSupplier finished, final ChunkParser<T> parser, final ChunkMerger<T> merger) throws IOException {
+        new CsvSource(in, layout).parse(finished, parser, merger);
+    }
+
+    /**
+     * Parse the rows of a day into records.
+     *
+     * @param source the rows of the day.
+     * @param limit the limit on the records kept, which may be shared with
+     * other pipelines.
+     * @param parser the parser to run over each chunk.
+     * @return the records parsed from the day, in row order.
+     * @throws IOException if the rows could not be read or parsed.
+     */
+    public static RecordStore parse(final GDELTRowSource source, final GDELTResultLimit limit, final ChunkParser<RecordStore> parser) throws IOException {
+        final RecordStore results = new GraphRecordStore();
+        source.parse(limit::isReached, parser, chunkResults -> results.add(limit(chunkResults, limit)));
+        return results;
+    }
+
+    /**
+     * Parse the rows of a day into records, adding the records of each chunk
+     * to a stream as soon as the chunk is merged.
+     *
+     * @param source the rows of the day.
+     * @param limit the limit on the records kept, which may be shared with
+     * other pipelines.
+     * @param parser the parser to run over each chunk.
+     * @param stream the stream to add the records to, in row order.
+     * @throws IOException if the rows could not be read or parsed.
+     */
+    public static void parse(final GDELTRowSource source, final GDELTResultLimit limit, final ChunkParser<RecordStore> parser, final GDELTRecordStream stream) throws IOException {
+        source.parse(limit::isReached, parser, chunkResults -> stream.add(limit(chunkResults, limit)));
+    }
+
+    /**
+     * Parse the CSV of a block archive, in runs of blocks that are each read,
+     * inflated and parsed by a worker.
+     *
+     * @param <T> the type of result produced for each chunk.
+     * @param archive the block archive of a day.
+     * @param finished checked before each run is started, so that parsing can
+     * stop early once enough results have been merged.
+     * @param parser the parser to run over each run of blocks.
+     * @param merger called with the result of each run, in file order, on the
+     * calling thread.
+     * @return true if every run was parsed, or false if parsing stopped early.
+     * @throws IOException if the block archive could not be read or parsed.
+     */
+    static <T> boolean parse(final GDELTBlockArchive archive, final BooleanSupplier finished, final ChunkParser<T> parser, final ChunkMerger<T> merger) throws IOException {
+        final GDELTProgress.Day day = GDELTProgress.getCurrentDay();
+        day.setArchiveLength(archive.getCompressedLength());
+        final int[] next = {0};
+        return parseChunks(() -> {
+            final int first = next[0];
+            if (first >= archive.getBlockCount()) {
+                return null;
+            }
+            final int end = archive.getRunEnd(first, CHUNK_SIZE);
+            next[0] = end;
+            return () -> {
+                final GDELTRow rows = archive.getRows(first, end);
+                day.addArchiveBytes(archive.getCompressedOffset(end) - archive.getCompressedOffset(first));
+                day.addBytes(archive.getOffset(end) - archive.getOffset(first));
+                return rows;
+            };
+        }, finished, parser, merger);
+    }
+
+    /**
+     * Parse the rows of a snapshot, in chunks of a fixed number of rows.
+     *
+     * @param <T> the type of result produced for each chunk.
+     * @param snapshot the snapshot of a day.
+     * @param finished checked before each chunk is started, so that parsing
+     * can stop early once enough results have been merged.
+     * @param parser the parser to run over each chunk.
+     * @param merger called with the result of each chunk, in row order, on
+     * the calling thread.
+     * @return true if every chunk was parsed, or false if parsing stopped
+     * early.
+     * @throws IOException if the snapshot could not be read or parsed.
+     */
+    static <T> boolean parse(final GDELTSnapshot snapshot, final BooleanSupplier finished, final ChunkParser<T> parser, final ChunkMerger<T> merger) throws IOException {
+        GDELTProgress.getCurrentDay().setSnapshotRows(snapshot.getRowCount());
+        final int[] next = {0};
+        return parseChunks(() -> {
+            final int start = next[0];
+            if (start >= snapshot.getRowCount()) {
+                return null;
+            }
+            next[0] = Math.min(snapshot.getRowCount(), start + SNAPSHOT_CHUNK_ROWS);
+            final GDELTRow rows = snapshot.getRows(start, next[0]);
+            return () -> rows;
+        }, finished, parser, merger);
+    }
+
+    // true once every chunk has been parsed and merged without the caller finishing early
+    private static <T> boolean parseChunks(final ChunkSource chunks, final BooleanSupplier finished, final ChunkParser<T> parser, final ChunkMerger<T> merger) throws IOException {
+        final GDELTProgress.Day day = GDELTProgress.getCurrentDay();
+        final Deque<Future<T>> pending = new ArrayDeque<>();
+        boolean exhausted = false;
+        try {
+            while (!finished.getAsBoolean()) {
+                final Chunk chunk = chunks.next();
+                if (chunk == null) {
+                    exhausted = true;
+                    break;
+                }
+                GDELTProgress.checkInterrupted();
+                pending.add(EXECUTOR.submit(() -> {
+                    final GDELTRow rows = chunk.load();
+                    try {
+                        return parser.parse(rows);
+                    } finally {
+                        day.addRows(rows.getRowsRead());
+                    }
+                }));
+                if (pending.size() >= MAX_PENDING_CHUNKS) {
+                    merger.merge(getResult(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty() && !finished.getAsBoolean()) {
+                GDELTProgress.checkInterrupted();
+                merger.merge(getResult(pending.poll()));
+            }
+            return exhausted && pending.isEmpty() && !finished.getAsBoolean();
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static <T> T getResult(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("GDELT parsing was interrupted");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    // the records of a chunk that fit within the limit
+    private static RecordStore limit(final RecordStore chunkResults, final GDELTResultLimit limit) {
+        final int size = chunkResults.size();
+        final int granted = limit.tryAcquire(size);
+        if (granted == size) {
+            return chunkResults;
+        }
+        final RecordStore kept = new GraphRecordStore();
+        copyRecords(chunkResults, kept, granted);
+        return kept;
+    }
+
+    private static void copyRecords(final RecordStore from, final RecordStore to, final int count) {
+        from.reset();
+        for (int i = 0; i < count && from.next(); i++) {
+            to.add();
+            final List<String> keys = from.keys();
+            for (final String key : keys) {
+                final String value = from.get(key);
+                if (value != null) {
+                    to.set(key, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * The rows of a CSV read from a stream, such as the CSV inside an archive,
+     * which the calling thread cuts into chunks. A stream can only be parsed
+     * once.
+     */
+    public static class CsvSource implements GDELTRowSource {
+
+        private final InputStream in;
+        private final GDELTRowLayout layout;
+        private boolean complete = false;
+
+        public CsvSource(final InputStream in, final GDELTRowLayout layout) {
+            this.in = in;
+            this.layout = layout;
+        }
+
+        /**
+         * Check whether every row of the CSV has been parsed.
+         *
+         * @return true if the CSV was parsed to its end.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public <T> boolean parse(final BooleanSupplier finished, final ChunkParser<T> parser, final ChunkMerger<T> merger) throws IOException {
+            final ChunkReader reader = new ChunkReader(in, layout.hasHeader());
+            final GDELTProgress.Day day = GDELTProgress.getCurrentDay();
+            complete = parseChunks(() -> {
+                if (!reader.next()) {
+                    return null;
+                }
+                day.addBytes(reader.end - reader.start);
+                final GDELTRow rows = new GDELTRowScanner(reader.chunk, reader.start, reader.end, layout, reader.ordinal);
+                return () -> rows;
+            }, finished, parser, merger);
+            return complete;
+        }
+    }
+
+    /**
+     * Reads a stream into chunks that each end on a row boundary. Every chunk
+     * is a new array so it can be handed to a worker while the next chunk is
+     * being read. The rows of each chunk are counted so that every row knows
+     * its number within the day.
+     */
+    private static class ChunkReader {
+
+        private final InputStream in;
+        private byte[] chunk = null;
+        private int start = 0;
+        private int end = 0;
+        private long ordinal = 0;
+        private long nextOrdinal = 0;
+        private byte[] remainder = new byte[0];
+        private boolean header;
+        private boolean eof = false;
+
+        ChunkReader(final InputStream in, final boolean header) {
+            this.in = in;
+            this.header = header;
+        }
+
+        boolean next() throws IOException {
+            if (eof && remainder.length == 0) {
+                return false;
+            }
+
+            byte[] buffer = Arrays.copyOf(remainder, Math.max(CHUNK_SIZE, remainder.length * 2));
+            int length = remainder.length;
+            int lastNewline = lastIndexOf(buffer, 0, length);
+            while (!eof && (length < buffer.length || lastNewline < 0)) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                final int read = in.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    final int newline = lastIndexOf(buffer, length, length + read);
+                    if (newline >= 0) {
+                        lastNewline = newline;
+                    }
+                    length += read;
+                }
+            }
+
+            final int chunkEnd = eof ? length : lastNewline + 1;
+            remainder = Arrays.copyOfRange(buffer, chunkEnd, length);
+            chunk = buffer;
+            start = 0;
+            end = chunkEnd;
+            ordinal = nextOrdinal;
+            nextOrdinal += count(buffer, 0, chunkEnd);
+
+            if (header) {
+                header = false;
+                while (start < end) {
+                    if (buffer[start++] == NEWLINE) {
+                        // the header row is not numbered
+                        nextOrdinal--;
+                        break;
+                    }
+                }
+            }
+            return start < end || !eof;
+        }
+
+        private static int count(final byte[] buffer, final int from, final int to) {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (buffer[i] == NEWLINE) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static int lastIndexOf(final byte[] buffer, final int from, final int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (buffer[i] == NEWLINE) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far a GDELT query has got through the days it reads, counting
+ * the compressed bytes read from each archive, the uncompressed bytes parsed
+ * and the rows scanned.
+ * <p>
+ * Each day is read on its own thread, which is bound to the {@link Day} while
+ * it runs so that the archive cache, the parsing pipeline and the scanners can
+ * count what they read without being passed the progress. The thread running
+ * the query reports the progress to a {@link Listener} as the days are read.
+ * <p>
+ * Reading a day also stops with an {@link InterruptedIOException} at the next
+ * read or chunk once its thread is interrupted, such as when the query is
+ * cancelled.
+ *
+ * @author canis_majoris
+ */
+public class GDELTProgress {
+
+    /**
+     * Progress that is not reported.
+     */
+    public static final GDELTProgress NONE = new GDELTProgress("", (current, total, message) -> {
+    });
+
+    private static final int PROGRESS_STEPS = 1000;
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    private static final double NANOSECONDS = 1e9;
+
+    // where reads are counted on threads that are not reading a tracked day
+    private static final Day UNTRACKED = new Day();
+    private static final ThreadLocal<Day> CURRENT = new ThreadLocal<>();
+
+    private final String action;
+    private final Listener listener;
+    private final List<Day> days = new CopyOnWriteArrayList<>();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Receives progress reports.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Report the progress of a query.
+         *
+         * @param current the progress so far.
+         * @param total the progress when the query is complete.
+         * @param message a description of the progress.
+         * @throws InterruptedException if the query has been cancelled.
+         */
+        void report(final int current, final int total, final String message) throws InterruptedException;
+    }
+
+    /**
+     * Create progress for a query.
+     *
+     * @param action the action described in progress messages, such as
+     * "Importing".
+     * @param listener the listener to report to.
+     */
+    public GDELTProgress(final String action, final Listener listener) {
+        this.action = action;
+        this.listener = listener;
+    }
+
+    /**
+     * Add a day to be read.
+     *
+     * @return the progress of the day.
+     */
+    Day addDay() {
+        final Day day = new Day();
+        days.add(day);
+        return day;
+    }
+
+    /**
+     * Get the progress of the day being read on the current thread.
+     *
+     * @return the progress of the day, which is not reported if the thread is
+     * not reading a day.
+     */
+    static Day getCurrentDay() {
+        final Day day = CURRENT.get();
+        return day == null ? UNTRACKED : day;
+    }
+
+    /**
+     * Stop reading if the current thread has been interrupted.
+     *
+     * @throws InterruptedIOException if the thread has been interrupted.
+     */
+    static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("GDELT query was cancelled");
+        }
+    }
+
+    /**
+     * Report the progress so far to the listener.
+     *
+     * @throws InterruptedException if the query has been cancelled.
+     */
+    public void report() throws InterruptedException {
+        double fraction = 0;
+        for (final Day day : days) {
+            fraction += day.getFraction();
+        }
+        final int current = days.isEmpty() ? 0 : (int) (fraction / days.size() * PROGRESS_STEPS);
+        listener.report(current, PROGRESS_STEPS, getMessage());
+    }
+
+    public long getArchiveBytes() {
+        long bytes = 0;
+        for (final Day day : days) {
+            bytes += day.archiveRead.get();
+        }
+        return bytes;
+    }
+
+    public long getBytes() {
+        long bytes = 0;
+        for (final Day day : days) {
+            bytes += day.bytes.get();
+        }
+        return bytes;
+    }
+
+    public long getRows() {
+        long rows = 0;
+        for (final Day day : days) {
+            rows += day.rows.get();
+        }
+        return rows;
+    }
+
+    private String getMessage() {
+        int complete = 0;
+        for (final Day day : days) {
+            if (day.complete) {
+                complete++;
+            }
+        }
+        final double seconds = Math.max(1, System.nanoTime() - startTime) / NANOSECONDS;
+        final double archiveMegabytes = getArchiveBytes() / MEGABYTE;
+        final long rows = getRows();
+        return String.format("%s: %d of %d days, %.1f MB read (%.1f MB uncompressed) at %.1f MB/s, %,d rows at %,.0f rows/s",
+                action, complete, days.size(), archiveMegabytes, getBytes() / MEGABYTE, archiveMegabytes / seconds, rows, rows / seconds);
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+
+    /**
+     * The progress of one day, which is complete once the query of the day
+     * returns. Until then, its progress is the fraction of its archive read,
+     * or of its snapshot scanned if it has a snapshot and no archive is read.
+     */
+    static class Day {
+
+        private final AtomicLong archiveLength = new AtomicLong(-1);
+        private final AtomicLong archiveRead = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong snapshotRows = new AtomicLong(-1);
+        private volatile boolean complete = false;
+
+        /**
+         * Bind this day to the current thread until {@link #exit()} is called.
+         */
+        void enter() {
+            CURRENT.set(this);
+        }
+
+        /**
+         * Mark this day as complete and unbind it from the current thread.
+         */
+        void exit() {
+            complete = true;
+            CURRENT.remove();
+        }
+
+        /**
+         * Count the bytes read from an archive and stop reading it once the
+         * reading thread is interrupted.
+         *
+         * @param in the archive.
+         * @return a stream over the archive.
+         */
+        InputStream track(final InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    checkInterrupted();
+                    final int read = super.read();
+                    if (read >= 0) {
+                        archiveRead.incrementAndGet();
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+                    checkInterrupted();
+                    final int read = super.read(buffer, offset, count);
+                    if (read > 0) {
+                        archiveRead.addAndGet(read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(final long count) throws IOException {
+                    checkInterrupted();
+                    final long skipped = super.skip(count);
+                    archiveRead.addAndGet(skipped);
+                    return skipped;
+                }
+            };
+        }
+
+        /**
+         * Set the length of the archive being read, once it is known.
+         *
+         * @param length the length of the archive in bytes.
+         */
+        void setArchiveLength(final long length) {
+            archiveLength.set(length);
+        }
+
+        /**
+         * Count bytes of an archive read other than through
+         * {@link #track(InputStream)}, such as by the workers inflating the
+         * blocks of a {@link GDELTBlockArchive}.
+         *
+         * @param count the number of bytes read.
+         */
+        void addArchiveBytes(final long count) {
+            archiveRead.addAndGet(count);
+        }
+
+        void setSnapshotRows(final long rows) {
+            snapshotRows.set(rows);
+        }
+
+        void addBytes(final long count) {
+            bytes.addAndGet(count);
+        }
+
+        void addRows(final long count) {
+            rows.addAndGet(count);
+        }
+
+        double getFraction() {
+            if (complete) {
+                return 1;
+            }
+            final long length = archiveLength.get();
+            final double fraction;
+            if (length > 0) {
+                fraction = (double) archiveRead.get() / length;
+            } else if (snapshotRows.get() > 0) {
+                fraction = (double) rows.get() / snapshotRows.get();
+            } else {
+                fraction = 0;
+            }
+            // a day is only done once its query returns
+            return Math.min(fraction, 0.99);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class contains utility functions for running a GDELT query over every
+ * day in a date time range. Each day is downloaded and parsed on its own
+ * thread, up to {@value #MAX_CONCURRENT_DAYS} days at once, and the results are
+ * merged in date order. The number of those days being downloaded at once is
+ * capped separately by {@link GDELTFetcher}, so the days already cached can be
+ * parsed while the others wait for a connection.
+ * <p>
+ * A query with a limit shared by the whole range takes a limit for each day
+ * from {@link GDELTResultLimit#forDay}, and the results of each day are cut to
+ * the limit in date order, so the results kept do not depend on which day is
+ * read first. A query whose results are added to the graph as they are read
+ * is instead run one day at a time by {@link #queryFeedInOrder} or
+ * {@link #queryRangeInOrder}.
+ * <p>
+ * A range of more than {@value #DEFAULT_MAX_DAYS} days is refused by
+ * {@link #checkRange}, as each day is a separate archive of hundreds of
+ * megabytes. The number of days can be set with the
+ * {@value #MAX_DAYS_PROPERTY} system property.
+ * <p>
+ * While the days are read, the calling thread reports their
+ * {@link GDELTProgress} every {@value #REPORT_INTERVAL_MILLISECONDS}
+ * milliseconds. Interrupting the calling thread cancels every day still being
+ * read.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRangeUtilities {
+
+    public static final String MAX_DAYS_PROPERTY = "constellation.gdelt.maxdays";
+
+    private static final int DEFAULT_MAX_DAYS = 92;
+
+    // enough to keep every core parsing while a few days download
+    private static final int MAX_CONCURRENT_DAYS = 8;
+
+    // how far back to look for an archive when the manifest is unavailable
+    private static final int MAX_EARLIER_DAYS = 7;
+
+    private static final long REPORT_INTERVAL_MILLISECONDS = 250;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        final Thread thread = new Thread(runnable, "GDELT Day Retriever " + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private GDELTRangeUtilities() {
+    }
+
+    /**
+     * A query against the archive for a single day.
+     *
+     * @param <T> the type of result produced for each day.
+     */
+    @FunctionalInterface
+    public interface DayQuery<T> {
+
+        /**
+         * Run the query for one day.
+         *
+         * @param gdt the day to query.
+         * @return the results for the day, or null if there is no archive for
+         * the day.
+         * @throws IOException if the archive could not be read.
+         */
+        T query(final GDELTDateTime gdt) throws IOException;
+    }
+
+    /**
+     * A query against the archive for a single day, with the limit of that
+     * day.
+     *
+     * @param <T> the type of result produced for each day.
+     */
+    @FunctionalInterface
+    public interface LimitedDayQuery<T> {
+
+        /**
+         * Run the query for one day.
+         *
+         * @param gdt the day to query.
+         * @param dayLimit the limit of the day, which leaves room for the
+         * results of every earlier day.
+         * @return the results for the day, or null if there is no archive for
+         * the day.
+         * @throws IOException if the archive could not be read.
+         */
+        T query(final GDELTDateTime gdt, final GDELTResultLimit dayLimit) throws IOException;
+    }
+
+    /**
+     * Check that a range is short enough to query.
+     *
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @throws IllegalArgumentException if the range has more days than the
+     * {@value #MAX_DAYS_PROPERTY} system property allows.
+     */
+    public static void checkRange(final ZonedDateTime start, final ZonedDateTime end) {
+        if (start == null || end == null || start.isAfter(end)) {
+            return;
+        }
+        final long days = ChronoUnit.DAYS.between(start.withZoneSameInstant(end.getZone()).toLocalDate(), end.toLocalDate()) + 1;
+        final int maxDays = getMaxDays();
+        if (days > maxDays) {
+            throw new IllegalArgumentException(String.format("The date time range covers %d days, but at most %d days of GDELT can be queried at once. "
+                    + "Shorten the range, or raise the limit with the %s system property.", days, maxDays, MAX_DAYS_PROPERTY));
+        }
+    }
+
+    private static int getMaxDays() {
+        try {
+            return Integer.parseInt(System.getProperty(MAX_DAYS_PROPERTY, Integer.toString(DEFAULT_MAX_DAYS)));
+        } catch (final NumberFormatException ex) {
+            return DEFAULT_MAX_DAYS;
+        }
+    }
+
+    /**
+     * Run a query over every day from the start to the end of a range and
+     * merge the records of each day in date order.
+     *
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param dayQuery the query to run for each day.
+     * @param progress the progress to count the days read against.
+     * @return the merged results of every day.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static RecordStore retrieveRange(final ZonedDateTime start, final ZonedDateTime end, final DayQuery<RecordStore> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return merge(queryRange(start, end, dayQuery, progress));
+    }
+
+    /**
+     * Run a query over every day from the start to the end of a range with a
+     * limit shared by the whole range, and merge the records of each day in
+     * date order, keeping those that fit within the limit.
+     *
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param limit the limit of the whole range.
+     * @param dayQuery the query to run for each day.
+     * @param progress the progress to count the days read against.
+     * @return the merged results of every day, cut to the limit.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static RecordStore retrieveRange(final ZonedDateTime start, final ZonedDateTime end, final GDELTResultLimit limit, final LimitedDayQuery<RecordStore> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return merge(limit, queryRange(start, end, gdt -> dayQuery.query(gdt, limit.forDay(gdt)), progress));
+    }
+
+    /**
+     * Run a query over a GDELT feed and merge the records of each day or slice
+     * in order.
+     *
+     * @param feed the feed to query.
+     * @param consumer the name the progress through the update feed is kept
+     * under.
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param dayQuery the query to run for each day or slice.
+     * @param progress the progress to count the days or slices read against.
+     * @return the merged results.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     * @see #queryFeed
+     */
+    public static RecordStore retrieveFeed(final GDELTFeed feed, final String consumer, final ZonedDateTime start, final ZonedDateTime end, final DayQuery<RecordStore> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return merge(queryFeed(feed, consumer, start, end, dayQuery, progress));
+    }
+
+    /**
+     * Run a query over a GDELT feed with a limit shared by every day or slice,
+     * and merge the records of each in order, keeping those that fit within
+     * the limit.
+     *
+     * @param feed the feed to query.
+     * @param consumer the name the progress through the update feed is kept
+     * under.
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param limit the limit of the whole query.
+     * @param dayQuery the query to run for each day or slice.
+     * @param progress the progress to count the days or slices read against.
+     * @return the merged results, cut to the limit.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     * @see #queryFeed
+     */
+    public static RecordStore retrieveFeed(final GDELTFeed feed, final String consumer, final ZonedDateTime start, final ZonedDateTime end, final GDELTResultLimit limit, final LimitedDayQuery<RecordStore> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return merge(limit, queryFeed(feed, consumer, start, end, gdt -> dayQuery.query(gdt, limit.forDay(gdt)), progress));
+    }
+
+    /**
+     * Run a query over a GDELT feed. The daily feed is queried over every day
+     * of the range, as by {@link #queryRange}. The update feed is queried over
+     * the slices published since the consumer last queried it, which are then
+     * recorded as ingested.
+     *
+     * @param <T> the type of result produced for each day or slice.
+     * @param feed the feed to query.
+     * @param consumer the name the progress through the update feed is kept
+     * under.
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param dayQuery the query to run for each day or slice.
+     * @param progress the progress to count the days or slices read against.
+     * @return the results of each day or slice that has an archive, in order.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static <T> List<T> queryFeed(final GDELTFeed feed, final String consumer, final ZonedDateTime start, final ZonedDateTime end, final DayQuery<T> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return queryFeed(feed, consumer, start, end, dayQuery, progress, MAX_CONCURRENT_DAYS);
+    }
+
+    /**
+     * Run a query over a GDELT feed one day or slice at a time, in order, as
+     * by {@link #queryFeed}. This suits a query that adds its results to the
+     * graph as they are read, as they are added in order and a limit shared
+     * by every day keeps the same results each time.
+     *
+     * @param <T> the type of result produced for each day or slice.
+     * @param feed the feed to query.
+     * @param consumer the name the progress through the update feed is kept
+     * under.
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param dayQuery the query to run for each day or slice.
+     * @param progress the progress to count the days or slices read against.
+     * @return the results of each day or slice that has an archive, in order.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static <T> List<T> queryFeedInOrder(final GDELTFeed feed, final String consumer, final ZonedDateTime start, final ZonedDateTime end, final DayQuery<T> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return queryFeed(feed, consumer, start, end, dayQuery, progress, 1);
+    }
+
+    private static <T> List<T> queryFeed(final GDELTFeed feed, final String consumer, final ZonedDateTime start, final ZonedDateTime end, final DayQuery<T> dayQuery, final GDELTProgress progress, final int maxConcurrentDays) throws IOException, InterruptedException {
+        if (feed != GDELTFeed.UPDATES) {
+            return queryRange(start, end, dayQuery, progress, maxConcurrentDays);
+        }
+        final GDELTUpdateFeed updates = GDELTUpdateFeed.getInstance();
+        final List<GDELTDateTime> slices = updates.getNewSlices(consumer, start, end);
+        final List<T> results = queryDays(slices, dayQuery, progress, maxConcurrentDays);
+        if (!slices.isEmpty()) {
+            updates.setLastSlice(consumer, slices.get(slices.size() - 1));
+        }
+        return results;
+    }
+
+    /**
+     * Run a query over each of a list of days or update slices and merge their
+     * records in order. Days without an archive are skipped.
+     *
+     * @param days the days or slices to query.
+     * @param dayQuery the query to run for each day.
+     * @param progress the progress to count the days read against.
+     * @return the merged results of every day.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static RecordStore retrieveDays(final List<GDELTDateTime> days, final DayQuery<RecordStore> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return merge(queryDays(days, dayQuery, progress));
+    }
+
+    /**
+     * Run a query over every day from the start to the end of a range that has
+     * an archive, as listed by the {@link GDELTArchiveManifest}. If none of
+     * the days have an archive yet, the latest earlier day is used instead.
+     * <p>
+     * If the manifest cannot be read, every day in the range is queried and,
+     * if none of them have an archive, up to {@value #MAX_EARLIER_DAYS}
+     * earlier days are tried one at a time.
+     * <p>
+     * The range is checked with {@link #checkRange} before any day is read.
+     *
+     * @param <T> the type of result produced for each day.
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param dayQuery the query to run for each day.
+     * @param progress the progress to count the days read against.
+     * @return the results of each day that has an archive, in date order.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     * @throws IllegalArgumentException if the range has too many days.
+     */
+    public static <T> List<T> queryRange(final ZonedDateTime start, final ZonedDateTime end, final DayQuery<T> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return queryRange(start, end, dayQuery, progress, MAX_CONCURRENT_DAYS);
+    }
+
+    /**
+     * Run a query over every day from the start to the end of a range one day
+     * at a time, in date order, as by {@link #queryRange}. This suits a query
+     * that adds its results to the graph as they are read, as they are added
+     * in order and a limit shared by every day keeps the same results each
+     * time.
+     *
+     * @param <T> the type of result produced for each day.
+     * @param start the start of the range, or null to query only the end day.
+     * @param end the end of the range.
+     * @param dayQuery the query to run for each day.
+     * @param progress the progress to count the days read against.
+     * @return the results of each day that has an archive, in date order.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static <T> List<T> queryRangeInOrder(final ZonedDateTime start, final ZonedDateTime end, final DayQuery<T> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return queryRange(start, end, dayQuery, progress, 1);
+    }
+
+    private static <T> List<T> queryRange(final ZonedDateTime start, final ZonedDateTime end, final DayQuery<T> dayQuery, final GDELTProgress progress, final int maxConcurrentDays) throws IOException, InterruptedException {
+        checkRange(start, end);
+        final GDELTArchiveManifest manifest = GDELTArchiveManifest.getInstance();
+        final List<GDELTDateTime> available = manifest.getDays(start, end);
+        if (available != null) {
+            if (available.isEmpty()) {
+                final GDELTDateTime latest = manifest.getLatest(end);
+                return latest == null ? new ArrayList<>() : queryDays(List.of(latest), dayQuery, progress, maxConcurrentDays);
+            }
+            return queryDays(available, dayQuery, progress, maxConcurrentDays);
+        }
+
+        final List<GDELTDateTime> days = GDELTDateTime.getDays(start, end);
+        final List<T> results = queryDays(days, dayQuery, progress, maxConcurrentDays);
+
+        LocalDate date = LocalDate.parse(days.get(0).getDay(), DateTimeFormatter.ISO_DATE);
+        for (int i = 0; i < MAX_EARLIER_DAYS && results.isEmpty(); i++) {
+            date = date.minusDays(1);
+            results.addAll(queryDays(List.of(new GDELTDateTime(date.atStartOfDay(end.getZone()))), dayQuery, progress, maxConcurrentDays));
+        }
+
+        return results;
+    }
+
+    /**
+     * Run a query over each of a list of days or update slices, skipping those
+     * without an archive.
+     *
+     * @param <T> the type of result produced for each day.
+     * @param days the days or slices to query.
+     * @param dayQuery the query to run for each day.
+     * @param progress the progress to count the days read against.
+     * @return the results of each day that has an archive, in the order of the
+     * days.
+     * @throws IOException if an archive could not be read.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static <T> List<T> queryDays(final List<GDELTDateTime> days, final DayQuery<T> dayQuery, final GDELTProgress progress) throws IOException, InterruptedException {
+        return queryDays(days, dayQuery, progress, MAX_CONCURRENT_DAYS);
+    }
+
+    private static <T> List<T> queryDays(final List<GDELTDateTime> days, final DayQuery<T> dayQuery, final GDELTProgress progress, final int maxConcurrentDays) throws IOException, InterruptedException {
+        final List<T> results = new ArrayList<>();
+        if (days.isEmpty()) {
+            return results;
+        }
+        // even a single day is read on its own thread so that it can be cancelled
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(days.size(), maxConcurrentDays), THREAD_FACTORY);
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for (final GDELTDateTime day : days) {
+                final GDELTProgress.Day dayProgress = progress.addDay();
+                futures.add(executor.submit(() -> {
+                    dayProgress.enter();
+                    try {
+                        return dayQuery.query(day);
+                    } finally {
+                        dayProgress.exit();
+                    }
+                }));
+            }
+            for (final Future<T> future : futures) {
+                final T dayResults = getResult(future, progress);
+                if (dayResults != null) {
+                    results.add(dayResults);
+                }
+            }
+            progress.report();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static RecordStore merge(final List<RecordStore> dayResults) {
+        if (dayResults.size() == 1) {
+            return dayResults.get(0);
+        }
+        final RecordStore results = new GraphRecordStore();
+        for (final RecordStore records : dayResults) {
+            results.add(records);
+        }
+        return results;
+    }
+
+    private static RecordStore merge(final GDELTResultLimit limit, final List<RecordStore> dayResults) {
+        final RecordStore results = new GraphRecordStore();
+        for (final RecordStore records : dayResults) {
+            results.add(limit.keep(records));
+        }
+        return results;
+    }
+
+    private static <T> T getResult(final Future<T> future, final GDELTProgress progress) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return future.get(REPORT_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+            } catch (final TimeoutException ex) {
+                progress.report();
+            } catch (final ExecutionException ex) {
+                final Throwable cause = ex.getCause();
+                // a day stops with exactly this exception when its thread is interrupted, unlike a socket timeout
+                if (cause != null && cause.getClass() == InterruptedIOException.class) {
+                    throw new InterruptedException(cause.getMessage());
+                } else if (cause instanceof IOException ioException) {
+                    throw ioException;
+                } else if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                } else {
+                    throw new IOException(cause);
+                }
+            }
+        }
+    }
+}
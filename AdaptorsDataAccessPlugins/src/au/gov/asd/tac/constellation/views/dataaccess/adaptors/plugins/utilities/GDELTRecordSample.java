@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A uniformly random sample of a fixed number of GDELT records.
+ * <p>
+ * Every record is given a pseudo-random key derived from the seed, the number
+ * of its row within its day and its position within the row, and the records
+ * with the smallest keys are kept. This is equivalent to reservoir sampling
+ * over the whole stream, but the samples of chunks parsed in parallel can be
+ * merged in any order, and rows are numbered the same way whichever copy of a
+ * day they are read from, so the same seed always produces the same sample.
+ * The keys of a row are checked before its records are built, so only the
+ * rows that could be kept are built, and memory is bounded by the size of the
+ * sample.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRecordSample {
+
+    private final int size;
+    private final long seed;
+
+    // largest key first, so the head is the next record to be displaced
+    private final PriorityQueue<Sampled> sample = new PriorityQueue<>(Comparator.comparingLong(Sampled::key).reversed());
+
+    /**
+     * Create an empty sample.
+     *
+     * @param size the number of records to keep.
+     * @param seed the seed of the sample, or 0 to choose a random seed.
+     */
+    public GDELTRecordSample(final int size, final long seed) {
+        this.size = size;
+        this.seed = seed == 0 ? ThreadLocalRandom.current().nextLong() : seed;
+    }
+
+    /**
+     * Sample the records of the rows of one chunk.
+     *
+     * @param dt the datetime of the day.
+     * @param rows the rows of the chunk.
+     * @param counter counts the records the importer adds for the current
+     * row, without building them.
+     * @param importer adds the records of the current row, in the same order
+     * every time the row is read.
+     * @return the sample of the chunk, which can be merged into this sample.
+     * @throws IOException if the rows could not be read.
+     */
+    public GDELTRecordSample sampleRows(final String dt, final GDELTRow rows, final ToIntFunction<GDELTRow> counter, final BiConsumer<RecordStore, GDELTRow> importer) throws IOException {
+        final GDELTRecordSample chunk = new GDELTRecordSample(size, seed);
+        final long day = mix(seed ^ mix(dt.hashCode()));
+        while (rows.next()) {
+            final long base = mix(day ^ mix(rows.getOrdinal()));
+            final int count = counter.applyAsInt(rows);
+            boolean kept = false;
+            for (int i = 0; i < count && !kept; i++) {
+                kept = chunk.accepts(key(base, i));
+            }
+            if (!kept) {
+                continue;
+            }
+
+            final RecordStore records = new GraphRecordStore();
+            importer.accept(records, rows);
+            final List<String> columns = records.keys();
+            records.reset();
+            for (int i = 0; records.next(); i++) {
+                final long key = key(base, i);
+                if (chunk.accepts(key)) {
+                    final String[] values = new String[columns.size()];
+                    for (int c = 0; c < values.length; c++) {
+                        values[c] = records.get(columns.get(c));
+                    }
+                    chunk.offer(new Sampled(key, columns, values));
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Keep the records of another sample that belong in this one.
+     *
+     * @param other the sample to merge.
+     */
+    public synchronized void merge(final GDELTRecordSample other) {
+        for (final Sampled sampled : other.sample) {
+            if (accepts(sampled.key())) {
+                offer(sampled);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return sample.size();
+    }
+
+    /**
+     * Build the sampled records, in random order.
+     *
+     * @return the sampled records.
+     */
+    public synchronized RecordStore toRecordStore() {
+        final List<Sampled> sorted = new ArrayList<>(sample);
+        Collections.sort(sorted, Comparator.comparingLong(Sampled::key));
+
+        final RecordStore results = new GraphRecordStore();
+        for (final Sampled sampled : sorted) {
+            results.add();
+            for (int c = 0; c < sampled.values().length; c++) {
+                if (sampled.values()[c] != null) {
+                    results.set(sampled.columns().get(c), sampled.values()[c]);
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean accepts(final long key) {
+        return sample.size() < size || size > 0 && key < sample.peek().key();
+    }
+
+    private void offer(final Sampled sampled) {
+        if (sample.size() >= size) {
+            sample.poll();
+        }
+        sample.add(sampled);
+    }
+
+    private static long key(final long base, final int index) {
+        // non-negative so that keys order the same as unsigned values
+        return mix(base + index) >>> 1;
+    }
+
+    // the SplitMix64 finaliser, which spreads consecutive inputs uniformly
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Sampled(long key, List<String> columns, String[] values) {
+
+    }
+}
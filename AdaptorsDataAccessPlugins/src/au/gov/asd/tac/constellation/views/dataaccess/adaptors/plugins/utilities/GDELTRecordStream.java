@@ -0,0 +1,269 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.Graph;
+import au.gov.asd.tac.constellation.graph.WritableGraph;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers the records of a GDELT query in batches of a fixed size as they
+ * are parsed, rather than holding every record until the query is complete.
+ * <p>
+ * The records of each parsed chunk are added to the current batch, which is
+ * handed to a {@link BatchConsumer} once it holds the batch size. A chunk with
+ * more records than fit in the batch is split across batches, so no batch is
+ * larger than the batch size and each graph edit is kept short.
+ * <p>
+ * Every day of a query shares one stream, and a day waits while a batch is
+ * being consumed, so at most one batch and the chunks still being parsed are
+ * held in memory however many records the query returns.
+ * <p>
+ * A stream into a graph, run by {@link #toGraph}, adds each batch to the
+ * graph the query was run against in its own short edit, so the graph is not
+ * locked between batches and can be read and edited while the query runs.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRecordStream {
+
+    /**
+     * The number of records in a batch added to a graph by default.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private final int batchSize;
+    private final BatchConsumer consumer;
+
+    // handed over in place of a batch once the query is complete
+    private static final RecordStore END = new GraphRecordStore();
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ThreadFactory THREAD_FACTORY = runnable -> {
+        final Thread thread = new Thread(runnable, "GDELT Stream Reader " + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private RecordStore batch = new GraphRecordStore();
+    private long records = 0;
+    private int batches = 0;
+
+    /**
+     * Receives each batch of records.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+
+        /**
+         * Consume a batch of records.
+         *
+         * @param batch the records of the batch.
+         * @throws InterruptedException if the query has been cancelled.
+         */
+        void accept(final RecordStore batch) throws InterruptedException;
+    }
+
+    /**
+     * A query that adds its records to a stream.
+     */
+    @FunctionalInterface
+    public interface StreamedQuery {
+
+        /**
+         * Run the query, adding its records to the stream.
+         *
+         * @param stream the stream to add the records to.
+         * @throws IOException if the query failed.
+         * @throws InterruptedException if the query was cancelled.
+         */
+        void run(final GDELTRecordStream stream) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Create a stream that hands its batches to a consumer.
+     *
+     * @param batchSize the number of records in each batch.
+     * @param consumer the consumer of the batches.
+     */
+    public GDELTRecordStream(final int batchSize, final BatchConsumer consumer) {
+        this.batchSize = batchSize;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Run a query that adds its records to a graph in batches as they are
+     * read. The query runs on its own thread and hands each batch to the
+     * calling thread, which adds it to the graph so that the records appear on
+     * the graph while the query is still running.
+     * <p>
+     * Each batch is added in its own edit, which is committed as soon as the
+     * batch has been added, and no edit is held while the query reads the
+     * next batch. A batch that fails to be added is rolled back, but the
+     * batches already committed stay on the graph if the query later fails or
+     * is cancelled.
+     *
+     * @param graph the graph the query was run against.
+     * @param editName the name of the edit.
+     * @param batchSize the number of records in each batch.
+     * @param query the query to run.
+     * @return the stream, holding the number of records and batches added.
+     * @throws IOException if the query failed.
+     * @throws InterruptedException if the query was cancelled.
+     */
+    public static GDELTRecordStream toGraph(final Graph graph, final String editName, final int batchSize, final StreamedQuery query) throws IOException, InterruptedException {
+        // a single batch is handed over at a time, so the query waits while it is added
+        final BlockingQueue<RecordStore> handover = new ArrayBlockingQueue<>(1);
+        final GDELTRecordStream stream = new GDELTRecordStream(batchSize, handover::put);
+        final ExecutorService executor = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+        try {
+            final Future<Void> reader = executor.submit(() -> {
+                try {
+                    query.run(stream);
+                    stream.flush();
+                } finally {
+                    handover.put(END);
+                }
+                return null;
+            });
+            RecordStore next;
+            while ((next = handover.take()) != END) {
+                addBatch(graph, editName, next);
+            }
+            getResult(reader);
+        } finally {
+            executor.shutdownNow();
+        }
+        return stream;
+    }
+
+    private static void addBatch(final Graph graph, final String editName, final RecordStore batch) throws InterruptedException {
+        final WritableGraph wg = graph.getWritableGraph(editName, true);
+        boolean committed = false;
+        try {
+            GraphRecordStoreUtilities.addRecordStoreToGraph(wg, batch, true, true, null);
+            wg.commit();
+            committed = true;
+        } finally {
+            if (!committed) {
+                wg.rollBack();
+            }
+        }
+    }
+
+    private static void getResult(final Future<Void> reader) throws IOException, InterruptedException {
+        try {
+            reader.get();
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            // the query stops with exactly this exception when it is cancelled, unlike a socket timeout
+            if (cause instanceof InterruptedException || (cause != null && cause.getClass() == InterruptedIOException.class)) {
+                throw new InterruptedException(cause.getMessage());
+            } else if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Add the records of a chunk, handing the batch to the consumer once it
+     * is full.
+     *
+     * @param chunkResults the records to add.
+     * @throws InterruptedIOException if the query was cancelled while a batch
+     * was being consumed.
+     */
+    public synchronized void add(final RecordStore chunkResults) throws InterruptedIOException {
+        if (batch.size() + chunkResults.size() <= batchSize) {
+            batch.add(chunkResults);
+        } else {
+            chunkResults.reset();
+            while (chunkResults.next()) {
+                batch.add();
+                final List<String> keys = chunkResults.keys();
+                for (final String key : keys) {
+                    final String value = chunkResults.get(key);
+                    if (value != null) {
+                        batch.set(key, value);
+                    }
+                }
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Hand any records not yet consumed to the consumer.
+     *
+     * @throws InterruptedIOException if the query was cancelled while the
+     * batch was being consumed.
+     */
+    public synchronized void flush() throws InterruptedIOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        final RecordStore full = batch;
+        batch = new GraphRecordStore();
+        try {
+            consumer.accept(full);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("GDELT query was cancelled");
+        }
+        records += full.size();
+        batches++;
+    }
+
+    /**
+     * Get the number of records handed to the consumer so far.
+     *
+     * @return the number of records consumed.
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Get the number of batches handed to the consumer so far.
+     *
+     * @return the number of batches consumed.
+     */
+    public synchronized int getBatchCount() {
+        return batches;
+    }
+}
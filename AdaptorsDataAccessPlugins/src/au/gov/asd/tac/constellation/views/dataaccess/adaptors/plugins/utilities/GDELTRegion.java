@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+/**
+ * A geographic region that GDELT locations can be tested against, either a
+ * bounding box or a polygon.
+ * <p>
+ * A bounding box is written as "minLat,minLon,maxLat,maxLon". A box whose
+ * minimum longitude is greater than its maximum longitude wraps across the
+ * antimeridian. A polygon is written as three or more "lat,lon" points
+ * separated by semi-colons, and is tested with the even-odd rule in plain
+ * latitude and longitude, so it must not cross the antimeridian.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRegion {
+
+    private static final String POINT_SEPARATOR = ";";
+    private static final String COORDINATE_SEPARATOR = ",";
+    private static final int MIN_POLYGON_POINTS = 3;
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+
+    // the vertices of a polygon, or null for a bounding box
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private GDELTRegion(final double minLatitude, final double minLongitude, final double maxLatitude, final double maxLongitude, final double[] latitudes, final double[] longitudes) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Parse a bounding box or polygon.
+     *
+     * @param region the region as "minLat,minLon,maxLat,maxLon" or as
+     * "lat,lon;lat,lon;lat,lon...".
+     * @return the region.
+     * @throws IllegalArgumentException if the region is not valid.
+     */
+    public static GDELTRegion parse(final String region) {
+        final String[] points = region.trim().split(POINT_SEPARATOR);
+        if (points.length == 1) {
+            final double[] box = parseCoordinates(points[0], 4, region);
+            checkLatitude(box[0], region);
+            checkLongitude(box[1], region);
+            checkLatitude(box[2], region);
+            checkLongitude(box[3], region);
+            if (box[0] > box[2]) {
+                throw new IllegalArgumentException("Invalid region, the minimum latitude is greater than the maximum latitude: " + region);
+            }
+            return new GDELTRegion(box[0], box[1], box[2], box[3], null, null);
+        }
+
+        if (points.length < MIN_POLYGON_POINTS) {
+            throw new IllegalArgumentException("Invalid region, a polygon needs at least " + MIN_POLYGON_POINTS + " points: " + region);
+        }
+        final double[] latitudes = new double[points.length];
+        final double[] longitudes = new double[points.length];
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.length; i++) {
+            final double[] point = parseCoordinates(points[i], 2, region);
+            latitudes[i] = checkLatitude(point[0], region);
+            longitudes[i] = checkLongitude(point[1], region);
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+        }
+        return new GDELTRegion(minLatitude, minLongitude, maxLatitude, maxLongitude, latitudes, longitudes);
+    }
+
+    /**
+     * Check whether a point lies within the region. Points on the edge of a
+     * bounding box are inside it.
+     *
+     * @param latitude the latitude of the point.
+     * @param longitude the longitude of the point.
+     * @return true if the point is inside the region, and false if it is
+     * outside or either coordinate is NaN.
+     */
+    public boolean contains(final double latitude, final double longitude) {
+        if (!(latitude >= minLatitude && latitude <= maxLatitude)) {
+            return false;
+        }
+        if (minLongitude <= maxLongitude) {
+            if (!(longitude >= minLongitude && longitude <= maxLongitude)) {
+                return false;
+            }
+        } else if (!(longitude >= minLongitude || longitude <= maxLongitude)) {
+            return false;
+        }
+        return latitudes == null || insidePolygon(latitude, longitude);
+    }
+
+    private boolean insidePolygon(final double latitude, final double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                    && longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i]) / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static double[] parseCoordinates(final String point, final int count, final String region) {
+        final String[] parts = point.split(COORDINATE_SEPARATOR);
+        if (parts.length != count) {
+            throw new IllegalArgumentException("Invalid region, expected " + count + " comma separated coordinates in \"" + point.trim() + "\": " + region);
+        }
+        final double[] coordinates = new double[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                coordinates[i] = Double.parseDouble(parts[i].trim());
+            } catch (final NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid region, \"" + parts[i].trim() + "\" is not a number: " + region, ex);
+            }
+        }
+        return coordinates;
+    }
+
+    private static double checkLatitude(final double latitude, final String region) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new IllegalArgumentException("Invalid region, latitude " + latitude + " is not between -90 and 90: " + region);
+        }
+        return latitude;
+    }
+
+    private static double checkLongitude(final double longitude, final String region) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Invalid region, longitude " + longitude + " is not between -180 and 180: " + region);
+        }
+        return longitude;
+    }
+}
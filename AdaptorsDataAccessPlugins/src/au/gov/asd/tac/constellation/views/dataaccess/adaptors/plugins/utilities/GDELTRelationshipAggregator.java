@@ -0,0 +1,247 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.TemporalConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds repeated co-mentions of the same pair of GDELT entities into a single
+ * weighted relationship.
+ * <p>
+ * Each relationship carries the number of times the pair was mentioned
+ * together, the first and last day it was seen, and the mean, minimum and
+ * maximum of the average tone of the articles that mentioned it. Relationships
+ * are kept in the order they are first seen. Once the maximum number of
+ * distinct relationships has been reached, new pairs are ignored but mentions
+ * of pairs already held are still counted.
+ * <p>
+ * Which relationships are kept under the maximum depends on the order in
+ * which they are first seen, so the days of a range are each aggregated on
+ * their own without a maximum and merged in date order by
+ * {@link #merge(int, List)}, which keeps the same relationships however the
+ * days are scheduled.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRelationshipAggregator {
+
+    public static final String FIRST_SEEN_ATTRIBUTE = "First Seen";
+    public static final String LAST_SEEN_ATTRIBUTE = "Last Seen";
+    public static final String TONE_ATTRIBUTE = "Tone";
+    public static final String MINIMUM_TONE_ATTRIBUTE = "Minimum Tone";
+    public static final String MAXIMUM_TONE_ATTRIBUTE = "Maximum Tone";
+
+    private final int maximumRelationships;
+    private final Map<RelationshipKey, Mentions> relationships = new LinkedHashMap<>();
+
+    public GDELTRelationshipAggregator(final int maximumRelationships) {
+        this.maximumRelationships = maximumRelationships;
+    }
+
+    /**
+     * Count a co-mention of two entities.
+     *
+     * @param type the type of the relationship.
+     * @param source the identifier of the source entity.
+     * @param destination the identifier of the destination entity.
+     * @param datetime the datetime of the row the pair was mentioned in.
+     * @param tone the average tone of the row, or NaN if it is unknown.
+     * @return true if this is the first mention of the pair, in which case any
+     * extra attributes should be set with {@link #setDestinationCountry}.
+     */
+    public boolean add(final GDELTRelationshipTypes type, final String source, final String destination, final String datetime, final double tone) {
+        final RelationshipKey key = new RelationshipKey(type, source, destination);
+        final Mentions mentions = relationships.get(key);
+        if (mentions != null) {
+            mentions.add(datetime, tone);
+            return false;
+        } else if (relationships.size() < maximumRelationships) {
+            final Mentions created = new Mentions();
+            created.add(datetime, tone);
+            relationships.put(key, created);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public void setDestinationCountry(final GDELTRelationshipTypes type, final String source, final String destination, final String country) {
+        final Mentions mentions = relationships.get(new RelationshipKey(type, source, destination));
+        if (mentions != null) {
+            mentions.country = country;
+        }
+    }
+
+    /**
+     * Add the statistics of another aggregator to this one, keeping the order
+     * in which the other aggregator first saw its relationships. Once the
+     * maximum is reached the new pairs of the other aggregator are ignored,
+     * so aggregators must be merged in the order their rows were read for the
+     * same relationships to be kept each time.
+     *
+     * @param other the aggregator to merge, which is left unchanged.
+     */
+    public synchronized void merge(final GDELTRelationshipAggregator other) {
+        for (final Map.Entry<RelationshipKey, Mentions> entry : other.relationships.entrySet()) {
+            final Mentions mentions = relationships.get(entry.getKey());
+            if (mentions != null) {
+                mentions.merge(entry.getValue());
+            } else if (relationships.size() < maximumRelationships) {
+                // copied so that merging later aggregators does not change the statistics of the other
+                final Mentions copy = new Mentions();
+                copy.merge(entry.getValue());
+                relationships.put(entry.getKey(), copy);
+            }
+        }
+    }
+
+    /**
+     * Merge the aggregators of the days of a range, in date order, into one
+     * holding at most a maximum number of distinct relationships. The
+     * relationships first seen on earlier days are kept before those of later
+     * days, as if the days had been read one at a time.
+     *
+     * @param maximumRelationships the maximum number of distinct relationships
+     * to keep.
+     * @param days the aggregators of each day, in date order, each without a
+     * maximum of its own.
+     * @return the merged aggregator.
+     */
+    public static GDELTRelationshipAggregator merge(final int maximumRelationships, final List<GDELTRelationshipAggregator> days) {
+        final GDELTRelationshipAggregator merged = new GDELTRelationshipAggregator(maximumRelationships);
+        for (final GDELTRelationshipAggregator day : days) {
+            merged.merge(day);
+        }
+        return merged;
+    }
+
+    public synchronized int size() {
+        return relationships.size();
+    }
+
+    /**
+     * Build one record for each distinct relationship, carrying its count,
+     * time span and tone statistics.
+     *
+     * @return the aggregated records.
+     */
+    public synchronized RecordStore toRecordStore() {
+        final RecordStore results = new GraphRecordStore();
+        for (final Map.Entry<RelationshipKey, Mentions> entry : relationships.entrySet()) {
+            final RelationshipKey key = entry.getKey();
+            final Mentions mentions = entry.getValue();
+
+            results.add();
+            results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, key.source());
+            results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, key.type().getSource().getVertexType());
+            results.set(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER, key.destination());
+            results.set(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE, key.type().getDestination().getVertexType());
+            if (mentions.country != null) {
+                results.set(GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.COUNTRY, mentions.country);
+            }
+
+            results.set(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE, key.type().getTransactionType());
+            results.set(GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME, mentions.firstSeen);
+            results.set(GraphRecordStoreUtilities.TRANSACTION + GDELTEntityAggregator.MENTIONS_ATTRIBUTE, Integer.toString(mentions.count));
+            results.set(GraphRecordStoreUtilities.TRANSACTION + FIRST_SEEN_ATTRIBUTE, mentions.firstSeen);
+            results.set(GraphRecordStoreUtilities.TRANSACTION + LAST_SEEN_ATTRIBUTE, mentions.lastSeen);
+            if (mentions.toneCount > 0) {
+                results.set(GraphRecordStoreUtilities.TRANSACTION + TONE_ATTRIBUTE, Double.toString(mentions.meanTone));
+                results.set(GraphRecordStoreUtilities.TRANSACTION + MINIMUM_TONE_ATTRIBUTE, Double.toString(mentions.minimumTone));
+                results.set(GraphRecordStoreUtilities.TRANSACTION + MAXIMUM_TONE_ATTRIBUTE, Double.toString(mentions.maximumTone));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Parse the average tone from the tone field of a GDELT row, which is the
+     * first of its comma separated values.
+     *
+     * @param tone the tone field.
+     * @return the average tone, or NaN if it could not be parsed.
+     */
+    public static double parseTone(final String tone) {
+        final int comma = tone.indexOf(',');
+        try {
+            return Double.parseDouble(comma < 0 ? tone : tone.substring(0, comma));
+        } catch (final NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private record RelationshipKey(GDELTRelationshipTypes type, String source, String destination) {
+
+    }
+
+    private static class Mentions {
+
+        private int count = 0;
+        private String firstSeen = null;
+        private String lastSeen = null;
+        private String country = null;
+
+        private int toneCount = 0;
+        private double meanTone = 0;
+        private double minimumTone = Double.POSITIVE_INFINITY;
+        private double maximumTone = Double.NEGATIVE_INFINITY;
+
+        private void add(final String datetime, final double tone) {
+            count++;
+            see(datetime, datetime);
+            if (!Double.isNaN(tone)) {
+                toneCount++;
+                meanTone += (tone - meanTone) / toneCount;
+                minimumTone = Math.min(minimumTone, tone);
+                maximumTone = Math.max(maximumTone, tone);
+            }
+        }
+
+        private void merge(final Mentions other) {
+            count += other.count;
+            see(other.firstSeen, other.lastSeen);
+            if (country == null) {
+                country = other.country;
+            }
+            if (other.toneCount > 0) {
+                final int total = toneCount + other.toneCount;
+                meanTone += (other.meanTone - meanTone) * other.toneCount / total;
+                toneCount = total;
+                minimumTone = Math.min(minimumTone, other.minimumTone);
+                maximumTone = Math.max(maximumTone, other.maximumTone);
+            }
+        }
+
+        // GDELT datetimes are zero padded so they order as Strings
+        private void see(final String first, final String last) {
+            if (firstSeen == null || first.compareTo(firstSeen) < 0) {
+                firstSeen = first;
+            }
+            if (lastSeen == null || last.compareTo(lastSeen) > 0) {
+                lastSeen = last;
+            }
+        }
+    }
+}
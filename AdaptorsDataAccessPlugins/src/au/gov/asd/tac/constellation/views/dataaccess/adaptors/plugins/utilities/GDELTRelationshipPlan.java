@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.TemporalConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The relationships to emit for each GDELT row, compiled once per query from
+ * the chosen {@link GDELTRelationshipTypes}.
+ * <p>
+ * The chosen types are grouped by the entity they are read from so that the
+ * row loops only visit the types that apply, and the record keys are built
+ * once rather than for every value set. Adding a relationship type only
+ * requires a new entry in {@link GDELTRelationshipTypes}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRelationshipPlan {
+
+    static final String SOURCE_IDENTIFIER = GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER;
+    static final String SOURCE_TYPE = GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE;
+    static final String SOURCE_COUNTRY = GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.COUNTRY;
+    static final String DESTINATION_IDENTIFIER = GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER;
+    static final String DESTINATION_TYPE = GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE;
+    static final String DESTINATION_COUNTRY = GraphRecordStoreUtilities.DESTINATION + SpatialConcept.VertexAttribute.COUNTRY;
+    static final String TRANSACTION_TYPE = GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.TYPE;
+    static final String TRANSACTION_DATETIME = GraphRecordStoreUtilities.TRANSACTION + TemporalConcept.TransactionAttribute.DATETIME;
+    static final String TRANSACTION_SOURCE = GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE;
+    static final String TRANSACTION_TONE = GraphRecordStoreUtilities.TRANSACTION + "Tone";
+
+    private static final int LOCATION_COUNTRY = 2;
+
+    private final EnumSet<GDELTRelationshipTypes> types;
+    private final List<Anchor> importAnchors = new ArrayList<>();
+    private final List<Anchor> extendAnchors = new ArrayList<>();
+
+    private GDELTRelationshipPlan(final EnumSet<GDELTRelationshipTypes> types) {
+        this.types = types;
+        for (final GDELTEntityTypes entity : GDELTEntityTypes.values()) {
+            final List<GDELTRelationshipTypes> fromFirst = new ArrayList<>();
+            final List<GDELTRelationshipTypes> touching = new ArrayList<>();
+            for (final GDELTRelationshipTypes type : types) {
+                if (type.getFirst() == entity) {
+                    fromFirst.add(type);
+                }
+                if (type.getFirst() == entity || type.getSecond() == entity) {
+                    touching.add(type);
+                }
+            }
+            if (!fromFirst.isEmpty()) {
+                importAnchors.add(new Anchor(entity, fromFirst.toArray(GDELTRelationshipTypes[]::new)));
+            }
+            if (!touching.isEmpty()) {
+                extendAnchors.add(new Anchor(entity, touching.toArray(GDELTRelationshipTypes[]::new)));
+            }
+        }
+    }
+
+    /**
+     * Compile a plan for the chosen relationship options.
+     *
+     * @param options the names of the chosen relationship types.
+     * @return the compiled plan.
+     */
+    public static GDELTRelationshipPlan compile(final List<String> options) {
+        return new GDELTRelationshipPlan(GDELTRelationshipTypes.fromValues(options));
+    }
+
+    public Set<GDELTRelationshipTypes> getTypes() {
+        return Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Emit every chosen relationship between the entities of the current row,
+     * stopping once the limit is reached. Pairs of entities of the same type
+     * are emitted once.
+     *
+     * @param results the records to add to.
+     * @param limit the limit on the number of records.
+     * @param dt the datetime of the row.
+     * @param scanner the scanner positioned at the row.
+     */
+    public void importRow(final RecordStore results, final GDELTResultLimit limit, final String dt, final GDELTRow scanner) {
+        for (final Anchor anchor : importAnchors) {
+            final int count = scanner.count(anchor.entity.getField());
+            for (int i = 0; i < count; i++) {
+                if (limit.isReached()) {
+                    return;
+                }
+                for (final GDELTRelationshipTypes type : anchor.types) {
+                    final int otherCount = scanner.count(type.getSecond().getField());
+                    for (int j = type.getSecond() == anchor.entity ? i + 1 : 0; j < otherCount; j++) {
+                        if (!limit.tryAcquire()) {
+                            break;
+                        }
+                        emit(results, type, dt, scanner, i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the relationships {@link #importRow} emits for the current row
+     * without a limit, without building them.
+     *
+     * @param scanner the scanner positioned at the row.
+     * @return the number of relationships in the row.
+     */
+    public int countRow(final GDELTRow scanner) {
+        int total = 0;
+        for (final Anchor anchor : importAnchors) {
+            final int count = scanner.count(anchor.entity.getField());
+            for (final GDELTRelationshipTypes type : anchor.types) {
+                total += type.getSecond() == anchor.entity ? count * (count - 1) / 2 : count * scanner.count(type.getSecond().getField());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Emit every chosen relationship between a seed in the current row and
+     * the other entities of the row, stopping once the limit is reached.
+     *
+     * @param results the records to add to.
+     * @param limit the limit on the number of records.
+     * @param dt the datetime of the row.
+     * @param seeds the entities to extend from.
+     * @param scanner the scanner positioned at the row.
+     */
+    public void extendRow(final RecordStore results, final GDELTResultLimit limit, final String dt, final GDELTSeeds seeds, final GDELTRow scanner) {
+        for (final Anchor anchor : extendAnchors) {
+            final Set<String> identifiers = seeds.getIdentifiers(anchor.entity.getVertexType().getName());
+            if (identifiers.isEmpty()) {
+                continue;
+            }
+            final int count = scanner.count(anchor.entity.getField());
+            for (int i = 0; i < count; i++) {
+                final String seed = anchor.entity.getIdentifier(scanner, i);
+                if (!identifiers.contains(seed)) {
+                    continue;
+                }
+                if (limit.isReached()) {
+                    return;
+                }
+                for (final GDELTRelationshipTypes type : anchor.types) {
+                    final boolean fromFirst = type.getFirst() == anchor.entity;
+                    final GDELTEntityTypes other = fromFirst ? type.getSecond() : type.getFirst();
+                    final int otherCount = scanner.count(other.getField());
+                    for (int j = 0; j < otherCount; j++) {
+                        if (other == anchor.entity && other.getIdentifier(scanner, j).equals(seed)) {
+                            continue;
+                        }
+                        if (!limit.tryAcquire()) {
+                            break;
+                        }
+                        if (fromFirst) {
+                            emit(results, type, dt, scanner, i, j);
+                        } else {
+                            emit(results, type, dt, scanner, j, i);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Count every chosen relationship between the entities of the current row.
+     *
+     * @param aggregator the aggregator to count into.
+     * @param dt the datetime of the row.
+     * @param scanner the scanner positioned at the row.
+     */
+    public void aggregateRow(final GDELTRelationshipAggregator aggregator, final String dt, final GDELTRow scanner) {
+        final double tone = scanner.getDouble(GDELTRowScanner.TONE);
+        for (final GDELTRelationshipTypes type : types) {
+            final GDELTEntityTypes first = type.getFirst();
+            final GDELTEntityTypes second = type.getSecond();
+            final int count = scanner.count(first.getField());
+            final int otherCount = scanner.count(second.getField());
+            for (int i = 0; i < count; i++) {
+                final String one = first.getIdentifier(scanner, i);
+                for (int j = first == second ? i + 1 : 0; j < otherCount; j++) {
+                    final String two = second.getIdentifier(scanner, j);
+                    final String source = type.isReversed() ? two : one;
+                    final String destination = type.isReversed() ? one : two;
+                    if (aggregator.add(type, source, destination, dt, tone) && second == GDELTEntityTypes.Location) {
+                        aggregator.setDestinationCountry(type, source, destination, scanner.get(second.getField(), j, LOCATION_COUNTRY));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void emit(final RecordStore results, final GDELTRelationshipTypes type, final String dt, final GDELTRow scanner, final int firstIndex, final int secondIndex) {
+        final GDELTEntityTypes source = type.getSource();
+        final GDELTEntityTypes destination = type.getDestination();
+        final int sourceIndex = type.isReversed() ? secondIndex : firstIndex;
+        final int destinationIndex = type.isReversed() ? firstIndex : secondIndex;
+
+        results.add();
+        results.set(SOURCE_IDENTIFIER, source.getIdentifier(scanner, sourceIndex));
+        results.set(SOURCE_TYPE, source.getVertexType());
+        if (source == GDELTEntityTypes.Location) {
+            results.set(SOURCE_COUNTRY, scanner.get(source.getField(), sourceIndex, LOCATION_COUNTRY));
+        }
+        results.set(DESTINATION_IDENTIFIER, destination.getIdentifier(scanner, destinationIndex));
+        results.set(DESTINATION_TYPE, destination.getVertexType());
+        if (destination == GDELTEntityTypes.Location) {
+            results.set(DESTINATION_COUNTRY, scanner.get(destination.getField(), destinationIndex, LOCATION_COUNTRY));
+        }
+
+        results.set(TRANSACTION_TYPE, type.getTransactionType());
+        results.set(TRANSACTION_DATETIME, dt);
+        results.set(TRANSACTION_SOURCE, scanner.get(GDELTRowScanner.CAMEO_EVENT_IDS));
+        results.set(TRANSACTION_TONE, scanner.get(GDELTRowScanner.TONE));
+    }
+
+    /**
+     * The chosen relationship types that are read from one type of entity.
+     */
+    private static class Anchor {
+
+        private final GDELTEntityTypes entity;
+        private final GDELTRelationshipTypes[] types;
+
+        Anchor(final GDELTEntityTypes entity, final GDELTRelationshipTypes[] types) {
+            this.entity = entity;
+            this.types = types;
+        }
+    }
+}
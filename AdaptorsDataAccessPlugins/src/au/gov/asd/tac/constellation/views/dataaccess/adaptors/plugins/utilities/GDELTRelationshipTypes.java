@@ -15,25 +15,90 @@
  */
 package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
 
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.type.SchemaTransactionType;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 
 /**
  * A list of relationship types used for GDELT Importing
+ * <p>
+ * Each type pairs the entities in two fields of a GDELT row. Relationships to
+ * sources and URLs are reversed so that the document references the entity.
  *
  * @author canis-majoris-42
  */
 public enum GDELTRelationshipTypes {
-    Person_Person,
-    Person_Organisation,
-    Person_Theme,
-    Person_Location,
-    Person_Source,
-    Person_URL,
-    Organisation_Organisation,
-    Organisation_Theme,
-    Organisation_Source,
-    Organisation_URL;
+    Person_Person(GDELTEntityTypes.Person, GDELTEntityTypes.Person, AnalyticConcept.TransactionType.RELATIONSHIP, false),
+    Person_Organisation(GDELTEntityTypes.Person, GDELTEntityTypes.Organisation, AnalyticConcept.TransactionType.CORRELATION, false),
+    Person_Theme(GDELTEntityTypes.Person, GDELTEntityTypes.Theme, AnalyticConcept.TransactionType.BEHAVIOUR, false),
+    Person_Location(GDELTEntityTypes.Person, GDELTEntityTypes.Location, AnalyticConcept.TransactionType.LOCATION, false),
+    Person_Source(GDELTEntityTypes.Person, GDELTEntityTypes.Source, AnalyticConcept.TransactionType.REFERENCED, true),
+    Person_URL(GDELTEntityTypes.Person, GDELTEntityTypes.URL, AnalyticConcept.TransactionType.REFERENCED, true),
+    Organisation_Organisation(GDELTEntityTypes.Organisation, GDELTEntityTypes.Organisation, AnalyticConcept.TransactionType.RELATIONSHIP, false),
+    Organisation_Theme(GDELTEntityTypes.Organisation, GDELTEntityTypes.Theme, AnalyticConcept.TransactionType.BEHAVIOUR, false),
+    Organisation_Source(GDELTEntityTypes.Organisation, GDELTEntityTypes.Source, AnalyticConcept.TransactionType.REFERENCED, true),
+    Organisation_URL(GDELTEntityTypes.Organisation, GDELTEntityTypes.URL, AnalyticConcept.TransactionType.REFERENCED, true);
+
+    private final GDELTEntityTypes first;
+    private final GDELTEntityTypes second;
+    private final SchemaTransactionType transactionType;
+    private final boolean reversed;
+
+    private GDELTRelationshipTypes(final GDELTEntityTypes first, final GDELTEntityTypes second, final SchemaTransactionType transactionType, final boolean reversed) {
+        this.first = first;
+        this.second = second;
+        this.transactionType = transactionType;
+        this.reversed = reversed;
+    }
+
+    public GDELTEntityTypes getFirst() {
+        return first;
+    }
+
+    public GDELTEntityTypes getSecond() {
+        return second;
+    }
+
+    public SchemaTransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    /**
+     * Check whether the second entity is the source of the relationship.
+     *
+     * @return true if the relationship runs from the second entity to the
+     * first.
+     */
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    public GDELTEntityTypes getSource() {
+        return reversed ? second : first;
+    }
+
+    public GDELTEntityTypes getDestination() {
+        return reversed ? first : second;
+    }
+
+    /**
+     * Convert the chosen relationship options into a set of types, ignoring
+     * any that are not recognised.
+     *
+     * @param options the names of the chosen relationship types.
+     * @return the chosen types.
+     */
+    public static EnumSet<GDELTRelationshipTypes> fromValues(final List<String> options) {
+        final EnumSet<GDELTRelationshipTypes> types = EnumSet.noneOf(GDELTRelationshipTypes.class);
+        for (final GDELTRelationshipTypes type : values()) {
+            if (options.contains(type.name())) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
 
     public static List<String> getValues() {
         return Arrays.asList(Arrays.stream(GDELTRelationshipTypes.values()) // create stream of enum values
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread safe count of the results added by a GDELT query, shared by every
+ * day and worker taking part in the query so that the limit applies to the
+ * query as a whole.
+ * <p>
+ * When the days of a range are read in parallel, each day takes its own limit
+ * from {@link #forDay}, which only leaves room for the results the earlier
+ * days have not already taken. A day can therefore never be crowded out by a
+ * later day that happened to be read first, but may still read more than it
+ * keeps while the earlier days are running. The results of each day are then
+ * cut to the limit by {@link #keep} in date order, so the query keeps the same
+ * results as if the days had been read one at a time.
+ *
+ * @author canis_majoris
+ */
+public class GDELTResultLimit {
+
+    private final int limit;
+    private final AtomicInteger count = new AtomicInteger();
+
+    // the limits of each day taken from this limit, in date order
+    private final ConcurrentSkipListMap<String, GDELTResultLimit> days;
+    private final GDELTResultLimit query;
+    private final String key;
+
+    public GDELTResultLimit(final int limit) {
+        this.limit = limit;
+        this.days = new ConcurrentSkipListMap<>();
+        this.query = null;
+        this.key = null;
+    }
+
+    private GDELTResultLimit(final GDELTResultLimit query, final String key) {
+        this.limit = query.limit;
+        this.days = null;
+        this.query = query;
+        this.key = key;
+    }
+
+    /**
+     * Get the limit of one day of a query over several days.
+     *
+     * @param gdt the day or update slice.
+     * @return the limit of the day, which leaves room for the results of
+     * every earlier day.
+     */
+    public GDELTResultLimit forDay(final GDELTDateTime gdt) {
+        if (days == null) {
+            throw new IllegalStateException("A day cannot be taken from the limit of a day");
+        }
+        return days.computeIfAbsent(gdt.getFile(), file -> new GDELTResultLimit(this, file));
+    }
+
+    /**
+     * Keep the results of a day that fit within the limit. Each day must be
+     * kept in date order, once all of its results have been read.
+     *
+     * @param dayResults the results of a day, in the order they were read.
+     * @return the results that fit, which are all of them if the limit has
+     * not been reached.
+     */
+    public RecordStore keep(final RecordStore dayResults) {
+        final int size = dayResults.size();
+        final int granted = tryAcquire(size);
+        if (granted == size) {
+            return dayResults;
+        }
+        final RecordStore kept = new GraphRecordStore();
+        dayResults.reset();
+        for (int i = 0; i < granted && dayResults.next(); i++) {
+            kept.add();
+            final List<String> keys = dayResults.keys();
+            for (final String k : keys) {
+                final String value = dayResults.get(k);
+                if (value != null) {
+                    kept.set(k, value);
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Reserve room for one more result.
+     *
+     * @return true if the result can be added, false if the limit has been
+     * reached.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1) == 1;
+    }
+
+    /**
+     * Reserve room for up to the given number of results.
+     *
+     * @param requested the number of results to add.
+     * @return the number of results that can be added, which may be less than
+     * requested if the limit has been reached.
+     */
+    public int tryAcquire(final int requested) {
+        final int available = limit - getEarlierCount();
+        while (true) {
+            final int current = count.get();
+            final int granted = Math.max(0, Math.min(requested, available - current));
+            if (granted == 0 || count.compareAndSet(current, current + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    public boolean isReached() {
+        return (long) count.get() + getEarlierCount() >= limit;
+    }
+
+    public int getRemaining() {
+        return Math.max(0, limit - count.get() - getEarlierCount());
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // the results taken by the days before this day, which only grows while they are read
+    private int getEarlierCount() {
+        if (query == null) {
+            return 0;
+        }
+        long earlier = 0;
+        for (final GDELTResultLimit day : query.days.headMap(key).values()) {
+            earlier += day.count.get();
+        }
+        return (int) Math.min(limit, earlier);
+    }
+}
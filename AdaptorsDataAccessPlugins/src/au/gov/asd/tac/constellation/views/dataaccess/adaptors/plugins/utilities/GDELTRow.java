@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A cursor over rows of the GDELT Knowledge Graph, read either from a CSV by
+ * a {@link GDELTRowScanner} or from a {@link GDELTSnapshot}.
+ * <p>
+ * Fields are identified by the {@link GDELTRowScanner} field indices, and
+ * values must be copied out before {@link #next()} is called again.
+ *
+ * @author canis_majoris
+ */
+public interface GDELTRow extends Closeable {
+
+    /**
+     * Advance to the next row.
+     *
+     * @return false if there are no more rows.
+     * @throws IOException if the rows could not be read.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Get the number of the current row within its day, counting from 0 after
+     * the header row. A row has the same number whether it is read from the
+     * CSV inside its archive, its block archive or its snapshot. Before the
+     * first row is read, this is the number of the first row.
+     *
+     * @return the number of the current row.
+     */
+    long getOrdinal();
+
+    /**
+     * Get the number of rows read so far, including any rows skipped by a
+     * {@link GDELTRowFilter}.
+     *
+     * @return the number of rows read.
+     */
+    int getRowsRead();
+
+    /**
+     * Get the number of semi-colon separated values in a field of the current
+     * row.
+     *
+     * @param field the field index.
+     * @return the number of non-empty values in the field.
+     */
+    int count(final int field);
+
+    /**
+     * Get the whole of a field of the current row.
+     *
+     * @param field the field index.
+     * @return the field as a String.
+     */
+    String get(final int field);
+
+    /**
+     * Get one semi-colon separated value from a field of the current row.
+     *
+     * @param field the field index.
+     * @param index the index of the value within the field.
+     * @return the value as a String.
+     */
+    String get(final int field, final int index);
+
+    /**
+     * Get one hash separated part of a value, such as the country code of a
+     * location.
+     *
+     * @param field the field index.
+     * @param index the index of the value within the field.
+     * @param part the index of the part within the value.
+     * @return the part as a String, or an empty String if the value has fewer
+     * parts.
+     */
+    String get(final int field, final int index, final int part);
+
+    /**
+     * Check whether one semi-colon separated value from a field of the current
+     * row starts with a prefix.
+     *
+     * @param field the field index.
+     * @param index the index of the value within the field.
+     * @param prefix the prefix to look for.
+     * @return true if the value starts with the prefix.
+     */
+    default boolean startsWith(final int field, final int index, final String prefix) {
+        return get(field, index).startsWith(prefix);
+    }
+
+    /**
+     * Get the first comma separated value of a field as a number, such as the
+     * average tone of the row.
+     *
+     * @param field the field index.
+     * @return the value as a double, or NaN if the field is empty or is not a
+     * number.
+     */
+    default double getDouble(final int field) {
+        final String value = get(field);
+        final int comma = value.indexOf(',');
+        try {
+            return Double.parseDouble(comma < 0 ? value : value.substring(0, comma));
+        } catch (final NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Get one hash separated part of a value as a number, such as the
+     * latitude of a location.
+     *
+     * @param field the field index.
+     * @param index the index of the value within the field.
+     * @param part the index of the part within the value.
+     * @return the part as a double, or NaN if the part is missing or is not a
+     * number.
+     */
+    default double getDouble(final int field, final int index, final int part) {
+        try {
+            return Double.parseDouble(get(field, index, part));
+        } catch (final NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+}
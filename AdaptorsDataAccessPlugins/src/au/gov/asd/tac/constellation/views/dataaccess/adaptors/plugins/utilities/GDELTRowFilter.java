@@ -0,0 +1,437 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A filter over GDELT rows, compiled once per query and applied to the rows
+ * of every chunk as they are scanned, before any record is built.
+ * <p>
+ * The themes, locations and sources of a row are each filtered value by
+ * value. Themes must start with one of the chosen prefixes, locations must
+ * lie inside the chosen region and country, and sources must be allowed and
+ * not denied. The values that fail are hidden from the row, and a row left
+ * with no value in a filtered field is skipped entirely. The tone of a row
+ * must also lie within the chosen range.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRowFilter {
+
+    /**
+     * A filter that keeps every row.
+     */
+    public static final GDELTRowFilter NONE = new Builder().build();
+
+    private static final int LOCATION_COUNTRY = 2;
+    private static final int LOCATION_LATITUDE = 4;
+    private static final int LOCATION_LONGITUDE = 5;
+    private static final String LIST_SEPARATOR = ",";
+    private static final String VALUE_SEPARATOR = ";";
+    private static final String DENY_PREFIX = "-";
+
+    // the filtered fields, in the order they are checked
+    private static final int[] FIELDS = {GDELTRowScanner.THEMES, GDELTRowScanner.LOCATIONS, GDELTRowScanner.SOURCES};
+
+    private final GDELTRegion region;
+    private final String[] themePrefixes;
+    private final Set<String> countries;
+    private final double minTone;
+    private final double maxTone;
+    private final String[] allowedDomains;
+    private final String[] deniedDomains;
+
+    private GDELTRowFilter(final Builder builder) {
+        this.region = builder.region;
+        this.themePrefixes = builder.themePrefixes;
+        this.countries = builder.countries;
+        this.minTone = builder.minTone;
+        this.maxTone = builder.maxTone;
+        this.allowedDomains = builder.allowedDomains;
+        this.deniedDomains = builder.deniedDomains;
+    }
+
+    /**
+     * Check whether this filter keeps every row unchanged.
+     *
+     * @return true if there is nothing to filter.
+     */
+    public boolean isEmpty() {
+        return !filtersField(GDELTRowScanner.THEMES) && !filtersField(GDELTRowScanner.LOCATIONS)
+                && !filtersField(GDELTRowScanner.SOURCES) && !filtersTone();
+    }
+
+    /**
+     * Apply this filter to some rows.
+     *
+     * @param rows the rows to filter.
+     * @return the rows that pass the filter, or the rows themselves if there
+     * is nothing to filter.
+     */
+    public GDELTRow apply(final GDELTRow rows) {
+        return isEmpty() ? rows : new FilteredRows(rows);
+    }
+
+    private boolean filtersField(final int field) {
+        return switch (field) {
+            case GDELTRowScanner.THEMES ->
+                themePrefixes.length > 0;
+            case GDELTRowScanner.LOCATIONS ->
+                region != null || !countries.isEmpty();
+            case GDELTRowScanner.SOURCES ->
+                allowedDomains.length > 0 || deniedDomains.length > 0;
+            default ->
+                false;
+        };
+    }
+
+    private boolean filtersTone() {
+        return minTone != Double.NEGATIVE_INFINITY || maxTone != Double.POSITIVE_INFINITY;
+    }
+
+    private boolean keepTone(final GDELTRow rows) {
+        final double tone = rows.getDouble(GDELTRowScanner.TONE);
+        return tone >= minTone && tone <= maxTone;
+    }
+
+    private boolean keepValue(final GDELTRow rows, final int field, final int index) {
+        return switch (field) {
+            case GDELTRowScanner.THEMES ->
+                keepTheme(rows, index);
+            case GDELTRowScanner.LOCATIONS ->
+                keepLocation(rows, index);
+            default ->
+                keepSource(rows.get(field, index));
+        };
+    }
+
+    private boolean keepTheme(final GDELTRow rows, final int index) {
+        for (final String prefix : themePrefixes) {
+            if (rows.startsWith(GDELTRowScanner.THEMES, index, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean keepLocation(final GDELTRow rows, final int index) {
+        if (!countries.isEmpty() && !countries.contains(rows.get(GDELTRowScanner.LOCATIONS, index, LOCATION_COUNTRY))) {
+            return false;
+        }
+        return region == null || region.contains(rows.getDouble(GDELTRowScanner.LOCATIONS, index, LOCATION_LATITUDE),
+                rows.getDouble(GDELTRowScanner.LOCATIONS, index, LOCATION_LONGITUDE));
+    }
+
+    private boolean keepSource(final String source) {
+        return (allowedDomains.length == 0 || matchesDomain(source, allowedDomains)) && !matchesDomain(source, deniedDomains);
+    }
+
+    /**
+     * Check whether a source is one of the domains or a subdomain of one.
+     */
+    private static boolean matchesDomain(final String source, final String[] domains) {
+        for (final String domain : domains) {
+            if (source.regionMatches(true, source.length() - domain.length(), domain, 0, domain.length())
+                    && (source.length() == domain.length() || source.charAt(source.length() - domain.length() - 1) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a {@link GDELTRowFilter} from the plugin parameters. Every
+     * setter accepts an empty String to leave that part of the row
+     * unfiltered.
+     */
+    public static class Builder {
+
+        private GDELTRegion region = null;
+        private String[] themePrefixes = new String[0];
+        private Set<String> countries = Set.of();
+        private double minTone = Double.NEGATIVE_INFINITY;
+        private double maxTone = Double.POSITIVE_INFINITY;
+        private String[] allowedDomains = new String[0];
+        private String[] deniedDomains = new String[0];
+
+        /**
+         * Only keep the locations inside a region.
+         *
+         * @param region a region as accepted by {@link GDELTRegion#parse}.
+         * @return this builder.
+         * @throws IllegalArgumentException if the region is not valid.
+         */
+        public Builder setRegion(final String region) {
+            this.region = isBlank(region) ? null : GDELTRegion.parse(region);
+            return this;
+        }
+
+        /**
+         * Only keep the themes that start with one of the prefixes.
+         *
+         * @param themePrefixes comma separated theme prefixes, such as
+         * "ECON_,TAX_".
+         * @return this builder.
+         */
+        public Builder setThemePrefixes(final String themePrefixes) {
+            this.themePrefixes = split(themePrefixes).stream().map(prefix -> prefix.toUpperCase(Locale.ROOT)).toArray(String[]::new);
+            return this;
+        }
+
+        /**
+         * Only keep the locations in one of the countries.
+         *
+         * @param countries comma separated FIPS country codes, such as "AS,NZ".
+         * @return this builder.
+         * @throws IllegalArgumentException if a code is not two letters.
+         */
+        public Builder setCountries(final String countries) {
+            final Set<String> codes = new HashSet<>();
+            for (final String code : split(countries)) {
+                if (code.length() != 2) {
+                    throw new IllegalArgumentException("Invalid country, expected a two letter FIPS country code: " + code);
+                }
+                codes.add(code.toUpperCase(Locale.ROOT));
+            }
+            this.countries = codes;
+            return this;
+        }
+
+        /**
+         * Only keep the rows with an average tone in a range.
+         *
+         * @param tone the range as "min,max", either of which may be left
+         * empty, such as "-100,-5".
+         * @return this builder.
+         * @throws IllegalArgumentException if the range is not valid.
+         */
+        public Builder setToneRange(final String tone) {
+            if (isBlank(tone)) {
+                minTone = Double.NEGATIVE_INFINITY;
+                maxTone = Double.POSITIVE_INFINITY;
+                return this;
+            }
+            final String[] bounds = tone.split(LIST_SEPARATOR, -1);
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("Invalid tone range, expected min,max: " + tone);
+            }
+            minTone = parseBound(bounds[0], Double.NEGATIVE_INFINITY, tone);
+            maxTone = parseBound(bounds[1], Double.POSITIVE_INFINITY, tone);
+            if (minTone > maxTone) {
+                throw new IllegalArgumentException("Invalid tone range, the minimum is greater than the maximum: " + tone);
+            }
+            return this;
+        }
+
+        /**
+         * Only keep the sources from allowed domains, and drop the sources
+         * from denied domains. A domain also matches its subdomains.
+         *
+         * @param domains comma separated domains, where a domain starting
+         * with "-" is denied and any other domain is allowed, such as
+         * "bbc.co.uk,-example.com".
+         * @return this builder.
+         */
+        public Builder setSourceDomains(final String domains) {
+            final List<String> allowed = new ArrayList<>();
+            final List<String> denied = new ArrayList<>();
+            for (final String domain : split(domains)) {
+                if (domain.startsWith(DENY_PREFIX)) {
+                    final String name = domain.substring(DENY_PREFIX.length()).trim();
+                    if (!name.isEmpty()) {
+                        denied.add(name);
+                    }
+                } else {
+                    allowed.add(domain);
+                }
+            }
+            this.allowedDomains = allowed.toArray(String[]::new);
+            this.deniedDomains = denied.toArray(String[]::new);
+            return this;
+        }
+
+        public GDELTRowFilter build() {
+            return new GDELTRowFilter(this);
+        }
+
+        private static boolean isBlank(final String value) {
+            return value == null || value.isBlank();
+        }
+
+        private static List<String> split(final String list) {
+            final List<String> values = new ArrayList<>();
+            if (!isBlank(list)) {
+                for (final String value : list.split(LIST_SEPARATOR)) {
+                    final String trimmed = value.trim();
+                    if (!trimmed.isEmpty()) {
+                        values.add(trimmed);
+                    }
+                }
+            }
+            return values;
+        }
+
+        private static double parseBound(final String bound, final double unbounded, final String tone) {
+            if (bound.isBlank()) {
+                return unbounded;
+            }
+            try {
+                final double value = Double.parseDouble(bound.trim());
+                if (Double.isNaN(value)) {
+                    throw new IllegalArgumentException("Invalid tone range, \"" + bound.trim() + "\" is not a number: " + tone);
+                }
+                return value;
+            } catch (final NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid tone range, \"" + bound.trim() + "\" is not a number: " + tone, ex);
+            }
+        }
+    }
+
+    /**
+     * The rows that pass the filter, with the values that fail hidden from
+     * the count and index of their field.
+     */
+    private class FilteredRows implements GDELTRow {
+
+        private final GDELTRow rows;
+        private final boolean tone = filtersTone();
+
+        // the indices of the kept values of each filtered field, or null for
+        // a field that is not filtered
+        private final int[][] kept = new int[GDELTRowScanner.FIELD_COUNT][];
+        private final int[] keptCounts = new int[GDELTRowScanner.FIELD_COUNT];
+        private final String[] keptFields = new String[GDELTRowScanner.FIELD_COUNT];
+
+        FilteredRows(final GDELTRow rows) {
+            this.rows = rows;
+            for (final int field : FIELDS) {
+                if (filtersField(field)) {
+                    kept[field] = new int[16];
+                }
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while (rows.next()) {
+                if (matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches() {
+            if (tone && !keepTone(rows)) {
+                return false;
+            }
+            for (final int field : FIELDS) {
+                if (kept[field] != null && !matchValues(field)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchValues(final int field) {
+            final int count = rows.count(field);
+            if (count > kept[field].length) {
+                kept[field] = Arrays.copyOf(kept[field], Math.max(count, kept[field].length * 2));
+            }
+            final int[] indices = kept[field];
+            int keptCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (keepValue(rows, field, i)) {
+                    indices[keptCount++] = i;
+                }
+            }
+            keptCounts[field] = keptCount;
+            keptFields[field] = null;
+            return keptCount > 0;
+        }
+
+        private int index(final int field, final int index) {
+            return kept[field] == null ? index : kept[field][index];
+        }
+
+        @Override
+        public long getOrdinal() {
+            return rows.getOrdinal();
+        }
+
+        @Override
+        public int getRowsRead() {
+            return rows.getRowsRead();
+        }
+
+        @Override
+        public int count(final int field) {
+            return kept[field] == null ? rows.count(field) : keptCounts[field];
+        }
+
+        @Override
+        public String get(final int field) {
+            if (kept[field] == null) {
+                return rows.get(field);
+            }
+            if (keptFields[field] == null) {
+                final StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < keptCounts[field]; i++) {
+                    sb.append(rows.get(field, kept[field][i])).append(VALUE_SEPARATOR);
+                }
+                keptFields[field] = sb.toString();
+            }
+            return keptFields[field];
+        }
+
+        @Override
+        public String get(final int field, final int index) {
+            return rows.get(field, index(field, index));
+        }
+
+        @Override
+        public String get(final int field, final int index, final int part) {
+            return rows.get(field, index(field, index), part);
+        }
+
+        @Override
+        public boolean startsWith(final int field, final int index, final String prefix) {
+            return rows.startsWith(field, index(field, index), prefix);
+        }
+
+        @Override
+        public double getDouble(final int field) {
+            return rows.getDouble(field);
+        }
+
+        @Override
+        public double getDouble(final int field, final int index, final int part) {
+            return rows.getDouble(field, index(field, index), part);
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+}
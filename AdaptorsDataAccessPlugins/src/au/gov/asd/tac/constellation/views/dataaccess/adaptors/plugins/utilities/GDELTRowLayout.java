@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.util.zip.ZipEntry;
+
+/**
+ * The column layouts of the GDELT Knowledge Graph files.
+ * <p>
+ * The daily files use the original GKG format, which has a header row. The
+ * 15 minute update files use the GKG 2.1 format, which has no header row and
+ * more columns. The version 1 columns of an update file are mapped onto the
+ * {@link GDELTRowScanner} fields so that rows of either layout are read the
+ * same way. Update files have no article count or CAMEO event ids, so those
+ * fields are empty.
+ *
+ * @author canis_majoris
+ */
+public enum GDELTRowLayout {
+    DAILY(true, new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10}),
+    UPDATE(false, new int[]{1, -1, 5, 7, 9, 11, 13, 15, -1, 3, 4});
+
+    private static final int TIMESTAMP_LENGTH = 14;
+
+    private final boolean header;
+    private final int[] columns;
+    private final int columnCount;
+
+    private GDELTRowLayout(final boolean header, final int[] columns) {
+        this.header = header;
+        this.columns = columns;
+        int max = 0;
+        for (final int column : columns) {
+            max = Math.max(max, column);
+        }
+        this.columnCount = max + 1;
+    }
+
+    public boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * Get the column of a row that holds a field.
+     *
+     * @param field a {@link GDELTRowScanner} field index.
+     * @return the column index, or -1 if the layout has no such field.
+     */
+    public int getColumn(final int field) {
+        return columns[field];
+    }
+
+    /**
+     * Get the number of leading columns that hold every mapped field.
+     *
+     * @return the number of columns to read from each row.
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Get the layout of a GDELT file from its name. Update files are named
+     * with a 14 digit timestamp, while daily files are named with an 8 digit
+     * date.
+     *
+     * @param file the name of the file, which may be null.
+     * @return the layout of the file.
+     */
+    public static GDELTRowLayout forFile(final String file) {
+        if (file == null || file.length() <= TIMESTAMP_LENGTH) {
+            return DAILY;
+        }
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            if (!Character.isDigit(file.charAt(i))) {
+                return DAILY;
+            }
+        }
+        return UPDATE;
+    }
+
+    /**
+     * Get the layout of the file held by a zip entry.
+     *
+     * @param ze the zip entry, which may be null.
+     * @return the layout of the file.
+     */
+    public static GDELTRowLayout forEntry(final ZipEntry ze) {
+        return forFile(ze == null ? null : ze.getName());
+    }
+}
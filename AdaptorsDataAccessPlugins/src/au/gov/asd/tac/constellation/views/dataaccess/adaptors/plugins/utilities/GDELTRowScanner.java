@@ -0,0 +1,424 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A reusable scanner over the rows of a GDELT Knowledge Graph CSV.
+ * <p>
+ * The scanner walks the inflated bytes once per row and records the offsets
+ * of each tab separated field. Semi-colon separated values within a field are
+ * only located when that field is first asked for, and Strings are only
+ * created for the values that are actually read, so fields that are not used
+ * by a query cost nothing beyond finding their tab. Empty values are skipped.
+ * <p>
+ * The buffer and offset arrays are reused between rows, so values must be
+ * copied out (using the get methods) before {@link #next()} is called again.
+ * <p>
+ * Rows are read according to a {@link GDELTRowLayout}, which maps the columns
+ * of the daily or 15 minute update files onto the same fields.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRowScanner implements GDELTRow {
+
+    public static final int DATE = 0;
+    public static final int NUMBER_OF_ARTICLES = 1;
+    public static final int COUNTS = 2;
+    public static final int THEMES = 3;
+    public static final int LOCATIONS = 4;
+    public static final int PERSONS = 5;
+    public static final int ORGANISATIONS = 6;
+    public static final int TONE = 7;
+    public static final int CAMEO_EVENT_IDS = 8;
+    public static final int SOURCES = 9;
+    public static final int SOURCE_URLS = 10;
+
+    static final int FIELD_COUNT = 11;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte VALUE_SEPARATOR = ';';
+    private static final byte PART_SEPARATOR = '#';
+    private static final byte COMMA = ',';
+
+    // up to 15 digits fit exactly in both a long and a double
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final InputStream in;
+    private final GDELTRowLayout layout;
+    private final int[] columnStarts;
+    private final int[] columnEnds;
+    private byte[] buffer;
+    private int length = 0;
+    private int position = 0;
+    private boolean eof = false;
+
+    // the number of the first row, which the number of the current row counts on from
+    private long firstOrdinal = 0;
+    private int rowsRead = 0;
+
+    private final int[] fieldStarts = new int[FIELD_COUNT];
+    private final int[] fieldEnds = new int[FIELD_COUNT];
+    private final String[] fieldStrings = new String[FIELD_COUNT];
+
+    private final boolean[] split = new boolean[FIELD_COUNT];
+    private final int[] valueCounts = new int[FIELD_COUNT];
+    private final int[][] valueStarts = new int[FIELD_COUNT][16];
+    private final int[][] valueEnds = new int[FIELD_COUNT][16];
+    private final String[][] valueStrings = new String[FIELD_COUNT][16];
+
+    public GDELTRowScanner(final InputStream in) {
+        this(in, GDELTRowLayout.DAILY);
+    }
+
+    public GDELTRowScanner(final InputStream in, final GDELTRowLayout layout) {
+        this.in = in;
+        this.layout = layout;
+        this.columnStarts = new int[layout.getColumnCount()];
+        this.columnEnds = new int[layout.getColumnCount()];
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Create a scanner over rows that have already been read into memory.
+     *
+     * @param buffer the buffer holding the rows, which is used without being
+     * copied.
+     * @param start the offset of the first row.
+     * @param end the offset after the last row.
+     */
+    public GDELTRowScanner(final byte[] buffer, final int start, final int end) {
+        this(buffer, start, end, GDELTRowLayout.DAILY);
+    }
+
+    /**
+     * Create a scanner over rows of the given layout that have already been
+     * read into memory.
+     *
+     * @param buffer the buffer holding the rows, which is used without being
+     * copied.
+     * @param start the offset of the first row.
+     * @param end the offset after the last row.
+     * @param layout the layout of the rows.
+     */
+    public GDELTRowScanner(final byte[] buffer, final int start, final int end, final GDELTRowLayout layout) {
+        this(buffer, start, end, layout, 0);
+    }
+
+    /**
+     * Create a scanner over rows of the given layout that have been read into
+     * memory from part of a stream.
+     *
+     * @param buffer the buffer holding the rows, which is used without being
+     * copied.
+     * @param start the offset of the first row.
+     * @param end the offset after the last row.
+     * @param layout the layout of the rows.
+     * @param ordinal the number of the first row within its day.
+     */
+    GDELTRowScanner(final byte[] buffer, final int start, final int end, final GDELTRowLayout layout, final long ordinal) {
+        this.in = null;
+        this.layout = layout;
+        this.columnStarts = new int[layout.getColumnCount()];
+        this.columnEnds = new int[layout.getColumnCount()];
+        this.buffer = buffer;
+        this.position = start;
+        this.length = end;
+        this.eof = true;
+        this.firstOrdinal = ordinal;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int lineEnd = indexOf(NEWLINE, position, length);
+        while (lineEnd < 0 && !eof) {
+            final int scanned = length - position;
+            fill();
+            lineEnd = indexOf(NEWLINE, position + scanned, length);
+        }
+        if (lineEnd < 0) {
+            if (position >= length) {
+                return false;
+            }
+            // the last row has no trailing new line
+            lineEnd = length;
+        }
+
+        final int lineStart = position;
+        rowsRead++;
+        position = lineEnd + 1;
+        if (lineEnd > lineStart && buffer[lineEnd - 1] == CARRIAGE_RETURN) {
+            lineEnd--;
+        }
+
+        int start = lineStart;
+        for (int column = 0; column < columnStarts.length; column++) {
+            final int tab = start <= lineEnd ? indexOf(TAB, start, lineEnd) : -1;
+            final int end = tab < 0 ? lineEnd : tab;
+            columnStarts[column] = Math.min(start, lineEnd);
+            columnEnds[column] = Math.min(end, lineEnd);
+            start = end + 1;
+        }
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            final int column = layout.getColumn(field);
+            fieldStarts[field] = column < 0 ? lineEnd : columnStarts[column];
+            fieldEnds[field] = column < 0 ? lineEnd : columnEnds[column];
+            fieldStrings[field] = null;
+            split[field] = false;
+        }
+        return true;
+    }
+
+    @Override
+    public long getOrdinal() {
+        return firstOrdinal + Math.max(0, rowsRead - 1);
+    }
+
+    @Override
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    @Override
+    public int count(final int field) {
+        split(field);
+        return valueCounts[field];
+    }
+
+    @Override
+    public String get(final int field) {
+        if (fieldStrings[field] == null) {
+            fieldStrings[field] = decode(fieldStarts[field], fieldEnds[field]);
+        }
+        return fieldStrings[field];
+    }
+
+    @Override
+    public String get(final int field, final int index) {
+        split(field);
+        final String[] strings = valueStrings[field];
+        if (strings[index] == null) {
+            strings[index] = decode(valueStarts[field][index], valueEnds[field][index]);
+        }
+        return strings[index];
+    }
+
+    @Override
+    public String get(final int field, final int index, final int part) {
+        split(field);
+        final int end = valueEnds[field][index];
+        int start = valueStarts[field][index];
+        for (int i = 0; i < part; i++) {
+            final int separator = indexOf(PART_SEPARATOR, start, end);
+            if (separator < 0) {
+                return "";
+            }
+            start = separator + 1;
+        }
+        final int separator = indexOf(PART_SEPARATOR, start, end);
+        return decode(start, separator < 0 ? end : separator);
+    }
+
+    /**
+     * Compare the start of a value with an ASCII prefix straight from the
+     * buffer, falling back to a String comparison for any other prefix.
+     */
+    @Override
+    public boolean startsWith(final int field, final int index, final String prefix) {
+        split(field);
+        final int start = valueStarts[field][index];
+        if (valueEnds[field][index] - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            final char c = prefix.charAt(i);
+            if (c >= 0x80) {
+                return get(field, index).startsWith(prefix);
+            }
+            if (buffer[start + i] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public double getDouble(final int field) {
+        final int start = fieldStarts[field];
+        final int comma = indexOf(COMMA, start, fieldEnds[field]);
+        return parseDouble(start, comma < 0 ? fieldEnds[field] : comma);
+    }
+
+    /**
+     * Parse a part of a value as a number straight from the buffer, without
+     * creating a String for the common forms of GDELT coordinates and tones.
+     */
+    @Override
+    public double getDouble(final int field, final int index, final int part) {
+        split(field);
+        final int end = valueEnds[field][index];
+        int start = valueStarts[field][index];
+        for (int i = 0; i < part; i++) {
+            final int separator = indexOf(PART_SEPARATOR, start, end);
+            if (separator < 0) {
+                return Double.NaN;
+            }
+            start = separator + 1;
+        }
+        final int separator = indexOf(PART_SEPARATOR, start, end);
+        return parseDouble(start, separator < 0 ? end : separator);
+    }
+
+    /**
+     * Compare a value of the current row to a UTF-8 encoded byte array without
+     * creating a String.
+     *
+     * @param field the field index.
+     * @param index the index of the value within the field.
+     * @param value the UTF-8 encoded bytes to compare with.
+     * @return true if the value matches.
+     */
+    public boolean equals(final int field, final int index, final byte[] value) {
+        split(field);
+        final int start = valueStarts[field][index];
+        return Arrays.equals(buffer, start, valueEnds[field][index], value, 0, value.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    private void split(final int field) {
+        if (split[field]) {
+            return;
+        }
+        split[field] = true;
+
+        final int end = fieldEnds[field];
+        int start = fieldStarts[field];
+        int count = 0;
+        while (start < end) {
+            final int separator = indexOf(VALUE_SEPARATOR, start, end);
+            final int valueEnd = separator < 0 ? end : separator;
+            if (valueEnd > start) {
+                if (count == valueStarts[field].length) {
+                    final int capacity = count * 2;
+                    valueStarts[field] = Arrays.copyOf(valueStarts[field], capacity);
+                    valueEnds[field] = Arrays.copyOf(valueEnds[field], capacity);
+                    valueStrings[field] = new String[capacity];
+                }
+                valueStarts[field][count] = start;
+                valueEnds[field][count] = valueEnd;
+                count++;
+            }
+            start = valueEnd + 1;
+        }
+        valueCounts[field] = count;
+        Arrays.fill(valueStrings[field], 0, count, null);
+    }
+
+    /**
+     * Parse a number of the form [-]digits[.digits] as a whole number of
+     * decimal places, which is exact while the digits fit in a double, and
+     * fall back to {@link Double#parseDouble} for anything else.
+     */
+    private double parseDouble(final int start, final int end) {
+        int i = start;
+        final boolean negative = i < end && buffer[i] == '-';
+        if (negative || i < end && buffer[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            final byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < end || digits == 0 || digits > MAX_EXACT_DIGITS) {
+            try {
+                return Double.parseDouble(decode(start, end));
+            } catch (final NumberFormatException ex) {
+                return Double.NaN;
+            }
+        }
+        final double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private String decode(final int start, final int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(final byte b, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read more bytes into the buffer, moving the partial row at the end of the
+     * buffer to the front and growing the buffer if a row does not fit.
+     */
+    private void fill() throws IOException {
+        final int remaining = length - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            length = remaining;
+        }
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        final int read = in.read(buffer, length, buffer.length - length);
+        if (read < 0) {
+            eof = true;
+        } else {
+            length += read;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The rows of one day of the GDELT Knowledge Graph, read from the CSV inside
+ * its archive, from its {@link GDELTBlockArchive} or from its
+ * {@link GDELTSnapshot}, so that every query is written once whichever copy of
+ * the day it reads.
+ *
+ * @author canis_majoris
+ */
+public interface GDELTRowSource {
+
+    /**
+     * Parse the rows of the day in chunks on the workers of the
+     * {@link GDELTParsingPipeline}.
+     *
+     * @param <T> the type of result produced for each chunk.
+     * @param finished checked before each chunk is started, so that parsing
+     * can stop early once enough results have been merged.
+     * @param parser the parser to run over each chunk.
+     * @param merger called with the result of each chunk, in row order, on
+     * the calling thread.
+     * @return true if every row was parsed, or false if parsing stopped early.
+     * @throws IOException if the rows could not be read or parsed.
+     */
+    <T> boolean parse(final BooleanSupplier finished, final GDELTParsingPipeline.ChunkParser<T> parser, final GDELTParsingPipeline.ChunkMerger<T> merger) throws IOException;
+
+    /**
+     * Read only the rows that mention any of the seeds, for sources that can
+     * seek to the rows listed for them by the {@link GDELTArchiveIndex} of the
+     * day without reading every row.
+     *
+     * @param seeds the seeds to find.
+     * @return a cursor over the rows mentioning the seeds, in row order, or
+     * null if every row has to be read instead.
+     * @throws IOException if the rows could not be read.
+     */
+    default GDELTRow find(final GDELTSeeds seeds) throws IOException {
+        return null;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The identifiers of the selected nodes to extend from, grouped by type.
+ * <p>
+ * Labels of the form {@code identifier<Type>} are parsed once so that each
+ * field of a GDELT row can be probed against a hash set rather than compared
+ * with every selected node in turn. The seeds cannot be changed once parsed,
+ * so the days of a range can probe them from several threads at once.
+ *
+ * @author canis_majoris
+ */
+public class GDELTSeeds {
+
+    private final Map<String, Set<String>> identifiers;
+    private final int size;
+
+    private GDELTSeeds(final Map<String, Set<String>> identifiers) {
+        final Map<String, Set<String>> copy = new HashMap<>();
+        int count = 0;
+        for (final Map.Entry<String, Set<String>> entry : identifiers.entrySet()) {
+            copy.put(entry.getKey(), Set.copyOf(entry.getValue()));
+            count += entry.getValue().size();
+        }
+        this.identifiers = Map.copyOf(copy);
+        this.size = count;
+    }
+
+    /**
+     * Parse the labels of the selected nodes. Labels without a type are
+     * ignored.
+     *
+     * @param labels the labels of the selected nodes.
+     * @return the parsed seeds.
+     */
+    public static GDELTSeeds fromLabels(final List<String> labels) {
+        final Map<String, Set<String>> identifiers = new HashMap<>();
+        for (final String label : labels) {
+            final int open = label.lastIndexOf('<');
+            final int close = label.lastIndexOf('>');
+            if (open < 0 || close < open) {
+                continue;
+            }
+            identifiers.computeIfAbsent(label.substring(open + 1, close), t -> new HashSet<>()).add(label.substring(0, open));
+        }
+        return new GDELTSeeds(identifiers);
+    }
+
+    /**
+     * Get the identifiers of the seeds of a type.
+     *
+     * @param type the name of the vertex type, such as "Person".
+     * @return the identifiers, which will be empty if there are no seeds of
+     * the type.
+     */
+    public Set<String> getIdentifiers(final String type) {
+        return identifiers.getOrDefault(type, Collections.emptySet());
+    }
+
+    public Set<String> getTypes() {
+        return identifiers.keySet();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,685 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A compact columnar copy of one day of the GDELT Knowledge Graph.
+ * <p>
+ * Once a query has read every row of a day from its archive,
+ * {@link GDELTLocalCopies} parses the archive again in the background into a
+ * dictionary of the distinct values of the day, sorted by their UTF-8 bytes,
+ * and an int column for each field that holds the dictionary ids of the
+ * values of every row. The snapshot is written to the
+ * {@link GDELTArchiveCache} index directory and memory mapped, so that later
+ * imports and extends over the day read int columns rather than inflating and
+ * tokenizing the archive, and only decode the values they use. Extends go
+ * straight to the rows listed for their seeds by the {@link GDELTArchiveIndex}
+ * of the day.
+ * <p>
+ * The snapshot keeps the persons, organisations, themes, locations, sources,
+ * source URLs, tone and CAMEO event ids of each row. Other fields read as
+ * empty. Snapshots can be turned off with the {@value #SNAPSHOT_PROPERTY}
+ * system property, in which case days are read from their
+ * {@link GDELTBlockArchive} or their archives.
+ *
+ * @author canis_majoris
+ */
+public class GDELTSnapshot implements GDELTRowSource {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTSnapshot.class.getName());
+
+    public static final String SNAPSHOT_PROPERTY = "constellation.gdelt.snapshot";
+
+    private static final int MAGIC = 0x47445353;
+    private static final int VERSION = 1;
+    static final String SNAPSHOT_EXTENSION = ".snap";
+    private static final String PART_EXTENSION = ".part";
+
+    // fields of semi-colon separated values, and fields kept whole
+    private static final int[] LIST_FIELDS = {
+        GDELTRowScanner.PERSONS,
+        GDELTRowScanner.ORGANISATIONS,
+        GDELTRowScanner.THEMES,
+        GDELTRowScanner.LOCATIONS,
+        GDELTRowScanner.SOURCES,
+        GDELTRowScanner.SOURCE_URLS
+    };
+    private static final int[] VALUE_FIELDS = {
+        GDELTRowScanner.TONE,
+        GDELTRowScanner.CAMEO_EVENT_IDS
+    };
+    private static final int[] LIST_INDEX = columnIndex(LIST_FIELDS);
+    private static final int[] VALUE_INDEX = columnIndex(VALUE_FIELDS);
+
+    private static final byte VALUE_SEPARATOR = ';';
+    private static final byte PART_SEPARATOR = '#';
+
+    private static final Map<String, SoftReference<GDELTSnapshot>> LOADED = new HashMap<>();
+
+    private final File directory;
+    private final String key;
+    private final int rowCount;
+    private final IntBuffer stringStarts;
+    private final ByteBuffer strings;
+    private final IntBuffer[] listStarts;
+    private final IntBuffer[] listValues;
+    private final IntBuffer[] values;
+
+    // decoded dictionary values, filled in as they are read
+    private final String[] decoded;
+
+    private GDELTSnapshot(final File file, final ByteBuffer mapped) throws IOException {
+        directory = file.getParentFile();
+        key = file.getName().substring(0, file.getName().length() - SNAPSHOT_EXTENSION.length());
+        final ByteBuffer header = mapped.duplicate();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a GDELT snapshot");
+        }
+        rowCount = header.getInt();
+        final int stringCount = header.getInt();
+        if (!Arrays.equals(readFields(header), LIST_FIELDS) || !Arrays.equals(readFields(header), VALUE_FIELDS)) {
+            throw new IOException("GDELT snapshot has different fields");
+        }
+        final int[] valueCounts = new int[LIST_FIELDS.length];
+        for (int i = 0; i < valueCounts.length; i++) {
+            valueCounts[i] = header.getInt();
+        }
+        final int stringLength = header.getInt();
+
+        int position = header.position();
+        stringStarts = ints(mapped, position, stringCount + 1);
+        position += (stringCount + 1) * Integer.BYTES;
+        strings = mapped.slice(position, stringLength);
+        position += pad(stringLength);
+
+        listStarts = new IntBuffer[LIST_FIELDS.length];
+        listValues = new IntBuffer[LIST_FIELDS.length];
+        for (int i = 0; i < LIST_FIELDS.length; i++) {
+            listStarts[i] = ints(mapped, position, rowCount + 1);
+            position += (rowCount + 1) * Integer.BYTES;
+            listValues[i] = ints(mapped, position, valueCounts[i]);
+            position += valueCounts[i] * Integer.BYTES;
+        }
+        values = new IntBuffer[VALUE_FIELDS.length];
+        for (int i = 0; i < VALUE_FIELDS.length; i++) {
+            values[i] = ints(mapped, position, rowCount);
+            position += rowCount * Integer.BYTES;
+        }
+        if (position != mapped.limit()) {
+            throw new IOException("GDELT snapshot is truncated");
+        }
+        decoded = new String[stringCount];
+    }
+
+    /**
+     * Check whether days are read from snapshots, which requires the archive
+     * cache to be enabled.
+     *
+     * @return true if days are read from snapshots.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(SNAPSHOT_PROPERTY, Boolean.TRUE.toString()))
+                && GDELTArchiveCache.getInstance().getIndexDirectory() != null;
+    }
+
+    /**
+     * Get the snapshot of a day if it has been built.
+     *
+     * @param gdt the day to read.
+     * @return the snapshot, or null if the archive cache is disabled or the
+     * day has no snapshot yet.
+     * @throws IOException if the snapshot could not be read, in which case it
+     * is removed so that it can be built again.
+     */
+    public static GDELTSnapshot open(final GDELTDateTime gdt) throws IOException {
+        final File directory = GDELTArchiveCache.getInstance().getIndexDirectory();
+        if (directory == null) {
+            return null;
+        }
+
+        final String key = gdt.getFile();
+        final File file = new File(directory, key + SNAPSHOT_EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        synchronized (LOADED) {
+            final SoftReference<GDELTSnapshot> reference = LOADED.get(key);
+            final GDELTSnapshot loaded = reference == null ? null : reference.get();
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+
+        final GDELTSnapshot loaded;
+        try {
+            loaded = load(file);
+        } catch (final IOException ex) {
+            delete(directory, key);
+            GDELTArchiveCache.getInstance().updateDerivedSize(key);
+            throw ex;
+        }
+        synchronized (LOADED) {
+            LOADED.put(key, new SoftReference<>(loaded));
+        }
+        return loaded;
+    }
+
+    /**
+     * Build the snapshot of a day from its archive, replacing any snapshot it
+     * already has.
+     *
+     * @param gdt the day to build.
+     * @return true if the snapshot was built, or false if the archive cache
+     * is disabled or there is no archive for the day.
+     * @throws IOException if the archive could not be read or the snapshot
+     * could not be written.
+     */
+    static boolean build(final GDELTDateTime gdt) throws IOException {
+        final File directory = GDELTArchiveCache.getInstance().getIndexDirectory();
+        if (directory == null) {
+            return false;
+        }
+
+        final String key = gdt.getFile();
+        final File file = new File(directory, key + SNAPSHOT_EXTENSION);
+        if (GDELTImportingUtilities.retrieveArchive(gdt, (ze, in) -> build(in, GDELTRowLayout.forEntry(ze), file)) == null) {
+            return false;
+        }
+        synchronized (LOADED) {
+            LOADED.remove(key);
+        }
+        GDELTArchiveCache.getInstance().updateDerivedSize(key);
+        return true;
+    }
+
+    /**
+     * Remove the snapshot of a day, such as when its archive is evicted from
+     * the cache.
+     *
+     * @param directory the index directory.
+     * @param key the file name of the day.
+     */
+    static void delete(final File directory, final String key) {
+        synchronized (LOADED) {
+            LOADED.remove(key);
+        }
+        final File file = new File(directory, key + SNAPSHOT_EXTENSION);
+        if (file.exists() && !file.delete()) {
+            LOGGER.log(Level.FINE, "Unable to remove {0}", file);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Read a range of rows.
+     *
+     * @param start the first row.
+     * @param end the row after the last row.
+     * @return a cursor over the rows.
+     */
+    public GDELTRow getRows(final int start, final int end) {
+        return new Rows(null, start, end);
+    }
+
+    @Override
+    public <T> boolean parse(final BooleanSupplier finished, final GDELTParsingPipeline.ChunkParser<T> parser, final GDELTParsingPipeline.ChunkMerger<T> merger) throws IOException {
+        return GDELTParsingPipeline.parse(this, finished, parser, merger);
+    }
+
+    /**
+     * Read the rows listed for the seeds by the {@link GDELTArchiveIndex} of
+     * the day, going straight to each row.
+     *
+     * @param seeds the seeds to find.
+     * @return a cursor over the matching rows, in row order, or null if the
+     * day has not been indexed or the seeds include a type that is not
+     * indexed.
+     */
+    @Override
+    public GDELTRow find(final GDELTSeeds seeds) {
+        final GDELTArchiveIndex index = GDELTArchiveIndex.open(directory, key);
+        if (index == null || index.getRowCount() != rowCount) {
+            return null;
+        }
+        final int[] rows = index.find(seeds);
+        return rows == null ? null : getRows(rows);
+    }
+
+    /**
+     * Read a chosen set of rows.
+     *
+     * @param rows the rows to read, in increasing order.
+     * @return a cursor over the rows.
+     */
+    public GDELTRow getRows(final int[] rows) {
+        return new Rows(rows, 0, 0);
+    }
+
+    private String getString(final int id) {
+        String string = decoded[id];
+        if (string == null) {
+            final int start = stringStarts.get(id);
+            final byte[] bytes = new byte[stringStarts.get(id + 1) - start];
+            strings.get(start, bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            decoded[id] = string;
+        }
+        return string;
+    }
+
+    static GDELTSnapshot load(final File file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("GDELT snapshot is too large to map " + file);
+            }
+            return new GDELTSnapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static Boolean build(final InputStream in, final GDELTRowLayout layout, final File file) throws IOException {
+        final Builder builder = new Builder();
+        GDELTParsingPipeline.parse(in, layout, () -> false, Columns::read, builder::append);
+        builder.write(file);
+        return true;
+    }
+
+    private static int[] readFields(final ByteBuffer header) {
+        final int[] fields = new int[header.getInt()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = header.getInt();
+        }
+        return fields;
+    }
+
+    private static IntBuffer ints(final ByteBuffer mapped, final int position, final int count) {
+        return mapped.slice(position, count * Integer.BYTES).asIntBuffer();
+    }
+
+    // the length of the dictionary bytes rounded up so the columns that follow are aligned
+    private static int pad(final int length) {
+        return (length + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+    }
+
+    private static int[] columnIndex(final int[] fields) {
+        final int[] index = new int[GDELTRowScanner.FIELD_COUNT];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < fields.length; i++) {
+            index[fields[i]] = i;
+        }
+        return index;
+    }
+
+    /**
+     * A cursor over a range of rows, or over a chosen set of rows.
+     */
+    private class Rows implements GDELTRow {
+
+        private final int[] selected;
+        private final int first;
+        private final int end;
+        private int next;
+        private int row = -1;
+
+        Rows(final int[] selected, final int start, final int end) {
+            this.selected = selected;
+            this.first = selected == null ? start : 0;
+            this.next = first;
+            this.end = selected == null ? end : selected.length;
+        }
+
+        @Override
+        public int getRowsRead() {
+            return next - first;
+        }
+
+        @Override
+        public boolean next() {
+            if (next >= end) {
+                return false;
+            }
+            row = selected == null ? next : selected[next];
+            next++;
+            return true;
+        }
+
+        @Override
+        public long getOrdinal() {
+            if (row >= 0) {
+                return row;
+            }
+            if (selected == null) {
+                return next;
+            }
+            return selected.length == 0 ? 0 : selected[0];
+        }
+
+        @Override
+        public int count(final int field) {
+            final int column = LIST_INDEX[field];
+            if (column >= 0) {
+                return listStarts[column].get(row + 1) - listStarts[column].get(row);
+            }
+            final String value = get(field);
+            int count = 0;
+            for (int start = 0; start <= value.length();) {
+                final int separator = nextSeparator(value, VALUE_SEPARATOR, start);
+                if (separator > start) {
+                    count++;
+                }
+                start = separator + 1;
+            }
+            return count;
+        }
+
+        @Override
+        public String get(final int field) {
+            final int column = LIST_INDEX[field];
+            if (column >= 0) {
+                final StringBuilder joined = new StringBuilder();
+                final int count = count(field);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        joined.append((char) VALUE_SEPARATOR);
+                    }
+                    joined.append(get(field, i));
+                }
+                return joined.toString();
+            }
+            final int valueColumn = VALUE_INDEX[field];
+            if (valueColumn < 0) {
+                return "";
+            }
+            final int id = values[valueColumn].get(row);
+            return id < 0 ? "" : getString(id);
+        }
+
+        @Override
+        public String get(final int field, final int index) {
+            final int column = LIST_INDEX[field];
+            if (column >= 0) {
+                return getString(listValues[column].get(listStarts[column].get(row) + index));
+            }
+            final String value = get(field);
+            int found = 0;
+            for (int start = 0; start <= value.length();) {
+                final int separator = nextSeparator(value, VALUE_SEPARATOR, start);
+                if (separator > start && found++ == index) {
+                    return value.substring(start, separator);
+                }
+                start = separator + 1;
+            }
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        @Override
+        public String get(final int field, final int index, final int part) {
+            final String value = get(field, index);
+            int start = 0;
+            for (int i = 0; i < part; i++) {
+                final int separator = value.indexOf(PART_SEPARATOR, start);
+                if (separator < 0) {
+                    return "";
+                }
+                start = separator + 1;
+            }
+            return value.substring(start, nextSeparator(value, PART_SEPARATOR, start));
+        }
+
+        @Override
+        public void close() {
+            // the snapshot stays mapped for other readers
+        }
+
+        private int nextSeparator(final String value, final byte separator, final int from) {
+            final int index = value.indexOf(separator, from);
+            return index < 0 ? value.length() : index;
+        }
+    }
+
+    /**
+     * A growable array of ints.
+     */
+    private static class IntArray {
+
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * The columns of one chunk of rows, with ids from a dictionary of the
+     * chunk.
+     */
+    private static class Columns {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final IntArray[] listEnds = new IntArray[LIST_FIELDS.length];
+        private final IntArray[] listValues = new IntArray[LIST_FIELDS.length];
+        private final IntArray[] values = new IntArray[VALUE_FIELDS.length];
+
+        Columns() {
+            for (int i = 0; i < LIST_FIELDS.length; i++) {
+                listEnds[i] = new IntArray();
+                listValues[i] = new IntArray();
+            }
+            for (int i = 0; i < VALUE_FIELDS.length; i++) {
+                values[i] = new IntArray();
+            }
+        }
+
+        static Columns read(final GDELTRow scanner) throws IOException {
+            final Columns columns = new Columns();
+            while (scanner.next()) {
+                for (int i = 0; i < LIST_FIELDS.length; i++) {
+                    final int count = scanner.count(LIST_FIELDS[i]);
+                    for (int j = 0; j < count; j++) {
+                        columns.listValues[i].add(columns.id(scanner.get(LIST_FIELDS[i], j)));
+                    }
+                    columns.listEnds[i].add(columns.listValues[i].size);
+                }
+                for (int i = 0; i < VALUE_FIELDS.length; i++) {
+                    final String value = scanner.get(VALUE_FIELDS[i]);
+                    columns.values[i].add(value.isEmpty() ? -1 : columns.id(value));
+                }
+            }
+            return columns;
+        }
+
+        private int id(final String value) {
+            final Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            ids.put(value, strings.size());
+            strings.add(value);
+            return strings.size() - 1;
+        }
+    }
+
+    /**
+     * Merges the columns of each chunk, in row order, and writes the sorted
+     * dictionary and columns.
+     */
+    private static class Builder {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final IntArray[] listStarts = new IntArray[LIST_FIELDS.length];
+        private final IntArray[] listValues = new IntArray[LIST_FIELDS.length];
+        private final IntArray[] values = new IntArray[VALUE_FIELDS.length];
+        private int rows = 0;
+
+        Builder() {
+            for (int i = 0; i < LIST_FIELDS.length; i++) {
+                listStarts[i] = new IntArray();
+                listStarts[i].add(0);
+                listValues[i] = new IntArray();
+            }
+            for (int i = 0; i < VALUE_FIELDS.length; i++) {
+                values[i] = new IntArray();
+            }
+        }
+
+        void append(final Columns chunk) {
+            final int[] remap = new int[chunk.strings.size()];
+            for (int i = 0; i < remap.length; i++) {
+                remap[i] = ids.computeIfAbsent(chunk.strings.get(i), value -> {
+                    strings.add(value);
+                    return strings.size() - 1;
+                });
+            }
+            for (int i = 0; i < LIST_FIELDS.length; i++) {
+                final int base = listValues[i].size;
+                for (int j = 0; j < chunk.listValues[i].size; j++) {
+                    listValues[i].add(remap[chunk.listValues[i].values[j]]);
+                }
+                for (int j = 0; j < chunk.listEnds[i].size; j++) {
+                    listStarts[i].add(base + chunk.listEnds[i].values[j]);
+                }
+            }
+            for (int i = 0; i < VALUE_FIELDS.length; i++) {
+                for (int j = 0; j < chunk.values[i].size; j++) {
+                    final int id = chunk.values[i].values[j];
+                    values[i].add(id < 0 ? -1 : remap[id]);
+                }
+            }
+            rows += chunk.values[0].size;
+        }
+
+        void write(final File file) throws IOException {
+            // sort the dictionary by bytes so that values can be found with a binary search
+            final byte[][] encoded = new byte[strings.size()][];
+            long stringLength = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                stringLength += encoded[i].length;
+            }
+            final Integer[] order = new Integer[encoded.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+            final int[] remap = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                remap[order[i]] = i;
+            }
+
+            final long headerLength = (7L + LIST_FIELDS.length * 2L + VALUE_FIELDS.length) * Integer.BYTES;
+            long size = headerLength + (encoded.length + 1L) * Integer.BYTES + stringLength + Integer.BYTES;
+            for (int i = 0; i < LIST_FIELDS.length; i++) {
+                size += (rows + 1L + listValues[i].size) * Integer.BYTES;
+            }
+            size += (long) VALUE_FIELDS.length * rows * Integer.BYTES;
+            if (stringLength > Integer.MAX_VALUE - Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("GDELT snapshot would be too large to map " + file);
+            }
+
+            final Path part = Files.createTempFile(file.getParentFile().toPath(), file.getName(), PART_EXTENSION);
+            try {
+                try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(part.toFile()), 1 << 16))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(rows);
+                    out.writeInt(encoded.length);
+                    writeFields(out, LIST_FIELDS);
+                    writeFields(out, VALUE_FIELDS);
+                    for (final IntArray column : listValues) {
+                        out.writeInt(column.size);
+                    }
+                    out.writeInt((int) stringLength);
+
+                    int start = 0;
+                    out.writeInt(start);
+                    for (final Integer id : order) {
+                        start += encoded[id].length;
+                        out.writeInt(start);
+                    }
+                    for (final Integer id : order) {
+                        out.write(encoded[id]);
+                    }
+                    for (int i = start; i < pad(start); i++) {
+                        out.writeByte(0);
+                    }
+
+                    for (int i = 0; i < LIST_FIELDS.length; i++) {
+                        for (int j = 0; j < listStarts[i].size; j++) {
+                            out.writeInt(listStarts[i].values[j]);
+                        }
+                        for (int j = 0; j < listValues[i].size; j++) {
+                            out.writeInt(remap[listValues[i].values[j]]);
+                        }
+                    }
+                    for (final IntArray column : values) {
+                        for (int j = 0; j < column.size; j++) {
+                            final int id = column.values[j];
+                            out.writeInt(id < 0 ? -1 : remap[id]);
+                        }
+                    }
+                }
+                try {
+                    Files.move(part, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (final AtomicMoveNotSupportedException ex) {
+                    Files.move(part, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        private static void writeFields(final DataOutputStream out, final int[] fields) throws IOException {
+            out.writeInt(fields.length);
+            for (final int field : fields) {
+                out.writeInt(field);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.SpatialConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the most mentioned GDELT entities of each type in a single pass with
+ * a fixed amount of memory.
+ * <p>
+ * Each entity type is summarised with the Space-Saving algorithm, which keeps
+ * a fixed number of counters. When a new entity is seen and every counter is
+ * in use, the counter with the smallest count is handed to the new entity and
+ * keeps its count as the error of the new entity. Any entity mentioned more
+ * often than the total mentions divided by the number of counters is
+ * guaranteed to be held, and each count overestimates the true number of
+ * mentions by at most its error.
+ * <p>
+ * The limit is shared evenly between the chosen entity types so that common
+ * types, such as themes, do not crowd out the others.
+ *
+ * @author canis_majoris
+ */
+public class GDELTTopEntities {
+
+    public static final String MENTIONS_ERROR_ATTRIBUTE = "Mentions Error";
+
+    // the counters kept for each entity to import, which bounds the error of the counts
+    private static final int COUNTERS_PER_ENTITY = 4;
+    private static final int MINIMUM_COUNTERS = 1 << 16;
+
+    private final int entitiesPerType;
+    private final Map<GDELTEntityTypes, Summary> summaries = new EnumMap<>(GDELTEntityTypes.class);
+
+    /**
+     * Create a summary of the chosen entity types.
+     *
+     * @param types the chosen entity types.
+     * @param maximumEntities the number of entities to import, shared between
+     * the chosen types.
+     */
+    public GDELTTopEntities(final Set<GDELTEntityTypes> types, final int maximumEntities) {
+        for (final GDELTEntityTypes type : types) {
+            summaries.put(type, null);
+        }
+        this.entitiesPerType = Math.max(1, maximumEntities / Math.max(1, summaries.size()));
+        final int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(MINIMUM_COUNTERS, (long) entitiesPerType * COUNTERS_PER_ENTITY));
+        summaries.replaceAll((type, summary) -> new Summary(capacity));
+    }
+
+    /**
+     * Add the exact counts of a chunk of rows to the summaries.
+     *
+     * @param chunk the counts of the chunk.
+     */
+    public synchronized void merge(final GDELTEntityAggregator chunk) {
+        chunk.forEach((key, mentions) -> {
+            final Summary summary = summaries.get(key.type());
+            if (summary != null) {
+                summary.offer(key.identifier(), mentions);
+            }
+        });
+    }
+
+    /**
+     * Build one record for each of the most mentioned entities of each type,
+     * most mentioned first.
+     *
+     * @return the records of the most mentioned entities.
+     */
+    public synchronized RecordStore toRecordStore() {
+        final RecordStore results = new GraphRecordStore();
+        for (final Map.Entry<GDELTEntityTypes, Summary> entry : summaries.entrySet()) {
+            final GDELTEntityTypes type = entry.getKey();
+            for (final Counter counter : entry.getValue().top(entitiesPerType)) {
+                results.add();
+                results.set(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER, counter.identifier);
+                results.set(GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE, type.getVertexType());
+                results.set(GraphRecordStoreUtilities.SOURCE + GDELTEntityAggregator.MENTIONS_ATTRIBUTE, Long.toString(counter.count));
+                if (counter.error > 0) {
+                    results.set(GraphRecordStoreUtilities.SOURCE + MENTIONS_ERROR_ATTRIBUTE, Long.toString(counter.error));
+                }
+                if (type == GDELTEntityTypes.Location) {
+                    results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.COUNTRY, counter.country);
+                    results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LATITUDE, counter.latitude);
+                    results.set(GraphRecordStoreUtilities.SOURCE + SpatialConcept.VertexAttribute.LONGITUDE, counter.longitude);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A Space-Saving summary of one entity type. The counters are kept in a
+     * binary min heap on their counts so that the smallest counter can be
+     * found and replaced in logarithmic time.
+     */
+    private static class Summary {
+
+        private final Map<String, Counter> counters = new HashMap<>();
+        private final Counter[] heap;
+        private int size = 0;
+
+        Summary(final int capacity) {
+            this.heap = new Counter[capacity];
+        }
+
+        void offer(final String identifier, final GDELTEntityAggregator.Mentions mentions) {
+            final Counter counter = counters.get(identifier);
+            if (counter != null) {
+                counter.count += mentions.getCount();
+                siftDown(counter.index);
+            } else if (size < heap.length) {
+                final Counter created = new Counter();
+                created.assign(identifier, mentions, 0);
+                created.index = size;
+                heap[size++] = created;
+                counters.put(identifier, created);
+                siftUp(created.index);
+            } else {
+                final Counter smallest = heap[0];
+                counters.remove(smallest.identifier);
+                smallest.assign(identifier, mentions, smallest.count);
+                counters.put(identifier, smallest);
+                siftDown(0);
+            }
+        }
+
+        Counter[] top(final int count) {
+            final Counter[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted, Comparator.comparingLong((Counter counter) -> counter.count).reversed()
+                    .thenComparing(counter -> counter.identifier));
+            return Arrays.copyOf(sorted, Math.min(count, size));
+        }
+
+        private void siftUp(int index) {
+            final Counter counter = heap[index];
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (heap[parent].count <= counter.count) {
+                    break;
+                }
+                place(heap[parent], index);
+                index = parent;
+            }
+            place(counter, index);
+        }
+
+        private void siftDown(int index) {
+            final Counter counter = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                    child++;
+                }
+                if (counter.count <= heap[child].count) {
+                    break;
+                }
+                place(heap[child], index);
+                index = child;
+            }
+            place(counter, index);
+        }
+
+        private void place(final Counter counter, final int index) {
+            heap[index] = counter;
+            counter.index = index;
+        }
+    }
+
+    private static class Counter {
+
+        private String identifier;
+        private long count;
+        private long error;
+        private int index;
+        private String country;
+        private String latitude;
+        private String longitude;
+
+        void assign(final String identifier, final GDELTEntityAggregator.Mentions mentions, final long error) {
+            this.identifier = identifier;
+            this.count = error + mentions.getCount();
+            this.error = error;
+            this.country = mentions.getCountry();
+            this.latitude = mentions.getLatitude();
+            this.longitude = mentions.getLongitude();
+        }
+    }
+}
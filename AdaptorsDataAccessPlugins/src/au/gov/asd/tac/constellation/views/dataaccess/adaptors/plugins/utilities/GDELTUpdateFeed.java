@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows the GDELT 15 minute update feed.
+ * <p>
+ * The latest slice is read from the lastupdate.txt listing published alongside
+ * the updates. The last slice ingested by each consumer is remembered in the
+ * {@value #STATE_FILE} file of the archive cache directory, so that each run
+ * only fetches the slices published since the previous one. A run never
+ * fetches more than {@value #MAXIMUM_SLICES} slices, which is one day of
+ * updates.
+ *
+ * @author canis_majoris
+ */
+public class GDELTUpdateFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTUpdateFeed.class.getName());
+
+    public static final int MAXIMUM_SLICES = 96;
+
+    private static final String STATE_FILE = "updates.properties";
+    private static final String LAST_UPDATE = "gdeltv2/lastupdate.txt";
+    private static final String GKG_SUFFIX = ".gkg.csv.zip";
+    private static final int TIMESTAMP_LENGTH = 14;
+    private static final Duration INTERVAL = Duration.ofMinutes(15);
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static GDELTUpdateFeed instance = null;
+
+    private final File state;
+    private final GDELTFetcher.Validators validators = new GDELTFetcher.Validators();
+    private ZonedDateTime latest = null;
+
+    public static synchronized GDELTUpdateFeed getInstance() {
+        if (instance == null) {
+            instance = new GDELTUpdateFeed(new File(GDELTArchiveCache.getInstance().getDirectory(), STATE_FILE));
+        }
+        return instance;
+    }
+
+    public GDELTUpdateFeed(final File state) {
+        this.state = state;
+    }
+
+    /**
+     * Read the time of the latest slice of the update feed. The listing is
+     * only downloaded again if it has changed since it was last read.
+     *
+     * @return the start of the latest slice, in UTC.
+     * @throws IOException if the listing could not be read or does not list a
+     * GKG update.
+     */
+    public synchronized ZonedDateTime getLatestSlice() throws IOException {
+        final String url = GDELTDateTime.getBaseUrl() + LAST_UPDATE;
+        if (latest == null) {
+            validators.clear();
+        }
+        final byte[] content = GDELTFetcher.getInstance().fetch(url, validators);
+        if (content == null) {
+            return latest;
+        }
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // each line is the size, md5 and url of one of the latest files
+                final String trimmed = line.trim();
+                if (!trimmed.endsWith(GKG_SUFFIX)) {
+                    continue;
+                }
+                final String name = trimmed.substring(trimmed.lastIndexOf('/') + 1);
+                final ZonedDateTime slice = parseTimestamp(name);
+                if (slice != null) {
+                    latest = slice;
+                    return slice;
+                }
+            }
+        }
+        latest = null;
+        throw new IOException("No GKG update listed in " + url);
+    }
+
+    /**
+     * Get the slices of the update feed that a consumer has not yet ingested,
+     * oldest first. A consumer that has not ingested any slices starts from
+     * the start of the range.
+     *
+     * @param consumer the name the consumer's progress is kept under.
+     * @param start the earliest time to fetch from, or null to fetch only the
+     * latest slice on the first run.
+     * @param end the latest time to fetch up to, or null to follow the feed.
+     * @return the new slices, which may be empty.
+     * @throws IOException if the latest slice could not be read.
+     */
+    public synchronized List<GDELTDateTime> getNewSlices(final String consumer, final ZonedDateTime start, final ZonedDateTime end) throws IOException {
+        ZonedDateTime last = getLatestSlice();
+        if (end != null && end.isBefore(last)) {
+            last = floor(end);
+        }
+
+        final ZonedDateTime ingested = getLastSlice(consumer);
+        ZonedDateTime first = start == null ? last : floor(start);
+        if (ingested != null && !ingested.isBefore(first)) {
+            first = ingested.plus(INTERVAL);
+        }
+        final ZonedDateTime earliest = last.minus(INTERVAL.multipliedBy(MAXIMUM_SLICES - 1L));
+        if (first.isBefore(earliest)) {
+            first = earliest;
+        }
+
+        final List<GDELTDateTime> slices = new ArrayList<>();
+        for (ZonedDateTime slice = first; !slice.isAfter(last); slice = slice.plus(INTERVAL)) {
+            slices.add(GDELTDateTime.forUpdate(slice));
+        }
+        return slices;
+    }
+
+    /**
+     * Get the last slice ingested by a consumer.
+     *
+     * @param consumer the name the consumer's progress is kept under.
+     * @return the start of the slice, or null if nothing has been ingested.
+     */
+    public synchronized ZonedDateTime getLastSlice(final String consumer) {
+        final String value = load().getProperty(consumer);
+        return value == null ? null : parseTimestamp(value);
+    }
+
+    /**
+     * Record the last slice ingested by a consumer. This should only be called
+     * once every slice up to and including it has been ingested.
+     *
+     * @param consumer the name the consumer's progress is kept under.
+     * @param slice the last slice ingested.
+     * @throws IOException if the state could not be saved.
+     */
+    public synchronized void setLastSlice(final String consumer, final GDELTDateTime slice) throws IOException {
+        final Properties properties = load();
+        properties.setProperty(consumer, slice.getDate());
+
+        final File directory = state.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        final Path part = Files.createTempFile(directory.toPath(), state.getName(), ".part");
+        try {
+            try (final OutputStream out = new FileOutputStream(part.toFile())) {
+                properties.store(out, "Last GDELT update slice ingested by each consumer");
+            }
+            try {
+                Files.move(part, state.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(part, state.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private Properties load() {
+        final Properties properties = new Properties();
+        if (state.isFile()) {
+            try (final InputStream in = new FileInputStream(state)) {
+                properties.load(in);
+            } catch (final IOException ex) {
+                LOGGER.log(Level.WARNING, "Unable to read GDELT update state {0}", state);
+            }
+        }
+        return properties;
+    }
+
+    private static ZonedDateTime floor(final ZonedDateTime dateTime) {
+        final ZonedDateTime utc = dateTime.withZoneSameInstant(ZoneOffset.UTC).withSecond(0).withNano(0);
+        return utc.withMinute(utc.getMinute() - utc.getMinute() % 15);
+    }
+
+    private static ZonedDateTime parseTimestamp(final String name) {
+        if (name.length() < TIMESTAMP_LENGTH) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(name.substring(0, TIMESTAMP_LENGTH), TIMESTAMP_FORMAT).atZone(ZoneOffset.UTC);
+        } catch (final DateTimeParseException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the byte budget of {@link GDELTArchiveCache}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTArchiveCacheNGTest {
+
+    private static final String OLDER = "20240301.gkg.csv";
+    private static final String NEWER = "20240302.gkg.csv";
+
+    private File directory;
+    private File index;
+
+    @BeforeMethod
+    public void setUpMethod() throws IOException {
+        directory = Files.createTempDirectory("gdelt-cache").toFile();
+        index = new File(directory, "index");
+        index.mkdirs();
+    }
+
+    @AfterMethod
+    public void tearDownMethod() {
+        for (final File parent : new File[]{index, directory}) {
+            final File[] files = parent.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    file.delete();
+                }
+            }
+            parent.delete();
+        }
+    }
+
+    /**
+     * The files derived from an archive count towards its budget, and are
+     * evicted with it. Derived files of other formats are removed.
+     *
+     * @throws IOException if the cache files could not be written.
+     */
+    @Test
+    public void testDerivedFilesCountTowardsBudget() throws IOException {
+        write(new File(directory, OLDER + ".zip"), 100, 1000);
+        write(new File(index, OLDER + ".snap"), 400, 1000);
+        write(new File(index, OLDER + ".blocks"), 200, 1000);
+        write(new File(index, OLDER + ".rows.idx"), 40, 1000);
+        write(new File(directory, NEWER + ".zip"), 100, 2000);
+        // a derived file of an evicted archive is left over
+        write(new File(index, "20240229.gkg.csv.snap"), 50, 0);
+        // as are the local copy and index of a format that is no longer read
+        write(new File(index, OLDER), 70, 1000);
+        write(new File(index, OLDER + ".idx"), 30, 1000);
+
+        final GDELTArchiveCache cache = new GDELTArchiveCache(directory, 10000);
+        assertEquals(cache.getCurrentSize(), 840L);
+        assertFalse(new File(index, "20240229.gkg.csv.snap").exists());
+        assertFalse(new File(index, OLDER).exists());
+        assertFalse(new File(index, OLDER + ".idx").exists());
+
+        // deriving a file from the newer archive takes the cache over budget, which evicts the older archive
+        cache.setMaximumSize(900);
+        write(new File(index, NEWER + ".snap"), 300, 3000);
+        cache.updateDerivedSize(NEWER);
+        assertEquals(cache.getCurrentSize(), 400L);
+        assertFalse(new File(directory, OLDER + ".zip").exists());
+        assertFalse(new File(index, OLDER + ".snap").exists());
+        assertFalse(new File(index, OLDER + ".blocks").exists());
+        assertFalse(new File(index, OLDER + ".rows.idx").exists());
+        assertTrue(new File(index, NEWER + ".snap").exists());
+    }
+
+    /**
+     * Rewriting a derived file replaces its size rather than adding to it.
+     *
+     * @throws IOException if the cache files could not be written.
+     */
+    @Test
+    public void testRewrittenDerivedFileIsCountedOnce() throws IOException {
+        write(new File(directory, OLDER + ".zip"), 100, 1000);
+        final GDELTArchiveCache cache = new GDELTArchiveCache(directory, 10000);
+        write(new File(index, OLDER + ".snap"), 400, 2000);
+        cache.updateDerivedSize(OLDER);
+        write(new File(index, OLDER + ".snap"), 300, 3000);
+        cache.updateDerivedSize(OLDER);
+        assertEquals(cache.getCurrentSize(), 400L);
+    }
+
+    private static void write(final File file, final int length, final long modified) throws IOException {
+        Files.write(file.toPath(), new byte[length]);
+        file.setLastModified(modified);
+    }
+}
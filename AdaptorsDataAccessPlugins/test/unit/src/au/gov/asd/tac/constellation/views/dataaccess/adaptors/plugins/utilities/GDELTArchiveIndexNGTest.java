@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the rows listed by {@link GDELTArchiveIndex} and read back from
+ * the local copies of a day.
+ *
+ * @author canis_majoris
+ */
+public class GDELTArchiveIndexNGTest {
+
+    private static final int ROWS = 3000;
+    private static final String KEY = "20240501.gkg.csv";
+
+    private static File directory;
+    private static byte[] csv;
+    private static GDELTSnapshot snapshot;
+    private static GDELTBlockArchive archive;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        directory = Files.createTempDirectory("gdelt-index").toFile();
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            new GDELTSyntheticDay(ROWS, 5).writeCsv(new GDELTDateTime(ZonedDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC)), out);
+            csv = out.toByteArray();
+        }
+        final File file = new File(directory, KEY + GDELTSnapshot.SNAPSHOT_EXTENSION);
+        GDELTSnapshot.build(new ByteArrayInputStream(csv), GDELTRowLayout.DAILY, file);
+        snapshot = GDELTSnapshot.load(file);
+        archive = GDELTBlockArchive.build(new ByteArrayInputStream(csv), new File(directory, KEY + GDELTBlockArchive.BLOCKS_EXTENSION),
+                new File(directory, KEY + GDELTBlockArchive.INDEX_EXTENSION), GDELTRowLayout.DAILY);
+        assertTrue(parseAll(new GDELTParsingPipeline.CsvSource(new ByteArrayInputStream(csv), GDELTRowLayout.DAILY)));
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * A parse that leaves rows unread does not write an index, and one that
+     * reads every row writes an index of every row.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testIndexIsWrittenOnceEveryRowIsRead() throws IOException {
+        final String key = "20240502.gkg.csv";
+        final File file = new File(directory, key + GDELTArchiveIndex.INDEX_EXTENSION);
+        final GDELTRowSource partial = GDELTArchiveIndex.index(directory, key, new GDELTParsingPipeline.CsvSource(new ByteArrayInputStream(csv), GDELTRowLayout.DAILY));
+        assertTrue(partial.parse(() -> false, rows -> rows.next(), first -> {
+        }));
+        assertFalse(file.exists());
+
+        final GDELTRowSource complete = GDELTArchiveIndex.index(directory, key, snapshot);
+        assertTrue(complete.parse(() -> false, GDELTArchiveIndexNGTest::count, rows -> {
+        }));
+        assertTrue(file.isFile());
+        assertEquals(GDELTArchiveIndex.load(file).getRowCount(), ROWS);
+    }
+
+    /**
+     * The snapshot and the block archive both read exactly the rows that
+     * mention a person, an organisation or a location, by its full name, in
+     * row order and with their row numbers.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testFindReadsRowsMentioningSeeds() throws IOException {
+        final String location;
+        try (final GDELTRow rows = snapshot.getRows(0, ROWS)) {
+            while (rows.next() && rows.count(GDELTRowScanner.LOCATIONS) == 0) {
+                // find a row with a location
+            }
+            location = GDELTEntityTypes.Location.getIdentifier(rows, 0);
+        }
+        final GDELTSeeds seeds = GDELTSeeds.fromLabels(List.of(
+                GDELTSyntheticDay.getPerson(0) + "<Person>",
+                GDELTSyntheticDay.getOrganisation(3) + "<Organisation>",
+                location + "<Location>"));
+
+        final List<String> expected = new ArrayList<>();
+        try (final GDELTRowScanner scanner = new GDELTRowScanner(new ByteArrayInputStream(csv))) {
+            scanner.next();
+            long ordinal = 0;
+            while (scanner.next()) {
+                if (mentions(scanner, seeds)) {
+                    expected.add(ordinal + " " + scanner.get(GDELTRowScanner.SOURCE_URLS));
+                }
+                ordinal++;
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertTrue(expected.size() < ROWS);
+
+        assertEquals(read(snapshot.find(seeds)), expected);
+        assertEquals(read(archive.find(seeds)), expected);
+    }
+
+    /**
+     * Seeds that are not indexed, or a day that has not been indexed, leave
+     * every row to be read, and an unknown seed finds no rows.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testFindLeavesUnindexedSeedsToScan() throws IOException {
+        final GDELTSeeds theme = GDELTSeeds.fromLabels(List.of("TAX_FNCACT<" + GDELTEntityTypes.Theme.getVertexType().getName() + ">"));
+        assertNull(snapshot.find(theme));
+        assertNull(archive.find(theme));
+
+        final GDELTSeeds nobody = GDELTSeeds.fromLabels(List.of("nobody at all<Person>"));
+        assertEquals(read(archive.find(nobody)), List.of());
+        assertNull(GDELTArchiveIndex.open(directory, "20240503.gkg.csv"));
+    }
+
+    private static boolean parseAll(final GDELTRowSource source) throws IOException {
+        return GDELTArchiveIndex.index(directory, KEY, source).parse(() -> false, GDELTArchiveIndexNGTest::count, rows -> {
+        });
+    }
+
+    private static int count(final GDELTRow rows) throws IOException {
+        int count = 0;
+        while (rows.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean mentions(final GDELTRow row, final GDELTSeeds seeds) {
+        for (final GDELTEntityTypes type : GDELTEntityTypes.values()) {
+            for (int j = 0; j < row.count(type.getField()); j++) {
+                if (seeds.getIdentifiers(type.getVertexType().getName()).contains(type.getIdentifier(row, j))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<String> read(final GDELTRow rows) throws IOException {
+        final List<String> found = new ArrayList<>();
+        try (rows) {
+            while (rows.next()) {
+                found.add(rows.getOrdinal() + " " + rows.get(GDELTRowScanner.SOURCE_URLS));
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of when {@link GDELTArchiveManifest} reads the manifest from a
+ * {@link GDELTTestServer} again.
+ *
+ * @author canis_majoris
+ */
+public class GDELTArchiveManifestNGTest {
+
+    private static final ZonedDateTime FIRST_DAY = ZonedDateTime.of(2024, 8, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final long LONG_TTL = 60L * 60 * 1000;
+    private static final long SHORT_TTL = 1;
+
+    private GDELTTestServer server;
+    private GDELTSyntheticDay day;
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+        server = new GDELTTestServer();
+        day = new GDELTSyntheticDay(10, 3);
+        // a gap on the third day
+        addDay(0);
+        addDay(1);
+        addDay(3);
+    }
+
+    @AfterMethod
+    public void tearDownMethod() {
+        server.close();
+    }
+
+    /**
+     * The manifest is read once and then kept until its time to live has
+     * passed, even when a day is added.
+     *
+     * @throws IOException if a day could not be added.
+     */
+    @Test
+    public void testManifestIsKeptWithinTimeToLive() throws IOException {
+        final GDELTArchiveManifest manifest = new GDELTArchiveManifest(LONG_TTL);
+        assertEquals(getDays(manifest), List.of(getDate(0), getDate(1), getDate(3)));
+        assertEquals(server.getManifestRequests(), 1);
+
+        addDay(4);
+        assertEquals(getDays(manifest), List.of(getDate(0), getDate(1), getDate(3)));
+        assertEquals(manifest.getLatest(FIRST_DAY.plusDays(10)).getDate(), getDate(3));
+        assertEquals(server.getManifestRequests(), 1);
+    }
+
+    /**
+     * Once its time to live has passed the manifest is revalidated, keeping
+     * the days it has while the manifest is unchanged and reading the new
+     * days once it changes.
+     *
+     * @throws Exception if a day could not be added or the wait was
+     * interrupted.
+     */
+    @Test
+    public void testManifestIsRevalidatedAfterTimeToLive() throws Exception {
+        final GDELTArchiveManifest manifest = new GDELTArchiveManifest(SHORT_TTL);
+        assertEquals(getDays(manifest), List.of(getDate(0), getDate(1), getDate(3)));
+        final long served = server.getBytesServed();
+
+        Thread.sleep(SHORT_TTL + 10);
+        // unchanged, so answered without the manifest
+        assertEquals(getDays(manifest), List.of(getDate(0), getDate(1), getDate(3)));
+        assertEquals(server.getManifestRequests(), 2);
+        assertEquals(server.getBytesServed(), served);
+
+        addDay(4);
+        Thread.sleep(SHORT_TTL + 10);
+        assertEquals(getDays(manifest), List.of(getDate(0), getDate(1), getDate(3), getDate(4)));
+        assertEquals(server.getManifestRequests(), 3);
+    }
+
+    /**
+     * An invalidated manifest is read again when next used, however long its
+     * time to live.
+     *
+     * @throws IOException if a day could not be added.
+     */
+    @Test
+    public void testInvalidatedManifestIsReadAgain() throws IOException {
+        final GDELTArchiveManifest manifest = new GDELTArchiveManifest(LONG_TTL);
+        getDays(manifest);
+        addDay(4);
+        manifest.invalidate();
+        assertEquals(getDays(manifest), List.of(getDate(0), getDate(1), getDate(3), getDate(4)));
+        assertEquals(server.getManifestRequests(), 2);
+    }
+
+    /**
+     * The latest day with an archive skips back over the days without one,
+     * and there is none before the first day.
+     */
+    @Test
+    public void testLatest() {
+        final GDELTArchiveManifest manifest = new GDELTArchiveManifest(LONG_TTL);
+        assertEquals(manifest.getLatest(FIRST_DAY.plusDays(2)).getDate(), getDate(1));
+        assertEquals(manifest.getLatest(FIRST_DAY.plusDays(3)).getDate(), getDate(3));
+        assertNull(manifest.getLatest(FIRST_DAY.minusDays(1)));
+        assertEquals(server.getManifestRequests(), 1);
+    }
+
+    private static List<String> getDays(final GDELTArchiveManifest manifest) {
+        final List<String> dates = new ArrayList<>();
+        for (final GDELTDateTime gdt : manifest.getDays(FIRST_DAY, FIRST_DAY.plusDays(6))) {
+            dates.add(gdt.getDate());
+        }
+        return dates;
+    }
+
+    private void addDay(final int offset) throws IOException {
+        server.addDay(new GDELTDateTime(FIRST_DAY.plusDays(offset)), day);
+    }
+
+    private static String getDate(final int offset) {
+        return new GDELTDateTime(FIRST_DAY.plusDays(offset)).getDate();
+    }
+}
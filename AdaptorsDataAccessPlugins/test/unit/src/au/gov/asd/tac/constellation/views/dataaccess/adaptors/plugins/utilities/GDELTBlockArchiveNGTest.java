@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the BGZF blocks written by {@link GDELTBlockArchive}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTBlockArchiveNGTest {
+
+    private static final int ROWS = 3000;
+
+    private static File directory;
+    private static byte[] csv;
+    private static GDELTBlockArchive archive;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        directory = Files.createTempDirectory("gdelt-blocks").toFile();
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            new GDELTSyntheticDay(ROWS, 7).writeCsv(new GDELTDateTime(ZonedDateTime.of(2024, 4, 1, 0, 0, 0, 0, ZoneOffset.UTC)), out);
+            csv = out.toByteArray();
+        }
+        archive = GDELTBlockArchive.build(new ByteArrayInputStream(csv), getData(), getIndex(), GDELTRowLayout.DAILY);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * The blocks are gzip members, so the whole file reads back as the CSV
+     * with any gzip reader.
+     *
+     * @throws IOException if the blocks could not be read.
+     */
+    @Test
+    public void testBlocksReadAsGzip() throws IOException {
+        assertTrue(archive.getBlockCount() > 1);
+        assertEquals(archive.getLength(), (long) csv.length);
+        try (final InputStream in = new GZIPInputStream(new FileInputStream(getData()))) {
+            assertEquals(in.readAllBytes(), csv);
+        }
+        assertEquals(archive.inflate(0, archive.getBlockCount()), csv);
+    }
+
+    /**
+     * Any block can be read on its own from its offsets, and every block but
+     * the last ends on a row boundary.
+     *
+     * @throws IOException if the blocks could not be read.
+     */
+    @Test
+    public void testBlocksSeek() throws IOException {
+        for (int block = 0; block < archive.getBlockCount(); block++) {
+            final byte[] expected = Arrays.copyOfRange(csv, (int) archive.getOffset(block), (int) archive.getOffset(block + 1));
+            assertEquals(archive.inflate(block, block + 1), expected);
+            assertEquals(expected[expected.length - 1], (byte) '\n');
+        }
+
+        // a gzip reader started at the member of a block reads the CSV from that block onwards
+        final int middle = archive.getBlockCount() / 2;
+        try (final FileInputStream file = new FileInputStream(getData())) {
+            file.getChannel().position(archive.getCompressedOffset(middle));
+            try (final InputStream in = new GZIPInputStream(file)) {
+                assertEquals(in.readAllBytes(), Arrays.copyOfRange(csv, (int) archive.getOffset(middle), csv.length));
+            }
+        }
+    }
+
+    /**
+     * The block index is read back with the same offsets, and every row is
+     * parsed once across the runs of blocks.
+     *
+     * @throws IOException if the blocks could not be read.
+     */
+    @Test
+    public void testIndexRoundTrip() throws IOException {
+        final GDELTBlockArchive loaded = GDELTBlockArchive.load(getData(), getIndex(), GDELTRowLayout.DAILY);
+        assertEquals(loaded.getBlockCount(), archive.getBlockCount());
+        for (int block = 0; block <= archive.getBlockCount(); block++) {
+            assertEquals(loaded.getOffset(block), archive.getOffset(block));
+            assertEquals(loaded.getCompressedOffset(block), archive.getCompressedOffset(block));
+        }
+
+        final AtomicInteger rows = new AtomicInteger();
+        assertTrue(loaded.parse(() -> false, scanner -> {
+            int count = 0;
+            while (scanner.next()) {
+                count++;
+            }
+            return count;
+        }, rows::addAndGet));
+        assertEquals(rows.get(), ROWS);
+    }
+
+    private static File getData() {
+        return new File(directory, "20240401.gkg.csv.blocks");
+    }
+
+    private static File getIndex() {
+        return new File(directory, "20240401.gkg.csv.blocks.idx");
+    }
+}
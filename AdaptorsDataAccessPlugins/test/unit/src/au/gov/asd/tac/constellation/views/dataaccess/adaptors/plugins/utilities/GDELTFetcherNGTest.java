@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link GDELTFetcher} against a local {@link GDELTTestServer}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTFetcherNGTest {
+
+    private static final ZonedDateTime DAY = ZonedDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    // much longer than the timeout of a fetcher that gives up on a stalled download
+    private static final long STALL_TIME = 20000;
+
+    private static GDELTTestServer server;
+    private static File directory;
+    private static byte[] archive;
+    private static GDELTFetcher fetcher;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        server = new GDELTTestServer();
+        archive = Files.readAllBytes(server.addDay(new GDELTDateTime(DAY), new GDELTSyntheticDay(500, 7)).toPath());
+        directory = Files.createTempDirectory("gdelt-fetcher").toFile();
+        fetcher = new GDELTFetcher(Duration.ofSeconds(10));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        server.close();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * A partial file is resumed with a range request for the rest of the
+     * file.
+     *
+     * @throws IOException if the download failed.
+     */
+    @Test
+    public void testResumesPartialFile() throws IOException {
+        final File part = writePart("resume", Arrays.copyOf(archive, 1000));
+        final long served = server.getBytesServed();
+        final AtomicInteger downloaded = new AtomicInteger();
+
+        assertEquals(download(part, downloaded), archive);
+        assertEquals(server.getBytesServed() - served, archive.length - 1000L);
+        assertEquals(downloaded.get(), 1);
+        assertEquals(Files.readAllBytes(part.toPath()), archive);
+    }
+
+    /**
+     * A partial file that holds the whole file is answered with a 416 that
+     * gives the same length, and is read from disk without fetching it again.
+     *
+     * @throws IOException if the download failed.
+     */
+    @Test
+    public void testCompletePartialFileIsNotFetchedAgain() throws IOException {
+        final File part = writePart("complete", archive);
+        final long served = server.getBytesServed();
+        final AtomicInteger downloaded = new AtomicInteger();
+
+        assertEquals(download(part, downloaded), archive);
+        assertEquals(server.getBytesServed(), served);
+        assertEquals(downloaded.get(), 1);
+    }
+
+    /**
+     * A partial file longer than the file on the server is answered with a
+     * 416 that gives a different length, so it is discarded and the whole file
+     * fetched again.
+     *
+     * @throws IOException if the download failed.
+     */
+    @Test
+    public void testMismatchedPartialFileIsFetchedAgain() throws IOException {
+        final byte[] stale = Arrays.copyOf(archive, archive.length + 100);
+        Arrays.fill(stale, archive.length, stale.length, (byte) 'x');
+        final File part = writePart("stale", stale);
+        final long served = server.getBytesServed();
+        final AtomicInteger downloaded = new AtomicInteger();
+
+        assertEquals(download(part, downloaded), archive);
+        assertEquals(server.getBytesServed() - served, (long) archive.length);
+        assertEquals(downloaded.get(), 1);
+        assertEquals(Files.readAllBytes(part.toPath()), archive);
+    }
+
+    /**
+     * A download whose body stalls part way through is aborted once nothing
+     * has been read for the timeout, and resumed with a range request from
+     * the end of what was saved.
+     *
+     * @throws IOException if the download failed.
+     */
+    @Test
+    public void testStalledDownloadIsResumed() throws IOException {
+        final GDELTFetcher impatient = new GDELTFetcher(Duration.ofSeconds(1));
+        final File part = new File(directory, "stalled.part");
+        final long served = server.getBytesServed();
+        final int requests = server.getArchiveRequests();
+        final AtomicInteger downloaded = new AtomicInteger();
+
+        server.stallArchives(1, 1000, STALL_TIME);
+        try (final InputStream in = impatient.download(new GDELTDateTime(DAY).getUrl(), part, file -> downloaded.incrementAndGet())) {
+            assertEquals(in.readAllBytes(), archive);
+        }
+        assertEquals(server.getArchiveRequests(), requests + 2);
+        assertEquals(server.getBytesServed() - served, (long) archive.length);
+        assertEquals(downloaded.get(), 1);
+        assertEquals(Files.readAllBytes(part.toPath()), archive);
+    }
+
+    /**
+     * A read that stalls on every attempt fails once the download has been
+     * tried the most times, keeping what was saved so that the download can
+     * be resumed once the server recovers.
+     *
+     * @throws IOException if the download could not be resumed.
+     */
+    @Test
+    public void testRepeatedlyStalledReadFails() throws IOException {
+        final GDELTFetcher impatient = new GDELTFetcher(Duration.ofSeconds(1));
+        final File part = writePart("stalling", Arrays.copyOf(archive, 1000));
+        final int requests = server.getArchiveRequests();
+        final AtomicInteger downloaded = new AtomicInteger();
+
+        server.stallArchives(3, 0, STALL_TIME);
+        final InputStream in = impatient.download(new GDELTDateTime(DAY).getUrl(), part, file -> downloaded.incrementAndGet());
+        try {
+            in.readAllBytes();
+            fail("Expected the stalled download to fail");
+        } catch (final IOException ex) {
+            assertTrue(ex.getMessage().contains("stalled"), ex.getMessage());
+        }
+        assertEquals(server.getArchiveRequests(), requests + 3);
+        assertEquals(downloaded.get(), 0);
+        assertEquals(Files.readAllBytes(part.toPath()), Arrays.copyOf(archive, 1000));
+
+        // the archive is small enough that closing the stream finishes it
+        in.close();
+        assertEquals(downloaded.get(), 1);
+        assertEquals(Files.readAllBytes(part.toPath()), archive);
+    }
+
+    /**
+     * The 416 length is read from the Content-Range header.
+     */
+    @Test
+    public void testTotalLength() {
+        assertEquals(GDELTFetcher.getTotalLength("bytes */1234"), 1234L);
+        assertEquals(GDELTFetcher.getTotalLength("bytes 0-9/20"), 20L);
+        assertEquals(GDELTFetcher.getTotalLength("bytes 0-9/*"), -1L);
+        assertEquals(GDELTFetcher.getTotalLength(null), -1L);
+    }
+
+    /**
+     * A listing is only fetched again once it has changed, and is answered
+     * with a 304 until then.
+     *
+     * @throws IOException if the listing could not be fetched.
+     */
+    @Test
+    public void testUnchangedListingIsNotFetchedAgain() throws IOException {
+        final String url = server.getUrl() + "gkg/md5sums";
+        final GDELTFetcher.Validators validators = new GDELTFetcher.Validators();
+
+        final byte[] first = fetcher.fetch(url, validators);
+        assertNotNull(first);
+        final int requests = server.getManifestRequests();
+        assertNull(fetcher.fetch(url, validators));
+        assertEquals(server.getManifestRequests(), requests + 1);
+
+        server.addDay(new GDELTDateTime(DAY.plusDays(1)), new GDELTSyntheticDay(10, 7));
+        final byte[] changed = fetcher.fetch(url, validators);
+        assertNotNull(changed);
+        assertFalse(Arrays.equals(changed, first));
+    }
+
+    /**
+     * A download holds one of the download slots until the whole file has
+     * been saved, and a plain stream holds one until it is closed.
+     *
+     * @throws IOException if the download failed.
+     */
+    @Test
+    public void testDownloadsAreCapped() throws IOException {
+        final GDELTFetcher capped = new GDELTFetcher(Duration.ofSeconds(10), 2);
+        final String url = new GDELTDateTime(DAY).getUrl();
+        assertEquals(capped.getAvailableDownloads(), 2);
+
+        try (final InputStream in = capped.download(url, new File(directory, "capped.part"), file -> {
+        })) {
+            assertEquals(capped.getAvailableDownloads(), 1);
+            try (final InputStream plain = capped.open(url)) {
+                assertEquals(capped.getAvailableDownloads(), 0);
+            }
+            assertEquals(capped.getAvailableDownloads(), 1);
+            assertEquals(in.readAllBytes(), archive);
+            assertEquals(capped.getAvailableDownloads(), 2);
+        }
+        assertEquals(capped.getAvailableDownloads(), 2);
+    }
+
+    private static File writePart(final String name, final byte[] content) throws IOException {
+        final File part = new File(directory, name + ".part");
+        Files.write(part.toPath(), content);
+        return part;
+    }
+
+    private static byte[] download(final File part, final AtomicInteger downloaded) throws IOException {
+        try (final InputStream in = fetcher.download(new GDELTDateTime(DAY).getUrl(), part, file -> downloaded.incrementAndGet())) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the GDELT queries against synthetic days served by a local
+ * {@link GDELTTestServer}, so that they run without the public server.
+ * <p>
+ * The benchmark is only run when the scales of the days to benchmark are set,
+ * such as -Dconstellation.gdelt.benchmark.scales=1,10,100 for a normal day, a
+ * day ten times larger and a day a hundred times larger.
+ *
+ * @author canis_majoris
+ */
+public class GDELTOfflineNGTest {
+
+    private static final Logger LOGGER = Logger.getLogger(GDELTOfflineNGTest.class.getName());
+
+    public static final String BENCHMARK_SCALES_PROPERTY = "constellation.gdelt.benchmark.scales";
+
+    private static final int ROWS = 2000;
+    private static final long SEED = 42;
+    private static final ZonedDateTime FIRST_DAY = ZonedDateTime.of(2024, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    // the day between the served days has no archive
+    private static final ZonedDateTime LAST_DAY = FIRST_DAY.plusDays(2);
+    private static final Set<GDELTEntityTypes> PEOPLE = EnumSet.of(GDELTEntityTypes.Person);
+
+    private static File cacheDirectory;
+    private static GDELTTestServer server;
+    private static GDELTSyntheticDay day;
+    private static File firstArchive;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        // the cache reads its directory once, so it must be set before the cache is first used
+        cacheDirectory = Files.createTempDirectory("gdelt-cache").toFile();
+        System.setProperty(GDELTArchiveCache.CACHE_DIRECTORY_PROPERTY, cacheDirectory.getAbsolutePath());
+
+        day = new GDELTSyntheticDay(ROWS, SEED).setPersons(5000, 1.1);
+        server = new GDELTTestServer();
+        firstArchive = server.addDay(new GDELTDateTime(FIRST_DAY), day);
+        server.addDay(new GDELTDateTime(LAST_DAY), day);
+        // only the first day has an Events export
+        server.addEvents(new GDELTDateTime(FIRST_DAY), day);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        server.close();
+        delete(cacheDirectory);
+    }
+
+    /**
+     * A day is generated from its seed and date alone.
+     *
+     * @throws IOException if the day could not be generated.
+     */
+    @Test
+    public void testGeneratorIsDeterministic() throws IOException {
+        final byte[] first = generate(day, FIRST_DAY);
+        assertEquals(generate(new GDELTSyntheticDay(ROWS, SEED).setPersons(5000, 1.1), FIRST_DAY), first);
+        assertFalse(Arrays.equals(generate(day, LAST_DAY), first));
+        assertFalse(Arrays.equals(generate(new GDELTSyntheticDay(ROWS, SEED + 1).setPersons(5000, 1.1), FIRST_DAY), first));
+    }
+
+    /**
+     * Every row of a generated day is scanned with the fields GDELT writes.
+     *
+     * @throws IOException if the day could not be scanned.
+     */
+    @Test
+    public void testGeneratedRowsScan() throws IOException {
+        int rows = 0;
+        int locations = 0;
+        try (final GDELTRowScanner scanner = new GDELTRowScanner(new ByteArrayInputStream(generate(day, FIRST_DAY)))) {
+            // the header row
+            assertTrue(scanner.next());
+            while (scanner.next()) {
+                rows++;
+                assertEquals(scanner.get(GDELTRowScanner.DATE), "20240301");
+                assertTrue(Integer.parseInt(scanner.get(GDELTRowScanner.NUMBER_OF_ARTICLES)) > 0);
+                assertTrue(scanner.count(GDELTRowScanner.SOURCES) > 0);
+                assertFalse(Double.isNaN(scanner.getDouble(GDELTRowScanner.TONE)));
+                for (int j = 0; j < scanner.count(GDELTRowScanner.LOCATIONS); j++) {
+                    locations++;
+                    final double latitude = scanner.getDouble(GDELTRowScanner.LOCATIONS, j, 4);
+                    final double longitude = scanner.getDouble(GDELTRowScanner.LOCATIONS, j, 5);
+                    assertTrue(latitude >= -90 && latitude <= 90);
+                    assertTrue(longitude >= -180 && longitude <= 180);
+                    assertEquals(scanner.get(GDELTRowScanner.LOCATIONS, j, 2).length(), 2);
+                }
+            }
+        }
+        assertEquals(rows, ROWS);
+        assertTrue(locations > 0);
+    }
+
+    /**
+     * The most mentioned people are mentioned far more often than the rest.
+     *
+     * @throws IOException if the day could not be scanned.
+     */
+    @Test
+    public void testPeopleFollowZipf() throws IOException {
+        final Map<String, Integer> mentions = countPeople(generate(day, FIRST_DAY));
+        final int top = mentions.getOrDefault(GDELTSyntheticDay.getPerson(0), 0);
+        final int tenth = mentions.getOrDefault(GDELTSyntheticDay.getPerson(9), 0);
+        assertTrue(top > 5 * Math.max(1, tenth), "top " + top + ", tenth " + tenth);
+        assertTrue(mentions.size() > 500);
+    }
+
+    /**
+     * The server resumes a download from a byte range.
+     *
+     * @throws Exception if the request failed.
+     */
+    @Test
+    public void testServerResumesFromRange() throws Exception {
+        final GDELTDateTime gdt = new GDELTDateTime(FIRST_DAY);
+        final byte[] archive = Files.readAllBytes(firstArchive.toPath());
+
+        final HttpClient client = HttpClient.newHttpClient();
+        final HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(gdt.getUrl())).header("Range", "bytes=100-").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(response.statusCode(), 206);
+        assertEquals(response.body(), Arrays.copyOfRange(archive, 100, archive.length));
+
+        final HttpResponse<byte[]> missing = client.send(HttpRequest.newBuilder(URI.create(new GDELTDateTime(FIRST_DAY.plusDays(1)).getUrl())).build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(missing.statusCode(), 404);
+    }
+
+    /**
+     * The manifest lists only the days that are served.
+     */
+    @Test
+    public void testManifestListsServedDays() {
+        final List<GDELTDateTime> days = GDELTArchiveManifest.getInstance().getDays(FIRST_DAY, LAST_DAY);
+        assertNotNull(days);
+        assertEquals(days.size(), 2);
+        assertEquals(days.get(0).getDate(), "20240301");
+        assertEquals(days.get(1).getDate(), "20240303");
+    }
+
+    /**
+     * Importing over a range reads every mention in the served days, and
+     * importing again reads the archives from the cache.
+     *
+     * @throws Exception if the import failed.
+     */
+    @Test
+    public void testImportIsServedThenCached() throws Exception {
+        final String top = GDELTSyntheticDay.getPerson(0);
+        final int expected = countPeople(generate(day, FIRST_DAY)).get(top) + countPeople(generate(day, LAST_DAY)).get(top);
+
+        final RecordStore results = importPeople();
+        assertNotNull(results);
+        assertEquals(countIdentifier(results, top), expected);
+
+        final int requests = server.getArchiveRequests();
+        assertEquals(countIdentifier(importPeople(), top), expected);
+        assertEquals(server.getArchiveRequests(), requests);
+    }
+
+    /**
+     * Extending from the most mentioned person finds the people mentioned
+     * with them.
+     *
+     * @throws Exception if the extend failed.
+     */
+    @Test
+    public void testExtendFromTopPerson() throws Exception {
+        final GDELTSeeds seeds = GDELTSeeds.fromLabels(List.of(GDELTSyntheticDay.getPerson(0) + "<Person>"));
+        final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(List.of(GDELTRelationshipTypes.Person_Person.name()));
+        final GDELTResultLimit limit = new GDELTResultLimit(100);
+        final RecordStore results = GDELTRangeUtilities.retrieveRange(FIRST_DAY, LAST_DAY, limit,
+                (gdt, dayLimit) -> GDELTExtendingUtilities.hopRelationships(gdt, plan, GDELTRowFilter.NONE, dayLimit, seeds), GDELTProgress.NONE);
+        assertNotNull(results);
+        assertTrue(results.size() > 0);
+        assertTrue(results.size() <= 100);
+    }
+
+    /**
+     * A day is only copied once a query has read the whole of it, after which
+     * it is read from its snapshot with the same results.
+     *
+     * @throws Exception if the import failed.
+     */
+    @Test
+    public void testSnapshotIsBuiltAfterCompleteRead() throws Exception {
+        final GDELTDateTime gdt = new GDELTDateTime(FIRST_DAY.plusDays(20));
+        server.addDay(gdt, day);
+
+        assertEquals(GDELTImportingUtilities.retrieveEntities(gdt, PEOPLE, GDELTRowFilter.NONE, new GDELTResultLimit(10)).size(), 10);
+        GDELTLocalCopies.awaitBuilt();
+        assertNull(GDELTSnapshot.open(gdt));
+
+        final List<String> archived = getIdentifiers(GDELTImportingUtilities.retrieveEntities(gdt, PEOPLE, GDELTRowFilter.NONE, new GDELTResultLimit(Integer.MAX_VALUE)));
+        GDELTLocalCopies.awaitBuilt();
+        final GDELTSnapshot snapshot = GDELTSnapshot.open(gdt);
+        assertNotNull(snapshot);
+        assertEquals(snapshot.getRowCount(), ROWS);
+        assertEquals(getIdentifiers(GDELTImportingUtilities.retrieveEntities(gdt, PEOPLE, GDELTRowFilter.NONE, new GDELTResultLimit(Integer.MAX_VALUE))), archived);
+    }
+
+    /**
+     * A limit shared by the range keeps every result of the first day before
+     * any of the next, however the days are scheduled, so the same results
+     * are kept each time.
+     *
+     * @throws Exception if the import failed.
+     */
+    @Test
+    public void testLimitKeepsEarliestDaysFirst() throws Exception {
+        final List<String> first = getIdentifiers(GDELTImportingUtilities.retrieveEntities(new GDELTDateTime(FIRST_DAY), PEOPLE, GDELTRowFilter.NONE, new GDELTResultLimit(Integer.MAX_VALUE)));
+        final List<String> last = getIdentifiers(GDELTImportingUtilities.retrieveEntities(new GDELTDateTime(LAST_DAY), PEOPLE, GDELTRowFilter.NONE, new GDELTResultLimit(Integer.MAX_VALUE)));
+        final List<String> expected = new ArrayList<>(first);
+        expected.addAll(last.subList(0, 10));
+
+        for (int i = 0; i < 3; i++) {
+            final RecordStore results = GDELTRangeUtilities.retrieveRange(FIRST_DAY, LAST_DAY, new GDELTResultLimit(first.size() + 10),
+                    (gdt, dayLimit) -> GDELTImportingUtilities.retrieveEntities(gdt, PEOPLE, GDELTRowFilter.NONE, dayLimit), GDELTProgress.NONE);
+            assertEquals(getIdentifiers(results), expected);
+        }
+    }
+
+    /**
+     * Aggregating the days of a range on their own and merging them in date
+     * order keeps the same entities under a limit, with the same counts, as
+     * reading the days one at a time, however the days are scheduled.
+     *
+     * @throws Exception if the import failed.
+     */
+    @Test
+    public void testAggregatedLimitKeepsEarliestDaysFirst() throws Exception {
+        final GDELTEntityAggregator first = GDELTImportingUtilities.retrieveAggregatedEntities(new GDELTDateTime(FIRST_DAY), PEOPLE, GDELTRowFilter.NONE, new GDELTEntityAggregator(Integer.MAX_VALUE));
+        final int limit = first.size() + 10;
+        final GDELTEntityAggregator inOrder = new GDELTEntityAggregator(limit);
+        GDELTRangeUtilities.queryRangeInOrder(FIRST_DAY, LAST_DAY,
+                gdt -> GDELTImportingUtilities.retrieveAggregatedEntities(gdt, PEOPLE, GDELTRowFilter.NONE, inOrder), GDELTProgress.NONE);
+        final List<String> expected = getRecords(inOrder.toRecordStore());
+        assertEquals(expected.size(), limit);
+
+        for (int i = 0; i < 3; i++) {
+            final List<GDELTEntityAggregator> days = GDELTRangeUtilities.queryRange(FIRST_DAY, LAST_DAY,
+                    gdt -> GDELTImportingUtilities.retrieveAggregatedEntities(gdt, PEOPLE, GDELTRowFilter.NONE, new GDELTEntityAggregator(Integer.MAX_VALUE)), GDELTProgress.NONE);
+            assertEquals(getRecords(GDELTEntityAggregator.merge(limit, days).toRecordStore()), expected);
+        }
+    }
+
+    /**
+     * Aggregating the relationships of each day of a range on its own and
+     * merging the days in date order keeps the same relationships under a
+     * limit, with the same counts, time spans and tones, as reading the days
+     * one at a time, however the days are scheduled.
+     *
+     * @throws Exception if the import failed.
+     */
+    @Test
+    public void testAggregatedRelationshipsKeepEarliestDaysFirst() throws Exception {
+        final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(List.of(GDELTRelationshipTypes.Person_Organisation.name()));
+        final GDELTRelationshipAggregator first = GDELTImportingUtilities.retrieveAggregatedRelationships(new GDELTDateTime(FIRST_DAY), plan, GDELTRowFilter.NONE, new GDELTRelationshipAggregator(Integer.MAX_VALUE));
+        final int limit = first.size() + 10;
+        final GDELTRelationshipAggregator inOrder = new GDELTRelationshipAggregator(limit);
+        GDELTRangeUtilities.queryRangeInOrder(FIRST_DAY, LAST_DAY,
+                gdt -> GDELTImportingUtilities.retrieveAggregatedRelationships(gdt, plan, GDELTRowFilter.NONE, inOrder), GDELTProgress.NONE);
+        final RecordStore expected = inOrder.toRecordStore();
+        assertEquals(expected.size(), limit);
+
+        for (int i = 0; i < 3; i++) {
+            final List<GDELTRelationshipAggregator> days = GDELTRangeUtilities.queryRange(FIRST_DAY, LAST_DAY,
+                    gdt -> GDELTImportingUtilities.retrieveAggregatedRelationships(gdt, plan, GDELTRowFilter.NONE, new GDELTRelationshipAggregator(Integer.MAX_VALUE)), GDELTProgress.NONE);
+            final RecordStore results = GDELTRelationshipAggregator.merge(limit, days).toRecordStore();
+            assertEquals(getRecords(results), getRecords(expected));
+            // the mean tones are weighted in a different order, so only agree to within rounding
+            final List<Double> tones = getTones(results);
+            final List<Double> expectedTones = getTones(expected);
+            assertEquals(tones.size(), expectedTones.size());
+            for (int j = 0; j < tones.size(); j++) {
+                assertTrue(tones.get(j).equals(expectedTones.get(j)) || Math.abs(tones.get(j) - expectedTones.get(j)) < 1e-9, tones.get(j) + " != " + expectedTones.get(j));
+            }
+        }
+    }
+
+    /**
+     * Joining relationships to the Events export adds each event they
+     * reference once, and never an event that no imported row references. The
+     * day without an export keeps its relationships.
+     *
+     * @throws Exception if the import failed.
+     */
+    @Test
+    public void testJoinEvents() throws Exception {
+        final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(List.of(GDELTRelationshipTypes.Person_Organisation.name()));
+        // each day has its own limit so that both days are joined
+        final RecordStore imported = GDELTRangeUtilities.retrieveRange(FIRST_DAY, LAST_DAY,
+                gdt -> GDELTImportingUtilities.retrieveRelationships(gdt, plan, GDELTRowFilter.NONE, new GDELTResultLimit(500)), GDELTProgress.NONE);
+        final RecordStore results = GDELTImportingUtilities.joinEvents(imported, GDELTProgress.NONE);
+        assertNotNull(results);
+
+        final Set<String> referenced = new HashSet<>();
+        final Set<String> described = new HashSet<>();
+        final Set<String> links = new HashSet<>();
+        int relationships = 0;
+        results.reset();
+        while (results.next()) {
+            final String event = results.get(GraphRecordStoreUtilities.TRANSACTION + AnalyticConcept.TransactionAttribute.SOURCE);
+            if (!AnalyticConcept.VertexType.EVENT.getName().equals(results.get(GraphRecordStoreUtilities.DESTINATION + AnalyticConcept.VertexAttribute.TYPE))) {
+                relationships++;
+                if (!event.isEmpty()) {
+                    referenced.addAll(Arrays.asList(event.split(",")));
+                }
+                continue;
+            }
+            assertEquals(results.get(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER), event);
+            assertTrue(GDELTSyntheticDay.isReferencedEvent(Long.parseLong(event)));
+            assertTrue(links.add(results.get(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER) + "\t" + event));
+            final String code = results.get(GraphRecordStoreUtilities.DESTINATION + GDELTEventTable.EVENT_CODE_ATTRIBUTE);
+            if (code != null) {
+                assertEquals(code.length(), 3);
+                assertNotNull(results.get(GraphRecordStoreUtilities.DESTINATION + GDELTEventTable.GOLDSTEIN_SCALE_ATTRIBUTE));
+                assertTrue(described.add(event));
+            }
+        }
+        assertEquals(relationships, 1000);
+        assertFalse(described.isEmpty());
+        assertTrue(referenced.containsAll(described));
+        for (final String link : links) {
+            assertTrue(described.contains(link.substring(link.indexOf('\t') + 1)));
+        }
+    }
+
+    /**
+     * Time importing and extending over days that are multiples of the size
+     * of a normal day, which is skipped unless the scales are set.
+     *
+     * @throws Exception if a query failed.
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        final String scales = System.getProperty(BENCHMARK_SCALES_PROPERTY);
+        if (scales == null || scales.isBlank()) {
+            throw new SkipException("Set " + BENCHMARK_SCALES_PROPERTY + " to benchmark");
+        }
+
+        // each scale is served on its own day so that no scale is read from the cache of another
+        ZonedDateTime date = LocalDate.of(2023, 1, 1).atStartOfDay(ZoneOffset.UTC);
+        for (final String scale : scales.split(",")) {
+            final GDELTDateTime gdt = new GDELTDateTime(date);
+            final GDELTSyntheticDay scaled = GDELTSyntheticDay.atScale(Double.parseDouble(scale.trim()), SEED);
+            final File archive = server.addDay(gdt, scaled);
+            GDELTArchiveManifest.getInstance().invalidate();
+
+            final Set<GDELTEntityTypes> types = EnumSet.of(GDELTEntityTypes.Person, GDELTEntityTypes.Organisation, GDELTEntityTypes.Location);
+            long start = System.nanoTime();
+            final GDELTProgress progress = new GDELTProgress("Importing", (current, total, message) -> {
+            });
+            final List<GDELTEntityAggregator> cold = GDELTRangeUtilities.queryRange(null, date,
+                    day -> GDELTImportingUtilities.retrieveAggregatedEntities(day, types, GDELTRowFilter.NONE, new GDELTEntityAggregator(Integer.MAX_VALUE)), progress);
+            final long coldTime = System.nanoTime() - start;
+            // the snapshot of the day is built once the cold import has read all of it
+            GDELTLocalCopies.awaitBuilt();
+
+            start = System.nanoTime();
+            final List<GDELTEntityAggregator> warm = GDELTRangeUtilities.queryRange(null, date,
+                    day -> GDELTImportingUtilities.retrieveAggregatedEntities(day, types, GDELTRowFilter.NONE, new GDELTEntityAggregator(Integer.MAX_VALUE)), GDELTProgress.NONE);
+            final long warmTime = System.nanoTime() - start;
+            assertEquals(warm.get(0).size(), cold.get(0).size());
+
+            final GDELTSeeds seeds = GDELTSeeds.fromLabels(List.of(GDELTSyntheticDay.getPerson(0) + "<Person>"));
+            final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(List.of(GDELTRelationshipTypes.Person_Person.name(), GDELTRelationshipTypes.Person_Organisation.name()));
+            start = System.nanoTime();
+            final RecordStore hops = GDELTRangeUtilities.retrieveRange(null, date,
+                    day -> GDELTExtendingUtilities.hopRelationships(day, plan, GDELTRowFilter.NONE, new GDELTResultLimit(100000), seeds), GDELTProgress.NONE);
+            final long extendTime = System.nanoTime() - start;
+
+            LOGGER.log(Level.INFO, "GDELT benchmark at {0}x: {1} rows, {2} byte archive, import {3} ms ({4} entities) then {5} ms cached, extend {6} ms ({7} relationships), {8}",
+                    new Object[]{scale.trim(), scaled.getRows(), archive.length(), coldTime / 1000000, cold.get(0).size(), warmTime / 1000000, extendTime / 1000000, hops == null ? 0 : hops.size(), progress});
+            date = date.plusDays(1);
+        }
+    }
+
+    private static List<String> getIdentifiers(final RecordStore records) {
+        final List<String> identifiers = new ArrayList<>();
+        records.reset();
+        while (records.next()) {
+            identifiers.add(records.get(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER));
+        }
+        return identifiers;
+    }
+
+    private static List<String> getRecords(final RecordStore records) {
+        final List<String> values = new ArrayList<>();
+        records.reset();
+        while (records.next()) {
+            final StringBuilder record = new StringBuilder();
+            for (final String key : records.keys()) {
+                if (key.equals(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.TONE_ATTRIBUTE)) {
+                    continue;
+                }
+                record.append(key).append('=').append(records.get(key)).append('\t');
+            }
+            values.add(record.toString());
+        }
+        return values;
+    }
+
+    private static List<Double> getTones(final RecordStore records) {
+        final List<Double> tones = new ArrayList<>();
+        records.reset();
+        while (records.next()) {
+            final String tone = records.get(GraphRecordStoreUtilities.TRANSACTION + GDELTRelationshipAggregator.TONE_ATTRIBUTE);
+            tones.add(tone == null ? Double.NaN : Double.parseDouble(tone));
+        }
+        return tones;
+    }
+
+    private static RecordStore importPeople() throws IOException, InterruptedException {
+        final GDELTResultLimit limit = new GDELTResultLimit(Integer.MAX_VALUE);
+        return GDELTRangeUtilities.retrieveRange(FIRST_DAY, LAST_DAY,
+                gdt -> GDELTImportingUtilities.retrieveEntities(gdt, PEOPLE, GDELTRowFilter.NONE, limit), GDELTProgress.NONE);
+    }
+
+    private static byte[] generate(final GDELTSyntheticDay day, final ZonedDateTime date) throws IOException {
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            day.writeCsv(new GDELTDateTime(date), out);
+            return out.toByteArray();
+        }
+    }
+
+    private static Map<String, Integer> countPeople(final byte[] csv) throws IOException {
+        final Map<String, Integer> mentions = new HashMap<>();
+        try (final GDELTRowScanner scanner = new GDELTRowScanner(new ByteArrayInputStream(csv))) {
+            while (scanner.next()) {
+                for (int j = 0; j < scanner.count(GDELTRowScanner.PERSONS); j++) {
+                    mentions.merge(scanner.get(GDELTRowScanner.PERSONS, j), 1, Integer::sum);
+                }
+            }
+        }
+        return mentions;
+    }
+
+    private static int countIdentifier(final RecordStore results, final String identifier) {
+        int count = 0;
+        results.reset();
+        while (results.next()) {
+            if (identifier.equals(results.get(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER))) {
+                count++;
+            }
+        }
+        assertNotEquals(count, 0);
+        return count;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link GDELTRangeUtilities} and {@link GDELTResultLimit}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRangeUtilitiesNGTest {
+
+    private static final ZonedDateTime DAY = ZonedDateTime.of(2024, 3, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final String KEY = "source.Identifier";
+
+    /**
+     * A day read before an earlier day cannot take the results the earlier
+     * day needs, and the results of each day are kept in date order.
+     */
+    @Test
+    public void testDayLimitsKeepDateOrder() {
+        final GDELTResultLimit limit = new GDELTResultLimit(10);
+        final GDELTResultLimit first = limit.forDay(new GDELTDateTime(DAY));
+        final GDELTResultLimit second = limit.forDay(new GDELTDateTime(DAY.plusDays(1)));
+
+        // the second day is read first and takes the whole limit
+        assertEquals(second.tryAcquire(10), 10);
+        assertTrue(second.isReached());
+        assertFalse(first.isReached());
+        assertEquals(first.tryAcquire(7), 7);
+        // the second day can now only keep what the first day left
+        assertEquals(second.getRemaining(), 0);
+        assertFalse(second.tryAcquire());
+        assertEquals(limit.forDay(new GDELTDateTime(DAY.plusDays(1))).tryAcquire(1), 0);
+
+        assertEquals(limit.keep(records("a", 7)).size(), 7);
+        final RecordStore kept = limit.keep(records("b", 10));
+        assertEquals(kept.size(), 3);
+        kept.reset();
+        for (int i = 0; kept.next(); i++) {
+            assertEquals(kept.get(KEY), "b" + i);
+        }
+        assertTrue(limit.isReached());
+    }
+
+    private static RecordStore records(final String prefix, final int count) {
+        final RecordStore records = new GraphRecordStore();
+        for (int i = 0; i < count; i++) {
+            records.add();
+            records.set(KEY, prefix + i);
+        }
+        return records;
+    }
+
+    @AfterMethod
+    public void tearDownMethod() {
+        System.clearProperty(GDELTRangeUtilities.MAX_DAYS_PROPERTY);
+    }
+
+    /**
+     * A range of up to the maximum number of days is accepted, counting both
+     * the start and end days.
+     */
+    @Test
+    public void testRangeWithinMaximumIsAccepted() {
+        System.setProperty(GDELTRangeUtilities.MAX_DAYS_PROPERTY, "3");
+        GDELTRangeUtilities.checkRange(DAY, DAY.plusDays(2));
+        GDELTRangeUtilities.checkRange(null, DAY.plusYears(10));
+    }
+
+    /**
+     * A range of more than the maximum number of days is refused.
+     */
+    @Test
+    public void testLongRangeIsRefused() {
+        System.setProperty(GDELTRangeUtilities.MAX_DAYS_PROPERTY, "3");
+        try {
+            GDELTRangeUtilities.checkRange(DAY, DAY.plusDays(3));
+            fail("A range of four days was accepted");
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            GDELTRangeUtilities.checkRange(DAY.minusYears(1), DAY);
+            fail("A range of a year was accepted");
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStore;
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.analytic.concept.AnalyticConcept;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the samples kept by {@link GDELTRecordSample}, which must not
+ * depend on which copy of a day they are read from.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRecordSampleNGTest {
+
+    // enough rows for several chunks of the CSV and of the snapshot
+    private static final int ROWS = 20000;
+    private static final int SAMPLE_SIZE = 200;
+    private static final Set<GDELTEntityTypes> TYPES = EnumSet.of(GDELTEntityTypes.Person, GDELTEntityTypes.Organisation);
+    private static final String DT = "2024-05-01 00:00:00.000 +0000 [UTC]";
+
+    private static File directory;
+    private static byte[] csv;
+    private static GDELTBlockArchive blocks;
+    private static GDELTSnapshot snapshot;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        directory = Files.createTempDirectory("gdelt-sample").toFile();
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            new GDELTSyntheticDay(ROWS, 13).writeCsv(new GDELTDateTime(ZonedDateTime.of(2024, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC)), out);
+            csv = out.toByteArray();
+        }
+        blocks = GDELTBlockArchive.build(new ByteArrayInputStream(csv), new File(directory, "20240501.gkg.csv.blocks"), new File(directory, "20240501.gkg.csv.blocks.idx"), GDELTRowLayout.DAILY);
+        final File file = new File(directory, "20240501.gkg.csv.snap");
+        GDELTSnapshot.build(new ByteArrayInputStream(csv), GDELTRowLayout.DAILY, file);
+        snapshot = GDELTSnapshot.load(file);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Every row is numbered in order from 0 after the header row, whichever
+     * copy of the day it is read from.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testOrdinalsMatchAcrossCopies() throws IOException {
+        final List<Long> expected = new ArrayList<>();
+        for (long row = 0; row < ROWS; row++) {
+            expected.add(row);
+        }
+        assertEquals(getOrdinals(getCsv()), expected);
+        assertEquals(getOrdinals(blocks), expected);
+        assertEquals(getOrdinals(snapshot), expected);
+    }
+
+    /**
+     * A seed keeps the same entities from the CSV, the block archive and the
+     * snapshot of a day, and a different seed keeps different entities.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testSeedIsReproducibleAcrossCopies() throws IOException {
+        final List<String> sampled = sampleEntities(42, getCsv());
+        assertEquals(sampled.size(), SAMPLE_SIZE);
+        assertEquals(sampleEntities(42, getCsv()), sampled);
+        assertEquals(sampleEntities(42, blocks), sampled);
+        assertEquals(sampleEntities(42, snapshot), sampled);
+        assertNotEquals(sampleEntities(43, snapshot), sampled);
+    }
+
+    /**
+     * Relationships are sampled the same way, even though each row adds a
+     * different number of them.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testRelationshipSeedIsReproducibleAcrossCopies() throws IOException {
+        final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(List.of(GDELTRelationshipTypes.Person_Person.name(), GDELTRelationshipTypes.Person_Organisation.name()));
+        final List<String> sampled = sampleRelationships(7, plan, getCsv());
+        assertEquals(sampled.size(), SAMPLE_SIZE);
+        assertEquals(sampleRelationships(7, plan, blocks), sampled);
+        assertEquals(sampleRelationships(7, plan, snapshot), sampled);
+    }
+
+    /**
+     * A plan counts exactly the relationships it imports from each row, so
+     * rows that can not be sampled are skipped without building them.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testCountRowMatchesImportRow() throws IOException {
+        final GDELTRelationshipPlan plan = GDELTRelationshipPlan.compile(List.of(GDELTRelationshipTypes.Person_Person.name(), GDELTRelationshipTypes.Person_Organisation.name()));
+        try (final GDELTRow rows = snapshot.getRows(0, 500)) {
+            while (rows.next()) {
+                final RecordStore records = new GraphRecordStore();
+                plan.importRow(records, new GDELTResultLimit(Integer.MAX_VALUE), DT, rows);
+                assertEquals(plan.countRow(rows), records.size());
+            }
+        }
+    }
+
+    private static GDELTRowSource getCsv() {
+        return new GDELTParsingPipeline.CsvSource(new ByteArrayInputStream(csv), GDELTRowLayout.DAILY);
+    }
+
+    private static List<Long> getOrdinals(final GDELTRowSource source) throws IOException {
+        final List<Long> ordinals = new ArrayList<>();
+        assertTrue(source.parse(() -> false, rows -> {
+            final List<Long> chunk = new ArrayList<>();
+            while (rows.next()) {
+                chunk.add(rows.getOrdinal());
+            }
+            return chunk;
+        }, ordinals::addAll));
+        return ordinals;
+    }
+
+    private static List<String> sampleEntities(final long seed, final GDELTRowSource source) throws IOException {
+        final GDELTRecordSample sample = GDELTImportingUtilities.readSampledEntities(new GDELTRecordSample(SAMPLE_SIZE, seed), DT, TYPES, GDELTRowFilter.NONE, source);
+        return getValues(sample.toRecordStore(), GraphRecordStoreUtilities.SOURCE + AnalyticConcept.VertexAttribute.TYPE);
+    }
+
+    private static List<String> sampleRelationships(final long seed, final GDELTRelationshipPlan plan, final GDELTRowSource source) throws IOException {
+        final GDELTRecordSample sample = GDELTImportingUtilities.readSampledRelationships(new GDELTRecordSample(SAMPLE_SIZE, seed), DT, plan, GDELTRowFilter.NONE, source);
+        return getValues(sample.toRecordStore(), GDELTRelationshipPlan.DESTINATION_IDENTIFIER);
+    }
+
+    private static List<String> getValues(final RecordStore records, final String other) {
+        final List<String> values = new ArrayList<>();
+        records.reset();
+        while (records.next()) {
+            values.add(records.get(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER) + "|" + records.get(other));
+        }
+        return values;
+    }
+}
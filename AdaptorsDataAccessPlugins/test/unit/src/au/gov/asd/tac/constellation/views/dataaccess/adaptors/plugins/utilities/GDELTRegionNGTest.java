@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link GDELTRegion} and of the locations kept by a
+ * {@link GDELTRowFilter} with a region.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRegionNGTest {
+
+    private static final String SYDNEY = "4#Sydney, New South Wales, Australia#AS#AS02#-33.8833#151.217#-1603135";
+    private static final String LONDON = "4#London, London, City of, United Kingdom#UK#UKH9#51.5#-0.116667#-2601889";
+    private static final String AUCKLAND = "4#Auckland, Auckland, New Zealand#NZ#NZE7#-36.8667#174.767#-1506246";
+
+    /**
+     * A bounding box holds the points inside it and on its edges.
+     */
+    @Test
+    public void testBoundingBox() {
+        final GDELTRegion region = GDELTRegion.parse("-45, 110, -10, 155");
+        assertTrue(region.contains(-33.8833, 151.217));
+        assertTrue(region.contains(-45, 110));
+        assertTrue(region.contains(-10, 155));
+        assertFalse(region.contains(51.5, -0.116667));
+        assertFalse(region.contains(-36.8667, 174.767));
+        assertFalse(region.contains(Double.NaN, 151.217));
+    }
+
+    /**
+     * A box whose minimum longitude is greater than its maximum wraps across
+     * the antimeridian.
+     */
+    @Test
+    public void testBoundingBoxAcrossAntimeridian() {
+        final GDELTRegion region = GDELTRegion.parse("-50,170,-10,-170");
+        assertTrue(region.contains(-40, 175));
+        assertTrue(region.contains(-40, -175));
+        assertFalse(region.contains(-40, 0));
+        assertFalse(region.contains(0, 175));
+    }
+
+    /**
+     * A polygon only holds the points inside its edges, not every point in
+     * its bounding box.
+     */
+    @Test
+    public void testPolygon() {
+        final GDELTRegion region = GDELTRegion.parse("0,0;10,0;0,10");
+        assertTrue(region.contains(2, 2));
+        assertFalse(region.contains(8, 8));
+        assertFalse(region.contains(-1, 2));
+    }
+
+    /**
+     * Regions that are not a valid box or polygon are refused.
+     */
+    @Test
+    public void testInvalidRegions() {
+        assertInvalid("1,2,3");
+        assertInvalid("-95,0,10,10");
+        assertInvalid("0,0,10,190");
+        assertInvalid("10,0,-10,10");
+        assertInvalid("0,0;10,10");
+        assertInvalid("0,0;10,x;0,10");
+    }
+
+    /**
+     * The locations outside the region are hidden from a row, and a row with
+     * no location inside the region is skipped.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testFilterKeepsLocationsInsideRegion() throws IOException {
+        final GDELTRowFilter filter = new GDELTRowFilter.Builder().setRegion("-45,110,-10,155").build();
+        final String csv = row(LONDON + ";" + SYDNEY + ";" + AUCKLAND) + row(LONDON) + row(SYDNEY);
+        final List<List<String>> kept = new ArrayList<>();
+        try (final GDELTRow rows = filter.apply(new GDELTRowScanner(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))))) {
+            while (rows.next()) {
+                final List<String> locations = new ArrayList<>();
+                for (int j = 0; j < rows.count(GDELTRowScanner.LOCATIONS); j++) {
+                    locations.add(rows.get(GDELTRowScanner.LOCATIONS, j, 1));
+                }
+                kept.add(locations);
+            }
+            assertEquals(rows.getRowsRead(), 3);
+        }
+        assertEquals(kept, List.of(List.of("Sydney, New South Wales, Australia"), List.of("Sydney, New South Wales, Australia")));
+    }
+
+    private static void assertInvalid(final String region) {
+        try {
+            GDELTRegion.parse(region);
+            fail("Expected an invalid region: " + region);
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static String row(final String locations) {
+        return "20240301\t1\t\t\t" + locations + "\tjohn smith\t\t-1.5,2,3.5,5.5,20,1\t\tabc.net.au\thttps://www.abc.net.au/news/1\n";
+    }
+}
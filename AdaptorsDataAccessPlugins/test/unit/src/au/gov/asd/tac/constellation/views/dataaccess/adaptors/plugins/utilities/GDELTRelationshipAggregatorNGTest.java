@@ -0,0 +1,198 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the counts, time spans and tone statistics folded together by
+ * {@link GDELTRelationshipAggregator}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRelationshipAggregatorNGTest {
+
+    private static final GDELTRelationshipTypes TYPE = GDELTRelationshipTypes.Person_Person;
+    private static final String FIRST = "2024-05-01 00:00:00.000 +0000 [UTC]";
+    private static final String SECOND = "2024-05-02 00:00:00.000 +0000 [UTC]";
+    private static final String THIRD = "2024-05-03 00:00:00.000 +0000 [UTC]";
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Repeated co-mentions are folded into one relationship with the mean,
+     * minimum and maximum of their tones, ignoring the unknown tones.
+     */
+    @Test
+    public void testToneStatistics() {
+        final GDELTRelationshipAggregator aggregator = new GDELTRelationshipAggregator(10);
+        assertTrue(aggregator.add(TYPE, "john smith", "jane doe", SECOND, -2));
+        assertFalse(aggregator.add(TYPE, "john smith", "jane doe", THIRD, 4.5));
+        assertFalse(aggregator.add(TYPE, "john smith", "jane doe", FIRST, Double.NaN));
+        assertFalse(aggregator.add(TYPE, "john smith", "jane doe", SECOND, 0.5));
+
+        final RecordStore records = aggregator.toRecordStore();
+        records.reset();
+        assertTrue(records.next());
+        assertEquals(get(records, GDELTEntityAggregator.MENTIONS_ATTRIBUTE), "4");
+        assertEquals(get(records, GDELTRelationshipAggregator.FIRST_SEEN_ATTRIBUTE), FIRST);
+        assertEquals(get(records, GDELTRelationshipAggregator.LAST_SEEN_ATTRIBUTE), THIRD);
+        assertTone(records, 1, -2, 4.5);
+        assertFalse(records.next());
+    }
+
+    /**
+     * Merging the aggregators of several chunks gives the same statistics as
+     * aggregating every co-mention in one, with the means weighted by the
+     * number of tones behind them.
+     */
+    @Test
+    public void testMergedToneStatistics() {
+        final double[] tones = {-3.25, 1.5, 7, -0.75, 2.125, 5.5, -6};
+        final GDELTRelationshipAggregator whole = new GDELTRelationshipAggregator(10);
+        final GDELTRelationshipAggregator first = new GDELTRelationshipAggregator(10);
+        final GDELTRelationshipAggregator second = new GDELTRelationshipAggregator(10);
+        double sum = 0;
+        for (int i = 0; i < tones.length; i++) {
+            final String datetime = i % 2 == 0 ? FIRST : SECOND;
+            whole.add(TYPE, "john smith", "jane doe", datetime, tones[i]);
+            (i < 2 ? first : second).add(TYPE, "john smith", "jane doe", datetime, tones[i]);
+            sum += tones[i];
+        }
+        first.merge(second);
+
+        final RecordStore merged = first.toRecordStore();
+        merged.reset();
+        assertTrue(merged.next());
+        assertEquals(get(merged, GDELTEntityAggregator.MENTIONS_ATTRIBUTE), Integer.toString(tones.length));
+        assertEquals(get(merged, GDELTRelationshipAggregator.FIRST_SEEN_ATTRIBUTE), FIRST);
+        assertEquals(get(merged, GDELTRelationshipAggregator.LAST_SEEN_ATTRIBUTE), SECOND);
+        assertTone(merged, sum / tones.length, -6, 7);
+
+        final RecordStore expected = whole.toRecordStore();
+        expected.reset();
+        assertTrue(expected.next());
+        assertTone(expected, sum / tones.length, -6, 7);
+    }
+
+    /**
+     * A relationship without a known tone has no tone statistics, and
+     * merging it with one that has tones keeps only the known tones.
+     */
+    @Test
+    public void testUnknownTones() {
+        final GDELTRelationshipAggregator first = new GDELTRelationshipAggregator(10);
+        first.add(TYPE, "john smith", "jane doe", FIRST, Double.NaN);
+        final RecordStore unknown = first.toRecordStore();
+        unknown.reset();
+        assertTrue(unknown.next());
+        assertNull(get(unknown, GDELTRelationshipAggregator.TONE_ATTRIBUTE));
+        assertNull(get(unknown, GDELTRelationshipAggregator.MINIMUM_TONE_ATTRIBUTE));
+        assertNull(get(unknown, GDELTRelationshipAggregator.MAXIMUM_TONE_ATTRIBUTE));
+
+        final GDELTRelationshipAggregator second = new GDELTRelationshipAggregator(10);
+        second.add(TYPE, "john smith", "jane doe", SECOND, -1.5);
+        first.merge(second);
+        final RecordStore merged = first.toRecordStore();
+        merged.reset();
+        assertTrue(merged.next());
+        assertEquals(get(merged, GDELTEntityAggregator.MENTIONS_ATTRIBUTE), "2");
+        assertTone(merged, -1.5, -1.5, -1.5);
+    }
+
+    /**
+     * Once the maximum is reached new pairs are ignored, both when adding and
+     * merging, but pairs already held are still counted.
+     */
+    @Test
+    public void testMaximumRelationships() {
+        final GDELTRelationshipAggregator aggregator = new GDELTRelationshipAggregator(1);
+        assertTrue(aggregator.add(TYPE, "john smith", "jane doe", FIRST, 1));
+        assertFalse(aggregator.add(TYPE, "john smith", "joe bloggs", FIRST, 1));
+        assertFalse(aggregator.add(TYPE, "john smith", "jane doe", SECOND, 3));
+
+        final GDELTRelationshipAggregator other = new GDELTRelationshipAggregator(10);
+        other.add(TYPE, "jane doe", "joe bloggs", FIRST, 1);
+        other.add(TYPE, "john smith", "jane doe", THIRD, 5);
+        aggregator.merge(other);
+        assertEquals(aggregator.size(), 1);
+
+        final RecordStore records = aggregator.toRecordStore();
+        records.reset();
+        assertTrue(records.next());
+        assertEquals(records.get(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER), "jane doe");
+        assertEquals(get(records, GDELTEntityAggregator.MENTIONS_ATTRIBUTE), "3");
+        assertEquals(get(records, GDELTRelationshipAggregator.LAST_SEEN_ATTRIBUTE), THIRD);
+        assertTone(records, 3, 1, 5);
+    }
+
+    /**
+     * Merging the days of a range in date order keeps the pairs of the
+     * earlier days under the maximum, and leaves the aggregators of the days
+     * unchanged.
+     */
+    @Test
+    public void testMergeDaysInOrder() {
+        final GDELTRelationshipAggregator first = new GDELTRelationshipAggregator(Integer.MAX_VALUE);
+        first.add(TYPE, "john smith", "jane doe", FIRST, 1);
+        final GDELTRelationshipAggregator second = new GDELTRelationshipAggregator(Integer.MAX_VALUE);
+        second.add(TYPE, "jane doe", "joe bloggs", SECOND, 2);
+        second.add(TYPE, "john smith", "jane doe", SECOND, 3);
+
+        final RecordStore records = GDELTRelationshipAggregator.merge(1, List.of(first, second)).toRecordStore();
+        records.reset();
+        assertTrue(records.next());
+        assertEquals(records.get(GraphRecordStoreUtilities.DESTINATION + VisualConcept.VertexAttribute.IDENTIFIER), "jane doe");
+        assertEquals(get(records, GDELTEntityAggregator.MENTIONS_ATTRIBUTE), "2");
+        assertEquals(get(records, GDELTRelationshipAggregator.LAST_SEEN_ATTRIBUTE), SECOND);
+        assertTone(records, 2, 1, 3);
+        assertFalse(records.next());
+
+        final RecordStore unchanged = first.toRecordStore();
+        unchanged.reset();
+        assertTrue(unchanged.next());
+        assertEquals(get(unchanged, GDELTEntityAggregator.MENTIONS_ATTRIBUTE), "1");
+        assertTone(unchanged, 1, 1, 1);
+    }
+
+    /**
+     * The average tone is the first value of the tone field.
+     */
+    @Test
+    public void testParseTone() {
+        assertEquals(GDELTRelationshipAggregator.parseTone("-1.5,2,3.5,5.5,20,1"), -1.5);
+        assertEquals(GDELTRelationshipAggregator.parseTone("2.25"), 2.25);
+        assertTrue(Double.isNaN(GDELTRelationshipAggregator.parseTone("")));
+        assertTrue(Double.isNaN(GDELTRelationshipAggregator.parseTone("x,1")));
+    }
+
+    private static String get(final RecordStore records, final String attribute) {
+        return records.get(GraphRecordStoreUtilities.TRANSACTION + attribute);
+    }
+
+    private static void assertTone(final RecordStore records, final double mean, final double minimum, final double maximum) {
+        assertTrue(Math.abs(Double.parseDouble(get(records, GDELTRelationshipAggregator.TONE_ATTRIBUTE)) - mean) < DELTA);
+        assertEquals(Double.parseDouble(get(records, GDELTRelationshipAggregator.MINIMUM_TONE_ATTRIBUTE)), minimum);
+        assertEquals(Double.parseDouble(get(records, GDELTRelationshipAggregator.MAXIMUM_TONE_ATTRIBUTE)), maximum);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the themes, countries, tones and sources kept by a
+ * {@link GDELTRowFilter}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTRowFilterNGTest {
+
+    private static final String SYDNEY = "4#Sydney, New South Wales, Australia#AS#AS02#-33.8833#151.217#-1603135";
+    private static final String LONDON = "4#London, London, City of, United Kingdom#UK#UKH9#51.5#-0.116667#-2601889";
+    private static final String AUCKLAND = "4#Auckland, Auckland, New Zealand#NZ#NZE7#-36.8667#174.767#-1506246";
+
+    /**
+     * An empty filter hands back the rows it is given.
+     */
+    @Test
+    public void testEmptyFilterKeepsRows() {
+        final GDELTRowFilter filter = new GDELTRowFilter.Builder().setThemePrefixes("").setCountries(" ").setToneRange("").setSourceDomains(null).build();
+        assertTrue(filter.isEmpty());
+        final GDELTRow rows = new GDELTRowScanner(new ByteArrayInputStream(new byte[0]));
+        assertTrue(filter.apply(rows) == rows);
+    }
+
+    /**
+     * Only the themes starting with a prefix are kept, whatever the case of
+     * the prefix, and a row without one is skipped.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testThemePrefixes() throws IOException {
+        final GDELTRowFilter filter = new GDELTRowFilter.Builder().setThemePrefixes("econ_, tax_").build();
+        final String csv = row("ECON_INFLATION;PROTEST;TAX_FNCACT_POLICE;", SYDNEY, "1", "abc.net.au")
+                + row("PROTEST;KILL;", SYDNEY, "1", "abc.net.au")
+                + row("TAX_DISEASE;", SYDNEY, "1", "abc.net.au");
+        assertEquals(read(filter, csv, GDELTRowScanner.THEMES), List.of(List.of("ECON_INFLATION", "TAX_FNCACT_POLICE"), List.of("TAX_DISEASE")));
+    }
+
+    /**
+     * Only the locations in a chosen FIPS country are kept.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testCountries() throws IOException {
+        final GDELTRowFilter filter = new GDELTRowFilter.Builder().setCountries("as,NZ").build();
+        final String csv = row("", LONDON + ";" + SYDNEY + ";" + AUCKLAND, "1", "abc.net.au")
+                + row("", LONDON, "1", "bbc.co.uk");
+        final List<List<String>> countries = new ArrayList<>();
+        try (final GDELTRow rows = filter.apply(scan(csv))) {
+            while (rows.next()) {
+                final List<String> codes = new ArrayList<>();
+                for (int j = 0; j < rows.count(GDELTRowScanner.LOCATIONS); j++) {
+                    codes.add(rows.get(GDELTRowScanner.LOCATIONS, j, 2));
+                }
+                countries.add(codes);
+            }
+        }
+        assertEquals(countries, List.of(List.of("AS", "NZ")));
+    }
+
+    /**
+     * A country that is not a two letter code is refused.
+     */
+    @Test
+    public void testInvalidCountry() {
+        try {
+            new GDELTRowFilter.Builder().setCountries("AUS");
+            fail("Expected an invalid country");
+        } catch (final IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Only the rows with a tone inside the range are kept, with the bounds
+     * included and either bound left open.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testToneRange() throws IOException {
+        final String csv = row("", SYDNEY, "-8.5", "a.com") + row("", SYDNEY, "-5", "b.com")
+                + row("", SYDNEY, "0", "c.com") + row("", SYDNEY, "6.25", "d.com");
+        assertEquals(read(new GDELTRowFilter.Builder().setToneRange("-5,0").build(), csv, GDELTRowScanner.SOURCES), List.of(List.of("b.com"), List.of("c.com")));
+        assertEquals(read(new GDELTRowFilter.Builder().setToneRange(",-5").build(), csv, GDELTRowScanner.SOURCES), List.of(List.of("a.com"), List.of("b.com")));
+        assertEquals(read(new GDELTRowFilter.Builder().setToneRange("5,").build(), csv, GDELTRowScanner.SOURCES), List.of(List.of("d.com")));
+    }
+
+    /**
+     * Tone ranges that are not two numbers in order are refused.
+     */
+    @Test
+    public void testInvalidToneRanges() {
+        for (final String tone : new String[]{"5", "1,2,3", "x,2", "NaN,1", "5,-5"}) {
+            try {
+                new GDELTRowFilter.Builder().setToneRange(tone);
+                fail("Expected an invalid tone range: " + tone);
+            } catch (final IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Allowed domains keep only their own sources and their subdomains, and
+     * denied domains drop theirs, but a domain does not match the end of a
+     * longer name.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testSourceDomains() throws IOException {
+        final String csv = row("", SYDNEY, "1", "abc.net.au;news.bbc.co.uk;notbbc.co.uk")
+                + row("", SYDNEY, "1", "example.com;www.example.com")
+                + row("", SYDNEY, "1", "BBC.CO.UK");
+
+        final GDELTRowFilter allowed = new GDELTRowFilter.Builder().setSourceDomains("bbc.co.uk").build();
+        assertEquals(read(allowed, csv, GDELTRowScanner.SOURCES), List.of(List.of("news.bbc.co.uk"), List.of("BBC.CO.UK")));
+
+        final GDELTRowFilter denied = new GDELTRowFilter.Builder().setSourceDomains("-example.com, -bbc.co.uk").build();
+        assertEquals(read(denied, csv, GDELTRowScanner.SOURCES), List.of(List.of("abc.net.au", "notbbc.co.uk")));
+    }
+
+    /**
+     * Every part of a filter must pass for a row to be kept, and the rows
+     * skipped still count as read.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testFiltersCombine() throws IOException {
+        final GDELTRowFilter filter = new GDELTRowFilter.Builder().setThemePrefixes("ECON_").setCountries("AS").setToneRange("-10,0").setSourceDomains("-example.com").build();
+        assertFalse(filter.isEmpty());
+        final String csv = row("ECON_INFLATION;", SYDNEY, "-1", "abc.net.au")
+                + row("ECON_INFLATION;", LONDON, "-1", "abc.net.au")
+                + row("ECON_INFLATION;", SYDNEY, "1", "abc.net.au")
+                + row("PROTEST;", SYDNEY, "-1", "abc.net.au")
+                + row("ECON_INFLATION;", SYDNEY, "-1", "example.com");
+        try (final GDELTRow rows = filter.apply(scan(csv))) {
+            assertTrue(rows.next());
+            assertEquals(rows.get(GDELTRowScanner.THEMES), "ECON_INFLATION;");
+            assertFalse(rows.next());
+            assertEquals(rows.getRowsRead(), 5);
+        }
+    }
+
+    private static List<List<String>> read(final GDELTRowFilter filter, final String csv, final int field) throws IOException {
+        final List<List<String>> kept = new ArrayList<>();
+        try (final GDELTRow rows = filter.apply(scan(csv))) {
+            while (rows.next()) {
+                final List<String> values = new ArrayList<>();
+                for (int j = 0; j < rows.count(field); j++) {
+                    values.add(rows.get(field, j));
+                }
+                kept.add(values);
+            }
+        }
+        return kept;
+    }
+
+    private static GDELTRow scan(final String csv) {
+        return new GDELTRowScanner(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String row(final String themes, final String locations, final String tone, final String sources) {
+        return "20240301\t1\t\t" + themes + "\t" + locations + "\tjohn smith\t\t" + tone + ",2,3,5,20,1\t\t" + sources + "\thttps://www.abc.net.au/news/1\n";
+    }
+}
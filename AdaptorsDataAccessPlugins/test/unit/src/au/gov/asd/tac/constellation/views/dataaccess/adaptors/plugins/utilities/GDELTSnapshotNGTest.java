@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the columns and dictionary written by {@link GDELTSnapshot}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTSnapshotNGTest {
+
+    private static final int ROWS = 1000;
+    private static final int[] LIST_FIELDS = {
+        GDELTRowScanner.PERSONS,
+        GDELTRowScanner.ORGANISATIONS,
+        GDELTRowScanner.THEMES,
+        GDELTRowScanner.LOCATIONS,
+        GDELTRowScanner.SOURCES,
+        GDELTRowScanner.SOURCE_URLS
+    };
+
+    private static File directory;
+    private static byte[] csv;
+    private static GDELTSnapshot snapshot;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        directory = Files.createTempDirectory("gdelt-snapshot").toFile();
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            new GDELTSyntheticDay(ROWS, 11).writeCsv(new GDELTDateTime(ZonedDateTime.of(2024, 6, 1, 0, 0, 0, 0, ZoneOffset.UTC)), out);
+            csv = out.toByteArray();
+        }
+        final File file = new File(directory, "20240601.gkg.csv.snap");
+        GDELTSnapshot.build(new ByteArrayInputStream(csv), GDELTRowLayout.DAILY, file);
+        snapshot = GDELTSnapshot.load(file);
+        GDELTArchiveIndex.index(directory, "20240601.gkg.csv", snapshot).parse(() -> false, rows -> {
+            while (rows.next()) {
+                // every row is indexed as it is read
+            }
+            return rows.getRowsRead();
+        }, rows -> {
+        });
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Every row reads back from the snapshot with the values of the fields it
+     * keeps.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testRowsRoundTrip() throws IOException {
+        assertEquals(snapshot.getRowCount(), ROWS);
+        try (final GDELTRowScanner scanner = new GDELTRowScanner(new ByteArrayInputStream(csv)); final GDELTRow rows = snapshot.getRows(0, ROWS)) {
+            // the header row
+            assertTrue(scanner.next());
+            while (scanner.next()) {
+                assertTrue(rows.next());
+                for (final int field : LIST_FIELDS) {
+                    assertEquals(rows.count(field), scanner.count(field));
+                    for (int j = 0; j < scanner.count(field); j++) {
+                        assertEquals(rows.get(field, j), scanner.get(field, j));
+                    }
+                }
+                assertEquals(rows.get(GDELTRowScanner.TONE), scanner.get(GDELTRowScanner.TONE));
+                assertEquals(rows.get(GDELTRowScanner.CAMEO_EVENT_IDS), scanner.get(GDELTRowScanner.CAMEO_EVENT_IDS));
+            }
+            assertFalse(rows.next());
+        }
+    }
+
+    /**
+     * Finding a person reads exactly the rows the index lists for them, and
+     * an unknown person finds no rows.
+     *
+     * @throws IOException if the rows could not be read.
+     */
+    @Test
+    public void testFindReadsRowsMentioningSeeds() throws IOException {
+        final String person = GDELTSyntheticDay.getPerson(0);
+        final List<String> expected = new ArrayList<>();
+        try (final GDELTRowScanner scanner = new GDELTRowScanner(new ByteArrayInputStream(csv))) {
+            scanner.next();
+            while (scanner.next()) {
+                for (int j = 0; j < scanner.count(GDELTRowScanner.PERSONS); j++) {
+                    if (scanner.get(GDELTRowScanner.PERSONS, j).equals(person)) {
+                        expected.add(scanner.get(GDELTRowScanner.SOURCE_URLS));
+                        break;
+                    }
+                }
+            }
+        }
+        assertFalse(expected.isEmpty());
+
+        final List<String> found = new ArrayList<>();
+        try (final GDELTRow rows = snapshot.find(GDELTSeeds.fromLabels(List.of(person + "<Person>")))) {
+            while (rows.next()) {
+                found.add(rows.get(GDELTRowScanner.SOURCE_URLS));
+            }
+        }
+        assertEquals(found, expected);
+
+        try (final GDELTRow rows = snapshot.find(GDELTSeeds.fromLabels(List.of("nobody at all<Person>")))) {
+            assertFalse(rows.next());
+        }
+    }
+
+    /**
+     * Themes are not indexed, so a seed that is a theme leaves every row to
+     * be read.
+     */
+    @Test
+    public void testFindLeavesThemesToScan() {
+        final String theme = "TAX_FNCACT<" + GDELTEntityTypes.Theme.getVertexType().getName() + ">";
+        assertNull(snapshot.find(GDELTSeeds.fromLabels(List.of(theme))));
+    }
+}
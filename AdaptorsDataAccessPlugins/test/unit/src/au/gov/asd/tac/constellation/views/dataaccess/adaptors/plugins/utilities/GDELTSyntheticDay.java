@@ -0,0 +1,486 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates a synthetic day of the GDELT Knowledge Graph in the daily GKG
+ * layout, or a synthetic 15 minute update slice in the layout of the update
+ * feed, so that the GDELT plugins can be tested and benchmarked without the
+ * public server.
+ * <p>
+ * People, organisations, themes and source domains are drawn from Zipfian
+ * distributions, so a few of them are mentioned in many rows and most are
+ * mentioned in only a few, as in the real feed. Locations are drawn from a
+ * table of real places written the way GDELT writes them. A day is generated
+ * from its seed and date alone, so the same day is always identical and the
+ * rows are written as they are generated, however large the day is.
+ *
+ * @author canis_majoris
+ */
+public class GDELTSyntheticDay {
+
+    /**
+     * About the number of rows in a daily archive of the real feed.
+     */
+    public static final int NORMAL_DAY_ROWS = 200000;
+
+    private static final String HEADER = "DATE\tNUMARTS\tCOUNTS\tTHEMES\tLOCATIONS\tPERSONS\tORGANIZATIONS\tTONE\tCAMEOEVENTIDS\tSOURCES\tSOURCEURLS\n";
+
+    private static final String[] FIRST_NAMES = {
+        "john", "mary", "james", "patricia", "robert", "jennifer", "michael", "linda", "david", "elizabeth",
+        "william", "barbara", "richard", "susan", "joseph", "jessica", "thomas", "sarah", "charles", "karen",
+        "christopher", "nancy", "daniel", "lisa", "matthew", "margaret", "anthony", "sandra", "mark", "ashley",
+        "ahmed", "fatima", "mohammed", "aisha", "wei", "li", "hiroshi", "yuki", "vladimir", "olga",
+        "pierre", "marie", "hans", "anna", "carlos", "maria", "raj", "priya", "kwame", "amara"};
+    private static final String[] LAST_NAMES = {
+        "smith", "johnson", "williams", "brown", "jones", "garcia", "miller", "davis", "rodriguez", "martinez",
+        "hernandez", "lopez", "wilson", "anderson", "thomas", "taylor", "moore", "jackson", "martin", "lee",
+        "thompson", "white", "harris", "clark", "lewis", "robinson", "walker", "young", "allen", "king",
+        "khan", "ali", "wang", "zhang", "tanaka", "sato", "ivanov", "petrov", "dubois", "muller",
+        "rossi", "silva", "kumar", "singh", "mensah", "okafor", "nguyen", "kim", "park", "cohen"};
+    private static final String[] ORGANISATION_PREFIXES = {
+        "united", "national", "international", "federal", "european", "american", "australian", "global",
+        "central", "royal", "asian", "african", "pacific", "northern", "southern", "western", "eastern",
+        "independent", "democratic", "republican"};
+    private static final String[] ORGANISATION_NOUNS = {
+        "nations", "bank", "police", "university", "council", "party", "commission", "ministry of defense",
+        "airlines", "reserve", "court", "parliament", "institute", "foundation", "association", "union",
+        "agency", "development bank", "health organization", "football club"};
+    private static final String[] ORGANISATION_PLACES = {
+        "", "of sydney", "of london", "of new york", "of tokyo", "of paris", "of berlin", "of canberra",
+        "of toronto", "of nairobi"};
+    private static final String[] THEMES = {
+        "TAX_FNCACT", "GENERAL_GOVERNMENT", "LEADER", "EPU_POLICY", "MEDIA_MSM", "TAX_FNCACT_PRESIDENT",
+        "USPEC_POLITICS_GENERAL1", "ECON_STOCKMARKET", "SECURITY_SERVICES", "ELECTION", "LEGISLATION",
+        "ARMEDCONFLICT", "KILL", "PROTEST", "CRISISLEX_CRISISLEXREC", "EDUCATION", "TERROR", "MILITARY",
+        "ECON_INFLATION", "ECON_TAXATION", "TAX_ETHNICITY", "WB_696_PUBLIC_SECTOR_MANAGEMENT",
+        "SOC_POINTSOFINTEREST", "HEALTH_PANDEMIC", "ENV_CLIMATECHANGE", "MANMADE_DISASTER_IMPLIED",
+        "CRIME_ILLEGAL_DRUGS", "REFUGEES", "NATURAL_DISASTER", "TRIAL", "ARREST", "CORRUPTION",
+        "TAX_WORLDLANGUAGES_ENGLISH", "ECON_BANKRUPTCY", "ENV_OIL", "FOOD_SECURITY", "CYBER_ATTACK",
+        "WB_2433_CONFLICT_AND_VIOLENCE", "UNGP_FORESTS_RIVERS_OCEANS", "SCIENCE"};
+    // type, full name, country, ADM1, latitude, longitude and feature id, as written by GDELT
+    private static final String[][] LOCATIONS = {
+        {"1", "United States", "US", "US", "38", "-97", "US"},
+        {"3", "Washington, District of Columbia, United States", "US", "USDC", "38.8951", "-77.0364", "531871"},
+        {"2", "California, United States", "US", "USCA", "36.17", "-119.746", "CA"},
+        {"3", "New York, New York, United States", "US", "USNY", "40.7143", "-74.006", "975772"},
+        {"1", "United Kingdom", "UK", "UK", "54", "-2", "UK"},
+        {"4", "London, London, City of, United Kingdom", "UK", "UKH9", "51.5", "-0.116667", "-2601889"},
+        {"1", "Australia", "AS", "AS", "-25", "135", "AS"},
+        {"4", "Sydney, New South Wales, Australia", "AS", "AS02", "-33.8833", "151.217", "-1603135"},
+        {"4", "Canberra, Australian Capital Territory, Australia", "AS", "AS01", "-35.2833", "149.217", "-1563952"},
+        {"4", "Auckland, Auckland, New Zealand", "NZ", "NZE7", "-36.8667", "174.767", "-1505326"},
+        {"1", "China", "CH", "CH", "35", "105", "CH"},
+        {"4", "Beijing, Beijing, China", "CH", "CH22", "39.9289", "116.388", "-1898541"},
+        {"4", "Tokyo, Tokyo, Japan", "JA", "JA40", "35.685", "139.751", "-246227"},
+        {"4", "Moscow, Moskva, Russia", "RS", "RS48", "55.7522", "37.6156", "-2960561"},
+        {"4", "Kiev, Kyyiv, Misto, Ukraine", "UP", "UP12", "50.4333", "30.5167", "-1044367"},
+        {"4", "Paris, Ile-De-France, France", "FR", "FRA8", "48.8667", "2.33333", "-1456928"},
+        {"4", "Berlin, Berlin, Germany", "GM", "GM16", "52.5167", "13.4", "-1746443"},
+        {"4", "Damascus, Dimashq, Syria", "SY", "SY13", "33.5", "36.3", "-2"},
+        {"4", "Cairo, Al Qahirah, Egypt", "EG", "EG11", "30.05", "31.25", "-290692"},
+        {"4", "Nairobi, Nairobi Area, Kenya", "KE", "KE05", "-1.28333", "36.8167", "-2292"},
+        {"4", "New Delhi, Delhi, India", "IN", "IN07", "28.6", "77.2", "-2106102"},
+        {"4", "Jakarta, Jakarta Raya, Indonesia", "ID", "ID04", "-6.17444", "106.829", "-2679652"},
+        {"4", "Sao Paulo, Sao Paulo, Brazil", "BR", "BR27", "-23.5333", "-46.6167", "-671203"},
+        {"4", "Mexico City, The Federal District, Mexico", "MX", "MX09", "19.4342", "-99.1386", "-1658079"}};
+    // CAMEO event codes and their Goldstein scale
+    private static final String[][] EVENT_CODES = {
+        {"010", "0.0"}, {"020", "3.0"}, {"036", "4.0"}, {"042", "1.9"}, {"043", "2.8"},
+        {"051", "3.4"}, {"057", "8.0"}, {"112", "-2.0"}, {"173", "-5.0"}, {"190", "-10.0"}};
+    private static final int EVENT_COLUMNS = 58;
+    private static final int UPDATE_COLUMNS = 27;
+    // the ids of events that no row references, which come after every referenced id
+    private static final long UNREFERENCED_EVENTS = 400000000;
+    private static final String[] DOMAINS = {
+        "yahoo.com", "bbc.co.uk", "reuters.com", "abc.net.au", "nytimes.com", "theguardian.com",
+        "washingtonpost.com", "smh.com.au", "cnn.com", "aljazeera.com", "news.google.com", "dailymail.co.uk",
+        "foxnews.com", "nzherald.co.nz", "timesofindia.indiatimes.com", "straitstimes.com", "france24.com",
+        "dw.com", "japantimes.co.jp", "allafrica.com"};
+
+    private final int rows;
+    private final long seed;
+    private int persons = 50000;
+    private double personExponent = 1.0;
+    private int organisations = 10000;
+    private double organisationExponent = 1.0;
+
+    /**
+     * Create a day with the given number of rows.
+     *
+     * @param rows the number of rows in the day.
+     * @param seed the seed the day is generated from.
+     */
+    public GDELTSyntheticDay(final int rows, final long seed) {
+        this.rows = rows;
+        this.seed = seed;
+    }
+
+    /**
+     * Create a day that is a multiple of the size of a normal day.
+     *
+     * @param scale the size of the day relative to {@link #NORMAL_DAY_ROWS}.
+     * @param seed the seed the day is generated from.
+     * @return the day.
+     */
+    public static GDELTSyntheticDay atScale(final double scale, final long seed) {
+        return new GDELTSyntheticDay((int) Math.round(NORMAL_DAY_ROWS * scale), seed);
+    }
+
+    /**
+     * Set the number of distinct people and how skewed their mentions are.
+     *
+     * @param count the number of distinct people.
+     * @param exponent the Zipf exponent, where larger is more skewed.
+     * @return this day.
+     */
+    public GDELTSyntheticDay setPersons(final int count, final double exponent) {
+        this.persons = count;
+        this.personExponent = exponent;
+        return this;
+    }
+
+    /**
+     * Set the number of distinct organisations and how skewed their mentions
+     * are.
+     *
+     * @param count the number of distinct organisations.
+     * @param exponent the Zipf exponent, where larger is more skewed.
+     * @return this day.
+     */
+    public GDELTSyntheticDay setOrganisations(final int count, final double exponent) {
+        this.organisations = count;
+        this.organisationExponent = exponent;
+        return this;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the name of a person.
+     *
+     * @param rank the rank of the person, where 0 is the most mentioned.
+     * @return the name, as written in the GDELT persons field.
+     */
+    public static String getPerson(final int rank) {
+        final int first = rank % FIRST_NAMES.length;
+        final int last = rank / FIRST_NAMES.length % LAST_NAMES.length;
+        final int middle = rank / (FIRST_NAMES.length * LAST_NAMES.length);
+        final String name = FIRST_NAMES[first] + " " + LAST_NAMES[last];
+        return middle == 0 ? name : FIRST_NAMES[first] + " " + FIRST_NAMES[(middle - 1) % FIRST_NAMES.length] + (middle > FIRST_NAMES.length ? " " + middle : "") + " " + LAST_NAMES[last];
+    }
+
+    /**
+     * Get the name of an organisation.
+     *
+     * @param rank the rank of the organisation, where 0 is the most
+     * mentioned.
+     * @return the name, as written in the GDELT organisations field.
+     */
+    public static String getOrganisation(final int rank) {
+        final int prefix = rank % ORGANISATION_PREFIXES.length;
+        final int noun = rank / ORGANISATION_PREFIXES.length % ORGANISATION_NOUNS.length;
+        final int place = rank / (ORGANISATION_PREFIXES.length * ORGANISATION_NOUNS.length);
+        final String name = ORGANISATION_PREFIXES[prefix] + " " + ORGANISATION_NOUNS[noun];
+        if (place == 0) {
+            return name;
+        }
+        return name + " " + ORGANISATION_PLACES[place % ORGANISATION_PLACES.length] + (place >= ORGANISATION_PLACES.length ? " " + place / ORGANISATION_PLACES.length : "");
+    }
+
+    /**
+     * Write the day as a zipped archive named the way GDELT names it.
+     *
+     * @param gdt the day being written.
+     * @param directory the directory to write the archive to.
+     * @return the archive.
+     * @throws IOException if the archive could not be written.
+     */
+    public File writeArchive(final GDELTDateTime gdt, final File directory) throws IOException {
+        final File archive = new File(directory, gdt.getFile() + ".zip");
+        try (final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry(gdt.getFile()));
+            writeCsv(gdt, zos);
+            zos.closeEntry();
+        }
+        return archive;
+    }
+
+    /**
+     * Write the GDELT Events export of the day as a zipped archive named the
+     * way GDELT names it. The export holds an event for each CAMEO event id
+     * referenced by the rows of the day and as many events that are not
+     * referenced. The day is generated in memory to find its ids, so this is
+     * meant for small days.
+     *
+     * @param gdt the day being written.
+     * @param directory the directory to write the archive to.
+     * @return the archive.
+     * @throws IOException if the archive could not be written.
+     */
+    public File writeEventsArchive(final GDELTDateTime gdt, final File directory) throws IOException {
+        final ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        writeCsv(gdt, csv);
+        final TreeSet<Long> ids = new TreeSet<>();
+        try (final GDELTRowScanner scanner = new GDELTRowScanner(new ByteArrayInputStream(csv.toByteArray()))) {
+            // the header row
+            scanner.next();
+            while (scanner.next()) {
+                for (final String id : scanner.get(GDELTRowScanner.CAMEO_EVENT_IDS).split(",")) {
+                    if (!id.isEmpty()) {
+                        ids.add(Long.valueOf(id));
+                    }
+                }
+            }
+        }
+
+        final Random random = new Random(seed * 37 + Long.parseLong(gdt.getDate()));
+        final File archive = new File(directory, gdt.getEventsFile() + ".zip");
+        try (final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry(gdt.getEventsFile()));
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8), 1 << 16);
+            long unreferenced = UNREFERENCED_EVENTS;
+            for (final long id : ids) {
+                writeEvent(writer, gdt, id, random);
+                writeEvent(writer, gdt, unreferenced++, random);
+            }
+            writer.flush();
+            zos.closeEntry();
+        }
+        return archive;
+    }
+
+    /**
+     * Check whether an event written by {@link #writeEventsArchive} is
+     * referenced by a row.
+     *
+     * @param id the global event id.
+     * @return true if a row of the day references the event.
+     */
+    public static boolean isReferencedEvent(final long id) {
+        return id < UNREFERENCED_EVENTS;
+    }
+
+    private void writeEvent(final Writer writer, final GDELTDateTime gdt, final long id, final Random random) throws IOException {
+        final String[] columns = new String[EVENT_COLUMNS];
+        Arrays.fill(columns, "");
+        final String[] code = EVENT_CODES[random.nextInt(EVENT_CODES.length)];
+        final String[] location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+        columns[GDELTEventTable.GLOBAL_EVENT_ID] = Long.toString(id);
+        columns[1] = gdt.getDate();
+        columns[GDELTEventTable.ACTOR1_NAME] = getPerson(random.nextInt(persons)).toUpperCase(Locale.ROOT);
+        columns[GDELTEventTable.ACTOR2_NAME] = random.nextBoolean() ? getOrganisation(random.nextInt(organisations)).toUpperCase(Locale.ROOT) : "";
+        columns[GDELTEventTable.EVENT_CODE] = code[0];
+        columns[GDELTEventTable.GOLDSTEIN_SCALE] = code[1];
+        columns[GDELTEventTable.ACTION_GEO_FULL_NAME] = location[1];
+        columns[GDELTEventTable.ACTION_GEO_COUNTRY_CODE] = location[2];
+        columns[GDELTEventTable.ACTION_GEO_LATITUDE] = location[4];
+        columns[GDELTEventTable.ACTION_GEO_LONGITUDE] = location[5];
+        columns[56] = gdt.getDate();
+        columns[57] = "https://www." + DOMAINS[random.nextInt(DOMAINS.length)] + "/news/" + gdt.getDate() + "/event-" + id;
+        writer.write(String.join("\t", columns));
+        writer.write('\n');
+    }
+
+    /**
+     * Write the day as a tab separated GKG file with its header row, or an
+     * update slice as a GKG file of the update feed, which has no header row.
+     *
+     * @param gdt the day being written.
+     * @param out the stream to write to, which is left open.
+     * @throws IOException if the day could not be written.
+     */
+    public void writeCsv(final GDELTDateTime gdt, final OutputStream out) throws IOException {
+        final Random random = new Random(seed * 31 + Long.parseLong(gdt.getDate()));
+        final Zipf personRanks = new Zipf(persons, personExponent);
+        final Zipf organisationRanks = new Zipf(organisations, organisationExponent);
+        final Zipf themeRanks = new Zipf(THEMES.length, 1.0);
+        final Zipf locationRanks = new Zipf(LOCATIONS.length, 0.8);
+        final Zipf domainRanks = new Zipf(DOMAINS.length, 0.8);
+
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        if (!gdt.isUpdate()) {
+            writer.write(HEADER);
+        }
+        final StringBuilder row = new StringBuilder(1024);
+        for (int i = 0; i < rows; i++) {
+            row.setLength(0);
+            final int articles = 1 + geometric(random, 0.6);
+            row.append(gdt.getDate()).append('\t').append(articles).append('\t');
+
+            // counts, which mention a location like the locations field
+            if (random.nextInt(4) == 0) {
+                final String[] location = LOCATIONS[locationRanks.sample(random)];
+                row.append(random.nextBoolean() ? "KILL" : "ARREST").append('#').append(1 + random.nextInt(20)).append("##")
+                        .append(location[0]).append('#').append(location[1]).append('#').append(location[2]).append('#')
+                        .append(location[3]).append('#').append(location[4]).append('#').append(location[5]).append('#')
+                        .append(location[6]).append(';');
+            }
+            row.append('\t');
+
+            for (final int theme : themeRanks.sampleDistinct(random, geometric(random, 0.2))) {
+                row.append(THEMES[theme]).append(';');
+            }
+            row.append('\t');
+
+            for (final int location : locationRanks.sampleDistinct(random, geometric(random, 0.45))) {
+                row.append(String.join("#", LOCATIONS[location])).append(';');
+            }
+            row.append('\t');
+
+            appendNames(row, random, geometric(random, 0.35), personRanks, true);
+            row.append('\t');
+            appendNames(row, random, geometric(random, 0.45), organisationRanks, false);
+            row.append('\t');
+
+            // average tone, positive, negative, polarity, activity and self reference
+            final double positive = Math.abs(random.nextGaussian() * 3);
+            final double negative = Math.abs(random.nextGaussian() * 4);
+            row.append(String.format(Locale.ROOT, "%.8f,%.8f,%.8f,%.8f,%.8f,%.8f", positive - negative, positive, negative,
+                    positive + negative, random.nextDouble() * 25, random.nextDouble() * 2)).append('\t');
+
+            final int events = geometric(random, 0.5);
+            for (int j = 0; j < events; j++) {
+                if (j > 0) {
+                    row.append(',');
+                }
+                row.append(300000000 + random.nextInt(10000000));
+            }
+            row.append('\t');
+
+            final int sourceCount = Math.min(articles, 3);
+            for (int j = 0; j < sourceCount; j++) {
+                if (j > 0) {
+                    row.append(';');
+                }
+                row.append(DOMAINS[domainRanks.sample(random)]);
+            }
+            row.append('\t');
+            for (int j = 0; j < sourceCount; j++) {
+                if (j > 0) {
+                    row.append("<UDIV>");
+                }
+                row.append("https://www.").append(DOMAINS[domainRanks.sample(random)]).append("/news/").append(gdt.getDate()).append('/').append(i).append('-').append(j);
+            }
+            if (gdt.isUpdate()) {
+                toUpdateRow(row, gdt, i);
+            }
+            row.append('\n');
+            writer.append(row);
+        }
+        writer.flush();
+    }
+
+    // move the daily columns to where an update slice keeps them, after a record id
+    private static void toUpdateRow(final StringBuilder row, final GDELTDateTime gdt, final int index) {
+        final String[] daily = row.toString().split("\t", -1);
+        final String[] columns = new String[UPDATE_COLUMNS];
+        Arrays.fill(columns, "");
+        columns[0] = gdt.getDate() + "-" + index;
+        for (int field = 0; field < daily.length; field++) {
+            final int column = GDELTRowLayout.UPDATE.getColumn(field);
+            if (column >= 0) {
+                columns[column] = daily[field];
+            }
+        }
+        row.setLength(0);
+        row.append(String.join("\t", columns));
+    }
+
+    private static void appendNames(final StringBuilder row, final Random random, final int count, final Zipf ranks, final boolean persons) {
+        final int[] sampled = ranks.sampleDistinct(random, count);
+        for (int j = 0; j < sampled.length; j++) {
+            if (j > 0) {
+                row.append(';');
+            }
+            row.append(persons ? getPerson(sampled[j]) : getOrganisation(sampled[j]));
+        }
+    }
+
+    // the number of failures before the first success, so usually small with a long tail
+    private static int geometric(final Random random, final double success) {
+        int count = 0;
+        while (random.nextDouble() >= success && count < 64) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Samples ranks from a Zipf distribution, where the probability of rank k
+     * is proportional to 1 / (k + 1)^exponent.
+     */
+    private static class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(final int count, final double exponent) {
+            cumulative = new double[count];
+            double total = 0;
+            for (int k = 0; k < count; k++) {
+                total += 1 / Math.pow(k + 1, exponent);
+                cumulative[k] = total;
+            }
+            for (int k = 0; k < count; k++) {
+                cumulative[k] /= total;
+            }
+        }
+
+        int sample(final Random random) {
+            final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+
+        /**
+         * Sample ranks without repeats, as GDELT lists each value once in a
+         * row, giving up on a value that keeps repeating.
+         */
+        int[] sampleDistinct(final Random random, final int count) {
+            final int[] ranks = new int[Math.min(count, cumulative.length)];
+            int sampled = 0;
+            for (int attempt = 0; sampled < ranks.length && attempt < ranks.length * 4; attempt++) {
+                final int rank = sample(random);
+                boolean repeated = false;
+                for (int i = 0; i < sampled && !repeated; i++) {
+                    repeated = ranks[i] == rank;
+                }
+                if (!repeated) {
+                    ranks[sampled++] = rank;
+                }
+            }
+            return Arrays.copyOf(ranks, sampled);
+        }
+    }
+}
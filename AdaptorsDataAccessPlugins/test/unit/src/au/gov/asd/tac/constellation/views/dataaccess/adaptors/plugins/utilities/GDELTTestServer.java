@@ -0,0 +1,341 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the GDELT server, which serves synthetic daily archives
+ * in the layout of {@link GDELTDateTime} so that the GDELT plugins can be
+ * tested and benchmarked offline.
+ * <p>
+ * The archives are served from gkg/ with support for resuming from a byte
+ * range, and the manifest of the archives from gkg/md5sums with an ETag so
+ * that it is only sent again once a day is added. The Events exports of days
+ * added with {@link #addEvents} are served from events/. The 15 minute update
+ * slices added with {@link #addSlice} are served from gdeltv2/, with the
+ * latest of them listed in gdeltv2/lastupdate.txt. Archive responses can be
+ * made to stall part way through their body with {@link #stallArchives}.
+ * While the server is open, the GDELT base URL property points at it.
+ *
+ * @author canis_majoris
+ */
+public class GDELTTestServer implements AutoCloseable {
+
+    private static final String ARCHIVE_PATH = "/gkg/";
+    private static final String MANIFEST_PATH = "/gkg/md5sums";
+    private static final String EVENTS_PATH = "/events/";
+    private static final String UPDATES_PATH = "/gdeltv2/";
+    private static final String LAST_UPDATE_PATH = "/gdeltv2/lastupdate.txt";
+
+    private final File directory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String previousUrl;
+
+    // archive name to md5, sorted as the manifest lists them
+    private final Map<String, String> archives = new TreeMap<>();
+    private final Set<String> exports = ConcurrentHashMap.newKeySet();
+    // slice name to md5, so the last entry is the latest slice
+    private final TreeMap<String, String> slices = new TreeMap<>();
+    private final AtomicInteger archiveRequests = new AtomicInteger();
+    private final AtomicInteger sliceRequests = new AtomicInteger();
+    private final AtomicInteger manifestRequests = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger stalls = new AtomicInteger();
+    private volatile long stallAfter = 0;
+    private volatile long stallTime = 0;
+
+    /**
+     * Start a server on a free local port and point the GDELT base URL at it.
+     *
+     * @throws IOException if the server could not be started.
+     */
+    public GDELTTestServer() throws IOException {
+        directory = Files.createTempDirectory("gdelt-server").toFile();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        // days are downloaded in parallel, so serve them in parallel
+        executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "GDELT Test Server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+
+        previousUrl = System.getProperty(GDELTDateTime.URL_PROPERTY);
+        System.setProperty(GDELTDateTime.URL_PROPERTY, getUrl());
+        GDELTArchiveManifest.getInstance().invalidate();
+    }
+
+    /**
+     * Generate a day and serve its archive.
+     *
+     * @param gdt the day to serve.
+     * @param day the generator of the day.
+     * @return the archive being served.
+     * @throws IOException if the archive could not be written.
+     */
+    public File addDay(final GDELTDateTime gdt, final GDELTSyntheticDay day) throws IOException {
+        final File archive = day.writeArchive(gdt, directory);
+        final String md5 = md5(archive);
+        synchronized (archives) {
+            archives.put(archive.getName(), md5);
+        }
+        return archive;
+    }
+
+    /**
+     * Generate the GDELT Events export of a day and serve it.
+     *
+     * @param gdt the day to serve.
+     * @param day the generator of the day.
+     * @return the export being served.
+     * @throws IOException if the export could not be written.
+     */
+    public File addEvents(final GDELTDateTime gdt, final GDELTSyntheticDay day) throws IOException {
+        final File archive = day.writeEventsArchive(gdt, directory);
+        exports.add(archive.getName());
+        return archive;
+    }
+
+    /**
+     * Generate a 15 minute update slice and serve it, listing it as the latest
+     * slice if it is later than every slice already served.
+     *
+     * @param gdt the slice to serve, from {@link GDELTDateTime#forUpdate}.
+     * @param day the generator of the slice.
+     * @return the archive being served.
+     * @throws IOException if the archive could not be written.
+     */
+    public File addSlice(final GDELTDateTime gdt, final GDELTSyntheticDay day) throws IOException {
+        final File archive = day.writeArchive(gdt, directory);
+        final String md5 = md5(archive);
+        synchronized (slices) {
+            slices.put(archive.getName(), md5);
+        }
+        return archive;
+    }
+
+    /**
+     * Get the base URL of the server, in the form of the GDELT base URL.
+     *
+     * @return the base URL, ending with a slash.
+     */
+    public final String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Make the next archive responses send part of their body and then send
+     * nothing more for a while, as a server whose connection has stalled.
+     *
+     * @param count the number of responses to stall.
+     * @param after the number of bytes of the body sent before stalling.
+     * @param millis how long to stall for, in milliseconds.
+     */
+    public void stallArchives(final int count, final long after, final long millis) {
+        stallAfter = after;
+        stallTime = millis;
+        stalls.set(count);
+    }
+
+    public int getArchiveRequests() {
+        return archiveRequests.get();
+    }
+
+    /**
+     * Get the number of update slices that have been downloaded.
+     *
+     * @return the number of requests for a slice.
+     */
+    public int getSliceRequests() {
+        return sliceRequests.get();
+    }
+
+    public int getManifestRequests() {
+        return manifestRequests.get();
+    }
+
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        if (previousUrl == null) {
+            System.clearProperty(GDELTDateTime.URL_PROPERTY);
+        } else {
+            System.setProperty(GDELTDateTime.URL_PROPERTY, previousUrl);
+        }
+        GDELTArchiveManifest.getInstance().invalidate();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String path = exchange.getRequestURI().getPath();
+            if (MANIFEST_PATH.equals(path)) {
+                manifestRequests.incrementAndGet();
+                sendManifest(exchange);
+            } else if (path.startsWith(ARCHIVE_PATH) && path.indexOf('/', ARCHIVE_PATH.length()) < 0 && isServed(path.substring(ARCHIVE_PATH.length()))) {
+                archiveRequests.incrementAndGet();
+                sendArchive(exchange, new File(directory, path.substring(ARCHIVE_PATH.length())));
+            } else if (LAST_UPDATE_PATH.equals(path)) {
+                sendLastUpdate(exchange);
+            } else if (path.startsWith(UPDATES_PATH) && isSlice(path.substring(UPDATES_PATH.length()))) {
+                sliceRequests.incrementAndGet();
+                sendArchive(exchange, new File(directory, path.substring(UPDATES_PATH.length())));
+            } else if (path.startsWith(EVENTS_PATH) && exports.contains(path.substring(EVENTS_PATH.length()))) {
+                sendArchive(exchange, new File(directory, path.substring(EVENTS_PATH.length())));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private boolean isServed(final String name) {
+        synchronized (archives) {
+            return archives.containsKey(name);
+        }
+    }
+
+    private boolean isSlice(final String name) {
+        synchronized (slices) {
+            return slices.containsKey(name);
+        }
+    }
+
+    // the size, md5 and url of each file of the latest slice, of which only the GKG file is served
+    private void sendLastUpdate(final HttpExchange exchange) throws IOException {
+        final String listing;
+        synchronized (slices) {
+            if (slices.isEmpty()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            final Map.Entry<String, String> latest = slices.lastEntry();
+            final String timestamp = latest.getKey().substring(0, latest.getKey().indexOf('.'));
+            final long size = new File(directory, latest.getKey()).length();
+            listing = "0 00000000000000000000000000000000 " + getUrl() + "gdeltv2/" + timestamp + ".export.CSV.zip\n"
+                    + size + " " + latest.getValue() + " " + getUrl() + "gdeltv2/" + latest.getKey() + "\n";
+        }
+        send(exchange, listing);
+    }
+
+    private void sendManifest(final HttpExchange exchange) throws IOException {
+        final StringBuilder manifest = new StringBuilder();
+        synchronized (archives) {
+            for (final Map.Entry<String, String> archive : archives.entrySet()) {
+                manifest.append(archive.getValue()).append("  ").append(archive.getKey()).append('\n');
+            }
+        }
+        send(exchange, manifest.toString());
+    }
+
+    // send a listing with an ETag, so that it is only sent again once it changes
+    private void send(final HttpExchange exchange, final String listing) throws IOException {
+        final byte[] body = listing.getBytes(StandardCharsets.US_ASCII);
+        final String etag = "\"" + Integer.toHexString(listing.hashCode()) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bytesServed.addAndGet(body.length);
+    }
+
+    private void sendArchive(final HttpExchange exchange, final File archive) throws IOException {
+        final long length = archive.length();
+        long start = 0;
+        final String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=") && range.endsWith("-")) {
+            start = Long.parseLong(range.substring("bytes=".length(), range.length() - 1));
+            if (start >= length) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (length - 1) + "/" + length);
+            exchange.sendResponseHeaders(206, length - start);
+        } else {
+            exchange.sendResponseHeaders(200, length);
+        }
+        try (final InputStream in = Files.newInputStream(archive.toPath()); final OutputStream out = exchange.getResponseBody()) {
+            in.skipNBytes(start);
+            if (stalls.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                final byte[] head = in.readNBytes((int) Math.min(stallAfter, length - start));
+                out.write(head);
+                out.flush();
+                bytesServed.addAndGet(head.length);
+                try {
+                    Thread.sleep(stallTime);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            bytesServed.addAndGet(in.transferTo(out));
+        }
+    }
+
+    private static String md5(final File file) throws IOException {
+        try (final InputStream in = Files.newInputStream(file.toPath())) {
+            final MessageDigest digest = MessageDigest.getInstance("MD5");
+            final byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import au.gov.asd.tac.constellation.graph.processing.GraphRecordStoreUtilities;
+import au.gov.asd.tac.constellation.graph.processing.RecordStore;
+import au.gov.asd.tac.constellation.graph.schema.visual.concept.VisualConcept;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the counts and errors kept by {@link GDELTTopEntities} when there
+ * are more entities than counters.
+ *
+ * @author canis_majoris
+ */
+public class GDELTTopEntitiesNGTest {
+
+    // the fewest counters kept for an entity type
+    private static final int COUNTERS = 1 << 16;
+    private static final int CHUNKS = 30;
+    private static final int TAIL_PER_CHUNK = 10000;
+    private static final int HEAVY = 10;
+    private static final int LATE_MENTIONS = 200;
+
+    /**
+     * Entities mentioned in every chunk are held with exact counts, and an
+     * entity first mentioned after every counter is in use is still found,
+     * with a count that overestimates its mentions by at most its error and
+     * an error within the Space-Saving bound.
+     */
+    @Test
+    public void testCountsAreWithinErrorBounds() {
+        final GDELTTopEntities top = new GDELTTopEntities(EnumSet.of(GDELTEntityTypes.Person), HEAVY + 1);
+        final Map<String, Long> truth = new HashMap<>();
+        long total = 0;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            final GDELTEntityAggregator counts = new GDELTEntityAggregator(Integer.MAX_VALUE);
+            for (int tail = 0; tail < TAIL_PER_CHUNK; tail++) {
+                total += mention(counts, truth, "tail " + chunk + "-" + tail, 1);
+            }
+            for (int heavy = 0; heavy < HEAVY; heavy++) {
+                total += mention(counts, truth, "heavy " + heavy, heavy + 1);
+            }
+            if (chunk == CHUNKS - 1) {
+                total += mention(counts, truth, "late", LATE_MENTIONS);
+            }
+            top.merge(counts);
+        }
+        assertTrue(truth.size() > COUNTERS);
+        final long bound = total / COUNTERS;
+
+        final List<String> found = new ArrayList<>();
+        final RecordStore records = top.toRecordStore();
+        records.reset();
+        while (records.next()) {
+            final String identifier = records.get(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER);
+            final long count = Long.parseLong(records.get(GraphRecordStoreUtilities.SOURCE + GDELTEntityAggregator.MENTIONS_ATTRIBUTE));
+            final String errorValue = records.get(GraphRecordStoreUtilities.SOURCE + GDELTTopEntities.MENTIONS_ERROR_ATTRIBUTE);
+            final long error = errorValue == null ? 0 : Long.parseLong(errorValue);
+            final long mentions = truth.get(identifier);
+            assertTrue(count >= mentions, identifier);
+            assertTrue(count - error <= mentions, identifier);
+            assertTrue(error <= bound, identifier);
+            if (identifier.startsWith("heavy ")) {
+                assertEquals(count, mentions);
+                assertNull(errorValue);
+            }
+            found.add(identifier);
+        }
+
+        assertEquals(found.size(), HEAVY + 1);
+        assertEquals(found.get(0), "heavy 9");
+        assertTrue(found.contains("late"));
+        for (int heavy = 0; heavy < HEAVY; heavy++) {
+            assertTrue(found.contains("heavy " + heavy));
+        }
+    }
+
+    /**
+     * An entity first mentioned after every counter is in use takes over the
+     * smallest counter, and keeps its count as the error.
+     */
+    @Test
+    public void testLateEntityCarriesError() {
+        final GDELTTopEntities top = new GDELTTopEntities(EnumSet.of(GDELTEntityTypes.Person), 1);
+        final GDELTEntityAggregator filled = new GDELTEntityAggregator(Integer.MAX_VALUE);
+        for (int tail = 0; tail < COUNTERS; tail++) {
+            filled.add(GDELTEntityTypes.Person, "tail " + tail);
+        }
+        top.merge(filled);
+
+        final GDELTEntityAggregator late = new GDELTEntityAggregator(Integer.MAX_VALUE);
+        late.add(GDELTEntityTypes.Person, "late");
+        late.add(GDELTEntityTypes.Person, "late");
+        top.merge(late);
+
+        final RecordStore records = top.toRecordStore();
+        records.reset();
+        assertTrue(records.next());
+        assertEquals(records.get(GraphRecordStoreUtilities.SOURCE + VisualConcept.VertexAttribute.IDENTIFIER), "late");
+        assertEquals(records.get(GraphRecordStoreUtilities.SOURCE + GDELTEntityAggregator.MENTIONS_ATTRIBUTE), "3");
+        assertEquals(records.get(GraphRecordStoreUtilities.SOURCE + GDELTTopEntities.MENTIONS_ERROR_ATTRIBUTE), "1");
+    }
+
+    private static int mention(final GDELTEntityAggregator counts, final Map<String, Long> truth, final String identifier, final int mentions) {
+        for (int i = 0; i < mentions; i++) {
+            counts.add(GDELTEntityTypes.Person, identifier);
+        }
+        truth.merge(identifier, (long) mentions, Long::sum);
+        return mentions;
+    }
+}
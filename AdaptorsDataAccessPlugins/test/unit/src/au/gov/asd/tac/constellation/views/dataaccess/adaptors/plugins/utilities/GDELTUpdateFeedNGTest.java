@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2025 Australian Signals Directorate
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package au.gov.asd.tac.constellation.views.dataaccess.adaptors.plugins.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests of {@link GDELTUpdateFeed} against canned update slices served by a
+ * {@link GDELTTestServer}.
+ *
+ * @author canis_majoris
+ */
+public class GDELTUpdateFeedNGTest {
+
+    private static final int ROWS = 50;
+    private static final ZonedDateTime FIRST_SLICE = ZonedDateTime.of(2024, 7, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+
+    private File directory;
+    private GDELTTestServer server;
+    private GDELTSyntheticDay day;
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+        directory = Files.createTempDirectory("gdelt-updates").toFile();
+        server = new GDELTTestServer();
+        day = new GDELTSyntheticDay(ROWS, 5);
+        addSlices(0, 3);
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+        server.close();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * The first run reads every slice from the start, and each later run only
+     * pulls the slices published since the run before it.
+     *
+     * @throws IOException if a slice could not be read.
+     */
+    @Test
+    public void testOnlyNewSlicesArePulled() throws IOException {
+        final GDELTUpdateFeed feed = new GDELTUpdateFeed(new File(directory, "updates.properties"));
+        assertEquals(feed.getLatestSlice(), getSlice(2));
+
+        assertEquals(ingest(feed, "consumer", FIRST_SLICE), List.of(getFile(0), getFile(1), getFile(2)));
+        assertEquals(server.getSliceRequests(), 3);
+
+        addSlices(3, 5);
+        assertEquals(ingest(feed, "consumer", FIRST_SLICE), List.of(getFile(3), getFile(4)));
+        assertEquals(server.getSliceRequests(), 5);
+
+        // nothing new has been published
+        assertTrue(ingest(feed, "consumer", FIRST_SLICE).isEmpty());
+        assertEquals(server.getSliceRequests(), 5);
+
+        // another consumer without a start only reads the latest slice
+        assertEquals(ingest(feed, "other", null), List.of(getFile(4)));
+    }
+
+    /**
+     * The last slice ingested by each consumer is saved, so a new feed over
+     * the same state carries on from it.
+     *
+     * @throws IOException if a slice could not be read.
+     */
+    @Test
+    public void testLastSliceIsPersisted() throws IOException {
+        final File state = new File(directory, "updates.properties");
+        final GDELTUpdateFeed feed = new GDELTUpdateFeed(state);
+        assertNull(feed.getLastSlice("consumer"));
+        ingest(feed, "consumer", FIRST_SLICE);
+        assertEquals(feed.getLastSlice("consumer"), getSlice(2));
+        assertTrue(state.isFile());
+
+        addSlices(3, 4);
+        final GDELTUpdateFeed reopened = new GDELTUpdateFeed(state);
+        assertEquals(reopened.getLastSlice("consumer"), getSlice(2));
+        assertNull(reopened.getLastSlice("other"));
+        assertEquals(ingest(reopened, "consumer", FIRST_SLICE), List.of(getFile(3)));
+        assertEquals(new GDELTUpdateFeed(state).getLastSlice("consumer"), getSlice(3));
+    }
+
+    /**
+     * A start further back than a day of updates is brought forward to the
+     * earliest of the last {@value GDELTUpdateFeed#MAXIMUM_SLICES} slices.
+     *
+     * @throws IOException if the latest slice could not be read.
+     */
+    @Test
+    public void testSlicesAreCappedAtADay() throws IOException {
+        final GDELTUpdateFeed feed = new GDELTUpdateFeed(new File(directory, "updates.properties"));
+        final List<GDELTDateTime> slices = feed.getNewSlices("consumer", FIRST_SLICE.minusDays(7), null);
+        assertEquals(slices.size(), GDELTUpdateFeed.MAXIMUM_SLICES);
+        assertEquals(slices.get(slices.size() - 1).getFile(), getFile(2));
+    }
+
+    // read the new slices as a feed query does, checking each has every row
+    private List<String> ingest(final GDELTUpdateFeed feed, final String consumer, final ZonedDateTime start) throws IOException {
+        final List<String> read = new ArrayList<>();
+        final List<GDELTDateTime> slices = feed.getNewSlices(consumer, start, null);
+        for (final GDELTDateTime slice : slices) {
+            assertTrue(slice.isUpdate());
+            assertEquals(countRows(slice), ROWS);
+            read.add(slice.getFile());
+        }
+        if (!slices.isEmpty()) {
+            feed.setLastSlice(consumer, slices.get(slices.size() - 1));
+        }
+        return read;
+    }
+
+    private static int countRows(final GDELTDateTime slice) throws IOException {
+        int rows = 0;
+        try (final InputStream in = GDELTFetcher.getInstance().open(slice.getUrl()); final ZipInputStream zis = new ZipInputStream(in)) {
+            assertNotNull(zis.getNextEntry());
+            final GDELTRowScanner scanner = new GDELTRowScanner(zis, GDELTRowLayout.UPDATE);
+            while (scanner.next()) {
+                assertEquals(scanner.get(GDELTRowScanner.DATE), slice.getDate());
+                assertTrue(scanner.count(GDELTRowScanner.SOURCES) > 0);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private void addSlices(final int first, final int end) throws IOException {
+        for (int slice = first; slice < end; slice++) {
+            server.addSlice(GDELTDateTime.forUpdate(getSlice(slice)), day);
+        }
+    }
+
+    private static ZonedDateTime getSlice(final int slice) {
+        return FIRST_SLICE.plusMinutes(15L * slice);
+    }
+
+    private static String getFile(final int slice) {
+        return GDELTDateTime.forUpdate(getSlice(slice)).getFile();
+    }
+}